@@ -0,0 +1,57 @@
+package Benchmarks;
+
+import DAO.AccountDAOImpl;
+import Model.Account;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountDAOImpl#getAccountByUsername(String)}, the lookup behind
+ * every login and registration, for hits and misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountDAOBenchmark {
+
+    @Param({"100", "10000"})
+    public int accounts;
+
+    private AccountDAOImpl accountDAO;
+    private String[] usernames;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.seed(accounts, 0);
+        accountDAO = new AccountDAOImpl();
+        usernames = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            usernames[i] = "user" + i;
+        }
+    }
+
+    @Benchmark
+    public Account getAccountByUsernameHit() {
+        return accountDAO.getAccountByUsername(usernames[ThreadLocalRandom.current().nextInt(accounts)]);
+    }
+
+    @Benchmark
+    public Account getAccountByUsernameMiss() {
+        return accountDAO.getAccountByUsername("missing-user");
+    }
+}
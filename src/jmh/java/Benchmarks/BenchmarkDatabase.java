@@ -0,0 +1,78 @@
+package Benchmarks;
+
+import DAO.MessageDAOImpl;
+import Util.ConnectionUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Seeds the H2 database behind {@link ConnectionUtil} with a known number of
+ * accounts and messages so DAO benchmarks run against realistic table sizes.
+ */
+final class BenchmarkDatabase {
+
+    static final long BASE_EPOCH = 1669947792L;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Recreates the schema and inserts {@code accounts} accounts named
+     * {@code user0..user(n-1)} with ids 1..n, and {@code messages} messages
+     * with ids 1..m spread evenly across them, one second apart.
+     */
+    static void seed(int accounts, int messages) throws SQLException {
+        ConnectionUtil.resetTestDatabase();
+        Connection connection = ConnectionUtil.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            PreparedStatement clear = connection.prepareStatement("DELETE FROM message");
+            clear.executeUpdate();
+            clear.close();
+            clear = connection.prepareStatement("DELETE FROM account");
+            clear.executeUpdate();
+            clear.close();
+
+            PreparedStatement account = connection.prepareStatement(
+                    "INSERT INTO account(account_id, username, password) VALUES (?, ?, ?)");
+            for (int i = 1; i <= accounts; i++) {
+                account.setInt(1, i);
+                account.setString(2, "user" + (i - 1));
+                account.setString(3, "password");
+                account.addBatch();
+            }
+            account.executeBatch();
+            account.close();
+
+            PreparedStatement message = connection.prepareStatement(
+                    "INSERT INTO message(message_id, posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?, ?)");
+            for (int i = 0; i < messages; i++) {
+                message.setInt(1, i + 1);
+                message.setInt(2, i % accounts + 1);
+                message.setString(3, "seeded message " + i);
+                message.setLong(4, BASE_EPOCH + i);
+                message.addBatch();
+                if (i % 1000 == 999) {
+                    message.executeBatch();
+                }
+            }
+            message.executeBatch();
+            message.close();
+
+            // Explicit ids do not advance the identity columns.
+            Statement restart = connection.createStatement();
+            restart.execute("ALTER TABLE account ALTER COLUMN account_id RESTART WITH " + (accounts + 1));
+            restart.execute("ALTER TABLE message ALTER COLUMN message_id RESTART WITH " + (messages + 1));
+            restart.close();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        // The tombstone column and indexes the DAO expects, as the controller adds them at startup.
+        new MessageDAOImpl(connection).ensureSchema();
+    }
+}
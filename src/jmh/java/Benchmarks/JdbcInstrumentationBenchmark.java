@@ -0,0 +1,58 @@
+package Benchmarks;
+
+import DAO.MessageDAOImpl;
+import Jdbc.InstrumentedJdbc;
+import Jdbc.SlowQueryLog;
+import Model.Message;
+import Util.ConnectionUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link InstrumentedJdbc} wrapper: the same lookup through a
+ * raw connection and through an instrumented one. The difference between
+ * the two is the per-statement overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JdbcInstrumentationBenchmark {
+
+    static final int MESSAGES = 1000;
+
+    private MessageDAOImpl raw;
+    private MessageDAOImpl instrumented;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.seed(MessageDAOBenchmark.ACCOUNTS, MESSAGES);
+        raw = new MessageDAOImpl(ConnectionUtil.getConnection());
+        // A threshold no statement reaches, so only the always-on path is measured.
+        InstrumentedJdbc jdbc = new InstrumentedJdbc(new SlowQueryLog(Long.MAX_VALUE, 0));
+        instrumented = new MessageDAOImpl(jdbc.wrap(ConnectionUtil.getConnection()));
+    }
+
+    @Benchmark
+    public Message rawGetMessageById() {
+        return raw.getMessageById(ThreadLocalRandom.current().nextInt(MESSAGES) + 1);
+    }
+
+    @Benchmark
+    public Message instrumentedGetMessageById() {
+        return instrumented.getMessageById(ThreadLocalRandom.current().nextInt(MESSAGES) + 1);
+    }
+}
@@ -0,0 +1,124 @@
+package Benchmarks;
+
+import Json.ModelJsonMapper;
+import Model.Account;
+import Model.Message;
+import Service.MessageService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the hand-written {@link ModelJsonMapper} against a default
+ * {@link ObjectMapper} for the payloads the controller actually sends and
+ * receives.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMapperBenchmark {
+
+    @Param({"1", "100"})
+    public int listSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ModelJsonMapper modelMapper = new ModelJsonMapper(MessageService.MAX_MESSAGE_TEXT_LENGTH);
+
+    private Message message;
+    private Account account;
+    private List<Message> messages;
+    private String messageJson;
+    private String accountJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        message = new Message(42, 7, "benchmark message text of a typical length", 1669947792L);
+        account = new Account(7, "benchmark-user", "password");
+        messages = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            messages.add(new Message(i + 1, i % 10 + 1, "message number " + i, 1669947792L + i));
+        }
+        messageJson = objectMapper.writeValueAsString(message);
+        accountJson = objectMapper.writeValueAsString(account);
+    }
+
+    @Benchmark
+    public String writeMessageObjectMapper() throws Exception {
+        return objectMapper.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public String writeMessageModelMapper() {
+        return modelMapper.toJsonString(message, Message.class);
+    }
+
+    @Benchmark
+    public String writeMessageListObjectMapper() throws Exception {
+        return objectMapper.writeValueAsString(messages);
+    }
+
+    @Benchmark
+    public String writeMessageListModelMapper() {
+        return modelMapper.toJsonString(messages, messages.getClass());
+    }
+
+    @Benchmark
+    public String writeAccountObjectMapper() throws Exception {
+        return objectMapper.writeValueAsString(account);
+    }
+
+    @Benchmark
+    public String writeAccountModelMapper() {
+        return modelMapper.toJsonString(account, Account.class);
+    }
+
+    @Benchmark
+    public Message readMessageObjectMapper() throws Exception {
+        return objectMapper.readValue(messageJson, Message.class);
+    }
+
+    @Benchmark
+    public Message readMessageModelMapper() {
+        return modelMapper.fromJsonString(messageJson, Message.class);
+    }
+
+    @Benchmark
+    public Account readAccountObjectMapper() throws Exception {
+        return objectMapper.readValue(accountJson, Account.class);
+    }
+
+    @Benchmark
+    public Account readAccountModelMapper() {
+        return modelMapper.fromJsonString(accountJson, Account.class);
+    }
+
+    @Benchmark
+    public List<Message> roundTripListObjectMapper() throws Exception {
+        return objectMapper.readValue(objectMapper.writeValueAsString(messages), new TypeReference<List<Message>>() {
+        });
+    }
+
+    @Benchmark
+    public List<Message> roundTripListModelMapper() {
+        String json = modelMapper.toJsonString(messages, messages.getClass());
+        return modelMapper.fromJsonString(json, new TypeReference<List<Message>>() {
+        }.getType());
+    }
+}
@@ -0,0 +1,330 @@
+package Benchmarks;
+
+import Controller.SocialMediaController;
+import io.javalin.Javalin;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process HTTP load generator. Seeds the database, starts
+ * {@link SocialMediaController#startAPI()} on a local port and drives a
+ * weighted mix of the eight endpoints at a fixed arrival rate.
+ *
+ * <p>The arrival model is open-loop: every request has an intended start
+ * time taken from the schedule, and its latency is measured from that
+ * intended time rather than from when it was actually sent. A stalled
+ * server therefore shows up as queueing delay in the histograms instead of
+ * silently lowering the offered load (coordinated omission).
+ *
+ * <pre>
+ * mvn -P jmh test-compile exec:exec@load -Dload.args="-rate 500 -duration 30 -mix get=50,list=5,post=10"
+ * </pre>
+ *
+ * Options: {@code -rate} requests/s, {@code -duration} and {@code -warmup}
+ * seconds, {@code -arrival poisson|uniform}, {@code -accounts} and
+ * {@code -messages} to seed, {@code -port}, {@code -mix} endpoint=weight
+ * pairs, and {@code -out} for a CSV copy of the report.
+ */
+public class LoadGenerator {
+
+    enum Endpoint {
+        REGISTER("register"),
+        LOGIN("login"),
+        POST("post"),
+        GET("get"),
+        LIST("list"),
+        PER_USER("per-user"),
+        PATCH("patch"),
+        DELETE("delete");
+
+        final String key;
+
+        Endpoint(String key) {
+            this.key = key;
+        }
+
+        static Endpoint of(String key) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.key.equals(key)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint in -mix: " + key);
+        }
+    }
+
+    /**
+     * Latency and outcome counters for one endpoint.
+     */
+    static final class EndpointStats {
+        // Latencies are recorded in microseconds, up to one minute.
+        final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+        final LongAdder errors = new LongAdder();
+        final LongAdder sent = new LongAdder();
+
+        void record(long latencyNanos, boolean ok) {
+            latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), latency.getHighestTrackableValue()));
+            if (!ok) {
+                errors.increment();
+            }
+        }
+    }
+
+    private int port = 8081;
+    private double rate = 200;
+    private int durationSeconds = 30;
+    private int warmupSeconds = 5;
+    private int accounts = 100;
+    private int messages = 1000;
+    private boolean poisson = true;
+    private String out;
+    private final Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+
+    private final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong registrations = new AtomicLong();
+    private final Random random = new Random(42);
+
+    private HttpClient client;
+    private String baseUrl;
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        generator.parse(args);
+        generator.run();
+    }
+
+    LoadGenerator() {
+        mix.put(Endpoint.REGISTER, 2);
+        mix.put(Endpoint.LOGIN, 10);
+        mix.put(Endpoint.POST, 15);
+        mix.put(Endpoint.GET, 30);
+        mix.put(Endpoint.LIST, 3);
+        mix.put(Endpoint.PER_USER, 25);
+        mix.put(Endpoint.PATCH, 10);
+        mix.put(Endpoint.DELETE, 5);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    void parse(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "-rate":
+                    rate = Double.parseDouble(value);
+                    break;
+                case "-duration":
+                    durationSeconds = Integer.parseInt(value);
+                    break;
+                case "-warmup":
+                    warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "-accounts":
+                    accounts = Integer.parseInt(value);
+                    break;
+                case "-messages":
+                    messages = Integer.parseInt(value);
+                    break;
+                case "-arrival":
+                    poisson = !"uniform".equals(value);
+                    break;
+                case "-out":
+                    out = value;
+                    break;
+                case "-mix":
+                    mix.clear();
+                    for (String pair : value.split(",")) {
+                        String[] kv = pair.split("=");
+                        mix.put(Endpoint.of(kv[0].trim()), Integer.parseInt(kv[1].trim()));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    void run() throws Exception {
+        BenchmarkDatabase.seed(accounts, messages);
+        // The mix writes without session tokens.
+        System.setProperty("socialmedia.auth.required", "false");
+        Javalin app = new SocialMediaController().startAPI();
+        app.start(port);
+        baseUrl = "http://localhost:" + port;
+        ExecutorService responseExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        client = HttpClient.newBuilder()
+                .executor(responseExecutor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        Endpoint[] picks = weightedTable();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        System.out.printf(Locale.ROOT, "offering %.0f req/s (%s arrivals) for %ds after %ds warmup%n",
+                rate, poisson ? "poisson" : "uniform", durationSeconds, warmupSeconds);
+
+        long intended = start;
+        while (intended < end) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            fire(picks[random.nextInt(picks.length)], intended, intended >= measureFrom);
+            intended += poisson ? (long) (-Math.log(1.0 - random.nextDouble()) * intervalNanos) : intervalNanos;
+        }
+
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        app.stop();
+        responseExecutor.shutdownNow();
+        report(TimeUnit.NANOSECONDS.toMillis(end - measureFrom) / 1000.0);
+    }
+
+    private void fire(Endpoint endpoint, long intendedStart, boolean measured) {
+        EndpointStats endpointStats = stats.get(endpoint);
+        if (measured) {
+            endpointStats.sent.increment();
+        }
+        inFlight.incrementAndGet();
+        client.sendAsync(request(endpoint), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long latency = System.nanoTime() - intendedStart;
+                    inFlight.decrementAndGet();
+                    if (measured) {
+                        endpointStats.record(latency, error == null && isExpected(response.statusCode()));
+                    }
+                });
+    }
+
+    /**
+     * Validation failures such as a login miss or a patch of a deleted
+     * message are normal outcomes under a random mix; only 5xx and transport
+     * failures count as errors.
+     */
+    private static boolean isExpected(int status) {
+        return status < 500;
+    }
+
+    private HttpRequest request(Endpoint endpoint) {
+        int account = random.nextInt(accounts) + 1;
+        int message = random.nextInt(messages) + 1;
+        switch (endpoint) {
+            case REGISTER:
+                return post("/register", "{\"username\":\"load-" + registrations.incrementAndGet()
+                        + "\",\"password\":\"password\"}");
+            case LOGIN:
+                return post("/login", "{\"username\":\"user" + (account - 1) + "\",\"password\":\"password\"}");
+            case POST:
+                return post("/messages", "{\"posted_by\":" + account
+                        + ",\"message_text\":\"load test message\",\"time_posted_epoch\":1669947792}");
+            case GET:
+                return get("/messages/" + message);
+            case LIST:
+                return get("/messages");
+            case PER_USER:
+                return get("/accounts/" + account + "/messages");
+            case PATCH:
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/messages/" + message))
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\":\"patched by load test\"}"))
+                        .header("Content-Type", "application/json")
+                        .build();
+            case DELETE:
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/messages/" + message)).DELETE().build();
+            default:
+                throw new IllegalStateException(endpoint.name());
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    private Endpoint[] weightedTable() {
+        int total = 0;
+        for (int weight : mix.values()) {
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("-mix needs at least one positive weight");
+        }
+        Endpoint[] table = new Endpoint[total];
+        int i = 0;
+        for (Map.Entry<Endpoint, Integer> entry : mix.entrySet()) {
+            for (int w = 0; w < entry.getValue(); w++) {
+                table[i++] = entry.getKey();
+            }
+        }
+        return table;
+    }
+
+    private void report(double seconds) throws IOException {
+        String header = String.format(Locale.ROOT, "%-9s %8s %8s %7s %10s %10s %10s %10s %10s",
+                "endpoint", "sent", "done", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        System.out.println(header);
+        PrintWriter csv = out == null ? null : new PrintWriter(out, "UTF-8");
+        if (csv != null) {
+            csv.println("endpoint,sent,completed,errors,throughput,p50_ms,p99_ms,p999_ms,max_ms");
+        }
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats s = entry.getValue();
+            Histogram h = s.latency;
+            long done = h.getTotalCount();
+            if (s.sent.sum() == 0) {
+                continue;
+            }
+            double throughput = done / seconds;
+            System.out.println(String.format(Locale.ROOT, "%-9s %8d %8d %7d %10.1f %10.3f %10.3f %10.3f %10.3f",
+                    entry.getKey().key, s.sent.sum(), done, s.errors.sum(), throughput,
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(99)),
+                    millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue())));
+            if (csv != null) {
+                csv.println(String.format(Locale.ROOT, "%s,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f",
+                        entry.getKey().key, s.sent.sum(), done, s.errors.sum(), throughput,
+                        millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(99)),
+                        millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue())));
+            }
+        }
+        if (csv != null) {
+            csv.close();
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
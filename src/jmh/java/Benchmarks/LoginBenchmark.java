@@ -0,0 +1,60 @@
+package Benchmarks;
+
+import Auth.HashingExecutor;
+import Auth.PasswordHasher;
+import Auth.Passwords;
+import DAO.AccountDAOImpl;
+import Model.Account;
+import Service.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login throughput against scrypt cost. Each op is one
+ * {@link AccountService#authenticate} of an account whose password is
+ * already hashed: the username lookup plus one scrypt verification on the
+ * hashing executor. Add {@code -t <n>} to see throughput flatten once the
+ * executor's threads are busy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+    /**
+     * log2 of the scrypt cost; 14 is the default (16 MiB per hash with r = 8).
+     */
+    @Param({"10", "12", "14"})
+    public int logN;
+
+    private AccountService accountService;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.seed(1, 0);
+        int cores = Runtime.getRuntime().availableProcessors();
+        Passwords passwords = new Passwords(new PasswordHasher(logN, 8, 1),
+                new HashingExecutor(Math.max(1, cores / 2), 1024, 60_000));
+        accountService = new AccountService(new AccountDAOImpl(), passwords);
+        accountService.createAccount(new Account("hashed-user", "password"));
+    }
+
+    @Benchmark
+    public Account login() {
+        return accountService.authenticate("hashed-user", "password");
+    }
+}
@@ -0,0 +1,61 @@
+package Benchmarks;
+
+import DAO.MessageDAOImpl;
+import Model.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MessageDAOImpl} hot paths against a message table of
+ * {@code tableSize} rows spread over {@link #ACCOUNTS} accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageDAOBenchmark {
+
+    static final int ACCOUNTS = 100;
+
+    @Param({"1000", "100000"})
+    public int tableSize;
+
+    private MessageDAOImpl messageDAO;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.seed(ACCOUNTS, tableSize);
+        messageDAO = new MessageDAOImpl();
+    }
+
+    @Benchmark
+    public boolean insertMessage() {
+        int postedBy = ThreadLocalRandom.current().nextInt(ACCOUNTS) + 1;
+        return messageDAO.insertMessage(new Message(postedBy, "benchmark insert", BenchmarkDatabase.BASE_EPOCH));
+    }
+
+    @Benchmark
+    public Message getMessageById() {
+        return messageDAO.getMessageById(ThreadLocalRandom.current().nextInt(tableSize) + 1);
+    }
+
+    @Benchmark
+    public List<Message> getMessagesByUser() {
+        return messageDAO.getMessagesByUser(ThreadLocalRandom.current().nextInt(ACCOUNTS) + 1);
+    }
+}
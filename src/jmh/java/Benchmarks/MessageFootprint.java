@@ -0,0 +1,122 @@
+package Benchmarks;
+
+import Model.Message;
+import Snapshot.MessageSnapshot;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the memory needed to hold N messages as the
+ * {@code List<Message>} that {@code MessageDAOImpl.getAllMessages} builds,
+ * and as a {@link MessageSnapshot} with its texts on and off the heap.
+ * Footprint is the growth in used heap (and direct buffer memory) after a
+ * full GC, with the structure still reachable.
+ *
+ * <pre>
+ * mvn -P jmh test-compile exec:exec@footprint -Dfootprint.args="-messages 10000000"
+ * </pre>
+ *
+ * Options: {@code -messages} to hold (default ten million) and
+ * {@code -textLength} for the average message length (default 60 ASCII
+ * characters). Run with a heap of at least 4 GB for the default size.
+ */
+public class MessageFootprint {
+
+    private int messages = 10_000_000;
+    private int textLength = 60;
+
+    public static void main(String[] args) throws Exception {
+        MessageFootprint footprint = new MessageFootprint();
+        footprint.parse(args);
+        footprint.run();
+    }
+
+    void parse(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-messages":
+                    messages = Integer.parseInt(value);
+                    break;
+                case "-textLength":
+                    textLength = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    void run() throws Exception {
+        byte[] alphabet = "abcdefghijklmnopqrstuvwxyz 0123456789".repeat(8).getBytes(StandardCharsets.US_ASCII);
+        long payload = 0;
+        for (int i = 0; i < messages; i++) {
+            payload += 4 + 4 + 8 + length(i);
+        }
+        System.out.printf(Locale.ROOT, "%,d messages, %,d payload bytes (%.1f per message)%n",
+                messages, payload, (double) payload / messages);
+        System.out.printf(Locale.ROOT, "%-24s %16s %16s %12s %8s%n", "layout", "heap bytes", "direct bytes",
+                "per message", "x payload");
+
+        long[] before = used();
+        List<Message> list = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            // A new String per row, as ResultSet.getString returns.
+            list.add(new Message(i + 1, i % 1000 + 1, new String(alphabet, i % 64, length(i), StandardCharsets.UTF_8),
+                    1_669_947_792L + i));
+        }
+        report("List<Message>", before, used(), payload);
+        Reference.reachabilityFence(list);
+        list = null;
+
+        for (boolean offHeap : new boolean[]{false, true}) {
+            before = used();
+            MessageSnapshot.Builder builder = new MessageSnapshot.Builder(offHeap);
+            for (int i = 0; i < messages; i++) {
+                builder.add(i + 1, i % 1000 + 1, new String(alphabet, i % 64, length(i), StandardCharsets.UTF_8),
+                        1_669_947_792L + i);
+            }
+            MessageSnapshot snapshot = builder.build();
+            builder = null;
+            report(offHeap ? "MessageSnapshot off-heap" : "MessageSnapshot", before, used(), payload);
+            Reference.reachabilityFence(snapshot);
+        }
+    }
+
+    /**
+     * Varies the text length around the average, from half to one and a half times it.
+     */
+    private int length(int i) {
+        return textLength / 2 + i % (textLength + 1);
+    }
+
+    private void report(String layout, long[] before, long[] after, long payload) {
+        long heap = after[0] - before[0];
+        long direct = after[1] - before[1];
+        System.out.printf(Locale.ROOT, "%-24s %,16d %,16d %12.1f %8.2f%n", layout, heap, direct,
+                (double) (heap + direct) / messages, (double) (heap + direct) / payload);
+    }
+
+    /**
+     * @return used heap and used direct buffer memory after a full GC.
+     */
+    private static long[] used() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        long direct = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                direct = pool.getMemoryUsed();
+            }
+        }
+        return new long[]{ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), direct};
+    }
+}
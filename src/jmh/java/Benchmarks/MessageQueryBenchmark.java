@@ -0,0 +1,73 @@
+package Benchmarks;
+
+import Snapshot.MessageFilter;
+import Snapshot.MessageQuery;
+import Snapshot.MessageSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MessageQuery} over a snapshot of one million messages at several
+ * pool sizes. {@code fullScan} matches nothing, so every message is tested
+ * and the time should fall in proportion to the number of cores used;
+ * {@code firstPage} stops after the first wave.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageQueryBenchmark {
+
+    static final int MESSAGES = 1_000_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private MessageSnapshot snapshot;
+    private MessageQuery query;
+    private MessageFilter nothing;
+    private MessageFilter common;
+
+    @Setup
+    public void setUp() {
+        MessageSnapshot.Builder builder = new MessageSnapshot.Builder(false);
+        for (int i = 1; i <= MESSAGES; i++) {
+            builder.add(i, i % 100 + 1, "benchmark message number " + i + " about nothing much",
+                    BenchmarkDatabase.BASE_EPOCH + i);
+        }
+        snapshot = builder.build();
+        query = new MessageQuery(parallelism);
+        nothing = MessageFilter.parse("text contains \"absent\" or author in (500, 501) or length > 254");
+        common = MessageFilter.parse("text contains \"number\" and author in (1, 2, 3, 4, 5)");
+    }
+
+    @TearDown
+    public void tearDown() {
+        query.close();
+    }
+
+    @Benchmark
+    public long fullScan() throws IOException {
+        return query.run(snapshot, nothing, 100, message -> { });
+    }
+
+    @Benchmark
+    public long firstPage() throws IOException {
+        return query.run(snapshot, common, 100, message -> { });
+    }
+}
@@ -0,0 +1,65 @@
+package Benchmarks;
+
+import DAO.MessageDAOImpl;
+import Model.Message;
+import Service.MessageService;
+import Service.ValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation cost of {@link MessageService#addMessage(Message)}. The blank and
+ * too-long cases are rejected before touching the database; the unknown-user
+ * case pays for the account existence query but never inserts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageServiceBenchmark {
+
+    private MessageService messageService;
+    private Message blank;
+    private Message tooLong;
+    private Message unknownUser;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDatabase.seed(10, 0);
+        messageService = new MessageService(new MessageDAOImpl());
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i <= MessageService.MAX_MESSAGE_TEXT_LENGTH; i++) {
+            text.append('a');
+        }
+        blank = new Message(1, "   ", BenchmarkDatabase.BASE_EPOCH);
+        tooLong = new Message(1, text.toString(), BenchmarkDatabase.BASE_EPOCH);
+        unknownUser = new Message(404, "hello", BenchmarkDatabase.BASE_EPOCH);
+    }
+
+    @Benchmark
+    public ValidationResult addMessageBlank() {
+        return messageService.addMessage(blank);
+    }
+
+    @Benchmark
+    public ValidationResult addMessageTooLong() {
+        return messageService.addMessage(tooLong);
+    }
+
+    @Benchmark
+    public ValidationResult addMessageUnknownUser() {
+        return messageService.addMessage(unknownUser);
+    }
+}
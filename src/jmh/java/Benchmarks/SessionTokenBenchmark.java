@@ -0,0 +1,58 @@
+package Benchmarks;
+
+import Auth.SessionTokens;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token verification as done by the authentication before-handler, on an
+ * Authorization header value. Run with {@code -prof gc} to confirm that
+ * verification does not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionTokenBenchmark {
+
+    private SessionTokens tokens;
+    private String header;
+    private String forged;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        tokens = new SessionTokens("benchmark-secret".getBytes(StandardCharsets.UTF_8), 3600);
+        header = "Bearer " + tokens.issue(42);
+        forged = header.substring(0, header.length() - 1) + (header.endsWith("A") ? "Q" : "A");
+        now = System.currentTimeMillis() / 1000;
+    }
+
+    @Benchmark
+    public int verifyValid() {
+        return tokens.verify(header, 7, now);
+    }
+
+    @Benchmark
+    public int verifyForged() {
+        return tokens.verify(forged, 7, now);
+    }
+
+    @Benchmark
+    public String issue() {
+        return tokens.issue(42);
+    }
+}
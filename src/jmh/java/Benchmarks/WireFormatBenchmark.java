@@ -0,0 +1,106 @@
+package Benchmarks;
+
+import Json.ContentNegotiation;
+import Json.ModelJsonMapper;
+import Model.Message;
+import Service.MessageService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON versus Smile for a list of messages, the payload of GET /messages.
+ * Besides ops/s, the encode benchmarks report the {@link Payload} counter as
+ * bytes/s; dividing it by ops/s gives the encoded size of one list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final Type MESSAGE_LIST = new TypeReference<List<Message>>() {
+    }.getType();
+
+    @Param({"1", "100", "1000"})
+    public int listSize;
+
+    private ModelJsonMapper jsonMapper;
+    private ContentNegotiation negotiation;
+    private List<Message> messages;
+    private String json;
+    private byte[] smile;
+
+    private int jsonSize;
+    private int smileSize;
+
+    /**
+     * Bytes produced by the encode benchmarks.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Payload {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        jsonMapper = new ModelJsonMapper(MessageService.MAX_MESSAGE_TEXT_LENGTH);
+        negotiation = new ContentNegotiation(jsonMapper);
+        messages = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            messages.add(new Message(i + 1, i % 10 + 1, "message number " + i + " with some text", 1669947792L + i));
+        }
+        json = jsonMapper.toJsonString(messages, List.class);
+        smile = negotiation.toSmile(messages);
+        jsonSize = json.getBytes(StandardCharsets.UTF_8).length;
+        smileSize = smile.length;
+        System.out.printf("%d messages: json %d bytes, smile %d bytes%n", listSize, jsonSize, smileSize);
+    }
+
+    @Benchmark
+    public String encodeJson(Payload payload) {
+        payload.bytes += jsonSize;
+        return jsonMapper.toJsonString(messages, List.class);
+    }
+
+    @Benchmark
+    public byte[] encodeSmile(Payload payload) {
+        payload.bytes += smileSize;
+        return negotiation.toSmile(messages);
+    }
+
+    @Benchmark
+    public List<Message> decodeJson() {
+        return jsonMapper.fromJsonString(json, MESSAGE_LIST);
+    }
+
+    @Benchmark
+    public List<Message> decodeSmile() {
+        return negotiation.fromSmile(smile, MESSAGE_LIST);
+    }
+}
@@ -0,0 +1,20 @@
+package Auth;
+
+/**
+ * Rejects a request from the authentication before-handler. The controller
+ * maps it to the status with an empty body. No stack trace is captured,
+ * since rejecting a bad token is routine and may happen at high rates.
+ */
+public class AuthenticationException extends RuntimeException {
+
+    private final int status;
+
+    public AuthenticationException(int status, String message) {
+        super(message, null, false, false);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,88 @@
+package Auth;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Authenticates writes to messages from an
+ * {@code Authorization: Bearer <token>} header, without touching the
+ * database. The account id is left on the request for the handlers,
+ * which bind posted_by to it.
+ *
+ * <p>Requests without a token are rejected unless
+ * {@code socialmedia.auth.required} is set to false, which lets clients
+ * that do not log in keep working. A token that is present but invalid is
+ * always rejected.
+ */
+public class Authenticator {
+
+    public static final String TOKEN_HEADER = "X-Auth-Token";
+
+    private static final String AUTHORIZATION = "Authorization";
+    private static final String BEARER = "Bearer ";
+    private static final String ACCOUNT_ATTRIBUTE = Authenticator.class.getName();
+
+    private final SessionTokens tokens;
+    private final boolean required;
+
+    public Authenticator(SessionTokens tokens, boolean required) {
+        this.tokens = tokens;
+        this.required = required;
+    }
+
+    /**
+     * Reads {@code socialmedia.auth.required} (default true) and the
+     * settings of {@link SessionTokens#fromSystemProperties()}.
+     */
+    public static Authenticator fromSystemProperties() {
+        return new Authenticator(SessionTokens.fromSystemProperties(),
+                Boolean.parseBoolean(System.getProperty("socialmedia.auth.required", "true")));
+    }
+
+    /**
+     * @return a before-handler for one route's path that authenticates
+     *         requests with the given methods and ignores the others.
+     */
+    public Handler forMethods(HandlerType... methods) {
+        Set<HandlerType> authenticated = EnumSet.copyOf(Arrays.asList(methods));
+        return ctx -> {
+            if (authenticated.contains(ctx.method())) {
+                authenticate(ctx);
+            }
+        };
+    }
+
+    public void authenticate(Context ctx) {
+        String header = ctx.header(AUTHORIZATION);
+        if (header == null) {
+            if (required) {
+                throw new AuthenticationException(401, "Missing token");
+            }
+            return;
+        }
+        int accountId = header.regionMatches(true, 0, BEARER, 0, BEARER.length())
+                ? tokens.verify(header, BEARER.length(), System.currentTimeMillis() / 1000)
+                : 0;
+        if (accountId == 0) {
+            throw new AuthenticationException(401, "Invalid token");
+        }
+        ctx.attribute(ACCOUNT_ATTRIBUTE, accountId);
+    }
+
+    /**
+     * @return the authenticated account of this request, or 0 if it carried no token.
+     */
+    public static int accountId(Context ctx) {
+        Integer accountId = ctx.attribute(ACCOUNT_ATTRIBUTE);
+        return accountId == null ? 0 : accountId;
+    }
+
+    public SessionTokens tokens() {
+        return tokens;
+    }
+}
@@ -0,0 +1,106 @@
+package Auth;
+
+import Metrics.LatencyTimer;
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs password hashes on a fixed number of threads with a bounded queue.
+ * The request thread waits for its hash without using CPU, so hashing
+ * uses at most {@code threads} cores however many logins arrive. The queue
+ * bound limits how many request threads can be parked on hashing at once.
+ * Once it is full, callers get a {@link HashingRejectedException}
+ * immediately instead of piling up.
+ */
+public class HashingExecutor implements MetricsRegistry.Collector {
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final LatencyTimer hashTime = new LatencyTimer();
+    private final LongAdder rejected = new LongAdder();
+
+    public HashingExecutor(int threads, int queueSize, long timeoutMillis) {
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), task -> {
+                    Thread thread = new Thread(task, "password-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Idle pools from discarded controllers (e.g. in tests) release their threads.
+        executor.allowCoreThreadTimeOut(true);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Sizes the executor from {@code socialmedia.auth.hashThreads} (default
+     * half the cores), {@code socialmedia.auth.hashQueue} (default 32) and
+     * {@code socialmedia.auth.hashTimeoutMillis} (default 5000).
+     */
+    public static HashingExecutor fromSystemProperties() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new HashingExecutor(Integer.getInteger("socialmedia.auth.hashThreads", Math.max(1, cores / 2)),
+                Integer.getInteger("socialmedia.auth.hashQueue", 32),
+                Long.getLong("socialmedia.auth.hashTimeoutMillis", 5000));
+    }
+
+    /**
+     * Runs {@code task} on a hashing thread and waits for its result.
+     *
+     * @throws HashingRejectedException if the queue is full or the task times out.
+     */
+    public <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    hashTime.record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HashingRejectedException("Password hashing queue is full");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new HashingRejectedException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HashingRejectedException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("auth_hash_seconds", "summary", "Time spent computing password hashes.");
+        out.summary("auth_hash_seconds", hashTime);
+        out.family("auth_hash_queue_depth", "gauge", "Password hashes waiting for a thread.");
+        out.sample("auth_hash_queue_depth", executor.getQueue().size());
+        out.family("auth_hash_rejected_total", "counter", "Hashes refused because the queue was full or timed out.");
+        out.sample("auth_hash_rejected_total", rejected.sum());
+    }
+}
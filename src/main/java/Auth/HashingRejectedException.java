@@ -0,0 +1,13 @@
+package Auth;
+
+/**
+ * The hashing executor is saturated, or a hash did not finish in time.
+ * The controller answers 503 so the client retries later. Like
+ * {@link AuthenticationException}, no stack trace is captured.
+ */
+public class HashingRejectedException extends RuntimeException {
+
+    public HashingRejectedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,114 @@
+package Auth;
+
+import org.bouncycastle.crypto.generators.SCrypt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * scrypt password hashes in the form
+ * {@code $scrypt$ln=14,r=8,p=1$<salt>$<hash>} (base64, no padding).
+ *
+ * <p>Rows written before hashing was introduced hold the plaintext
+ * password. {@link #matches} still accepts them and {@link #needsRehash}
+ * reports them, so they can be upgraded on the next successful login.
+ * The same goes for hashes made with weaker parameters than the current ones.
+ */
+public class PasswordHasher {
+
+    private static final String PREFIX = "$scrypt$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+
+    private final int logN;
+    private final int r;
+    private final int p;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param logN log2 of the CPU/memory cost; memory is 128 * r * 2^logN bytes.
+     * @param r    block size.
+     * @param p    parallelization.
+     */
+    public PasswordHasher(int logN, int r, int p) {
+        this.logN = logN;
+        this.r = r;
+        this.p = p;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = SCrypt.generate(password.getBytes(StandardCharsets.UTF_8), salt, 1 << logN, r, p, HASH_BYTES);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "ln=" + logN + ",r=" + r + ",p=" + p + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(hash);
+    }
+
+    public boolean matches(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            // Legacy plaintext row.
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        int[] params = parseParams(parts[0]);
+        if (params == null) {
+            return false;
+        }
+        byte[] salt;
+        byte[] expected;
+        try {
+            salt = Base64.getDecoder().decode(parts[1]);
+            expected = Base64.getDecoder().decode(parts[2]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        byte[] actual = SCrypt.generate(password.getBytes(StandardCharsets.UTF_8), salt,
+                1 << params[0], params[1], params[2], expected.length);
+        return MessageDigest.isEqual(actual, expected);
+    }
+
+    /**
+     * @return true if {@code stored} is plaintext or was hashed with
+     *         parameters other than the current ones.
+     */
+    public boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        int[] params = end < 0 ? null : parseParams(stored.substring(PREFIX.length(), end));
+        return params == null || params[0] != logN || params[1] != r || params[2] != p;
+    }
+
+    /**
+     * @return {logN, r, p} from "ln=14,r=8,p=1", or null if malformed.
+     */
+    private static int[] parseParams(String params) {
+        String[] fields = params.split(",");
+        if (fields.length != 3 || !fields[0].startsWith("ln=") || !fields[1].startsWith("r=")
+                || !fields[2].startsWith("p=")) {
+            return null;
+        }
+        try {
+            int[] values = {Integer.parseInt(fields[0].substring(3)), Integer.parseInt(fields[1].substring(2)),
+                    Integer.parseInt(fields[2].substring(2))};
+            // Reject costs that would let a crafted row exhaust memory or CPU.
+            if (values[0] < 1 || values[0] > 20 || values[1] < 1 || values[1] > 32 || values[2] < 1 || values[2] > 16) {
+                return null;
+            }
+            return values;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package Auth;
+
+import Tracing.Span;
+import Tracing.Tracer;
+
+/**
+ * Password hashing and verification for the account service. Every scrypt
+ * computation runs on the {@link HashingExecutor}.
+ */
+public class Passwords {
+
+    private final PasswordHasher hasher;
+    private final HashingExecutor executor;
+    private volatile String dummyHash;
+
+    public Passwords(PasswordHasher hasher, HashingExecutor executor) {
+        this.hasher = hasher;
+        this.executor = executor;
+    }
+
+    /**
+     * scrypt cost from {@code socialmedia.auth.scryptLogN} (default 14),
+     * {@code socialmedia.auth.scryptR} (default 8) and
+     * {@code socialmedia.auth.scryptP} (default 1).
+     */
+    public static Passwords fromSystemProperties() {
+        return new Passwords(new PasswordHasher(Integer.getInteger("socialmedia.auth.scryptLogN", 14),
+                Integer.getInteger("socialmedia.auth.scryptR", 8), Integer.getInteger("socialmedia.auth.scryptP", 1)),
+                HashingExecutor.fromSystemProperties());
+    }
+
+    public String hash(String password) {
+        try (Span span = Tracer.span("Passwords.hash")) {
+            return executor.run(() -> hasher.hash(password));
+        }
+    }
+
+    public boolean matches(String password, String stored) {
+        try (Span span = Tracer.span("Passwords.matches")) {
+            return executor.run(() -> hasher.matches(password, stored));
+        }
+    }
+
+    public boolean needsRehash(String stored) {
+        return hasher.needsRehash(stored);
+    }
+
+    /**
+     * Spends the same time as checking a real password, so that a login
+     * for an unknown username cannot be told apart by its latency.
+     */
+    public void matchNothing(String password) {
+        String dummy = dummyHash;
+        if (dummy == null) {
+            dummy = hash("not a password");
+            dummyHash = dummy;
+        }
+        matches(password, dummy);
+    }
+
+    public HashingExecutor executor() {
+        return executor;
+    }
+}
@@ -0,0 +1,200 @@
+package Auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Stateless session tokens: an account id and expiry signed with
+ * HMAC-SHA256, so a token can be checked without a database lookup.
+ *
+ * <p>A token is 35 characters of base64url: a 9 byte payload (version,
+ * account id, expiry in Unix seconds), a dot, and the first 16 bytes of
+ * the HMAC of the payload.
+ *
+ * <p>{@link #verify} does not allocate. It decodes into per-thread buffers
+ * and computes the HMAC by hand on two per-thread SHA-256 digests, because
+ * {@code javax.crypto.Mac} allocates its result on every call.
+ */
+public class SessionTokens {
+
+    public static final int TOKEN_LENGTH = 35;
+
+    private static final byte VERSION = 1;
+    private static final int PAYLOAD_BYTES = 9;
+    private static final int PAYLOAD_CHARS = 12;
+    private static final int MAC_BYTES = 16;
+    private static final int BLOCK_BYTES = 64;
+    private static final int SHA256_BYTES = 32;
+    private static final int[] DECODE = new int[128];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = i;
+        }
+    }
+
+    /**
+     * Per-thread digests and buffers for {@link #verify}.
+     */
+    private static final class Scratch {
+        final MessageDigest inner = sha256();
+        final MessageDigest outer = sha256();
+        final byte[] payload = new byte[PAYLOAD_BYTES];
+        final byte[] given = new byte[MAC_BYTES + 2];
+        final byte[] digest = new byte[SHA256_BYTES];
+    }
+
+    private final byte[] innerPad = new byte[BLOCK_BYTES];
+    private final byte[] outerPad = new byte[BLOCK_BYTES];
+    private final long ttlSeconds;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * @param secret     the HMAC key; tokens are only valid for the same key.
+     * @param ttlSeconds how long an issued token is accepted.
+     */
+    public SessionTokens(byte[] secret, long ttlSeconds) {
+        byte[] key = secret.length > BLOCK_BYTES ? sha256().digest(secret) : secret;
+        for (int i = 0; i < BLOCK_BYTES; i++) {
+            byte b = i < key.length ? key[i] : 0;
+            innerPad[i] = (byte) (b ^ 0x36);
+            outerPad[i] = (byte) (b ^ 0x5c);
+        }
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * Builds tokens from {@code socialmedia.auth.secret} (any string) and
+     * {@code socialmedia.auth.ttlSeconds} (default 3600). Without a secret
+     * a random one is generated, so tokens do not survive a restart.
+     */
+    public static SessionTokens fromSystemProperties() {
+        String configured = System.getProperty("socialmedia.auth.secret");
+        byte[] secret;
+        if (configured != null) {
+            secret = configured.getBytes(StandardCharsets.UTF_8);
+        } else {
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        }
+        return new SessionTokens(secret, Long.getLong("socialmedia.auth.ttlSeconds", 3600));
+    }
+
+    /**
+     * @return a token for the account, valid for the configured TTL.
+     */
+    public String issue(int accountId) {
+        return issue(accountId, System.currentTimeMillis() / 1000 + ttlSeconds);
+    }
+
+    String issue(int accountId, long expiresAtSeconds) {
+        Scratch s = scratch.get();
+        byte[] payload = new byte[PAYLOAD_BYTES];
+        payload[0] = VERSION;
+        writeInt(payload, 1, accountId);
+        writeInt(payload, 5, (int) expiresAtSeconds);
+        mac(s, payload);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload) + "." + encoder.encodeToString(Arrays.copyOf(s.digest, MAC_BYTES));
+    }
+
+    /**
+     * Checks a token that starts at {@code offset} and runs to the end of
+     * {@code value}, e.g. an Authorization header after "Bearer ".
+     *
+     * @return the account id, or 0 if the token is malformed, forged or expired.
+     */
+    public int verify(CharSequence value, int offset, long nowSeconds) {
+        if (value.length() - offset != TOKEN_LENGTH || value.charAt(offset + PAYLOAD_CHARS) != '.') {
+            return 0;
+        }
+        Scratch s = scratch.get();
+        if (!decode(value, offset, PAYLOAD_CHARS, s.payload)
+                || !decode(value, offset + PAYLOAD_CHARS + 1, TOKEN_LENGTH - PAYLOAD_CHARS - 1, s.given)
+                || s.payload[0] != VERSION) {
+            return 0;
+        }
+        mac(s, s.payload);
+        int difference = 0;
+        for (int i = 0; i < MAC_BYTES; i++) {
+            // Constant time, so the comparison does not reveal how many bytes matched.
+            difference |= s.digest[i] ^ s.given[i];
+        }
+        if (difference != 0) {
+            return 0;
+        }
+        long expiresAt = readInt(s.payload, 5) & 0xffffffffL;
+        if (nowSeconds >= expiresAt) {
+            return 0;
+        }
+        return readInt(s.payload, 1);
+    }
+
+    /**
+     * HMAC-SHA256 of the payload into {@code s.digest}.
+     */
+    private void mac(Scratch s, byte[] payload) {
+        try {
+            s.inner.update(innerPad);
+            s.inner.update(payload, 0, PAYLOAD_BYTES);
+            s.inner.digest(s.digest, 0, SHA256_BYTES);
+            s.outer.update(outerPad);
+            s.outer.update(s.digest, 0, SHA256_BYTES);
+            s.outer.digest(s.digest, 0, SHA256_BYTES);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes unpadded base64url into {@code out}. Rejects characters
+     * outside the alphabet and non-zero trailing bits, so every token has
+     * exactly one accepted spelling.
+     */
+    private static boolean decode(CharSequence in, int offset, int length, byte[] out) {
+        int bits = 0;
+        int bitCount = 0;
+        int written = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = in.charAt(i);
+            int value = c < 128 ? DECODE[c] : -1;
+            if (value < 0) {
+                return false;
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                out[written++] = (byte) (bits >> bitCount);
+            }
+        }
+        return (bits & ((1 << bitCount) - 1)) == 0;
+    }
+
+    private static void writeInt(byte[] b, int offset, int value) {
+        b[offset] = (byte) (value >>> 24);
+        b[offset + 1] = (byte) (value >>> 16);
+        b[offset + 2] = (byte) (value >>> 8);
+        b[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return (b[offset] & 0xff) << 24 | (b[offset + 1] & 0xff) << 16 | (b[offset + 2] & 0xff) << 8
+                | (b[offset + 3] & 0xff);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
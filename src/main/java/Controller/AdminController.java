@@ -0,0 +1,143 @@
+package Controller;
+
+import Jdbc.InstrumentedJdbc;
+import Jdbc.SqlTemplateStats;
+import Json.ContentNegotiation;
+import Tracing.OtlpJson;
+import Tracing.Span;
+import Tracing.Trace;
+import Tracing.Tracer;
+import Util.ConnectionUtil;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operational endpoints under /admin. These are diagnostics for operators
+ * and are not part of the public API.
+ */
+public class AdminController {
+
+    private static final int DEFAULT_TRACE_LIMIT = 20;
+
+    private final InstrumentedJdbc jdbc;
+    private final Tracer tracer;
+    private final ContentNegotiation negotiation;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public AdminController(InstrumentedJdbc jdbc, Tracer tracer, ContentNegotiation negotiation) {
+        this.jdbc = jdbc;
+        this.tracer = tracer;
+        this.negotiation = negotiation;
+    }
+
+    public void registerEndpoints(Javalin app) {
+        app.get("/admin/sql", this::getSqlStats);
+        app.get("/admin/sql/explain", this::explainSql);
+        app.get("/admin/traces", this::getTraces);
+        app.get("/admin/traces/{requestId}", this::getTrace);
+    }
+
+    /**
+     * Lists every SQL template with its call count, row count, errors and
+     * latency percentiles, most total time first.
+     */
+    private void getSqlStats(Context ctx) {
+        List<SqlTemplateStats> templates = new ArrayList<>(jdbc.templates());
+        templates.sort(Comparator.comparingDouble((SqlTemplateStats t) -> t.getLatency().sumSeconds()).reversed());
+        List<Map<String, Object>> body = new ArrayList<>();
+        for (SqlTemplateStats template : templates) {
+            Histogram h = template.getLatency().snapshot();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("sql", template.getSql());
+            row.put("count", h.getTotalCount());
+            row.put("rows", template.getRows());
+            row.put("errors", template.getErrors());
+            row.put("total_ms", template.getLatency().sumSeconds() * 1000);
+            row.put("p50_ms", h.getValueAtPercentile(50) / 1000.0);
+            row.put("p99_ms", h.getValueAtPercentile(99) / 1000.0);
+            row.put("max_ms", h.getMaxValue() / 1000.0);
+            body.add(row);
+        }
+        negotiation.write(ctx, body);
+    }
+
+    /**
+     * Runs EXPLAIN for a template given in the {@code sql} query parameter.
+     * Only templates the application has already executed are accepted.
+     */
+    private void explainSql(Context ctx) throws SQLException {
+        String sql = ctx.queryParam("sql");
+        if (sql == null || sql.isEmpty()) {
+            ctx.status(400).result("");
+            return;
+        }
+        String plan = jdbc.explain(ConnectionUtil.getConnection(), sql);
+        if (plan == null) {
+            ctx.status(404).result("");
+            return;
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("sql", sql);
+        body.put("plan", plan);
+        negotiation.write(ctx, body);
+    }
+
+    /**
+     * Lists the most recent sampled requests, newest first, with the time
+     * spent in each span. {@code limit} defaults to 20.
+     */
+    private void getTraces(Context ctx) {
+        String limitParam = ctx.queryParam("limit");
+        int limit = limitParam == null ? DEFAULT_TRACE_LIMIT : Integer.parseInt(limitParam);
+        List<Map<String, Object>> body = new ArrayList<>();
+        for (Trace trace : tracer.buffer().recent(limit)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("request_id", trace.getRequestId());
+            row.put("trace_id", trace.getTraceId());
+            row.put("name", trace.getRoot().getName());
+            row.put("duration_ms", trace.getRoot().getDurationNanos() / 1e6);
+            List<Map<String, Object>> spans = new ArrayList<>();
+            for (Span span : trace.getSpans()) {
+                Map<String, Object> spanRow = new LinkedHashMap<>();
+                spanRow.put("name", span.getName());
+                spanRow.put("offset_ms", (span.getStartNanos() - trace.getRoot().getStartNanos()) / 1e6);
+                spanRow.put("duration_ms", span.getDurationNanos() / 1e6);
+                spanRow.put("error", span.isError());
+                spans.add(spanRow);
+            }
+            row.put("spans", spans);
+            body.add(row);
+        }
+        negotiation.write(ctx, body);
+    }
+
+    /**
+     * Returns one buffered trace as an OTLP/JSON document, or 404 if it was
+     * not sampled or has been evicted.
+     */
+    private void getTrace(Context ctx) throws IOException {
+        Trace trace = tracer.buffer().find(ctx.pathParam("requestId"));
+        if (trace == null) {
+            ctx.status(404).result("");
+            return;
+        }
+        StringWriter out = new StringWriter();
+        JsonGenerator gen = jsonFactory.createGenerator(out);
+        OtlpJson.write(gen, Collections.singletonList(trace));
+        gen.close();
+        ctx.contentType("application/json").result(out.toString());
+    }
+}
@@ -0,0 +1,153 @@
+package Controller;
+
+import Export.Column;
+import Export.ExportFormat;
+import Export.RowWriter;
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+import Model.Account;
+import Model.Message;
+import Service.AccountService;
+import Service.MessageService;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import org.eclipse.jetty.server.Request;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk export endpoints for analytics. Rows are encoded as they come off a
+ * forward-only cursor and written straight to the response, so an export
+ * never holds more than one row and the encoder buffers in memory.
+ *
+ * <ul>
+ *   <li>{@code format=ndjson|csv}, or {@code Accept: text/csv}; NDJSON by default.</li>
+ *   <li>{@code since} and {@code until} bound time_posted_epoch for messages,
+ *       inclusive and exclusive respectively.</li>
+ *   <li>The body is gzipped when the client sends {@code Accept-Encoding: gzip}.</li>
+ * </ul>
+ */
+public class ExportController {
+
+    private static final AsyncLogger log = AsyncLog.getLogger(ExportController.class);
+
+    private static final List<Column<Message>> MESSAGE_COLUMNS = Arrays.asList(
+            new Column<>("message_id", Message::getMessage_id),
+            new Column<>("posted_by", Message::getPosted_by),
+            new Column<>("message_text", Message::getMessage_text),
+            new Column<>("time_posted_epoch", Message::getTime_posted_epoch));
+
+    // Password hashes never leave the service.
+    private static final List<Column<Account>> ACCOUNT_COLUMNS = Arrays.asList(
+            new Column<>("account_id", Account::getAccount_id),
+            new Column<>("username", Account::getUsername));
+
+    /**
+     * Runs the DAO query, feeding each row to the writer.
+     */
+    private interface Export<T> {
+        long run(RowWriter<T> writer) throws SQLException, IOException;
+    }
+
+    private final AccountService accountService;
+    private final MessageService messageService;
+
+    public ExportController(AccountService accountService, MessageService messageService) {
+        this.accountService = accountService;
+        this.messageService = messageService;
+    }
+
+    public void registerEndpoints(Javalin app) {
+        app.get("/export/messages", this::exportMessages);
+        app.get("/export/accounts", this::exportAccounts);
+    }
+
+    private void exportMessages(Context ctx) throws SQLException, IOException {
+        ExportFormat format = ExportFormat.select(ctx.queryParam("format"), ctx.header("Accept"));
+        long since;
+        long until;
+        try {
+            since = epochParam(ctx, "since", Long.MIN_VALUE);
+            until = epochParam(ctx, "until", Long.MAX_VALUE);
+        } catch (NumberFormatException e) {
+            ctx.status(400).result("");
+            return;
+        }
+        if (format == null || since > until) {
+            ctx.status(400).result("");
+            return;
+        }
+        stream(ctx, format, "messages", MESSAGE_COLUMNS,
+                writer -> messageService.exportMessages(since, until, writer));
+    }
+
+    private void exportAccounts(Context ctx) throws SQLException, IOException {
+        ExportFormat format = ExportFormat.select(ctx.queryParam("format"), ctx.header("Accept"));
+        // Accounts have no timestamp, so a time range cannot be honoured.
+        if (format == null || ctx.queryParam("since") != null || ctx.queryParam("until") != null) {
+            ctx.status(400).result("");
+            return;
+        }
+        stream(ctx, format, "accounts", ACCOUNT_COLUMNS, accountService::exportAccounts);
+    }
+
+    private static long epochParam(Context ctx, String name, long absent) {
+        String value = ctx.queryParam(name);
+        return value == null ? absent : Long.parseLong(value);
+    }
+
+    /**
+     * Writes the export directly to the servlet output stream. Once the
+     * first buffer has been flushed the status can no longer change, so a
+     * failure part way through is logged and the connection is aborted.
+     */
+    private <T> void stream(Context ctx, ExportFormat format, String name, List<Column<T>> columns,
+                            Export<T> export) throws SQLException, IOException {
+        boolean gzip = acceptsGzip(ctx);
+        ctx.status(200);
+        ctx.contentType(format.getContentType());
+        ctx.header("Content-Disposition", "attachment; filename=\"" + name + "." + format.getExtension() + "\"");
+        ctx.header("Vary", "Accept, Accept-Encoding");
+        if (gzip) {
+            ctx.header("Content-Encoding", "gzip");
+        }
+        OutputStream out = ctx.res().getOutputStream();
+        GZIPOutputStream compressed = null;
+        if (gzip) {
+            compressed = new GZIPOutputStream(out, 8192);
+            out = compressed;
+        }
+        long rows;
+        try {
+            RowWriter<T> writer = format.open(out, columns);
+            rows = export.run(writer);
+            writer.finish();
+            if (compressed != null) {
+                compressed.finish();
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            if (!ctx.res().isCommitted()) {
+                // Nothing has been sent yet, so the usual 500 response can replace the headers.
+                ctx.res().reset();
+                throw e;
+            }
+            log.error("Export failed", e, "export", name, "format", format.getExtension());
+            // Aborting skips the final chunk, so the client sees a truncated transfer
+            // rather than a short export that looks complete.
+            Request.getBaseRequest(ctx.req()).getHttpChannel().abort(e);
+            return;
+        }
+        log.info("Export finished", "export", name, "format", format.getExtension(), "rows", rows,
+                "gzip", gzip);
+    }
+
+    private static boolean acceptsGzip(Context ctx) {
+        String acceptEncoding = ctx.header("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+}
@@ -0,0 +1,33 @@
+package Controller;
+
+/**
+ * The {@code ids} query parameter of the batch reads: a comma-separated
+ * list of ids, such as {@code ?ids=3,1,2}.
+ */
+final class IdList {
+
+    static final int MAX_IDS = 100;
+
+    private IdList() {
+    }
+
+    /**
+     * @return the ids as given, or null if one is not a number or there are
+     *         none or more than 100.
+     */
+    static int[] parse(String value) {
+        String[] parts = value.split(",", -1);
+        if (parts.length > MAX_IDS) {
+            return null;
+        }
+        int[] ids = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                ids[i] = Integer.parseInt(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,85 @@
+package Controller;
+
+import DAO.MessageField;
+import Json.ModelJsonMapper;
+import Snapshot.MessageFilter;
+import Snapshot.MessageQuery;
+import Snapshot.MessageSnapshot;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Ad hoc message filters for moderation, under /search. A filter is
+ * compiled once and evaluated in parallel over an in-memory snapshot, and
+ * matches are written to the response as they are found.
+ *
+ * <ul>
+ *   <li>{@code q} is a {@link MessageFilter} expression.</li>
+ *   <li>{@code limit} caps the number of matches, default 100, at most 10000.</li>
+ *   <li>{@code fields} names the message fields to write, default all.</li>
+ * </ul>
+ */
+public class SearchController {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 10000;
+
+    private final MessageQuery query;
+    private final Supplier<MessageSnapshot> snapshots;
+    private final ModelJsonMapper jsonMapper;
+
+    /**
+     * @param snapshots supplies the snapshot to search, once per request.
+     */
+    public SearchController(MessageQuery query, Supplier<MessageSnapshot> snapshots, ModelJsonMapper jsonMapper) {
+        this.query = query;
+        this.snapshots = snapshots;
+        this.jsonMapper = jsonMapper;
+    }
+
+    public void registerEndpoints(Javalin app) {
+        app.get("/search/messages", this::searchMessages);
+    }
+
+    /**
+     * Responds 400 with the reason when the filter or the field list does
+     * not parse, before anything is scanned.
+     */
+    private void searchMessages(Context ctx) throws IOException {
+        String expression = ctx.queryParam("q");
+        String limitParam = ctx.queryParam("limit");
+        int limit;
+        try {
+            limit = limitParam == null ? DEFAULT_LIMIT : Integer.parseInt(limitParam);
+        } catch (NumberFormatException e) {
+            limit = 0;
+        }
+        if (expression == null || limit < 1 || limit > MAX_LIMIT) {
+            ctx.status(400).result("");
+            return;
+        }
+        MessageFilter filter;
+        Set<MessageField> fields;
+        try {
+            filter = MessageFilter.parse(expression);
+            String names = ctx.queryParam("fields");
+            fields = names == null ? MessageField.ALL : MessageField.parse(names);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).result(e.getMessage());
+            return;
+        }
+        // Taken before the status is set, so that a failed load is answered with an error.
+        MessageSnapshot snapshot = snapshots.get();
+        ctx.status(200).contentType("application/json");
+        JsonGenerator gen = jsonMapper.factory().createGenerator(ctx.res().getOutputStream());
+        gen.writeStartArray();
+        query.run(snapshot, filter, limit, message -> jsonMapper.messages().write(gen, message, fields));
+        gen.writeEndArray();
+        gen.close();
+    }
+}
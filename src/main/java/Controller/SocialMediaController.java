@@ -1,48 +1,264 @@
 package Controller;
 
+import Auth.AuthenticationException;
+import Auth.Authenticator;
+import Auth.HashingRejectedException;
+import Auth.Passwords;
+import DAO.AccountDAO;
+import DAO.AccountField;
 import DAO.AccountDAOImpl;
+import DAO.CachingMessageDAO;
+import DAO.MessageDAO;
 import DAO.MessageDAOImpl;
+import DAO.MessageField;
+import Events.JettyOutbound;
+import Events.MessagePublisher;
+import Events.MessageStream;
+import Events.TimelineHub;
+import Events.TimelineSession;
+import Jdbc.InstrumentedJdbc;
+import Jfr.DaoEvents;
+import Jfr.RequestEvents;
+import Jdbc.SlowQueryLog;
+import Json.AccountView;
+import Json.ContentNegotiation;
+import Json.FieldTooLongException;
+import Json.MessageView;
+import Json.ModelJsonMapper;
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+import Metrics.DaoMetrics;
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
 import Model.Account;
 import Model.Message;
 import Model.ResponseMessage;
 import Service.AccountService;
+import Service.MessagePurger;
+import Service.MessageRetention;
 import Service.MessageService;
 import Service.ValidationResult;
+import Snapshot.GlobalTimeline;
+import Snapshot.MessageQuery;
+import Snapshot.MessageSnapshot;
+import Snapshot.SearchSnapshot;
+import Stats.MessageStats;
+import Tracing.DaoTracing;
+import Tracing.OtlpFileExporter;
+import Tracing.Span;
+import Tracing.TraceBuffer;
+import Tracing.Tracer;
+import Util.ConnectionUtil;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
-
+import io.javalin.http.HandlerType;
+import io.javalin.websocket.WsConfig;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Set;
 
 public class SocialMediaController {
 
-    private static final Logger log = LoggerFactory.getLogger(SocialMediaController.class);
+    private static final AsyncLogger log = AsyncLog.getLogger(SocialMediaController.class);
+
+    private static final String TIMELINE_SESSION = "timelineSession";
 
     private AccountService accountService;
     private MessageService messageService;
+    private ModelJsonMapper jsonMapper;
+    private ContentNegotiation negotiation;
+    private MetricsRegistry metrics;
+    private InstrumentedJdbc jdbc;
+    private Tracer tracer;
+    private Authenticator authenticator;
+    private AdminController adminController;
+    private ExportController exportController;
+    private StatsController statsController;
+    private SearchController searchController;
+    private MessageQuery messageQuery;
+    private MessageStream messageStream;
+    private TimelineHub timelineHub;
+    private MessageStats messageStats;
+    private MessageRetention messageRetention;
+    private MessagePurger messagePurger;
+    private GlobalTimeline globalTimeline;
 
     public SocialMediaController() {
-        this.accountService = new AccountService(new AccountDAOImpl());
-        this.messageService = new MessageService(new MessageDAOImpl());
+        this.metrics = new MetricsRegistry();
+        this.jdbc = new InstrumentedJdbc(new SlowQueryLog(
+                Long.getLong("socialmedia.jdbc.slowQueryMillis", 50),
+                Double.parseDouble(System.getProperty("socialmedia.jdbc.slowQuerySampleRate", "0.1"))));
+        metrics.register(jdbc);
+        metrics.register(AsyncLog.global());
+        this.tracer = createTracer();
+        metrics.register(tracer);
+        Connection connection = jdbc.wrap(ConnectionUtil.getConnection());
+        Passwords passwords = Passwords.fromSystemProperties();
+        metrics.register(passwords.executor());
+        this.accountService = new AccountService(instrument(new AccountDAOImpl(connection)), passwords);
+        this.messageStream = MessageStream.fromSystemProperties();
+        metrics.register(messageStream);
+        this.timelineHub = TimelineHub.fromSystemProperties();
+        metrics.register(timelineHub);
+        MessageDAOImpl messageDAO = createMessageDAO(connection);
+        MessageDAO instrumented = instrument(messageDAO);
+        this.messageStats = MessageStats.fromSystemProperties(instrumented);
+        metrics.register(messageStats);
+        this.messagePurger = MessagePurger.fromSystemProperties(instrumented);
+        metrics.register(messagePurger);
+        MessagePublisher publisher = MessagePublisher.all(messageStream, timelineHub, messageStats, messagePurger);
+        if (Boolean.getBoolean("socialmedia.snapshot")) {
+            this.globalTimeline = GlobalTimeline.fromSystemProperties(instrumented);
+            metrics.register(globalTimeline);
+            publisher = MessagePublisher.all(publisher, globalTimeline);
+        }
+        this.messageService = new MessageService(
+                Boolean.getBoolean("socialmedia.cache") ? new CachingMessageDAO(instrumented) : instrumented,
+                publisher);
+        this.messageRetention = MessageRetention.fromSystemProperties(messageService);
+        metrics.register(messageRetention);
+        this.jsonMapper = new ModelJsonMapper(MessageService.MAX_MESSAGE_TEXT_LENGTH);
+        this.negotiation = new ContentNegotiation(jsonMapper);
+        this.adminController = new AdminController(jdbc, tracer, negotiation);
+        this.exportController = new ExportController(accountService, messageService);
+        this.statsController = new StatsController(messageStats, negotiation);
+        this.messageQuery = MessageQuery.fromSystemProperties();
+        metrics.register(messageQuery);
+        // Without the timeline snapshot, searches share one that is rebuilt periodically.
+        this.searchController = new SearchController(messageQuery, globalTimeline != null
+                ? globalTimeline::current
+                : SearchSnapshot.fromSystemProperties(messageService::loadAllMessages), jsonMapper);
+        this.authenticator = Authenticator.fromSystemProperties();
+    }
+
+    /**
+     * {@code socialmedia.partitioning} is {@code none} (the default) or
+     * {@code monthly}, which stores messages in one table per month.
+     */
+    private static MessageDAOImpl createMessageDAO(Connection connection) {
+        String partitioning = System.getProperty("socialmedia.partitioning", "none");
+        if (!"none".equals(partitioning) && !"monthly".equals(partitioning)) {
+            throw new IllegalArgumentException("Unknown socialmedia.partitioning: " + partitioning);
+        }
+        try {
+            if ("monthly".equals(partitioning)) {
+                return MessageDAOImpl.partitioned(connection);
+            }
+            MessageDAOImpl messageDAO = new MessageDAOImpl(connection);
+            messageDAO.ensureSchema();
+            return messageDAO;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not prepare the message tables", e);
+        }
+    }
+
+    /**
+     * Wraps a DAO for metrics, tracing and JFR events. JFR is innermost so
+     * its events time the DAO alone.
+     */
+    private MessageDAO instrument(MessageDAO dao) {
+        return DaoMetrics.instrument(DaoTracing.instrument(DaoEvents.instrument(dao)), metrics);
+    }
+
+    private AccountDAO instrument(AccountDAO dao) {
+        return DaoMetrics.instrument(DaoTracing.instrument(DaoEvents.instrument(dao)), metrics);
+    }
+
+    private static Tracer createTracer() {
+        String otlpFile = System.getProperty("socialmedia.tracing.otlpFile");
+        return new Tracer(
+                Double.parseDouble(System.getProperty("socialmedia.tracing.sampleRate", "0.1")),
+                new TraceBuffer(Integer.getInteger("socialmedia.tracing.bufferSize", 256)),
+                otlpFile == null ? null : new OtlpFileExporter(Paths.get(otlpFile), 1024));
     }
 
     public Javalin startAPI() {
-        Javalin app = Javalin.create();
+        Javalin app = Javalin.create(config -> {
+            config.jsonMapper(jsonMapper);
+            config.jetty.contextHandlerConfig(handler -> {
+                // An exact mapping, so it wins over Javalin's own servlet at /*.
+                ServletHolder stream = new ServletHolder(messageStream.servlet());
+                stream.setAsyncSupported(true);
+                handler.addServlet(stream, "/messages/stream");
+            });
+        });
+        app.events(events -> events.serverStopped(() -> {
+            messageStream.close();
+            messageStats.close();
+            messageRetention.close();
+            messagePurger.close();
+            if (globalTimeline != null) {
+                globalTimeline.close();
+            }
+            messageQuery.close();
+        }));
+        registerTracing(app);
+        registerFlightRecorderEvents(app);
+        registerRequestMetrics(app);
+        // Registered on the write routes' own paths, so /messagesX or /messages/1/x are not matched.
+        app.before("/messages", authenticator.forMethods(HandlerType.POST));
+        app.before("/messages/{id}", authenticator.forMethods(HandlerType.PATCH, HandlerType.DELETE));
         registerExceptionHandlers(app);
         registerEndpoints(app);
+        adminController.registerEndpoints(app);
+        exportController.registerEndpoints(app);
+        statsController.registerEndpoints(app);
+        searchController.registerEndpoints(app);
         return app;
     }
 
+    private void registerTracing(Javalin app) {
+        app.before(ctx -> ctx.header(Tracer.REQUEST_ID_HEADER,
+                tracer.begin(ctx.header(Tracer.REQUEST_ID_HEADER), ctx.header(Tracer.TRACEPARENT_HEADER))));
+        app.after(ctx -> tracer.end(ctx.req().getMethod(), routeOf(ctx), ctx.statusCode()));
+    }
+
+    private void registerFlightRecorderEvents(Javalin app) {
+        app.before(RequestEvents::begin);
+        app.after(ctx -> RequestEvents.end(ctx, ctx.req().getMethod(), routeOf(ctx), ctx.statusCode()));
+    }
+
+    private void registerRequestMetrics(Javalin app) {
+        app.before(ctx -> metrics.requests().begin());
+        app.after(ctx -> metrics.requests().end(routeOf(ctx), ctx.req().getMethod(), ctx.statusCode()));
+    }
+
+    /**
+     * @return the matched route template (e.g. /messages/{id}) so that
+     *         metrics are not split per id; unmatched requests share one
+     *         series.
+     */
+    private static String routeOf(Context ctx) {
+        String path = ctx.endpointHandlerPath();
+        // Javalin reports a descriptive sentence instead of a path for 404/405.
+        return path.startsWith("/") ? path : "unmatched";
+    }
+
     private void registerExceptionHandlers(Javalin app) {
+        // Oversized message_text is rejected by the parser before validation runs.
+        app.exception(FieldTooLongException.class, (e, ctx) -> ctx.status(400).result(""));
+        app.exception(AuthenticationException.class, (e, ctx) -> ctx.status(e.getStatus()).result(""));
+        app.exception(HashingRejectedException.class, (e, ctx) -> {
+            ctx.header("Retry-After", "1");
+            ctx.status(503).result("");
+        });
         app.exception(Exception.class, (e, ctx) -> {
-            ctx.status(500).json(mapResponse("Server error"));
-            log.error("Unexpected server error", e);
+            metrics.recordException(e);
+            Tracer.recordException(e);
+            ctx.status(500);
+            respond(ctx, mapResponse("Server error"));
+            log.error("Unexpected server error", e, "route", routeOf(ctx));
         });
     }
 
     private void registerEndpoints(Javalin app) {
+        app.get("/metrics", this::getMetrics);
         app.get("/accounts", this::getAllAccounts);
         app.get("/accounts/{accountId}/messages", this::getAllMessagesForUser);
         app.get("/messages/{id}", this::getMessageById);
@@ -51,13 +267,20 @@ public class SocialMediaController {
         app.post("/register", this::registerUser);
         app.post("/login", this::loginUser);
         app.delete("/messages/{messageId}", this::deleteMessage);
+        app.ws("/ws/accounts/{accountId}", this::registerTimelineSocket);
 
         app.patch("/messages/{id}", ctx -> {
             // 1. Extract the message ID from the URL.
             int messageId = Integer.parseInt(ctx.pathParam("id"));
 
             // 2. Extract the new message text from the request body.
-            String newMessageText = ctx.bodyAsClass(Message.class).getMessage_text();
+            String newMessageText = readBody(ctx, Message.class).getMessage_text();
+
+            // With a session token, only the author may edit the message.
+            if (!isOwnedByCaller(ctx, messageService.getMessageById(messageId))) {
+                ctx.status(403).result("");
+                return;
+            }
 
             // 3. Call the updateMessageText method from the MessageService.
             ValidationResult validationResult = messageService.updateMessageText(messageId, newMessageText);
@@ -66,7 +289,8 @@ public class SocialMediaController {
             if (validationResult.isValid()) {
                 // Successfully updated the message. Return the updated message as the response.
                 Message updatedMessage = messageService.getMessageById(messageId);
-                ctx.status(200).json(updatedMessage);
+                ctx.status(200);
+                respond(ctx, updatedMessage);
             } else {
                 String errorMessage = validationResult.getMessage();
                 if (errorMessage.equals("Message text cannot be blank") ||
@@ -81,38 +305,246 @@ public class SocialMediaController {
 
     }
 
+    private void getMetrics(Context ctx) {
+        ctx.contentType(PrometheusWriter.CONTENT_TYPE).result(metrics.scrape());
+    }
+
+    /**
+     * Lists accounts without their passwords, with only the fields named by
+     * {@code ?fields=} when it is given.
+     */
     private void getAllAccounts(Context ctx) {
-        ctx.json(accountService.getAllAccounts());
+        Set<AccountField> fields;
+        try {
+            String names = ctx.queryParam("fields");
+            fields = names == null ? AccountField.ALL : AccountField.parse(names);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).result("");
+            return;
+        }
+        String ids = ctx.queryParam("ids");
+        if (ids == null) {
+            respond(ctx, AccountView.of(accountService.getAllAccounts(fields), fields));
+            return;
+        }
+        int[] accountIds = IdList.parse(ids);
+        if (accountIds == null) {
+            ctx.status(400).result("");
+            return;
+        }
+        respond(ctx, AccountView.of(accountService.getAccountsByIds(accountIds), fields));
     }
 
     private void getAllMessagesForUser(Context ctx) {
         int accountId = Integer.parseInt(ctx.pathParam("accountId"));
-        List<Message> messages = messageService.getAllMessagesForUser(accountId);
-        ctx.json(messages);
+        Set<MessageField> fields = messageFields(ctx);
+        if (fields == null) {
+            return;
+        }
+        if (!TimeRange.requested(ctx)) {
+            respondMessages(ctx, messageService.getAllMessagesForUser(accountId, fieldsToRead(ctx, fields, false)),
+                    fields);
+            return;
+        }
+        TimeRange range = TimeRange.parse(ctx);
+        if (range == null) {
+            ctx.status(400).result("");
+            return;
+        }
+        respondPage(ctx, range, messageService.getMessagesForUserByTime(accountId, range.since, range.until,
+                range.afterMessageId, range.limit, fieldsToRead(ctx, fields, true)), fields);
     }
 
     private void getMessageById(Context ctx) {
         int id = Integer.parseInt(ctx.pathParam("id"));
-        Message message = messageService.getMessageById(id);
+        Set<MessageField> fields = messageFields(ctx);
+        if (fields == null) {
+            return;
+        }
+        Message message = messageService.getMessageById(id, fieldsToRead(ctx, fields, false));
         if (message == null) {
             ctx.status(200).result("");
+        } else if (expandsAuthor(ctx)) {
+            respond(ctx, MessageView.of(message, fields,
+                    accountService.getAuthors(new int[]{message.getPosted_by()})));
+        } else if (fields != MessageField.ALL) {
+            respond(ctx, MessageView.of(message, fields, null));
         } else {
-            ctx.json(message);
+            respond(ctx, message);
+        }
+    }
+
+    /**
+     * Reads {@code fields} and {@code expand}, before any query runs.
+     *
+     * @return the message fields named by {@code fields}, or
+     *         {@link MessageField#ALL} without it; null, having answered 400,
+     *         if it names an unknown field or {@code expand} names anything
+     *         but {@code author}.
+     */
+    private static Set<MessageField> messageFields(Context ctx) {
+        String expand = ctx.queryParam("expand");
+        String names = ctx.queryParam("fields");
+        try {
+            if (expand != null && !"author".equals(expand)) {
+                throw new IllegalArgumentException("Unknown expansion '" + expand + "'");
+            }
+            return names == null ? MessageField.ALL : MessageField.parse(names);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).result("");
+            return null;
+        }
+    }
+
+    private static boolean expandsAuthor(Context ctx) {
+        return "author".equals(ctx.queryParam("expand"));
+    }
+
+    /**
+     * @return the fields to select: those asked for, plus posted_by to look
+     *         up authors and time_posted_epoch for the cursor of a page.
+     */
+    private static Set<MessageField> fieldsToRead(Context ctx, Set<MessageField> fields, boolean page) {
+        boolean expand = expandsAuthor(ctx);
+        if (!expand && !page) {
+            return fields;
+        }
+        Set<MessageField> read = EnumSet.noneOf(MessageField.class);
+        read.addAll(fields);
+        if (expand) {
+            read.add(MessageField.POSTED_BY);
+        }
+        if (page) {
+            read.add(MessageField.TIME_POSTED_EPOCH);
+        }
+        return read;
+    }
+
+    /**
+     * Writes a list of messages with only the requested fields, and with
+     * each author's public fields embedded for {@code ?expand=author}. The
+     * authors are looked up together before anything is written.
+     */
+    private void respondMessages(Context ctx, List<Message> messages, Set<MessageField> fields) {
+        if (!expandsAuthor(ctx)) {
+            respond(ctx, fields == MessageField.ALL ? messages : MessageView.of(messages, fields, null));
+            return;
+        }
+        int[] authorIds = new int[messages.size()];
+        for (int i = 0; i < authorIds.length; i++) {
+            authorIds[i] = messages.get(i).getPosted_by();
+        }
+        respond(ctx, MessageView.of(messages, fields,
+                accountService.getAuthors(Arrays.stream(authorIds).distinct().toArray())));
+    }
+
+    /**
+     * As {@link #respondMessages}, with the authors read from the snapshot's
+     * posted_by column, so each message is only created while it is written.
+     */
+    private void respondSnapshot(Context ctx, MessageSnapshot snapshot, Set<MessageField> fields) {
+        if (expandsAuthor(ctx)) {
+            respond(ctx, MessageView.of(snapshot.messages(), fields, accountService.getAuthors(snapshot.authorIds())));
+        } else {
+            respondMessages(ctx, snapshot.messages(), fields);
+        }
+    }
+
+    /**
+     * Pushes changes to the account's messages over a WebSocket. The
+     * connection can follow more accounts by sending
+     * {@code {"subscribe":[...]}}.
+     */
+    private void registerTimelineSocket(WsConfig ws) {
+        ws.onConnect(ctx -> {
+            int accountId;
+            try {
+                accountId = Integer.parseInt(ctx.pathParam("accountId"));
+            } catch (NumberFormatException e) {
+                ctx.closeSession(1008, "Invalid account id");
+                return;
+            }
+            ctx.attribute(TIMELINE_SESSION, timelineHub.open(new JettyOutbound(ctx.session), accountId));
+        });
+        ws.onMessage(ctx -> {
+            TimelineSession session = ctx.attribute(TIMELINE_SESSION);
+            if (session != null) {
+                timelineHub.onMessage(session, ctx.message());
+            }
+        });
+        ws.onClose(ctx -> closeTimelineSession(ctx.attribute(TIMELINE_SESSION)));
+        ws.onError(ctx -> closeTimelineSession(ctx.attribute(TIMELINE_SESSION)));
+    }
+
+    private void closeTimelineSession(TimelineSession session) {
+        if (session != null) {
+            timelineHub.close(session);
         }
     }
 
     private void getAllMessages(Context ctx) {
-        List<Message> messages = messageService.getAllMessages();
-        ctx.json(messages);
+        Set<MessageField> fields = messageFields(ctx);
+        if (fields == null) {
+            return;
+        }
+        String ids = ctx.queryParam("ids");
+        if (ids != null) {
+            int[] messageIds = IdList.parse(ids);
+            if (messageIds == null) {
+                ctx.status(400).result("");
+            } else {
+                respondMessages(ctx, messageService.getMessagesByIds(messageIds, fieldsToRead(ctx, fields, false)),
+                        fields);
+            }
+            return;
+        }
+        if (!TimeRange.requested(ctx)) {
+            // The snapshot is already in memory, so there is no query to narrow.
+            if (globalTimeline != null) {
+                respondSnapshot(ctx, globalTimeline.current(), fields);
+            } else {
+                respondMessages(ctx, messageService.getAllMessages(fieldsToRead(ctx, fields, false)), fields);
+            }
+            return;
+        }
+        TimeRange range = TimeRange.parse(ctx);
+        if (range == null) {
+            ctx.status(400).result("");
+            return;
+        }
+        respondPage(ctx, range, messageService.getMessagesByTime(range.since, range.until, range.afterMessageId,
+                range.limit, fieldsToRead(ctx, fields, true)), fields);
+    }
+
+    /**
+     * Writes one page of a time-range query. A full page may not be the
+     * last, so X-Next-Cursor carries the keyset of its last message.
+     */
+    private void respondPage(Context ctx, TimeRange range, List<Message> messages, Set<MessageField> fields) {
+        if (messages.size() == range.limit) {
+            Message last = messages.get(messages.size() - 1);
+            ctx.header("X-Next-Cursor", last.getTime_posted_epoch() + ":" + last.getMessage_id());
+        }
+        respondMessages(ctx, messages, fields);
     }
 
     private void postMessage(Context ctx) {
         try {
-            Message message = ctx.bodyAsClass(Message.class);
+            Message message = readBody(ctx, Message.class);
+            int accountId = Authenticator.accountId(ctx);
+            if (accountId != 0) {
+                // A session token decides who is posting; a different posted_by is rejected.
+                if (message.getPosted_by() == 0) {
+                    message.setPosted_by(accountId);
+                } else if (message.getPosted_by() != accountId) {
+                    ctx.status(403).result("");
+                    return;
+                }
+            }
             ValidationResult validationResult = messageService.addMessage(message);
 
             if (validationResult.isValid()) {
-                ctx.json(message);
+                respond(ctx, message);
             } else {
                 if (validationResult.getMessage().equals("Message text exceeds 254 characters")
                         || validationResult.getMessage().equals("Message text cannot be blank")
@@ -122,26 +554,32 @@ public class SocialMediaController {
                     sendValidationErrorResponse(ctx, 400, validationResult.getMessage());
                 }
             }
+        } catch (FieldTooLongException e) {
+            ctx.status(400).json("");
         } catch (Exception e) {
             log.warn(e.getMessage());
         }
     }
 
     private void sendValidationErrorResponse(Context ctx, int status, String message) {
-        ctx.status(status).json(mapResponse(message));
+        ctx.status(status);
+        respond(ctx, mapResponse(message));
     }
 
     private void registerUser(Context ctx) {
         try {
-            Account account = ctx.bodyAsClass(Account.class);
-            validateAccount(ctx, account); // This will throw an exception if validation fails.
+            Account account = readBody(ctx, Account.class);
+            try (Span span = Tracer.span("validateAccount")) {
+                validateAccount(ctx, account); // This will throw an exception if validation fails.
+            }
             if (accountService.checkIfUserExists(account.getUsername())) {
                 ctx.status(400).result("");
                 return;
             }
             Account createdAccount = accountService.createAccount(account);
             if (createdAccount != null) {
-                ctx.status(200).json(createdAccount);
+                ctx.status(200);
+                respond(ctx, createdAccount);
             } else {
                 sendErrorResponse(ctx, 500, "Failed to register user",
                         String.format("Failed to register user with username %s", account.getUsername()));
@@ -169,41 +607,83 @@ public class SocialMediaController {
     }
 
     public void loginUser(Context ctx) {
-        Account inputAccount = ctx.bodyAsClass(Account.class);
+        Account inputAccount = readBody(ctx, Account.class);
 
         if (isNullOrBlank(inputAccount.getUsername()) || isNullOrBlank(inputAccount.getPassword())) {
             sendErrorResponse(ctx, 400, "Invalid input");
             return;
         }
 
-        // Get the stored account details from the database based on the username.
-        Account existingAccount = accountService.getAccountByUsername(inputAccount.getUsername());
+        // Check the password against the stored hash, upgrading legacy rows.
+        Account existingAccount = accountService.authenticate(inputAccount.getUsername(), inputAccount.getPassword());
 
-        // Check if the username exists and if the provided password matches.
-        if (existingAccount == null || !existingAccount.getPassword().equals(inputAccount.getPassword())) {
+        if (existingAccount == null) {
             ctx.status(401).result(""); // Unauthorized
         } else {
-            ctx.status(200).json(existingAccount); // Successfully authenticated
+            ctx.status(200);
+            ctx.header(Authenticator.TOKEN_HEADER, authenticator.tokens().issue(existingAccount.getAccount_id()));
+            respond(ctx, echoAccount(existingAccount, inputAccount)); // Successfully authenticated
         }
     }
 
     private void authenticate(Context ctx, Account inputAccount) {
-        Account existingAccount = accountService.getAccountByUsername(inputAccount.getUsername());
-        if (existingAccount == null || !existingAccount.getPassword().equals(inputAccount.getPassword())) {
+        Account existingAccount = accountService.authenticate(inputAccount.getUsername(), inputAccount.getPassword());
+        if (existingAccount == null) {
             // Modify the response to include an empty message
-            ctx.status(401).json(mapResponse(""));
+            ctx.status(401);
+            respond(ctx, mapResponse(""));
         } else {
-            ctx.status(200).json(existingAccount);
+            ctx.status(200);
+            respond(ctx, echoAccount(existingAccount, inputAccount));
         }
     }
 
+    /**
+     * The login response echoes the submitted password, as it always has,
+     * rather than the stored hash.
+     */
+    private static Account echoAccount(Account existingAccount, Account inputAccount) {
+        return new Account(existingAccount.getAccount_id(), existingAccount.getUsername(), inputAccount.getPassword());
+    }
+
     private void sendErrorResponse(Context ctx, int status, String message, String logMessage) {
-        ctx.status(status).json(mapResponse(message));
+        ctx.status(status);
+        respond(ctx, mapResponse(message));
         log.warn(logMessage);
     }
 
     private void sendErrorResponse(Context ctx, int status, String message) {
-        ctx.status(status).json(mapResponse(message));
+        ctx.status(status);
+        respond(ctx, mapResponse(message));
+    }
+
+    /**
+     * Writes a response body as JSON, or as Smile when the client's Accept
+     * header asks for it.
+     */
+    private void respond(Context ctx, Object body) {
+        try (Span span = Tracer.span("serialize")) {
+            negotiation.write(ctx, body);
+        }
+    }
+
+    /**
+     * Reads a request body from JSON, or from Smile when the Content-Type
+     * says so.
+     */
+    private <T> T readBody(Context ctx, Class<T> type) {
+        try (Span span = Tracer.span("parse")) {
+            return negotiation.readBody(ctx, type);
+        }
+    }
+
+    /**
+     * @return false only when the request carries a session token for an
+     *         account other than the message's author.
+     */
+    private boolean isOwnedByCaller(Context ctx, Message message) {
+        int accountId = Authenticator.accountId(ctx);
+        return accountId == 0 || message == null || message.getPosted_by() == accountId;
     }
 
     private ResponseMessage mapResponse(String message) {
@@ -219,9 +699,12 @@ public class SocialMediaController {
             int messageId = Integer.parseInt(ctx.pathParam("messageId"));
             Message message = messageService.getMessageById(messageId);
 
-            if (message != null) {
-                messageService.deleteMessageById(messageId);
-                ctx.status(200).json(message);
+            if (message != null && !isOwnedByCaller(ctx, message)) {
+                ctx.status(403).result("");
+            } else if (message != null) {
+                messageService.deleteMessage(message);
+                ctx.status(200);
+                respond(ctx, message);
             } else {
                 ctx.status(200).result(""); // No content for a message that didn't exist
             }
@@ -0,0 +1,120 @@
+package Controller;
+
+import Json.ContentNegotiation;
+import Stats.MessageStats;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dashboard aggregates under /stats. They are read from counters that
+ * {@link MessageStats} maintains as messages change, so no request here
+ * touches the database.
+ */
+public class StatsController {
+
+    private static final int DEFAULT_TOP = 10;
+    private static final int MAX_TOP = 100;
+    private static final int DEFAULT_HOURS = 24;
+
+    private final MessageStats stats;
+    private final ContentNegotiation negotiation;
+
+    public StatsController(MessageStats stats, ContentNegotiation negotiation) {
+        this.stats = stats;
+        this.negotiation = negotiation;
+    }
+
+    public void registerEndpoints(Javalin app) {
+        app.get("/stats", this::getSummary);
+        app.get("/stats/accounts/{accountId}", this::getAccountCount);
+        app.get("/stats/top", this::getTopPosters);
+        app.get("/stats/hourly", this::getHourly);
+    }
+
+    private void getSummary(Context ctx) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("messages", stats.totalMessages());
+        negotiation.write(ctx, body);
+    }
+
+    private void getAccountCount(Context ctx) {
+        int accountId;
+        try {
+            accountId = Integer.parseInt(ctx.pathParam("accountId"));
+        } catch (NumberFormatException e) {
+            ctx.status(400).result("");
+            return;
+        }
+        negotiation.write(ctx, accountCount(accountId, stats.messagesBy(accountId)));
+    }
+
+    /**
+     * The accounts with the most messages, most first. {@code limit}
+     * defaults to 10, at most 100.
+     */
+    private void getTopPosters(Context ctx) {
+        Integer limit = intParam(ctx, "limit", DEFAULT_TOP, MAX_TOP);
+        if (limit == null) {
+            ctx.status(400).result("");
+            return;
+        }
+        List<Map<String, Object>> body = new ArrayList<>();
+        for (MessageStats.AccountCount count : stats.topPosters(limit)) {
+            body.add(accountCount(count.getAccountId(), count.getMessages()));
+        }
+        negotiation.write(ctx, body);
+    }
+
+    /**
+     * Messages per hour of time_posted_epoch for the last {@code hours}
+     * hours, oldest first, ending with the current hour. {@code hours}
+     * defaults to 24, at most socialmedia.stats.hours.
+     */
+    private void getHourly(Context ctx) {
+        Integer hours = intParam(ctx, "hours", DEFAULT_HOURS, stats.hours());
+        if (hours == null) {
+            ctx.status(400).result("");
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        long start = MessageStats.firstHourStart(hours, now);
+        long[] counts = stats.hourlyCounts(hours, now);
+        List<Map<String, Object>> body = new ArrayList<>(hours);
+        for (int i = 0; i < counts.length; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("hour_start", start + i * 3600L);
+            row.put("messages", counts[i]);
+            body.add(row);
+        }
+        negotiation.write(ctx, body);
+    }
+
+    private static Map<String, Object> accountCount(int accountId, long messages) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("account_id", accountId);
+        row.put("messages", messages);
+        return row;
+    }
+
+    /**
+     * @return the parameter, the default if it is absent, or null if it is
+     *         not a number between 1 and max.
+     */
+    private static Integer intParam(Context ctx, String name, int absent, int max) {
+        String value = ctx.queryParam(name);
+        if (value == null) {
+            return Math.min(absent, max);
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            return parsed < 1 || parsed > max ? null : parsed;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package Controller;
+
+import io.javalin.http.Context;
+
+/**
+ * The {@code since}, {@code until}, {@code limit} and {@code cursor} query
+ * parameters of the message listings. {@code since} is inclusive and
+ * {@code until} exclusive, both in epoch seconds like time_posted_epoch.
+ * {@code cursor} is the X-Next-Cursor of the previous page,
+ * {@code <time>:<message_id>}.
+ */
+final class TimeRange {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    final long since;
+    final long until;
+    final int afterMessageId;
+    final int limit;
+
+    private TimeRange(long since, long until, int afterMessageId, int limit) {
+        this.since = since;
+        this.until = until;
+        this.afterMessageId = afterMessageId;
+        this.limit = limit;
+    }
+
+    /**
+     * @return whether any of the parameters is present. Without them the
+     *         listings keep returning every message.
+     */
+    static boolean requested(Context ctx) {
+        return ctx.queryParam("since") != null || ctx.queryParam("until") != null
+                || ctx.queryParam("limit") != null || ctx.queryParam("cursor") != null;
+    }
+
+    /**
+     * @return the range, or null if a parameter is malformed, the limit is
+     *         outside 1..1000, since is after until, or the cursor is outside
+     *         the range.
+     */
+    static TimeRange parse(Context ctx) {
+        try {
+            long since = longParam(ctx, "since", 0);
+            long until = longParam(ctx, "until", Long.MAX_VALUE);
+            int limit = (int) longParam(ctx, "limit", DEFAULT_LIMIT);
+            if (since > until || limit < 1 || limit > MAX_LIMIT) {
+                return null;
+            }
+            int afterMessageId = 0;
+            String cursor = ctx.queryParam("cursor");
+            if (cursor != null) {
+                int colon = cursor.indexOf(':');
+                if (colon < 0) {
+                    return null;
+                }
+                long time = Long.parseLong(cursor.substring(0, colon));
+                if (time < since || time >= until) {
+                    return null;
+                }
+                // The page resumes after the cursor, so its time becomes the new lower bound.
+                since = time;
+                afterMessageId = Integer.parseInt(cursor.substring(colon + 1));
+            }
+            return new TimeRange(since, until, afterMessageId, limit);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long longParam(Context ctx, String name, long absent) {
+        String value = ctx.queryParam(name);
+        return value == null ? absent : Long.parseLong(value);
+    }
+}
@@ -1,6 +1,9 @@
 package DAO;
 
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Set;
 import Model.Account;
 
 public interface AccountDAO {
@@ -20,6 +23,30 @@ public interface AccountDAO {
      */
     Account getAccountById(int id);
 
+    /**
+     * Retrieves many accounts with a single query. Passwords are not
+     * selected, so the returned accounts have none.
+     * 
+     * @param ids the IDs of the desired accounts, in any order.
+     * @return the accounts found, in ID order.
+     */
+    List<Account> getAccountsByIds(int[] ids);
+
+    /**
+     * Retrieves all accounts, reading only the given fields.
+     * 
+     * @param fields the columns to select; the rest are left unset.
+     * @return a list of accounts, without passwords.
+     */
+    List<Account> getAllAccounts(Set<AccountField> fields);
+
+    /**
+     * As {@link #getAccountsByIds(int[])}, reading only the given fields.
+     * 
+     * @param fields the columns to select; the rest are left unset.
+     */
+    List<Account> getAccountsByIds(int[] ids, Set<AccountField> fields);
+
     /**
      * Retrieves an account based on its username.
      * 
@@ -60,5 +87,15 @@ public interface AccountDAO {
      */
     Account saveAccount(Account account);
 
+    /**
+     * Streams every account from a forward-only cursor. Failures are thrown
+     * rather than logged, so that a broken export is not mistaken for a
+     * complete one.
+     * 
+     * @param callback receives each account.
+     * @return the number of rows passed to the callback.
+     */
+    long exportAccounts(RowCallback<Account> callback) throws SQLException, IOException;
+
     // ... any other required operations
 }
@@ -1,28 +1,46 @@
 package DAO;
 
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
 import Model.Account;
 import Util.ConnectionUtil;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public class AccountDAOImpl implements AccountDAO {
 
+    private static final AsyncLogger log = AsyncLog.getLogger(AccountDAOImpl.class);
+
     private static final String COLUMN_ACCOUNT_ID = "account_id";
     private static final String COLUMN_USERNAME = "username";
     private static final String COLUMN_PASSWORD = "password";
 
     private static final String GET_ALL_ACCOUNTS = "SELECT * FROM account";
     private static final String GET_ACCOUNT_BY_ID = "SELECT * FROM account WHERE account_id = ?";
+    // One array parameter rather than an IN list, so every batch size shares one statement.
+    // The column list of these two replaces %s, and never includes the password.
+    private static final String GET_ACCOUNTS_BY_IDS =
+            "SELECT %s FROM account WHERE account_id = ANY(?) ORDER BY account_id";
+    private static final String GET_PUBLIC_ACCOUNTS = "SELECT %s FROM account";
     private static final String GET_ACCOUNT_BY_USERNAME = "SELECT * FROM account WHERE username = ?";
     private static final String INSERT_ACCOUNT = "INSERT INTO account(username, password) VALUES (?, ?)";
     private static final String UPDATE_ACCOUNT = "UPDATE account SET username = ?, password = ? WHERE account_id = ?";
     private static final String DELETE_ACCOUNT = "DELETE FROM account WHERE account_id = ?";
+    private static final String EXPORT_ACCOUNTS = "SELECT account_id, username FROM account";
+
+    private static final int EXPORT_FETCH_SIZE = Integer.getInteger("socialmedia.export.fetchSize", 1000);
 
     private Connection connection;
 
     public AccountDAOImpl() {
-        this.connection = ConnectionUtil.getConnection();
+        this(ConnectionUtil.getConnection());
+    }
+
+    public AccountDAOImpl(Connection connection) {
+        this.connection = connection;
     }
 
     @Override
@@ -39,7 +57,7 @@ public class AccountDAOImpl implements AccountDAO {
                 accounts.add(account);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Failed to load accounts", e);
         } finally {
             closeResources(rs, stmt);
         }
@@ -61,13 +79,71 @@ public class AccountDAOImpl implements AccountDAO {
                 account = mapResultSetToAccount(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Failed to load account", e, "account_id", id);
         } finally {
             closeResources(rs, pstmt);
         }
         return account;
     }
 
+    @Override
+    public List<Account> getAllAccounts(Set<AccountField> fields) {
+        List<Account> accounts = new ArrayList<>();
+        Statement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = connection.createStatement();
+            rs = stmt.executeQuery(String.format(GET_PUBLIC_ACCOUNTS, AccountField.select(fields)));
+
+            while (rs.next()) {
+                accounts.add(mapPublicFields(rs, fields));
+            }
+        } catch (SQLException e) {
+            log.error("Failed to load accounts", e);
+        } finally {
+            closeResources(rs, stmt);
+        }
+        return accounts;
+    }
+
+    @Override
+    public List<Account> getAccountsByIds(int[] ids) {
+        return getAccountsByIds(ids, AccountField.ALL);
+    }
+
+    @Override
+    public List<Account> getAccountsByIds(int[] ids, Set<AccountField> fields) {
+        List<Account> accounts = new ArrayList<>(ids.length);
+        if (ids.length == 0) {
+            return accounts;
+        }
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+
+        try {
+            pstmt = connection.prepareStatement(String.format(GET_ACCOUNTS_BY_IDS, AccountField.select(fields)));
+            pstmt.setArray(1, idArray(ids));
+            rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                accounts.add(mapPublicFields(rs, fields));
+            }
+        } catch (SQLException e) {
+            log.error("Failed to load accounts by id", e, "count", ids.length);
+        } finally {
+            closeResources(rs, pstmt);
+        }
+        return accounts;
+    }
+
+    private Array idArray(int[] ids) throws SQLException {
+        Integer[] boxed = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = ids[i];
+        }
+        return connection.createArrayOf("INTEGER", boxed);
+    }
+
     @Override
     public Account getAccountByUsername(String username) {
         Account account = null;
@@ -83,7 +159,7 @@ public class AccountDAOImpl implements AccountDAO {
                 account = mapResultSetToAccount(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Failed to load account by username", e);
         } finally {
             closeResources(rs, pstmt);
         }
@@ -101,7 +177,7 @@ public class AccountDAOImpl implements AccountDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows == 1;
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Failed to insert account", e);
             return false;
         } finally {
             closeResources(null, pstmt);
@@ -120,7 +196,7 @@ public class AccountDAOImpl implements AccountDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows == 1;
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Failed to update account", e, "account_id", account.getAccount_id());
             return false;
         } finally {
             closeResources(null, pstmt);
@@ -137,7 +213,7 @@ public class AccountDAOImpl implements AccountDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows == 1;
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Failed to delete account", e, "account_id", id);
             return false;
         } finally {
             closeResources(null, pstmt);
@@ -161,13 +237,36 @@ public class AccountDAOImpl implements AccountDAO {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Failed to save account", e);
         } finally {
             closeResources(null, pstmt);
         }
         return null; // Failed to save the account
     }
 
+    @Override
+    public long exportAccounts(RowCallback<Account> callback) throws SQLException, IOException {
+        Statement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(EXPORT_FETCH_SIZE);
+            rs = stmt.executeQuery(EXPORT_ACCOUNTS);
+            // Passwords are not selected; one Account is reused for every row.
+            Account account = new Account();
+            long rows = 0;
+            while (rs.next()) {
+                account.setAccount_id(rs.getInt(COLUMN_ACCOUNT_ID));
+                account.setUsername(rs.getString(COLUMN_USERNAME));
+                callback.row(account);
+                rows++;
+            }
+            return rows;
+        } finally {
+            closeResources(rs, stmt);
+        }
+    }
+
     private Account mapResultSetToAccount(ResultSet rs) throws SQLException {
         Account account = new Account();
         account.setAccount_id(rs.getInt(COLUMN_ACCOUNT_ID));
@@ -176,19 +275,30 @@ public class AccountDAOImpl implements AccountDAO {
         return account;
     }
 
+    private Account mapPublicFields(ResultSet rs, Set<AccountField> fields) throws SQLException {
+        Account account = new Account();
+        if (fields.contains(AccountField.ACCOUNT_ID)) {
+            account.setAccount_id(rs.getInt(COLUMN_ACCOUNT_ID));
+        }
+        if (fields.contains(AccountField.USERNAME)) {
+            account.setUsername(rs.getString(COLUMN_USERNAME));
+        }
+        return account;
+    }
+
     private void closeResources(ResultSet rs, Statement stmt) {
         if (rs != null) {
             try {
                 rs.close();
             } catch (SQLException e) {
-                e.printStackTrace();
+                log.warn("Failed to close ResultSet", e);
             }
         }
         if (stmt != null) {
             try {
                 stmt.close();
             } catch (SQLException e) {
-                e.printStackTrace();
+                log.warn("Failed to close Statement", e);
             }
         }
     }
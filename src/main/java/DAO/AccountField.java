@@ -0,0 +1,64 @@
+package DAO;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The columns of an account that a read may ask for, named as in the table
+ * and in JSON. The password is not one of them, so it is never read for a
+ * response.
+ */
+public enum AccountField {
+    ACCOUNT_ID("account_id"),
+    USERNAME("username");
+
+    /**
+     * Every public field.
+     */
+    public static final Set<AccountField> ALL = Collections.unmodifiableSet(EnumSet.allOf(AccountField.class));
+
+    private final String column;
+
+    AccountField(String column) {
+        this.column = column;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    /**
+     * @param names a comma-separated list, such as {@code account_id,username}.
+     * @throws IllegalArgumentException if a name is not an account field, or none is given.
+     */
+    public static Set<AccountField> parse(String names) {
+        Set<AccountField> fields = EnumSet.noneOf(AccountField.class);
+        for (String name : names.split(",", -1)) {
+            fields.add(named(name.trim()));
+        }
+        return fields;
+    }
+
+    private static AccountField named(String name) {
+        for (AccountField field : values()) {
+            if (field.column.equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown account field '" + name + "'");
+    }
+
+    /**
+     * @return the columns in table order, for a SELECT list.
+     */
+    static String select(Set<AccountField> fields) {
+        StringBuilder columns = new StringBuilder();
+        for (AccountField field : values()) {
+            if (fields.contains(field)) {
+                columns.append(columns.length() == 0 ? "" : ", ").append(field.column);
+            }
+        }
+        return columns.toString();
+    }
+}
@@ -0,0 +1,332 @@
+package DAO;
+
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+import Model.Message;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps every message in memory and answers reads from it. Writes go to
+ * the wrapped DAO first and are applied to the cache once they succeed,
+ * one write at a time.
+ *
+ * <p>Messages are indexed by id and by (time_posted_epoch, message_id),
+ * both globally and per author, in concurrent skip lists, so a time range
+ * is a sub-map walk rather than a query. The cache is filled from the
+ * database on first read; until that load succeeds, reads go to the wrapped
+ * DAO. Changes made to the database other than through this DAO are not
+ * seen, which is why the cache is opt-in.
+ *
+ * <p>Returned messages are shared with the cache and must not be modified.
+ */
+public class CachingMessageDAO implements MessageDAO {
+
+    /**
+     * Sort key of the time indexes.
+     */
+    static final class TimeKey implements Comparable<TimeKey> {
+        final long time;
+        final int id;
+
+        TimeKey(long time, int id) {
+            this.time = time;
+            this.id = id;
+        }
+
+        static TimeKey of(Message message) {
+            return new TimeKey(message.getTime_posted_epoch(), message.getMessage_id());
+        }
+
+        @Override
+        public int compareTo(TimeKey other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Integer.compare(id, other.id);
+        }
+    }
+
+    private static final AsyncLogger log = AsyncLog.getLogger(CachingMessageDAO.class);
+
+    private final MessageDAO delegate;
+    private final Object lock = new Object();
+    private volatile boolean loaded;
+    private final ConcurrentSkipListMap<Integer, Message> byId = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<TimeKey, Message> byTime = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListMap<TimeKey, Message>> byAuthor =
+            new ConcurrentHashMap<>();
+
+    public CachingMessageDAO(MessageDAO delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return false if the cache could not be filled, in which case the
+     *         caller reads from the wrapped DAO and the next read tries again.
+     */
+    private boolean ensureLoaded() {
+        if (loaded) {
+            return true;
+        }
+        // Writers apply their change under the same lock, so none is lost while the cache fills.
+        synchronized (lock) {
+            if (!loaded) {
+                List<Message> messages;
+                try {
+                    messages = delegate.loadAllMessages();
+                } catch (SQLException | RuntimeException e) {
+                    log.warn("Could not fill the message cache", e);
+                    return false;
+                }
+                for (Message message : messages) {
+                    index(message);
+                }
+                loaded = true;
+            }
+        }
+        return true;
+    }
+
+    private void index(Message message) {
+        TimeKey key = TimeKey.of(message);
+        byId.put(message.getMessage_id(), message);
+        byTime.put(key, message);
+        byAuthor.computeIfAbsent(message.getPosted_by(), author -> new ConcurrentSkipListMap<>()).put(key, message);
+    }
+
+    private void unindex(Message message) {
+        TimeKey key = TimeKey.of(message);
+        byId.remove(message.getMessage_id());
+        byTime.remove(key);
+        NavigableMap<TimeKey, Message> authored = byAuthor.get(message.getPosted_by());
+        if (authored != null) {
+            authored.remove(key);
+        }
+    }
+
+    @Override
+    public List<Message> getAllMessages() {
+        if (!ensureLoaded()) {
+            return delegate.getAllMessages();
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * Reads the database rather than the cache, so that callers building
+     * their own copy see writes made other than through this DAO.
+     */
+    @Override
+    public List<Message> loadAllMessages() throws SQLException {
+        return delegate.loadAllMessages();
+    }
+
+    @Override
+    public Message getMessageById(int id) {
+        if (!ensureLoaded()) {
+            return delegate.getMessageById(id);
+        }
+        return byId.get(id);
+    }
+
+    /**
+     * Every message is cached, so a missing id is one that does not exist
+     * and the database is not asked.
+     */
+    @Override
+    public List<Message> getMessagesByIds(int[] ids) {
+        if (!ensureLoaded()) {
+            return delegate.getMessagesByIds(ids);
+        }
+        int[] sorted = Arrays.stream(ids).sorted().distinct().toArray();
+        List<Message> messages = new ArrayList<>(sorted.length);
+        for (int id : sorted) {
+            Message message = byId.get(id);
+            if (message != null) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public List<Message> getMessagesByUser(int userId) {
+        if (!ensureLoaded()) {
+            return delegate.getMessagesByUser(userId);
+        }
+        NavigableMap<TimeKey, Message> authored = byAuthor.get(userId);
+        if (authored == null) {
+            return new ArrayList<>();
+        }
+        // The database returns these in id order.
+        List<Message> messages = new ArrayList<>(authored.values());
+        messages.sort(Comparator.comparingInt(Message::getMessage_id));
+        return messages;
+    }
+
+    @Override
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit) {
+        if (!ensureLoaded()) {
+            return delegate.getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit);
+        }
+        return range(byTime, sinceEpoch, untilEpoch, afterMessageId, limit);
+    }
+
+    @Override
+    public List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                                  int limit) {
+        if (!ensureLoaded()) {
+            return delegate.getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit);
+        }
+        NavigableMap<TimeKey, Message> authored = byAuthor.get(userId);
+        return authored == null ? new ArrayList<>() : range(authored, sinceEpoch, untilEpoch, afterMessageId, limit);
+    }
+
+    private static List<Message> range(NavigableMap<TimeKey, Message> index, long sinceEpoch, long untilEpoch,
+                                       int afterMessageId, int limit) {
+        List<Message> messages = new ArrayList<>(Math.min(limit, 64));
+        if (sinceEpoch >= untilEpoch) {
+            return messages;
+        }
+        // Keys after (since, afterMessageId) and before (until, any id).
+        for (Message message : index.subMap(new TimeKey(sinceEpoch, afterMessageId), false,
+                new TimeKey(untilEpoch, Integer.MIN_VALUE), false).values()) {
+            if (messages.size() == limit) {
+                break;
+            }
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    // Cached messages are already in memory, so projected reads return them
+    // whole and leave it to serialization to write only the fields asked for.
+
+    @Override
+    public List<Message> getAllMessages(Set<MessageField> fields) {
+        return getAllMessages();
+    }
+
+    @Override
+    public Message getMessageById(int id, Set<MessageField> fields) {
+        return getMessageById(id);
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] ids, Set<MessageField> fields) {
+        return getMessagesByIds(ids);
+    }
+
+    @Override
+    public List<Message> getMessagesByUser(int userId, Set<MessageField> fields) {
+        return getMessagesByUser(userId);
+    }
+
+    @Override
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit,
+                                           Set<MessageField> fields) {
+        return getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit);
+    }
+
+    @Override
+    public List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                                  int limit, Set<MessageField> fields) {
+        return getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit);
+    }
+
+    // Each write holds the lock across the database write and the cache
+    // update, so two writes to one message reach the cache in the order they
+    // were committed.
+
+    @Override
+    public boolean insertMessage(Message message) {
+        synchronized (lock) {
+            boolean inserted = delegate.insertMessage(message);
+            if (inserted && loaded) {
+                index(new Message(message.getMessage_id(), message.getPosted_by(), message.getMessage_text(),
+                        message.getTime_posted_epoch()));
+            }
+            return inserted;
+        }
+    }
+
+    @Override
+    public boolean updateMessageText(int messageId, String newText) {
+        synchronized (lock) {
+            boolean updated = delegate.updateMessageText(messageId, newText);
+            Message old = updated && loaded ? byId.get(messageId) : null;
+            if (old != null) {
+                // Same keys, so each put swaps the entry in place and readers never miss it.
+                index(new Message(messageId, old.getPosted_by(), newText, old.getTime_posted_epoch()));
+            }
+            return updated;
+        }
+    }
+
+    @Override
+    public boolean deleteMessageById(int messageId) {
+        synchronized (lock) {
+            boolean deleted = delegate.deleteMessageById(messageId);
+            Message old = deleted && loaded ? byId.get(messageId) : null;
+            if (old != null) {
+                unindex(old);
+            }
+            return deleted;
+        }
+    }
+
+    @Override
+    public boolean doesUserExist(int userId) {
+        return delegate.doesUserExist(userId);
+    }
+
+    @Override
+    public Map<Integer, Long> countMessagesByUser() throws SQLException {
+        return delegate.countMessagesByUser();
+    }
+
+    @Override
+    public Map<Long, Long> countMessagesByHour(long sinceEpoch) throws SQLException {
+        return delegate.countMessagesByHour(sinceEpoch);
+    }
+
+    @Override
+    public long dropMessagesBefore(long epochSecond) throws SQLException {
+        synchronized (lock) {
+            long dropped = delegate.dropMessagesBefore(epochSecond);
+            if (loaded) {
+                NavigableMap<TimeKey, Message> expired = byTime.headMap(new TimeKey(epochSecond, Integer.MIN_VALUE));
+                for (Message message : new ArrayList<>(expired.values())) {
+                    unindex(message);
+                }
+            }
+            return dropped;
+        }
+    }
+
+    @Override
+    public int purgeDeleted(long deletedBeforeMillis, int limit) throws SQLException {
+        // Deleted messages already left the cache when they were deleted.
+        return delegate.purgeDeleted(deletedBeforeMillis, limit);
+    }
+
+    @Override
+    public long countDeleted() throws SQLException {
+        return delegate.countDeleted();
+    }
+
+    @Override
+    public long exportMessages(long sinceEpoch, long untilEpoch, RowCallback<Message> callback)
+            throws SQLException, IOException {
+        return delegate.exportMessages(sinceEpoch, untilEpoch, callback);
+    }
+}
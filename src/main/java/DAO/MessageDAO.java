@@ -1,15 +1,56 @@
 package DAO;
 
 import Model.Message;
+
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface MessageDAO {
     List<Message> getAllMessages();
 
+    /**
+     * As {@link #getAllMessages()}, for callers that keep the result in
+     * place of the table, such as caches and snapshots. Failures are thrown
+     * rather than answered with an empty or partial list.
+     */
+    List<Message> loadAllMessages() throws SQLException;
+
     Message getMessageById(int id);
 
+    /**
+     * Looks up many messages with a single query.
+     *
+     * @param ids message ids, in any order; duplicates are allowed.
+     * @return the messages that exist, in id order.
+     */
+    List<Message> getMessagesByIds(int[] ids);
+
     List<Message> getMessagesByUser(int userId);
 
+    /*
+     * Projected reads. Each reads only the given fields, plus message_id,
+     * which is needed to order the results; the other fields of the returned
+     * messages are left unset. Implementations that do not read from SQL may
+     * return whole messages.
+     */
+
+    List<Message> getAllMessages(Set<MessageField> fields);
+
+    Message getMessageById(int id, Set<MessageField> fields);
+
+    List<Message> getMessagesByIds(int[] ids, Set<MessageField> fields);
+
+    List<Message> getMessagesByUser(int userId, Set<MessageField> fields);
+
+    List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit,
+                                    Set<MessageField> fields);
+
+    List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                           int limit, Set<MessageField> fields);
+
     boolean insertMessage(Message message);
 
     boolean updateMessageText(int messageId, String newText);
@@ -18,4 +59,71 @@ public interface MessageDAO {
 
     boolean doesUserExist(int userId);
 
+    /**
+     * Messages posted in [sinceEpoch, untilEpoch), oldest first with ties
+     * broken by message id. A message posted at exactly sinceEpoch is only
+     * included if its id is greater than afterMessageId, so the time and id
+     * of the last message on one page are the keyset for the next.
+     *
+     * @param afterMessageId 0 for the first page.
+     * @param limit          the most messages to return.
+     */
+    List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit);
+
+    /**
+     * As {@link #getMessagesByTime}, restricted to one author.
+     */
+    List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                           int limit);
+
+    /**
+     * Counts messages per author with a GROUP BY over the whole table. Used
+     * to reconcile counters maintained in memory, so failures are thrown
+     * rather than answered with an empty map.
+     *
+     * @return posted_by to message count, for authors with messages.
+     */
+    Map<Integer, Long> countMessagesByUser() throws SQLException;
+
+    /**
+     * Counts messages posted at or after sinceEpoch per hour, the hour being
+     * time_posted_epoch / 3600. Failures are thrown, as above.
+     */
+    Map<Long, Long> countMessagesByHour(long sinceEpoch) throws SQLException;
+
+    /**
+     * Streams messages posted in [sinceEpoch, untilEpoch) from a forward-only
+     * cursor. Unlike the other methods, failures are thrown, so that a
+     * broken export is not mistaken for a complete one.
+     *
+     * @return the number of rows passed to the callback.
+     */
+    long exportMessages(long sinceEpoch, long untilEpoch, RowCallback<Message> callback)
+            throws SQLException, IOException;
+
+    /**
+     * Removes every message posted before epochSecond, for retention. With
+     * monthly partitions this drops whole tables rather than deleting rows,
+     * which is why epochSecond must be the first second of a month (UTC).
+     * Failures are thrown.
+     *
+     * @return the number of messages removed.
+     * @throws IllegalArgumentException if epochSecond is not the start of a month.
+     */
+    long dropMessagesBefore(long epochSecond) throws SQLException;
+
+    /**
+     * Physically removes up to limit messages that were deleted before
+     * deletedBeforeMillis. Deleting a message only tombstones it, so that
+     * the row write is a cheap update; this reclaims the rows later.
+     * Failures are thrown.
+     *
+     * @return the number of rows removed; less than limit once the backlog is cleared.
+     */
+    int purgeDeleted(long deletedBeforeMillis, int limit) throws SQLException;
+
+    /**
+     * @return the number of deleted messages not yet purged.
+     */
+    long countDeleted() throws SQLException;
 }
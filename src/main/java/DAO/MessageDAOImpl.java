@@ -1,68 +1,222 @@
 package DAO;
 
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
 import Model.Message;
 import Util.ConnectionUtil;
 
+import java.io.IOException;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Map;
+import java.util.Set;
 
 public class MessageDAOImpl implements MessageDAO {
 
-    private static final Logger log = LoggerFactory.getLogger(MessageDAOImpl.class);
+    private static final AsyncLogger log = AsyncLog.getLogger(MessageDAOImpl.class);
 
     private static final String COLUMN_MESSAGE_ID = "message_id";
     private static final String COLUMN_POSTED_BY = "posted_by";
     private static final String COLUMN_MESSAGE_TEXT = "message_text";
     private static final String COLUMN_TIME_POSTED_EPOCH = "time_posted_epoch";
 
-    private static final String GET_ALL_MESSAGES = "SELECT * FROM message";
-    private static final String GET_MESSAGE_BY_ID = "SELECT * FROM message WHERE message_id = ?";
-    private static final String GET_MESSAGES_BY_USER = "SELECT * FROM message WHERE posted_by = ?";
+    // Deleted messages are tombstoned by setting deleted_at and stay in the table until
+    // purgeDeleted removes them, so every read and update skips rows where it is set.
+    private static final String GET_ALL_MESSAGES = "SELECT * FROM message WHERE deleted_at IS NULL";
+    private static final String GET_MESSAGE_BY_ID = "SELECT * FROM message WHERE message_id = ? AND deleted_at IS NULL";
+    // One array parameter rather than an IN list, so every batch size shares one statement.
+    private static final String GET_MESSAGES_BY_IDS =
+            "SELECT * FROM message WHERE message_id = ANY(?) AND deleted_at IS NULL ORDER BY message_id";
+    private static final String GET_MESSAGES_BY_USER = "SELECT * FROM message WHERE posted_by = ? AND deleted_at IS NULL";
     private static final String INSERT_MESSAGE = "INSERT INTO message(posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)";
-    private static final String UPDATE_MESSAGE_TEXT = "UPDATE message SET message_text = ? WHERE message_id = ?";
-    private static final String DELETE_MESSAGE = "DELETE FROM message WHERE message_id = ?";
+    private static final String UPDATE_MESSAGE_TEXT =
+            "UPDATE message SET message_text = ? WHERE message_id = ? AND deleted_at IS NULL";
+    private static final String DELETE_MESSAGE =
+            "UPDATE message SET deleted_at = ? WHERE message_id = ? AND deleted_at IS NULL";
     private static final String CHECK_USER_EXISTENCE = "SELECT COUNT(*) FROM account WHERE account_id = ?";
+    private static final String GET_MESSAGES_BY_TIME = "SELECT * FROM message"
+            + " WHERE time_posted_epoch >= ? AND time_posted_epoch < ? AND (time_posted_epoch > ? OR message_id > ?)"
+            + " AND deleted_at IS NULL ORDER BY time_posted_epoch, message_id LIMIT ?";
+    private static final String GET_MESSAGES_BY_USER_AND_TIME = "SELECT * FROM message"
+            + " WHERE posted_by = ? AND time_posted_epoch >= ? AND time_posted_epoch < ?"
+            + " AND (time_posted_epoch > ? OR message_id > ?) AND deleted_at IS NULL"
+            + " ORDER BY time_posted_epoch, message_id LIMIT ?";
+    // SocialMedia.sql cannot carry the tombstone column, so it is added at startup.
+    private static final String ADD_TOMBSTONE_COLUMN = "ALTER TABLE %s ADD COLUMN IF NOT EXISTS deleted_at BIGINT";
+    // Both match the ORDER BY of the range queries, so H2 scans the index and stops at the LIMIT.
+    private static final String CREATE_TIME_INDEX =
+            "CREATE INDEX IF NOT EXISTS message_time_idx ON message(time_posted_epoch, message_id)";
+    private static final String CREATE_USER_TIME_INDEX =
+            "CREATE INDEX IF NOT EXISTS message_user_time_idx ON message(posted_by, time_posted_epoch, message_id)";
+    private static final String CREATE_DELETED_INDEX =
+            "CREATE INDEX IF NOT EXISTS message_deleted_idx ON message(deleted_at)";
+    private static final String COUNT_MESSAGES_BY_USER =
+            "SELECT posted_by, COUNT(*) FROM message WHERE deleted_at IS NULL GROUP BY posted_by";
+    private static final String COUNT_MESSAGES_BY_HOUR = "SELECT time_posted_epoch / 3600 AS posted_hour, COUNT(*)"
+            + " FROM message WHERE time_posted_epoch >= ? AND deleted_at IS NULL GROUP BY posted_hour";
+    private static final String EXPORT_MESSAGES = "SELECT * FROM message"
+            + " WHERE time_posted_epoch >= ? AND time_posted_epoch < ? AND deleted_at IS NULL";
+    private static final String DELETE_MESSAGES_BEFORE = "DELETE FROM message WHERE time_posted_epoch < ?";
+    private static final String PURGE_DELETED = "DELETE FROM message WHERE deleted_at < ? LIMIT ?";
+    private static final String COUNT_DELETED = "SELECT COUNT(*) FROM message WHERE deleted_at IS NOT NULL";
+
+    // The same statements against one monthly partition, whose name replaces %s.
+    private static final String PARTITION_GET_ALL = "SELECT * FROM %s WHERE deleted_at IS NULL";
+    private static final String PARTITION_GET_BY_ID = "SELECT * FROM %s WHERE message_id = ? AND deleted_at IS NULL";
+    private static final String PARTITION_GET_BY_IDS =
+            "SELECT * FROM %s WHERE message_id = ANY(?) AND deleted_at IS NULL";
+    private static final String PARTITION_GET_BY_USER = "SELECT * FROM %s WHERE posted_by = ? AND deleted_at IS NULL";
+    private static final String PARTITION_INSERT = "INSERT INTO %s (message_id, posted_by, message_text, time_posted_epoch)"
+            + " VALUES (NEXT VALUE FOR " + MessagePartitions.SEQUENCE + ", ?, ?, ?)";
+    private static final String PARTITION_UPDATE_TEXT =
+            "UPDATE %s SET message_text = ? WHERE message_id = ? AND deleted_at IS NULL";
+    private static final String PARTITION_DELETE = "UPDATE %s SET deleted_at = ? WHERE message_id = ? AND deleted_at IS NULL";
+    private static final String PARTITION_GET_BY_TIME = "SELECT * FROM %s"
+            + " WHERE time_posted_epoch >= ? AND time_posted_epoch < ? AND (time_posted_epoch > ? OR message_id > ?)"
+            + " AND deleted_at IS NULL ORDER BY time_posted_epoch, message_id LIMIT ?";
+    private static final String PARTITION_GET_BY_USER_AND_TIME = "SELECT * FROM %s"
+            + " WHERE posted_by = ? AND time_posted_epoch >= ? AND time_posted_epoch < ?"
+            + " AND (time_posted_epoch > ? OR message_id > ?) AND deleted_at IS NULL"
+            + " ORDER BY time_posted_epoch, message_id LIMIT ?";
+    private static final String PARTITION_COUNT_BY_USER =
+            "SELECT posted_by, COUNT(*) FROM %s WHERE deleted_at IS NULL GROUP BY posted_by";
+    private static final String PARTITION_COUNT_BY_HOUR = "SELECT time_posted_epoch / 3600 AS posted_hour, COUNT(*)"
+            + " FROM %s WHERE time_posted_epoch >= ? AND deleted_at IS NULL GROUP BY posted_hour";
+    private static final String PARTITION_EXPORT = "SELECT * FROM %s"
+            + " WHERE time_posted_epoch >= ? AND time_posted_epoch < ? AND deleted_at IS NULL";
+    private static final String PARTITION_PURGE_DELETED = "DELETE FROM %s WHERE deleted_at < ? LIMIT ?";
+    private static final String PARTITION_COUNT_DELETED = "SELECT COUNT(*) FROM %s WHERE deleted_at IS NOT NULL";
+
+    private static final Comparator<Message> BY_ID = Comparator.comparingInt(Message::getMessage_id);
+
+    /**
+     * Binds the parameters of a statement run against one partition.
+     */
+    private interface Binder {
+        void bind(PreparedStatement pstmt) throws SQLException;
+    }
+
+    private static final int EXPORT_FETCH_SIZE = Integer.getInteger("socialmedia.export.fetchSize", 1000);
 
     private Connection connection;
+    // Null unless messages are stored in monthly partitions.
+    private final MessagePartitions partitions;
 
     public MessageDAOImpl() {
-        connection = ConnectionUtil.getConnection();
+        this(ConnectionUtil.getConnection());
+    }
+
+    public MessageDAOImpl(Connection connection) {
+        this(connection, null);
+    }
+
+    private MessageDAOImpl(Connection connection, MessagePartitions partitions) {
+        this.connection = connection;
+        this.partitions = partitions;
+    }
+
+    /**
+     * Returns a DAO that keeps messages in one table per month of
+     * time_posted_epoch instead of in {@code message}. Range queries and
+     * exports only read the months they cover, and
+     * {@link #dropMessagesBefore} drops whole tables.
+     *
+     * <p>Any rows in {@code message} are moved into their partitions first.
+     * The base table keeps its schema and stays empty; the importer, which
+     * writes to it directly, has its rows moved on the next start.
+     */
+    public static MessageDAOImpl partitioned(Connection connection) throws SQLException {
+        // The partitions copy the columns of message, so it must have the tombstone column first.
+        new MessageDAOImpl(connection).ensureSchema();
+        MessagePartitions partitions = new MessagePartitions(connection);
+        partitions.open();
+        return new MessageDAOImpl(connection, partitions);
+    }
+
+    /**
+     * Adds the tombstone column and the indexes behind the time-range
+     * queries and the purger if they are missing. SocialMedia.sql recreates
+     * the table without them, so this runs at startup rather than as part
+     * of the schema. Every query depends on the column, so failures are
+     * thrown.
+     */
+    public void ensureSchema() throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            stmt.execute(String.format(ADD_TOMBSTONE_COLUMN, "message"));
+            stmt.execute(CREATE_TIME_INDEX);
+            stmt.execute(CREATE_USER_TIME_INDEX);
+            stmt.execute(CREATE_DELETED_INDEX);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    /**
+     * Adds the tombstone column to a partition created before it existed.
+     */
+    static void addTombstoneColumn(Statement stmt, String table) throws SQLException {
+        stmt.execute(String.format(ADD_TOMBSTONE_COLUMN, table));
     }
 
     @Override
     public List<Message> getAllMessages() {
-        List<Message> messages = new ArrayList<>();
-        try (PreparedStatement pstmt = connection.prepareStatement(GET_ALL_MESSAGES);
-                ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                Message message = extractMessageFromResultSet(rs);
-                messages.add(message);
-            }
-        } catch (SQLException e) {
-            handleError(e);
+        return getAllMessages(MessageField.ALL);
+    }
+
+    @Override
+    public List<Message> getAllMessages(Set<MessageField> fields) {
+        try {
+            return readAll(fields);
         } catch (Exception e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
+            handleError(e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<Message> loadAllMessages() throws SQLException {
+        return readAll(MessageField.ALL);
+    }
+
+    private List<Message> readAll(Set<MessageField> fields) throws SQLException {
+        if (partitions != null) {
+            return getAllPartitioned(fields);
+        }
+        List<Message> messages = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(project(GET_ALL_MESSAGES, fields))) {
+            readMessages(pstmt, messages, fields);
         }
         return messages;
     }
 
     @Override
     public Message getMessageById(int id) {
+        return getMessageById(id, MessageField.ALL);
+    }
+
+    @Override
+    public Message getMessageById(int id, Set<MessageField> fields) {
+        if (partitions != null) {
+            return getByIdPartitioned(id, fields);
+        }
         Message message = null;
-        try (PreparedStatement pstmt = connection.prepareStatement(GET_MESSAGE_BY_ID)) {
+        try (PreparedStatement pstmt = connection.prepareStatement(project(GET_MESSAGE_BY_ID, fields))) {
             pstmt.setInt(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    message = extractMessageFromResultSet(rs);
+                    message = extractMessageFromResultSet(rs, fields);
                 }
             }
         } catch (Exception e) {
@@ -71,14 +225,45 @@ public class MessageDAOImpl implements MessageDAO {
         return message;
     }
 
+    @Override
+    public List<Message> getMessagesByIds(int[] ids) {
+        return getMessagesByIds(ids, MessageField.ALL);
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] ids, Set<MessageField> fields) {
+        if (partitions != null) {
+            return getByIdsPartitioned(ids, fields);
+        }
+        List<Message> messages = new ArrayList<>(ids.length);
+        if (ids.length == 0) {
+            return messages;
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(project(GET_MESSAGES_BY_IDS, fields))) {
+            pstmt.setArray(1, idArray(ids));
+            readMessages(pstmt, messages, fields);
+        } catch (Exception e) {
+            handleError(e);
+        }
+        return messages;
+    }
+
     @Override
     public List<Message> getMessagesByUser(int userId) {
+        return getMessagesByUser(userId, MessageField.ALL);
+    }
+
+    @Override
+    public List<Message> getMessagesByUser(int userId, Set<MessageField> fields) {
+        if (partitions != null) {
+            return getByUserPartitioned(userId, fields);
+        }
         List<Message> messages = new ArrayList<>();
-        try (PreparedStatement pstmt = connection.prepareStatement(GET_MESSAGES_BY_USER)) {
+        try (PreparedStatement pstmt = connection.prepareStatement(project(GET_MESSAGES_BY_USER, fields))) {
             pstmt.setInt(1, userId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Message message = extractMessageFromResultSet(rs);
+                    Message message = extractMessageFromResultSet(rs, fields);
                     messages.add(message);
                 }
             }
@@ -90,6 +275,9 @@ public class MessageDAOImpl implements MessageDAO {
 
     @Override
     public boolean insertMessage(Message message) {
+        if (partitions != null) {
+            return insertPartitioned(message);
+        }
         try (PreparedStatement pstmt = connection.prepareStatement(INSERT_MESSAGE, Statement.RETURN_GENERATED_KEYS)) {
             setPreparedStatementForMessage(pstmt, message);
             int affectedRows = pstmt.executeUpdate();
@@ -111,6 +299,9 @@ public class MessageDAOImpl implements MessageDAO {
 
     @Override
     public boolean updateMessageText(int messageId, String newText) {
+        if (partitions != null) {
+            return updatePartitioned(messageId, newText);
+        }
         try (PreparedStatement pstmt = connection.prepareStatement(UPDATE_MESSAGE_TEXT)) {
             pstmt.setString(1, newText);
             pstmt.setInt(2, messageId);
@@ -124,21 +315,25 @@ public class MessageDAOImpl implements MessageDAO {
 
     @Override
     public boolean deleteMessageById(int messageId) {
+        if (partitions != null) {
+            return deletePartitioned(messageId);
+        }
         PreparedStatement pstmt = null;
         try {
             pstmt = connection.prepareStatement(DELETE_MESSAGE);
-            pstmt.setInt(1, messageId);
+            pstmt.setLong(1, System.currentTimeMillis());
+            pstmt.setInt(2, messageId);
             int affectedRows = pstmt.executeUpdate();
             return affectedRows == 1;
         } catch (Exception e) {
-            log.error("Error while deleting message by ID: " + messageId, e);
+            log.error("Error while deleting message", e, "message_id", messageId);
             return false; // Handle the error and return false in case of an exception.
         } finally {
             if (pstmt != null) {
                 try {
                     pstmt.close();
                 } catch (Exception e) {
-                    log.error("Error while closing PreparedStatement", e);
+                    log.warn("Error while closing PreparedStatement", e);
                 }
             }
         }
@@ -159,12 +354,221 @@ public class MessageDAOImpl implements MessageDAO {
         return false;
     }
 
-    private Message extractMessageFromResultSet(ResultSet rs) throws Exception {
+    @Override
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit) {
+        return getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit, MessageField.ALL);
+    }
+
+    @Override
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit,
+                                           Set<MessageField> fields) {
+        if (partitions != null) {
+            return getByTimePartitioned(PARTITION_GET_BY_TIME, -1, sinceEpoch, untilEpoch, afterMessageId, limit,
+                    fields);
+        }
+        List<Message> messages = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(project(GET_MESSAGES_BY_TIME, fields))) {
+            pstmt.setLong(1, sinceEpoch);
+            pstmt.setLong(2, untilEpoch);
+            pstmt.setLong(3, sinceEpoch);
+            pstmt.setInt(4, afterMessageId);
+            pstmt.setInt(5, limit);
+            readMessages(pstmt, messages, fields);
+        } catch (Exception e) {
+            handleError(e);
+        }
+        return messages;
+    }
+
+    @Override
+    public List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                                  int limit) {
+        return getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit, MessageField.ALL);
+    }
+
+    @Override
+    public List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                                  int limit, Set<MessageField> fields) {
+        if (partitions != null) {
+            return getByTimePartitioned(PARTITION_GET_BY_USER_AND_TIME, userId, sinceEpoch, untilEpoch, afterMessageId,
+                    limit, fields);
+        }
+        List<Message> messages = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(project(GET_MESSAGES_BY_USER_AND_TIME, fields))) {
+            pstmt.setInt(1, userId);
+            pstmt.setLong(2, sinceEpoch);
+            pstmt.setLong(3, untilEpoch);
+            pstmt.setLong(4, sinceEpoch);
+            pstmt.setInt(5, afterMessageId);
+            pstmt.setInt(6, limit);
+            readMessages(pstmt, messages, fields);
+        } catch (Exception e) {
+            handleError(e);
+        }
+        return messages;
+    }
+
+    private void readMessages(PreparedStatement pstmt, List<Message> messages, Set<MessageField> fields)
+            throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                messages.add(extractMessageFromResultSet(rs, fields));
+            }
+        }
+    }
+
+    @Override
+    public Map<Integer, Long> countMessagesByUser() throws SQLException {
+        if (partitions != null) {
+            return countByUserPartitioned();
+        }
+        Map<Integer, Long> counts = new HashMap<>();
+        PreparedStatement pstmt = connection.prepareStatement(COUNT_MESSAGES_BY_USER);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                counts.put(rs.getInt(1), rs.getLong(2));
+            }
+        } finally {
+            pstmt.close();
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<Long, Long> countMessagesByHour(long sinceEpoch) throws SQLException {
+        if (partitions != null) {
+            return countByHourPartitioned(sinceEpoch);
+        }
+        Map<Long, Long> counts = new HashMap<>();
+        PreparedStatement pstmt = connection.prepareStatement(COUNT_MESSAGES_BY_HOUR);
+        try {
+            pstmt.setLong(1, sinceEpoch);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getLong(1), rs.getLong(2));
+                }
+            }
+        } finally {
+            pstmt.close();
+        }
+        return counts;
+    }
+
+    @Override
+    public long exportMessages(long sinceEpoch, long untilEpoch, RowCallback<Message> callback)
+            throws SQLException, IOException {
+        if (partitions != null) {
+            return exportPartitioned(sinceEpoch, untilEpoch, callback);
+        }
+        PreparedStatement pstmt = connection.prepareStatement(EXPORT_MESSAGES,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            pstmt.setFetchSize(EXPORT_FETCH_SIZE);
+            pstmt.setLong(1, sinceEpoch);
+            pstmt.setLong(2, untilEpoch);
+            return streamMessages(pstmt, new Message(), callback);
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    /**
+     * Passes each row to the callback in the given Message, which is reused
+     * for every row; the callback must not keep it.
+     */
+    private long streamMessages(PreparedStatement pstmt, Message message, RowCallback<Message> callback)
+            throws SQLException, IOException {
+        long rows = 0;
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                message.setMessage_id(rs.getInt(COLUMN_MESSAGE_ID));
+                message.setPosted_by(rs.getInt(COLUMN_POSTED_BY));
+                message.setMessage_text(rs.getString(COLUMN_MESSAGE_TEXT));
+                message.setTime_posted_epoch(rs.getLong(COLUMN_TIME_POSTED_EPOCH));
+                callback.row(message);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public long dropMessagesBefore(long epochSecond) throws SQLException {
+        if (!MessagePartitions.isMonthStart(epochSecond)) {
+            throw new IllegalArgumentException("Not the start of a month: " + epochSecond);
+        }
+        if (partitions != null) {
+            return partitions.dropBefore(epochSecond);
+        }
+        PreparedStatement pstmt = connection.prepareStatement(DELETE_MESSAGES_BEFORE);
+        try {
+            pstmt.setLong(1, epochSecond);
+            return pstmt.executeUpdate();
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    @Override
+    public int purgeDeleted(long deletedBeforeMillis, int limit) throws SQLException {
+        if (partitions != null) {
+            return purgePartitioned(deletedBeforeMillis, limit);
+        }
+        PreparedStatement pstmt = connection.prepareStatement(PURGE_DELETED);
+        try {
+            pstmt.setLong(1, deletedBeforeMillis);
+            pstmt.setInt(2, limit);
+            return pstmt.executeUpdate();
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    @Override
+    public long countDeleted() throws SQLException {
+        if (partitions != null) {
+            return countDeletedPartitioned();
+        }
+        PreparedStatement pstmt = connection.prepareStatement(COUNT_DELETED);
+        try (ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } finally {
+            pstmt.close();
+        }
+    }
+
+    private Array idArray(int[] ids) throws SQLException {
+        Integer[] boxed = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = ids[i];
+        }
+        return connection.createArrayOf("INTEGER", boxed);
+    }
+
+    /**
+     * Narrows a {@code SELECT *} statement to the given fields and message_id.
+     */
+    private static String project(String sql, Set<MessageField> fields) {
+        if (fields.containsAll(MessageField.ALL)) {
+            return sql;
+        }
+        Set<MessageField> columns = EnumSet.of(MessageField.MESSAGE_ID);
+        columns.addAll(fields);
+        return "SELECT " + MessageField.select(columns) + sql.substring("SELECT *".length());
+    }
+
+    private Message extractMessageFromResultSet(ResultSet rs, Set<MessageField> fields) throws SQLException {
         Message message = new Message();
         message.setMessage_id(rs.getInt(COLUMN_MESSAGE_ID));
-        message.setPosted_by(rs.getInt(COLUMN_POSTED_BY));
-        message.setMessage_text(rs.getString(COLUMN_MESSAGE_TEXT));
-        message.setTime_posted_epoch(rs.getLong(COLUMN_TIME_POSTED_EPOCH));
+        if (fields.contains(MessageField.POSTED_BY)) {
+            message.setPosted_by(rs.getInt(COLUMN_POSTED_BY));
+        }
+        if (fields.contains(MessageField.MESSAGE_TEXT)) {
+            message.setMessage_text(rs.getString(COLUMN_MESSAGE_TEXT));
+        }
+        if (fields.contains(MessageField.TIME_POSTED_EPOCH)) {
+            message.setTime_posted_epoch(rs.getLong(COLUMN_TIME_POSTED_EPOCH));
+        }
         return message;
     }
 
@@ -174,6 +578,258 @@ public class MessageDAOImpl implements MessageDAO {
         pstmt.setLong(3, message.getTime_posted_epoch());
     }
 
+    // Partitioned storage. Reads that are not bounded in time visit every
+    // partition; lookups by id visit them newest first and stop at the hit.
+
+    private List<Message> getAllPartitioned(Set<MessageField> fields) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        for (MessagePartitions.Partition partition : partitions.all()) {
+            query(PARTITION_GET_ALL, partition, pstmt -> { }, messages, fields);
+        }
+        // A single table returns rows in primary key order.
+        messages.sort(BY_ID);
+        return messages;
+    }
+
+    private Message getByIdPartitioned(int id, Set<MessageField> fields) {
+        List<Message> found = new ArrayList<>(1);
+        try {
+            for (MessagePartitions.Partition partition : partitions.newestFirst()) {
+                query(PARTITION_GET_BY_ID, partition, pstmt -> pstmt.setInt(1, id), found, fields);
+                if (!found.isEmpty()) {
+                    return found.get(0);
+                }
+            }
+        } catch (Exception e) {
+            handleError(e);
+        }
+        return null;
+    }
+
+    /**
+     * Ids do not say which month a message is in, so every partition is
+     * asked, newest first, until all the ids are found.
+     */
+    private List<Message> getByIdsPartitioned(int[] ids, Set<MessageField> fields) {
+        List<Message> messages = new ArrayList<>(ids.length);
+        if (ids.length == 0) {
+            return messages;
+        }
+        long distinct = Arrays.stream(ids).distinct().count();
+        try {
+            Array array = idArray(ids);
+            for (MessagePartitions.Partition partition : partitions.newestFirst()) {
+                query(PARTITION_GET_BY_IDS, partition, pstmt -> pstmt.setArray(1, array), messages, fields);
+                if (messages.size() == distinct) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            handleError(e);
+        }
+        messages.sort(BY_ID);
+        return messages;
+    }
+
+    private List<Message> getByUserPartitioned(int userId, Set<MessageField> fields) {
+        List<Message> messages = new ArrayList<>();
+        try {
+            for (MessagePartitions.Partition partition : partitions.all()) {
+                query(PARTITION_GET_BY_USER, partition, pstmt -> pstmt.setInt(1, userId), messages, fields);
+            }
+        } catch (Exception e) {
+            handleError(e);
+        }
+        messages.sort(BY_ID);
+        return messages;
+    }
+
+    private boolean insertPartitioned(Message message) {
+        try {
+            MessagePartitions.Partition partition = partitions.forTime(message.getTime_posted_epoch());
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    String.format(PARTITION_INSERT, partition.table), new String[]{COLUMN_MESSAGE_ID})) {
+                setPreparedStatementForMessage(pstmt, message);
+                if (pstmt.executeUpdate() == 1) {
+                    try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            message.setMessage_id(rs.getInt(1));
+                        }
+                    }
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            handleError(e);
+        }
+        return false;
+    }
+
+    private boolean updatePartitioned(int messageId, String newText) {
+        return updateNewestFirst(PARTITION_UPDATE_TEXT, pstmt -> {
+            pstmt.setString(1, newText);
+            pstmt.setInt(2, messageId);
+        });
+    }
+
+    private boolean deletePartitioned(int messageId) {
+        long deletedAt = System.currentTimeMillis();
+        return updateNewestFirst(PARTITION_DELETE, pstmt -> {
+            pstmt.setLong(1, deletedAt);
+            pstmt.setInt(2, messageId);
+        });
+    }
+
+    /**
+     * Runs an update against each partition, newest first, until one row
+     * is affected.
+     */
+    private boolean updateNewestFirst(String template, Binder binder) {
+        try {
+            for (MessagePartitions.Partition partition : partitions.newestFirst()) {
+                try (PreparedStatement pstmt = connection.prepareStatement(String.format(template, partition.table))) {
+                    binder.bind(pstmt);
+                    if (pstmt.executeUpdate() == 1) {
+                        return true;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            handleError(e);
+        }
+        return false;
+    }
+
+    /**
+     * Partitions hold disjoint, ascending time ranges, so reading the
+     * overlapping ones in order keeps the (time, id) order, and the scan
+     * stops at the first partition that fills the page.
+     *
+     * @param userId the author, or -1 for every author.
+     */
+    private List<Message> getByTimePartitioned(String template, int userId, long sinceEpoch, long untilEpoch,
+                                               int afterMessageId, int limit, Set<MessageField> fields) {
+        List<Message> messages = new ArrayList<>();
+        try {
+            for (MessagePartitions.Partition partition : partitions.overlapping(sinceEpoch, untilEpoch)) {
+                int remaining = limit - messages.size();
+                query(template, partition, pstmt -> {
+                    int index = 1;
+                    if (userId >= 0) {
+                        pstmt.setInt(index++, userId);
+                    }
+                    pstmt.setLong(index++, sinceEpoch);
+                    pstmt.setLong(index++, untilEpoch);
+                    pstmt.setLong(index++, sinceEpoch);
+                    pstmt.setInt(index++, afterMessageId);
+                    pstmt.setInt(index, remaining);
+                }, messages, fields);
+                if (messages.size() >= limit) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            handleError(e);
+        }
+        return messages;
+    }
+
+    private void query(String template, MessagePartitions.Partition partition, Binder binder, List<Message> messages,
+                       Set<MessageField> fields) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                project(String.format(template, partition.table), fields))) {
+            binder.bind(pstmt);
+            readMessages(pstmt, messages, fields);
+        }
+    }
+
+    private Map<Integer, Long> countByUserPartitioned() throws SQLException {
+        Map<Integer, Long> counts = new HashMap<>();
+        for (MessagePartitions.Partition partition : partitions.all()) {
+            PreparedStatement pstmt = connection.prepareStatement(String.format(PARTITION_COUNT_BY_USER, partition.table));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.merge(rs.getInt(1), rs.getLong(2), Long::sum);
+                }
+            } finally {
+                pstmt.close();
+            }
+        }
+        return counts;
+    }
+
+    private Map<Long, Long> countByHourPartitioned(long sinceEpoch) throws SQLException {
+        Map<Long, Long> counts = new HashMap<>();
+        for (MessagePartitions.Partition partition : partitions.overlapping(sinceEpoch, Long.MAX_VALUE)) {
+            PreparedStatement pstmt = connection.prepareStatement(String.format(PARTITION_COUNT_BY_HOUR, partition.table));
+            try {
+                pstmt.setLong(1, sinceEpoch);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        // An hour never spans two months, so no merging is needed.
+                        counts.put(rs.getLong(1), rs.getLong(2));
+                    }
+                }
+            } finally {
+                pstmt.close();
+            }
+        }
+        return counts;
+    }
+
+    private long exportPartitioned(long sinceEpoch, long untilEpoch, RowCallback<Message> callback)
+            throws SQLException, IOException {
+        Collection<MessagePartitions.Partition> overlapping = partitions.overlapping(sinceEpoch, untilEpoch);
+        Message message = new Message();
+        long rows = 0;
+        for (MessagePartitions.Partition partition : overlapping) {
+            PreparedStatement pstmt = connection.prepareStatement(String.format(PARTITION_EXPORT, partition.table),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            try {
+                pstmt.setFetchSize(EXPORT_FETCH_SIZE);
+                pstmt.setLong(1, sinceEpoch);
+                pstmt.setLong(2, untilEpoch);
+                rows += streamMessages(pstmt, message, callback);
+            } finally {
+                pstmt.close();
+            }
+        }
+        return rows;
+    }
+
+    private int purgePartitioned(long deletedBeforeMillis, int limit) throws SQLException {
+        int purged = 0;
+        for (MessagePartitions.Partition partition : partitions.all()) {
+            PreparedStatement pstmt = connection.prepareStatement(String.format(PARTITION_PURGE_DELETED, partition.table));
+            try {
+                pstmt.setLong(1, deletedBeforeMillis);
+                pstmt.setInt(2, limit - purged);
+                purged += pstmt.executeUpdate();
+            } finally {
+                pstmt.close();
+            }
+            if (purged >= limit) {
+                break;
+            }
+        }
+        return purged;
+    }
+
+    private long countDeletedPartitioned() throws SQLException {
+        long count = 0;
+        for (MessagePartitions.Partition partition : partitions.all()) {
+            PreparedStatement pstmt = connection.prepareStatement(String.format(PARTITION_COUNT_DELETED, partition.table));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    count += rs.getLong(1);
+                }
+            } finally {
+                pstmt.close();
+            }
+        }
+        return count;
+    }
+
     private void handleError(Exception e) {
         log.error("An error occurred in MessageDAOImpl", e);
     }
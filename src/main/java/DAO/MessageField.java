@@ -0,0 +1,65 @@
+package DAO;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The columns of a message that a read may ask for. Each is named as in
+ * the table and in JSON, so {@code ?fields=} maps straight to a SELECT list.
+ */
+public enum MessageField {
+    MESSAGE_ID("message_id"),
+    POSTED_BY("posted_by"),
+    MESSAGE_TEXT("message_text"),
+    TIME_POSTED_EPOCH("time_posted_epoch");
+
+    /**
+     * Every field, which reads and writes messages whole.
+     */
+    public static final Set<MessageField> ALL = Collections.unmodifiableSet(EnumSet.allOf(MessageField.class));
+
+    private final String column;
+
+    MessageField(String column) {
+        this.column = column;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    /**
+     * @param names a comma-separated list, such as {@code message_id,time_posted_epoch}.
+     * @throws IllegalArgumentException if a name is not a message field, or none is given.
+     */
+    public static Set<MessageField> parse(String names) {
+        Set<MessageField> fields = EnumSet.noneOf(MessageField.class);
+        for (String name : names.split(",", -1)) {
+            fields.add(named(name.trim()));
+        }
+        return fields;
+    }
+
+    private static MessageField named(String name) {
+        for (MessageField field : values()) {
+            if (field.column.equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown message field '" + name + "'");
+    }
+
+    /**
+     * @return the columns in table order, for a SELECT list.
+     */
+    static String select(Set<MessageField> fields) {
+        StringBuilder columns = new StringBuilder();
+        for (MessageField field : values()) {
+            if (fields.contains(field)) {
+                columns.append(columns.length() == 0 ? "" : ", ").append(field.column);
+            }
+        }
+        return columns.toString();
+    }
+}
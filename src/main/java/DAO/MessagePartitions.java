@@ -0,0 +1,284 @@
+package DAO;
+
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The monthly tables that hold messages when partitioning is enabled, one
+ * per calendar month (UTC) of time_posted_epoch, named
+ * {@code message_pYYYYMM}. Tables are created when the first message of
+ * their month is written and dropped whole by retention.
+ *
+ * <p>The tables have no foreign key to account, so that SocialMedia.sql can
+ * still drop account. Ids come from {@code message_id_seq}, shared by all
+ * partitions, since each table's own identity would collide.
+ */
+final class MessagePartitions {
+
+    private static final AsyncLogger log = AsyncLog.getLogger(MessagePartitions.class);
+
+    static final String SEQUENCE = "message_id_seq";
+
+    private static final String LIST_PARTITIONS = "SELECT table_name FROM information_schema.tables"
+            + " WHERE table_schema = SCHEMA() AND table_name LIKE 'MESSAGE\\_P______'";
+    private static final String MAX_ID = "SELECT MAX(message_id) FROM %s";
+    private static final String MIN_ID = "SELECT MIN(message_id) FROM message";
+    private static final String NEXT_UNMIGRATED = "SELECT MIN(time_posted_epoch) FROM message WHERE time_posted_epoch >= ?";
+    private static final String MIGRATE = "INSERT INTO %s SELECT * FROM message"
+            + " WHERE time_posted_epoch >= ? AND time_posted_epoch < ?";
+    private static final String MIGRATE_RENUMBERED = "INSERT INTO %s"
+            + " (message_id, posted_by, message_text, time_posted_epoch, deleted_at)"
+            + " SELECT NEXT VALUE FOR " + SEQUENCE + ", posted_by, message_text, time_posted_epoch, deleted_at FROM message"
+            + " WHERE time_posted_epoch >= ? AND time_posted_epoch < ? ORDER BY message_id";
+    private static final String CLEAR_BASE = "DELETE FROM message";
+
+    /**
+     * One month's table and the range of time_posted_epoch it holds.
+     */
+    static final class Partition {
+        final YearMonth month;
+        final String table;
+        final long start;
+        final long end;
+
+        Partition(YearMonth month) {
+            this.month = month;
+            this.table = String.format("message_p%04d%02d", month.getYear(), month.getMonthValue());
+            this.start = month.atDay(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+            this.end = month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+        }
+    }
+
+    // Table names have room for years 1970 to 9999, which LIST_PARTITIONS relies on.
+    private static final long FIRST_SECOND = new Partition(YearMonth.of(1970, 1)).start;
+    private static final long LAST_SECOND = new Partition(YearMonth.of(9999, 12)).end - 1;
+
+    private final Connection connection;
+    private final ConcurrentSkipListMap<YearMonth, Partition> partitions = new ConcurrentSkipListMap<>();
+
+    MessagePartitions(Connection connection) {
+        this.connection = connection;
+    }
+
+    static YearMonth monthOf(long epochSecond) {
+        return YearMonth.from(Instant.ofEpochSecond(epochSecond).atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * @return whether epochSecond is the first second of a month, the only
+     *         boundary at which partitions can be dropped.
+     */
+    static boolean isMonthStart(long epochSecond) {
+        return new Partition(monthOf(epochSecond)).start == epochSecond;
+    }
+
+    /**
+     * Finds the existing partitions, moves any rows in the base table into
+     * them and starts the id sequence after the highest id.
+     *
+     * <p>Rows reach the base table when the importer runs against a
+     * partitioned database. Their ids came from the base table's identity,
+     * which knows nothing of the sequence, so if any could collide with a
+     * partitioned row they are given new ids.
+     */
+    void open() throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            ResultSet rs = stmt.executeQuery(LIST_PARTITIONS);
+            while (rs.next()) {
+                String name = rs.getString(1);
+                YearMonth month = YearMonth.of(Integer.parseInt(name.substring(9, 13)),
+                        Integer.parseInt(name.substring(13, 15)));
+                partitions.put(month, new Partition(month));
+            }
+            rs.close();
+            for (Partition partition : partitions.values()) {
+                MessageDAOImpl.addTombstoneColumn(stmt, partition.table);
+                createDeletedIndex(stmt, partition);
+            }
+            long maxPartitioned = 0;
+            for (Partition partition : partitions.values()) {
+                maxPartitioned = Math.max(maxPartitioned, queryLong(stmt, String.format(MAX_ID, partition.table)));
+            }
+            long maxBase = queryLong(stmt, String.format(MAX_ID, "message"));
+            stmt.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE);
+            stmt.execute("ALTER SEQUENCE " + SEQUENCE + " RESTART WITH " + (Math.max(maxPartitioned, maxBase) + 1));
+            if (maxBase > 0) {
+                boolean renumber = queryLong(stmt, MIN_ID) <= maxPartitioned;
+                migrate(renumber);
+            }
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private static long queryLong(Statement stmt, String sql) throws SQLException {
+        ResultSet rs = stmt.executeQuery(sql);
+        try {
+            return rs.next() ? rs.getLong(1) : 0;
+        } finally {
+            rs.close();
+        }
+    }
+
+    private void migrate(boolean renumber) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        long moved = 0;
+        try {
+            PreparedStatement next = connection.prepareStatement(NEXT_UNMIGRATED);
+            try {
+                long from = Long.MIN_VALUE;
+                while (true) {
+                    next.setLong(1, from);
+                    ResultSet rs = next.executeQuery();
+                    long time = rs.next() ? rs.getLong(1) : 0;
+                    boolean found = !rs.wasNull();
+                    rs.close();
+                    if (!found) {
+                        break;
+                    }
+                    Partition partition = forTime(time);
+                    PreparedStatement copy = connection.prepareStatement(
+                            String.format(renumber ? MIGRATE_RENUMBERED : MIGRATE, partition.table));
+                    try {
+                        copy.setLong(1, partition.start);
+                        copy.setLong(2, partition.end);
+                        moved += copy.executeUpdate();
+                    } finally {
+                        copy.close();
+                    }
+                    from = partition.end;
+                }
+            } finally {
+                next.close();
+            }
+            Statement clear = connection.createStatement();
+            try {
+                clear.executeUpdate(CLEAR_BASE);
+            } finally {
+                clear.close();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        log.info("Moved messages into monthly partitions", "messages", moved, "renumbered", renumber);
+    }
+
+    /**
+     * @return the partition holding epochSecond, created if it does not exist.
+     * @throws IllegalArgumentException if epochSecond is outside 1970 to 9999,
+     *         so that no caller can create a table the others would not find.
+     */
+    Partition forTime(long epochSecond) throws SQLException {
+        if (epochSecond < FIRST_SECOND || epochSecond > LAST_SECOND) {
+            throw new IllegalArgumentException("No partition for time_posted_epoch " + epochSecond);
+        }
+        YearMonth month = monthOf(epochSecond);
+        Partition partition = partitions.get(month);
+        if (partition != null) {
+            return partition;
+        }
+        synchronized (this) {
+            partition = partitions.get(month);
+            if (partition == null) {
+                partition = new Partition(month);
+                create(partition);
+                partitions.put(month, partition);
+            }
+            return partition;
+        }
+    }
+
+    private void create(Partition partition) throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            // Copies the columns of message, so columns added to it later reach new partitions too.
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + partition.table + " AS SELECT * FROM message WITH NO DATA");
+            stmt.execute("ALTER TABLE " + partition.table + " ALTER COLUMN message_id SET NOT NULL");
+            stmt.execute("ALTER TABLE " + partition.table + " ADD PRIMARY KEY (message_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS " + partition.table + "_time_idx ON " + partition.table
+                    + "(time_posted_epoch, message_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS " + partition.table + "_user_time_idx ON " + partition.table
+                    + "(posted_by, time_posted_epoch, message_id)");
+            createDeletedIndex(stmt, partition);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private static void createDeletedIndex(Statement stmt, Partition partition) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS " + partition.table + "_deleted_idx ON " + partition.table
+                + "(deleted_at)");
+    }
+
+    /**
+     * @return every partition, oldest first.
+     */
+    Collection<Partition> all() {
+        return partitions.values();
+    }
+
+    /**
+     * @return every partition, newest first. Lookups by id try these in
+     *         turn, as recent messages are the ones read and edited most.
+     */
+    Collection<Partition> newestFirst() {
+        return partitions.descendingMap().values();
+    }
+
+    /**
+     * @return the partitions that can hold messages posted in
+     *         [sinceEpoch, untilEpoch), oldest first.
+     */
+    List<Partition> overlapping(long sinceEpoch, long untilEpoch) {
+        List<Partition> overlapping = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            if (partition.start < untilEpoch && partition.end > sinceEpoch) {
+                overlapping.add(partition);
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Drops every partition that ends at or before epochSecond.
+     *
+     * @return the number of messages dropped.
+     */
+    long dropBefore(long epochSecond) throws SQLException {
+        long dropped = 0;
+        Statement stmt = connection.createStatement();
+        try {
+            // Months before the one containing epochSecond all end at or before it.
+            for (Partition partition : partitions.headMap(monthOf(epochSecond)).values()) {
+                long rows = queryLong(stmt, "SELECT COUNT(*) FROM " + partition.table + " WHERE deleted_at IS NULL");
+                // Removed from the catalog first so no new query is routed to a table being dropped.
+                partitions.remove(partition.month);
+                stmt.execute("DROP TABLE IF EXISTS " + partition.table);
+                dropped += rows;
+                log.info("Dropped message partition", "table", partition.table, "messages", rows);
+            }
+        } finally {
+            stmt.close();
+        }
+        return dropped;
+    }
+}
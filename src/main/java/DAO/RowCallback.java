@@ -0,0 +1,12 @@
+package DAO;
+
+import java.io.IOException;
+
+/**
+ * Receives rows one at a time from a streaming DAO query, so that callers
+ * can write them out without holding the whole result in memory.
+ */
+public interface RowCallback<T> {
+
+    void row(T value) throws IOException;
+}
@@ -0,0 +1,60 @@
+package Events;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the most recent events. Publishing overwrites the
+ * oldest slot and never waits for readers; a reader that falls more than a
+ * ring behind finds its next event overwritten and knows it has lagged.
+ *
+ * <p>Event ids continue from the previous process (they start at the boot
+ * time in milliseconds times 1000), so a Last-Event-ID from before a
+ * restart is recognised as too old rather than mistaken for a recent one.
+ */
+final class EventRing {
+
+    private final AtomicReferenceArray<MessageEvent> slots;
+    private final int mask;
+    private final long firstId;
+    // The id the next event will get; written only under the publish lock.
+    private volatile long next;
+
+    EventRing(int capacity, long firstId) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.firstId = firstId;
+        this.next = firstId;
+    }
+
+    /**
+     * Appends an event. Callers serialise appends, which keeps ids dense.
+     */
+    void append(MessageEvent event) {
+        slots.set((int) (event.id & mask), event);
+        next = event.id + 1;
+    }
+
+    /**
+     * @return the id the next appended event will get.
+     */
+    long nextId() {
+        return next;
+    }
+
+    /**
+     * @return the oldest id still held.
+     */
+    long oldestId() {
+        return Math.max(firstId, next - slots.length());
+    }
+
+    /**
+     * @return the event with this id, or null if it has been overwritten or
+     *         not yet published.
+     */
+    MessageEvent get(long id) {
+        MessageEvent event = slots.get((int) (id & mask));
+        return event != null && event.id == id ? event : null;
+    }
+}
@@ -0,0 +1,49 @@
+package Events;
+
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.common.WebSocketSession;
+import org.eclipse.jetty.websocket.core.CoreSession;
+import org.eclipse.jetty.websocket.core.Frame;
+import org.eclipse.jetty.websocket.core.OpCode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sends pre-encoded text frames through Jetty's core session. The public
+ * {@code RemoteEndpoint.sendString} would encode the same event to UTF-8
+ * again for every connection.
+ */
+public final class JettyOutbound implements Outbound, Callback {
+
+    private final Session session;
+    private final CoreSession core;
+    private volatile SendCallback callback;
+
+    public JettyOutbound(Session session) {
+        this.session = session;
+        this.core = ((WebSocketSession) session).getCoreSession();
+    }
+
+    @Override
+    public void sendText(ByteBuffer utf8, SendCallback callback) {
+        // One frame is in flight at a time, so the single callback field is enough.
+        this.callback = callback;
+        core.sendFrame(new Frame(OpCode.TEXT, utf8), this, false);
+    }
+
+    @Override
+    public void close(int status, String reason) {
+        session.close(status, reason);
+    }
+
+    @Override
+    public void succeeded() {
+        callback.sent();
+    }
+
+    @Override
+    public void failed(Throwable cause) {
+        callback.failed(cause);
+    }
+}
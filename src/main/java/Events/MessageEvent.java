@@ -0,0 +1,18 @@
+package Events;
+
+/**
+ * One published change, already encoded as an SSE frame so that fanning it
+ * out to many subscribers is a byte copy per subscriber.
+ */
+final class MessageEvent {
+
+    final long id;
+    final int postedBy;
+    final byte[] frame;
+
+    MessageEvent(long id, int postedBy, byte[] frame) {
+        this.id = id;
+        this.postedBy = postedBy;
+        this.frame = frame;
+    }
+}
@@ -0,0 +1,21 @@
+package Events;
+
+/**
+ * The change a {@link MessagePublisher} reports, used as the SSE event name.
+ */
+public enum MessageEventType {
+
+    CREATED("created"),
+    UPDATED("updated"),
+    DELETED("deleted");
+
+    private final String eventName;
+
+    MessageEventType(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+}
@@ -0,0 +1,30 @@
+package Events;
+
+import Model.Message;
+
+/**
+ * Receives every message change made through {@code MessageService}.
+ * Implementations are called on the request thread after the change has
+ * been written, so they must not block.
+ */
+public interface MessagePublisher {
+
+    MessagePublisher NONE = (type, message) -> { };
+
+    /**
+     * @param message the message after the change; for a deletion, its
+     *                last state. It is not retained.
+     */
+    void publish(MessageEventType type, Message message);
+
+    /**
+     * @return a publisher that passes each change to every one given, in order.
+     */
+    static MessagePublisher all(MessagePublisher... publishers) {
+        return (type, message) -> {
+            for (MessagePublisher publisher : publishers) {
+                publisher.publish(type, message);
+            }
+        };
+    }
+}
@@ -0,0 +1,200 @@
+package Events;
+
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+import Model.Message;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServlet;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fans message changes out to Server-Sent Events subscribers.
+ *
+ * <p>{@link #publish} encodes the event once, appends it to an
+ * {@link EventRing} and wakes the dispatcher thread, so its cost does not
+ * depend on how many clients are connected. The dispatcher walks the
+ * subscribers and writes whatever each socket will accept without blocking.
+ * A subscriber that falls a whole ring behind skips ahead and is sent a
+ * {@code lagging} event. One whose socket stays unwritable for the stall
+ * timeout is disconnected.
+ */
+public class MessageStream implements MessagePublisher, MetricsRegistry.Collector {
+
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final byte[] RESET = "event: reset\ndata: {}\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final EventRing ring;
+    private final Object publishLock = new Object();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final long heartbeatNanos;
+    private final long stallTimeoutNanos;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder lagged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public MessageStream(int bufferSize, long heartbeatMillis, long stallTimeoutMillis) {
+        this.ring = new EventRing(bufferSize, System.currentTimeMillis() * 1000);
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        this.stallTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(stallTimeoutMillis);
+        this.dispatcher = new Thread(this::dispatch, "message-stream");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Reads {@code socialmedia.stream.bufferSize} (events kept for resume
+     * and slow readers, default 4096), {@code socialmedia.stream.heartbeatMillis}
+     * (default 15000) and {@code socialmedia.stream.stallTimeoutMillis}
+     * (default 30000).
+     */
+    public static MessageStream fromSystemProperties() {
+        return new MessageStream(
+                Integer.getInteger("socialmedia.stream.bufferSize", 4096),
+                Long.getLong("socialmedia.stream.heartbeatMillis", 15000),
+                Long.getLong("socialmedia.stream.stallTimeoutMillis", 30000));
+    }
+
+    /**
+     * @return the servlet to mount at /messages/stream.
+     */
+    public HttpServlet servlet() {
+        return new MessageStreamServlet(this);
+    }
+
+    @Override
+    public void publish(MessageEventType type, Message message) {
+        String data = encode(message);
+        synchronized (publishLock) {
+            long id = ring.nextId();
+            String frame = "id: " + id + "\nevent: " + type.getEventName() + "\ndata: " + data + "\n\n";
+            ring.append(new MessageEvent(id, message.getPosted_by(), frame.getBytes(StandardCharsets.UTF_8)));
+        }
+        published.increment();
+        LockSupport.unpark(dispatcher);
+    }
+
+    private String encode(Message message) {
+        StringWriter out = new StringWriter(64);
+        try (JsonGenerator gen = jsonFactory.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeNumberField("message_id", message.getMessage_id());
+            gen.writeNumberField("posted_by", message.getPosted_by());
+            gen.writeStringField("message_text", message.getMessage_text());
+            gen.writeNumberField("time_posted_epoch", message.getTime_posted_epoch());
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    void subscribe(AsyncContext async, int[] postedBy, Long lastEventId) throws IOException {
+        long next = ring.nextId();
+        long cursor = next;
+        byte[] first = "retry: 2000\n\n".getBytes(StandardCharsets.US_ASCII);
+        if (lastEventId != null) {
+            if (lastEventId + 1 >= ring.oldestId() && lastEventId < next) {
+                cursor = lastEventId + 1;
+            } else {
+                first = RESET;
+            }
+        }
+        Subscriber subscriber = new Subscriber(this, async, postedBy, cursor, first);
+        async.addListener(subscriber);
+        subscribers.add(subscriber);
+        // The container calls onWritePossible straight away, which sends the first frame.
+        async.getResponse().getOutputStream().setWriteListener(subscriber);
+    }
+
+    void drain(Subscriber subscriber) {
+        subscriber.drain(ring, ring.nextId(), System.nanoTime());
+    }
+
+    void remove(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    void lagged() {
+        lagged.increment();
+    }
+
+    static byte[] laggingFrame(long missed) {
+        return ("event: lagging\ndata: {\"missed\":" + missed + "}\n\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void dispatch() {
+        long dispatched = ring.nextId();
+        long lastHeartbeat = System.nanoTime();
+        long lastSweep = lastHeartbeat;
+        while (running) {
+            LockSupport.parkNanos(TICK_NANOS);
+            long now = System.nanoTime();
+            long head = ring.nextId();
+            if (head != dispatched) {
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.drain(ring, head, now);
+                }
+                dispatched = head;
+            }
+            if (now - lastHeartbeat >= heartbeatNanos) {
+                lastHeartbeat = now;
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.heartbeat(ring, now);
+                }
+            }
+            if (now - lastSweep >= TICK_NANOS) {
+                lastSweep = now;
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.blockedNanos(now) > stallTimeoutNanos) {
+                        dropped.increment();
+                        subscriber.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the dispatcher and ends every open stream.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    /**
+     * @return the number of open streams.
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("stream_subscribers", "gauge", "Open /messages/stream connections.");
+        out.sample("stream_subscribers", subscribers.size());
+        out.family("stream_events_published_total", "counter", "Message changes published to the stream.");
+        out.sample("stream_events_published_total", published.sum());
+        out.family("stream_subscribers_lagged_total", "counter", "Times a subscriber fell a whole buffer behind and skipped ahead.");
+        out.sample("stream_subscribers_lagged_total", lagged.sum());
+        out.family("stream_subscribers_dropped_total", "counter", "Subscribers disconnected after their socket stalled.");
+        out.sample("stream_subscribers_dropped_total", dropped.sum());
+    }
+}
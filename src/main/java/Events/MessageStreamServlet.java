@@ -0,0 +1,67 @@
+package Events;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * GET /messages/stream. Served by its own async servlet rather than a
+ * Javalin handler, because Javalin completes the response when the
+ * handler returns and its SSE support writes with blocking I/O.
+ *
+ * <ul>
+ *   <li>{@code posted_by}, repeated or comma separated, limits the stream to those authors.</li>
+ *   <li>{@code Last-Event-ID} resumes after that event. If it is no longer buffered the stream
+ *       starts with a {@code reset} event, telling the client to reload.</li>
+ * </ul>
+ */
+final class MessageStreamServlet extends HttpServlet {
+
+    private final MessageStream stream;
+
+    MessageStreamServlet(MessageStream stream) {
+        this.stream = stream;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        int[] postedBy;
+        Long lastEventId;
+        try {
+            postedBy = parsePostedBy(req.getParameterValues("posted_by"));
+            String last = req.getHeader("Last-Event-ID");
+            lastEventId = last == null || last.isEmpty() ? null : Long.valueOf(last.trim());
+        } catch (NumberFormatException e) {
+            resp.setStatus(400);
+            return;
+        }
+        resp.setStatus(200);
+        resp.setContentType("text/event-stream");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        resp.setHeader("X-Accel-Buffering", "no");
+        AsyncContext async = req.startAsync();
+        async.setTimeout(0);
+        stream.subscribe(async, postedBy, lastEventId);
+    }
+
+    private static int[] parsePostedBy(String[] values) {
+        if (values == null) {
+            return new int[0];
+        }
+        int[] ids = new int[0];
+        for (String value : values) {
+            for (String part : value.split(",")) {
+                if (!part.isEmpty()) {
+                    ids = Arrays.copyOf(ids, ids.length + 1);
+                    ids[ids.length - 1] = Integer.parseInt(part.trim());
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,30 @@
+package Events;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The sending side of one WebSocket connection, kept behind an interface so
+ * that the routing and queueing in {@link TimelineHub} do not depend on the
+ * server.
+ */
+public interface Outbound {
+
+    /**
+     * Completion of one {@link #sendText}. A session uses a single callback
+     * for every send.
+     */
+    interface SendCallback {
+        void sent();
+
+        void failed(Throwable cause);
+    }
+
+    /**
+     * Starts sending a text frame without blocking.
+     *
+     * @param utf8 the encoded text. The buffer is the caller's to consume.
+     */
+    void sendText(ByteBuffer utf8, SendCallback callback);
+
+    void close(int status, String reason);
+}
@@ -0,0 +1,162 @@
+package Events;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One open event stream. Its only state is a cursor into the
+ * {@link EventRing}; events are written with non-blocking servlet output,
+ * so a slow client holds back nobody but itself. When the socket is not
+ * writable the subscriber waits for {@link #onWritePossible()}.
+ */
+final class Subscriber implements WriteListener, AsyncListener {
+
+    private static final byte[] HEARTBEAT = ": keepalive\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final MessageStream stream;
+    private final AsyncContext async;
+    private final ServletOutputStream out;
+    private final int[] postedBy;
+    private long cursor;
+    // A control frame to send before the next event.
+    private byte[] pending;
+    private boolean unflushed;
+    private long blockedSince;
+    private boolean closed;
+
+    Subscriber(MessageStream stream, AsyncContext async, int[] postedBy, long cursor, byte[] first)
+            throws IOException {
+        this.stream = stream;
+        this.async = async;
+        this.out = async.getResponse().getOutputStream();
+        this.postedBy = postedBy;
+        this.cursor = cursor;
+        this.pending = first;
+    }
+
+    /**
+     * Writes every event before {@code head} that the socket will take
+     * without blocking.
+     */
+    synchronized void drain(EventRing ring, long head, long now) {
+        if (closed) {
+            return;
+        }
+        try {
+            while (true) {
+                if (!out.isReady()) {
+                    if (blockedSince == 0) {
+                        blockedSince = now;
+                    }
+                    return;
+                }
+                if (pending != null) {
+                    out.write(pending);
+                    pending = null;
+                    unflushed = true;
+                    continue;
+                }
+                if (cursor >= head) {
+                    break;
+                }
+                MessageEvent event = ring.get(cursor);
+                if (event == null) {
+                    // Overwritten while this client was not keeping up.
+                    long oldest = ring.oldestId();
+                    pending = MessageStream.laggingFrame(oldest - cursor);
+                    cursor = oldest;
+                    stream.lagged();
+                    continue;
+                }
+                cursor++;
+                if (matches(event)) {
+                    out.write(event.frame);
+                    unflushed = true;
+                }
+            }
+            if (unflushed) {
+                unflushed = false;
+                out.flush();
+            }
+            blockedSince = 0;
+        } catch (IOException | IllegalStateException e) {
+            close();
+        }
+    }
+
+    synchronized void heartbeat(EventRing ring, long now) {
+        if (pending == null) {
+            pending = HEARTBEAT;
+        }
+        drain(ring, ring.nextId(), now);
+    }
+
+    /**
+     * @return how long the socket has refused writes, or 0.
+     */
+    synchronized long blockedNanos(long now) {
+        return blockedSince == 0 ? 0 : now - blockedSince;
+    }
+
+    private boolean matches(MessageEvent event) {
+        if (postedBy.length == 0) {
+            return true;
+        }
+        for (int id : postedBy) {
+            if (id == event.postedBy) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        stream.remove(this);
+        try {
+            async.complete();
+        } catch (IllegalStateException e) {
+            // Already completed by the container.
+        }
+    }
+
+    @Override
+    public void onWritePossible() {
+        stream.drain(this);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+}
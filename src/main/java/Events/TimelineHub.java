@@ -0,0 +1,215 @@
+package Events;
+
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+import Model.Message;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes message changes to WebSocket connections subscribed to the
+ * author's account.
+ *
+ * <p>An index from account id to sessions routes each change, so a publish
+ * touches only the interested connections. The event is encoded once into
+ * a read-only buffer that every session sends. Clients change their
+ * subscriptions with {@code {"subscribe":[2,3]}} and
+ * {@code {"unsubscribe":[2]}}.
+ */
+public class TimelineHub implements MessagePublisher, MetricsRegistry.Collector {
+
+    static final int UNSUPPORTED_DATA = 1003;
+
+    private final ConcurrentHashMap<Integer, Set<TimelineSession>> index = new ConcurrentHashMap<>();
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final int queueCapacity;
+    private final int maxSubscriptions;
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+
+    /**
+     * @param queueCapacity    events a connection may have waiting before it is closed.
+     * @param maxSubscriptions accounts one connection may follow.
+     */
+    public TimelineHub(int queueCapacity, int maxSubscriptions) {
+        this.queueCapacity = queueCapacity;
+        this.maxSubscriptions = maxSubscriptions;
+    }
+
+    /**
+     * Reads {@code socialmedia.ws.sendQueue} (default 64) and
+     * {@code socialmedia.ws.maxSubscriptions} (default 100).
+     */
+    public static TimelineHub fromSystemProperties() {
+        return new TimelineHub(Integer.getInteger("socialmedia.ws.sendQueue", 64),
+                Integer.getInteger("socialmedia.ws.maxSubscriptions", 100));
+    }
+
+    /**
+     * Registers a new connection following one account.
+     */
+    public TimelineSession open(Outbound out, int accountId) {
+        TimelineSession session = new TimelineSession(this, out, queueCapacity);
+        sessions.incrementAndGet();
+        subscribe(session, accountId);
+        return session;
+    }
+
+    private void subscribe(TimelineSession session, int accountId) {
+        if (!session.addAccount(accountId, maxSubscriptions)) {
+            return;
+        }
+        index.compute(accountId, (id, set) -> {
+            if (set == null) {
+                set = ConcurrentHashMap.newKeySet();
+            }
+            set.add(session);
+            return set;
+        });
+        // A close() that ran between addAccount and compute unindexed the
+        // account before it was indexed here.
+        if (session.isClosed()) {
+            unsubscribe(session, accountId);
+        }
+    }
+
+    private void unsubscribe(TimelineSession session, int accountId) {
+        index.computeIfPresent(accountId, (id, set) -> {
+            set.remove(session);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Applies a subscribe or unsubscribe request from the client. Anything
+     * else closes the connection with 1003.
+     */
+    public void onMessage(TimelineSession session, String text) {
+        List<Integer> subscribe = new ArrayList<>();
+        List<Integer> unsubscribe = new ArrayList<>();
+        try (JsonParser p = jsonFactory.createParser(text)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected an object");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                List<Integer> target = "subscribe".equals(field) ? subscribe
+                        : "unsubscribe".equals(field) ? unsubscribe : null;
+                if (target == null || p.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("Unexpected field " + field);
+                }
+                while (p.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+                    target.add(p.getIntValue());
+                }
+                if (p.currentToken() != JsonToken.END_ARRAY) {
+                    throw new IOException("Account ids must be integers");
+                }
+            }
+        } catch (IOException e) {
+            session.outbound().close(UNSUPPORTED_DATA, "Expected {\"subscribe\":[...]} or {\"unsubscribe\":[...]}");
+            return;
+        }
+        for (int accountId : subscribe) {
+            subscribe(session, accountId);
+        }
+        for (int accountId : unsubscribe) {
+            if (session.removeAccount(accountId)) {
+                unsubscribe(session, accountId);
+            }
+        }
+    }
+
+    /**
+     * Removes a connection from the index. Safe to call more than once.
+     */
+    public void close(TimelineSession session) {
+        Integer[] accounts = session.markClosed();
+        if (accounts == null) {
+            return;
+        }
+        sessions.decrementAndGet();
+        for (int accountId : accounts) {
+            unsubscribe(session, accountId);
+        }
+    }
+
+    void overflowed(TimelineSession session) {
+        overflowed.increment();
+        close(session);
+        session.outbound().close(TimelineSession.TRY_AGAIN_LATER, "Send queue full");
+    }
+
+    @Override
+    public void publish(MessageEventType type, Message message) {
+        published.increment();
+        Set<TimelineSession> subscribers = index.get(message.getPosted_by());
+        if (subscribers == null) {
+            return;
+        }
+        ByteBuffer payload = encode(type, message);
+        for (TimelineSession session : subscribers) {
+            session.offer(payload);
+            deliveries.increment();
+        }
+    }
+
+    private ByteBuffer encode(MessageEventType type, Message message) {
+        ByteArrayBuilder bytes = new ByteArrayBuilder(128);
+        try (JsonGenerator gen = jsonFactory.createGenerator(bytes)) {
+            gen.writeStartObject();
+            gen.writeStringField("type", type.getEventName());
+            gen.writeObjectFieldStart("message");
+            gen.writeNumberField("message_id", message.getMessage_id());
+            gen.writeNumberField("posted_by", message.getPosted_by());
+            gen.writeStringField("message_text", message.getMessage_text());
+            gen.writeNumberField("time_posted_epoch", message.getTime_posted_epoch());
+            gen.writeEndObject();
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray()).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the number of open connections.
+     */
+    public int sessionCount() {
+        return sessions.get();
+    }
+
+    /**
+     * @return the number of connections following an account.
+     */
+    public int subscriberCount(int accountId) {
+        Set<TimelineSession> subscribers = index.get(accountId);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("ws_sessions", "gauge", "Open timeline WebSocket connections.");
+        out.sample("ws_sessions", sessions.get());
+        out.family("ws_events_published_total", "counter", "Message changes offered to the timeline hub.");
+        out.sample("ws_events_published_total", published.sum());
+        out.family("ws_deliveries_total", "counter", "Events queued to individual connections.");
+        out.sample("ws_deliveries_total", deliveries.sum());
+        out.family("ws_sessions_overflowed_total", "counter", "Connections closed because their send queue filled.");
+        out.sample("ws_sessions_overflowed_total", overflowed.sum());
+    }
+}
@@ -0,0 +1,116 @@
+package Events;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * One WebSocket connection subscribed to some accounts. At most one frame
+ * is in flight; events that arrive meanwhile wait in a bounded queue. When
+ * the queue is full the client is not keeping up, and the connection is
+ * closed with 1013 (try again later) rather than buffering without limit
+ * or slowing the publisher.
+ */
+public final class TimelineSession implements Outbound.SendCallback {
+
+    static final int TRY_AGAIN_LATER = 1013;
+
+    private final TimelineHub hub;
+    private final Outbound out;
+    private final int queueCapacity;
+    private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>(4);
+    private final Set<Integer> accounts = new HashSet<>(4);
+    private boolean sending;
+    private boolean closed;
+
+    TimelineSession(TimelineHub hub, Outbound out, int queueCapacity) {
+        this.hub = hub;
+        this.out = out;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Queues a shared event payload. The buffer is duplicated at send time,
+     * so every session reads the same bytes.
+     */
+    void offer(ByteBuffer payload) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (!sending) {
+                sending = true;
+            } else if (queue.size() < queueCapacity) {
+                queue.add(payload);
+                return;
+            } else {
+                payload = null;
+            }
+        }
+        if (payload == null) {
+            hub.overflowed(this);
+            return;
+        }
+        out.sendText(payload.duplicate(), this);
+    }
+
+    @Override
+    public void sent() {
+        ByteBuffer next;
+        synchronized (this) {
+            next = closed ? null : queue.poll();
+            if (next == null) {
+                sending = false;
+                return;
+            }
+        }
+        out.sendText(next.duplicate(), this);
+    }
+
+    @Override
+    public void failed(Throwable cause) {
+        hub.close(this);
+    }
+
+    /**
+     * @return false once the session is closed, so that it is never indexed
+     *         again after {@link #markClosed()} has listed its accounts.
+     */
+    synchronized boolean addAccount(int accountId, int limit) {
+        if (closed) {
+            return false;
+        }
+        return accounts.contains(accountId) || (accounts.size() < limit && accounts.add(accountId));
+    }
+
+    synchronized boolean removeAccount(int accountId) {
+        return accounts.remove(accountId);
+    }
+
+    /**
+     * Marks the session closed.
+     *
+     * @return the accounts to unindex, or null if it was already closed.
+     */
+    synchronized Integer[] markClosed() {
+        if (closed) {
+            return null;
+        }
+        closed = true;
+        queue.clear();
+        return accounts.toArray(new Integer[0]);
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized int queued() {
+        return queue.size();
+    }
+
+    Outbound outbound() {
+        return out;
+    }
+}
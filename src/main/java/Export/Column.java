@@ -0,0 +1,26 @@
+package Export;
+
+import java.util.function.Function;
+
+/**
+ * One named column of an export. Values are written as JSON numbers or
+ * strings and as CSV fields; null is written as JSON null or an empty field.
+ */
+public final class Column<T> {
+
+    private final String name;
+    private final Function<T, Object> value;
+
+    public Column(String name, Function<T, Object> value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    Object valueOf(T row) {
+        return value.apply(row);
+    }
+}
@@ -0,0 +1,76 @@
+package Export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes RFC 4180 CSV with a header row. Fields containing a comma, quote
+ * or line break are quoted, with quotes doubled.
+ */
+final class CsvRowWriter<T> implements RowWriter<T> {
+
+    private final Writer out;
+    private final List<Column<T>> columns;
+
+    CsvRowWriter(OutputStream out, List<Column<T>> columns) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+        this.columns = columns;
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                this.out.write(',');
+            }
+            writeField(columns.get(i).getName());
+        }
+        this.out.write("\r\n");
+    }
+
+    @Override
+    public void row(T value) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object field = columns.get(i).valueOf(value);
+            if (field != null) {
+                writeField(field.toString());
+            }
+        }
+        out.write("\r\n");
+    }
+
+    private void writeField(String field) throws IOException {
+        if (!needsQuoting(field)) {
+            out.write(field);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private static boolean needsQuoting(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,52 @@
+package Export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Wire formats for the export endpoints.
+ */
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv; charset=utf-8", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Picks the format from a {@code format} query parameter, falling back
+     * to the Accept header and then to NDJSON.
+     *
+     * @return the format, or null if the parameter names an unknown one.
+     */
+    public static ExportFormat select(String format, String accept) {
+        if (format != null) {
+            for (ExportFormat candidate : values()) {
+                if (candidate.extension.equalsIgnoreCase(format)) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+        return accept != null && accept.contains("text/csv") ? CSV : NDJSON;
+    }
+
+    public <T> RowWriter<T> open(OutputStream out, List<Column<T>> columns) throws IOException {
+        return this == CSV ? new CsvRowWriter<>(out, columns) : new NdjsonRowWriter<>(out, columns);
+    }
+}
@@ -0,0 +1,59 @@
+package Export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes one JSON object per line.
+ */
+final class NdjsonRowWriter<T> implements RowWriter<T> {
+
+    private static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final JsonGenerator gen;
+    private final List<Column<T>> columns;
+    private final SerializedString[] names;
+
+    NdjsonRowWriter(OutputStream out, List<Column<T>> columns) throws IOException {
+        this.gen = FACTORY.createGenerator(out, JsonEncoding.UTF8);
+        this.gen.setRootValueSeparator(new SerializedString("\n"));
+        this.columns = columns;
+        this.names = new SerializedString[columns.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = new SerializedString(columns.get(i).getName());
+        }
+    }
+
+    @Override
+    public void row(T value) throws IOException {
+        gen.writeStartObject();
+        for (int i = 0; i < names.length; i++) {
+            gen.writeFieldName(names[i]);
+            Object field = columns.get(i).valueOf(value);
+            if (field == null) {
+                gen.writeNull();
+            } else if (field instanceof Integer) {
+                gen.writeNumber((Integer) field);
+            } else if (field instanceof Long) {
+                gen.writeNumber((Long) field);
+            } else {
+                gen.writeString(field.toString());
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // The separator is written before each value, so the last line needs its own.
+        gen.writeRaw('\n');
+        gen.close();
+    }
+}
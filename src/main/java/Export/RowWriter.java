@@ -0,0 +1,18 @@
+package Export;
+
+import DAO.RowCallback;
+
+import java.io.IOException;
+
+/**
+ * Encodes rows onto an output stream as they arrive from a DAO cursor.
+ * Nothing is retained between rows, so memory use does not grow with the
+ * size of the export.
+ */
+public interface RowWriter<T> extends RowCallback<T> {
+
+    /**
+     * Flushes buffered output. The underlying stream is left open.
+     */
+    void finish() throws IOException;
+}
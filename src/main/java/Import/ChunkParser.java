@@ -0,0 +1,245 @@
+package Import;
+
+import Service.MessageService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Parses and validates one chunk of records. Instances are stateless apart
+ * from configuration, so one parser is shared by every worker thread.
+ *
+ * <p>The checks are those of {@code MessageService.addMessage}, with the
+ * author looked up in an in-memory set of account ids instead of one query
+ * per message. message_id is ignored; imported messages get new ids.
+ */
+final class ChunkParser {
+
+    /**
+     * A record that failed parsing or validation. Records are numbered from
+     * 1, counting a CSV header, so they match row numbers in a spreadsheet.
+     */
+    static final class Rejection {
+        final long record;
+        final String reason;
+        final String raw;
+
+        Rejection(long record, String reason, String raw) {
+            this.record = record;
+            this.reason = reason;
+            this.raw = raw;
+        }
+    }
+
+    /**
+     * The valid rows of a chunk in column arrays, plus the rejected records.
+     */
+    static final class Parsed {
+        final RecordReader.Chunk chunk;
+        final int[] postedBy;
+        final String[] text;
+        final long[] timePosted;
+
+        final List<Rejection> rejected = new ArrayList<>();
+        int rows;
+        int records;
+
+        Parsed(RecordReader.Chunk chunk, int capacity) {
+            this.chunk = chunk;
+            this.postedBy = new int[capacity];
+            this.text = new String[capacity];
+            this.timePosted = new long[capacity];
+        }
+
+        void add(int author, String messageText, long epoch) {
+            postedBy[rows] = author;
+            text[rows] = messageText;
+            timePosted[rows] = epoch;
+            rows++;
+        }
+    }
+
+    static final String POSTED_BY = "posted_by";
+    static final String MESSAGE_TEXT = "message_text";
+    static final String TIME_POSTED_EPOCH = "time_posted_epoch";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final boolean csv;
+    private final int postedByColumn;
+    private final int textColumn;
+    private final int timeColumn;
+    private final BitSet accounts;
+    private final int maxTextLength;
+
+    /**
+     * @param csvHeader the header record of a CSV file, or null for NDJSON.
+     * @param accounts  the ids of every existing account.
+     */
+    ChunkParser(String csvHeader, BitSet accounts, int maxTextLength) {
+        this.csv = csvHeader != null;
+        this.accounts = accounts;
+        this.maxTextLength = maxTextLength;
+        if (csv) {
+            byte[] header = csvHeader.getBytes(StandardCharsets.UTF_8);
+            List<String> names = splitCsv(header, 0, header.length);
+            postedByColumn = names.indexOf(POSTED_BY);
+            textColumn = names.indexOf(MESSAGE_TEXT);
+            timeColumn = names.indexOf(TIME_POSTED_EPOCH);
+            if (postedByColumn < 0 || textColumn < 0 || timeColumn < 0) {
+                throw new IllegalArgumentException("CSV header must name " + POSTED_BY + ", " + MESSAGE_TEXT
+                        + " and " + TIME_POSTED_EPOCH + ": " + csvHeader);
+            }
+        } else {
+            postedByColumn = textColumn = timeColumn = -1;
+        }
+    }
+
+    Parsed parse(RecordReader.Chunk chunk) {
+        byte[] data = chunk.data;
+        Parsed parsed = new Parsed(chunk, countRecords(data));
+        int start = 0;
+        boolean quoted = false;
+        for (int i = 0; i <= data.length; i++) {
+            boolean end = i == data.length;
+            if (!end) {
+                byte b = data[i];
+                if (csv && b == '"') {
+                    quoted = !quoted;
+                }
+                if (b != '\n' || quoted) {
+                    continue;
+                }
+            } else if (start == data.length) {
+                break;
+            }
+            int length = i - start;
+            if (length > 0 && data[start + length - 1] == '\r') {
+                length--;
+            }
+            if (length > 0) {
+                parseRecord(parsed, data, start, length, chunk.firstRecord + parsed.records + 1);
+            }
+            parsed.records++;
+            start = i + 1;
+        }
+        return parsed;
+    }
+
+    private int countRecords(byte[] data) {
+        int count = 1;
+        for (byte b : data) {
+            if (b == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void parseRecord(Parsed parsed, byte[] data, int start, int length, long record) {
+        Integer author = null;
+        String text = null;
+        Long epoch = null;
+        try {
+            if (csv) {
+                List<String> fields = splitCsv(data, start, length);
+                if (fields.size() <= Math.max(postedByColumn, Math.max(textColumn, timeColumn))) {
+                    reject(parsed, record, "missing columns", data, start, length);
+                    return;
+                }
+                author = Integer.valueOf(fields.get(postedByColumn));
+                text = fields.get(textColumn);
+                epoch = Long.valueOf(fields.get(timeColumn));
+            } else {
+                try (JsonParser p = JSON.createParser(data, start, length)) {
+                    if (p.nextToken() != JsonToken.START_OBJECT) {
+                        reject(parsed, record, "not a JSON object", data, start, length);
+                        return;
+                    }
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = p.getCurrentName();
+                        JsonToken value = p.nextToken();
+                        if (POSTED_BY.equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                            author = p.getIntValue();
+                        } else if (MESSAGE_TEXT.equals(field) && value == JsonToken.VALUE_STRING) {
+                            text = p.getText();
+                        } else if (TIME_POSTED_EPOCH.equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                            epoch = p.getLongValue();
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            reject(parsed, record, "malformed", data, start, length);
+            return;
+        }
+        if (author == null || text == null || epoch == null) {
+            reject(parsed, record, "missing field", data, start, length);
+        } else if (text.trim().isEmpty()) {
+            reject(parsed, record, "blank message_text", data, start, length);
+        } else if (text.length() > maxTextLength) {
+            reject(parsed, record, "message_text too long", data, start, length);
+        } else if (epoch < 0 || epoch > MessageService.MAX_TIME_POSTED_EPOCH) {
+            reject(parsed, record, "time_posted_epoch out of range", data, start, length);
+        } else if (author <= 0 || !accounts.get(author)) {
+            reject(parsed, record, "unknown posted_by", data, start, length);
+        } else {
+            parsed.add(author, text, epoch);
+        }
+    }
+
+    private static void reject(Parsed parsed, long record, String reason, byte[] data, int start, int length) {
+        parsed.rejected.add(new Rejection(record, reason, new String(data, start, length, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Splits one CSV record into fields, removing quotes and undoubling
+     * quotes inside quoted fields.
+     */
+    static List<String> splitCsv(byte[] data, int start, int length) {
+        List<String> fields = new ArrayList<>(4);
+        int end = start + length;
+        int i = start;
+        while (true) {
+            if (i < end && data[i] == '"') {
+                ByteArrayOutputStream field = new ByteArrayOutputStream();
+                i++;
+                while (i < end) {
+                    if (data[i] == '"') {
+                        if (i + 1 < end && data[i + 1] == '"') {
+                            field.write('"');
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    field.write(data[i++]);
+                }
+                fields.add(new String(field.toByteArray(), StandardCharsets.UTF_8));
+                while (i < end && data[i] != ',') {
+                    i++;
+                }
+            } else {
+                int fieldStart = i;
+                while (i < end && data[i] != ',') {
+                    i++;
+                }
+                fields.add(new String(data, fieldStart, i - fieldStart, StandardCharsets.UTF_8));
+            }
+            if (i >= end) {
+                return fields;
+            }
+            i++;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package Import;
+
+import Export.ExportFormat;
+import Service.MessageService;
+import Util.ConnectionUtil;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+
+/**
+ * Command line entry point for {@link Importer}. H2 is opened in embedded
+ * mode, so the API must not be running against the same database file.
+ * It uses {@link ConnectionUtil#openConnection()}, since the shared
+ * connection recreates the tables from SocialMedia.sql when it is first opened.
+ *
+ * <pre>
+ * java -cp ... Import.ImportTool [--format ndjson|csv] [--threads n] [--chunk-kb n] [--batch n] [--restart] file
+ * </pre>
+ *
+ * The format defaults to the file extension (.csv or .csv.gz for CSV,
+ * anything else NDJSON). Threads default to the number of cores.
+ */
+public class ImportTool {
+
+    public static void main(String[] args) throws Exception {
+        String format = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkKb = 1024;
+        int batch = 1000;
+        boolean restart = false;
+        Path file = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format":
+                    format = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--chunk-kb":
+                    chunkKb = Integer.parseInt(args[++i]);
+                    break;
+                case "--batch":
+                    batch = Integer.parseInt(args[++i]);
+                    break;
+                case "--restart":
+                    restart = true;
+                    break;
+                default:
+                    file = Paths.get(args[i]);
+            }
+        }
+        if (file == null) {
+            System.err.println("usage: ImportTool [--format ndjson|csv] [--threads n] [--chunk-kb n] [--batch n]"
+                    + " [--restart] file");
+            System.exit(2);
+        }
+        String name = file.getFileName().toString();
+        ExportFormat selected = ExportFormat.select(
+                format != null ? format : name.endsWith(".csv") || name.endsWith(".csv.gz") ? "csv" : "ndjson", null);
+        if (selected == null) {
+            System.err.println("Unknown format " + format);
+            System.exit(2);
+        }
+
+        Connection connection = ConnectionUtil.openConnection();
+        Importer.Result result;
+        try {
+            Importer importer = new Importer(connection, threads, chunkKb * 1024, batch,
+                    MessageService.MAX_MESSAGE_TEXT_LENGTH, System.err);
+            result = importer.importFile(file, selected, restart);
+        } finally {
+            connection.close();
+        }
+        System.out.printf("%s %s: %d records, %d loaded, %d rejected%n",
+                result.isResumed() ? "Resumed" : "Imported", file, result.getRecords(), result.getLoaded(),
+                result.getRejected());
+    }
+}
@@ -0,0 +1,366 @@
+package Import;
+
+import Export.ExportFormat;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.BitSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads messages from an NDJSON or CSV file, such as one written by the
+ * export endpoints, optionally gzipped.
+ *
+ * <p>A reader thread cuts the file into chunks of whole records, a pool of
+ * workers parses and validates the chunks in parallel, and the calling
+ * thread inserts them in file order with batched statements. Each chunk is
+ * committed in one transaction together with its checkpoint row in
+ * {@code import_checkpoint}, so an interrupted import resumes after the
+ * last committed chunk without loading anything twice.
+ *
+ * <p>Rejected records are appended to {@code <file>.rejected} as JSON lines
+ * with the record number, reason and original text.
+ */
+public class Importer {
+
+    private static final String CREATE_CHECKPOINT_TABLE = "CREATE TABLE IF NOT EXISTS import_checkpoint ("
+            + "source VARCHAR(1024) PRIMARY KEY, byte_offset BIGINT, records BIGINT, loaded BIGINT, rejected BIGINT)";
+    private static final String SELECT_CHECKPOINT =
+            "SELECT byte_offset, records, loaded, rejected FROM import_checkpoint WHERE source = ?";
+    private static final String DELETE_CHECKPOINT = "DELETE FROM import_checkpoint WHERE source = ?";
+    private static final String MERGE_CHECKPOINT = "MERGE INTO import_checkpoint KEY (source) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_ACCOUNT_IDS = "SELECT account_id FROM account";
+    private static final String INSERT_MESSAGE =
+            "INSERT INTO message (posted_by, message_text, time_posted_epoch) VALUES (?, ?, ?)";
+
+    private static final long PROGRESS_INTERVAL_NANOS = 2_000_000_000L;
+
+    /**
+     * Totals for a file, including any earlier runs that were interrupted.
+     */
+    public static final class Result {
+        private final long records;
+        private final long loaded;
+        private final long rejected;
+        private final boolean resumed;
+
+        Result(long records, long loaded, long rejected, boolean resumed) {
+            this.records = records;
+            this.loaded = loaded;
+            this.rejected = rejected;
+            this.resumed = resumed;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getLoaded() {
+            return loaded;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public boolean isResumed() {
+            return resumed;
+        }
+    }
+
+    private final Connection connection;
+    private final int threads;
+    private final int chunkBytes;
+    private final int batchSize;
+    private final int maxTextLength;
+    private final PrintStream progress;
+
+    /**
+     * @param threads    parser threads.
+     * @param chunkBytes approximate size of the unit of parsing and of commit.
+     * @param batchSize  rows per JDBC batch.
+     * @param progress   where to report rows/s, or null for no reporting.
+     */
+    public Importer(Connection connection, int threads, int chunkBytes, int batchSize, int maxTextLength,
+                    PrintStream progress) {
+        this.connection = connection;
+        this.threads = threads;
+        this.chunkBytes = chunkBytes;
+        this.batchSize = batchSize;
+        this.maxTextLength = maxTextLength;
+        this.progress = progress;
+    }
+
+    /**
+     * Imports a file, resuming from its checkpoint unless {@code restart}
+     * is set. A file that has already been imported completely loads
+     * nothing.
+     */
+    public Result importFile(Path file, ExportFormat format, boolean restart)
+            throws IOException, SQLException, InterruptedException {
+        String source = file.toAbsolutePath().normalize().toString();
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            Statement ddl = connection.createStatement();
+            try {
+                ddl.execute(CREATE_CHECKPOINT_TABLE);
+            } finally {
+                ddl.close();
+            }
+            if (restart) {
+                PreparedStatement delete = connection.prepareStatement(DELETE_CHECKPOINT);
+                try {
+                    delete.setString(1, source);
+                    delete.executeUpdate();
+                } finally {
+                    delete.close();
+                }
+            }
+            connection.setAutoCommit(false);
+            return run(file, source, format == ExportFormat.CSV);
+        } catch (IOException | SQLException | InterruptedException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private Result run(Path file, String source, boolean csv)
+            throws IOException, SQLException, InterruptedException {
+        long[] checkpoint = readCheckpoint(source);
+        boolean resumed = checkpoint != null;
+        long records = resumed ? checkpoint[1] : 0;
+        long loaded = resumed ? checkpoint[2] : 0;
+        long rejected = resumed ? checkpoint[3] : 0;
+        BitSet accounts = readAccountIds();
+
+        InputStream in = open(file);
+        Path rejectFile = Paths.get(file + ".rejected");
+        OutputStream rejects = null;
+        JsonGenerator rejectJson = null;
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, daemonThreads("import-parser"));
+        BlockingQueue<Future<ChunkParser.Parsed>> pending = new ArrayBlockingQueue<>(threads * 2);
+        Thread reader = null;
+        PreparedStatement insert = connection.prepareStatement(INSERT_MESSAGE);
+        PreparedStatement merge = connection.prepareStatement(MERGE_CHECKPOINT);
+        try {
+            RecordReader chunks = new RecordReader(in, csv, chunkBytes);
+            ChunkParser parser = new ChunkParser(csv ? chunks.header() : null, accounts, maxTextLength);
+            if (resumed) {
+                chunks.skipTo(checkpoint[0], checkpoint[1]);
+            }
+            reader = startReader(chunks, parser, parsers, pending);
+
+            long started = System.nanoTime();
+            long lastReport = started;
+            long loadedThisRun = 0;
+            long bytesThisRun = 0;
+            while (true) {
+                ChunkParser.Parsed parsed = await(pending.take());
+                if (parsed == null) {
+                    break;
+                }
+                if (!parsed.rejected.isEmpty()) {
+                    if (rejectJson == null) {
+                        rejects = Files.newOutputStream(rejectFile, StandardOpenOption.CREATE,
+                                StandardOpenOption.APPEND);
+                        rejectJson = new JsonFactory().createGenerator(rejects, JsonEncoding.UTF8);
+                        rejectJson.setRootValueSeparator(new SerializedString("\n"));
+                    }
+                    writeRejects(rejectJson, parsed);
+                }
+                insert(insert, parsed);
+                records += parsed.records;
+                loaded += parsed.rows;
+                rejected += parsed.rejected.size();
+                merge.setString(1, source);
+                merge.setLong(2, parsed.chunk.endOffset);
+                merge.setLong(3, records);
+                merge.setLong(4, loaded);
+                merge.setLong(5, rejected);
+                merge.executeUpdate();
+                connection.commit();
+
+                loadedThisRun += parsed.rows;
+                bytesThisRun += parsed.chunk.data.length;
+                long now = System.nanoTime();
+                if (progress != null && now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                    report(now - started, loadedThisRun, bytesThisRun, loaded, rejected);
+                    lastReport = now;
+                }
+            }
+            if (progress != null) {
+                report(System.nanoTime() - started, loadedThisRun, bytesThisRun, loaded, rejected);
+            }
+            return new Result(records, loaded, rejected, resumed);
+        } finally {
+            if (reader != null) {
+                reader.interrupt();
+            }
+            parsers.shutdownNow();
+            insert.close();
+            merge.close();
+            in.close();
+            if (rejectJson != null) {
+                rejectJson.writeRaw('\n');
+                rejectJson.close();
+            }
+        }
+    }
+
+    /**
+     * Reads chunks and queues their parse futures in file order. The bounded
+     * queue stops the reader from running far ahead of the database. The
+     * end of input is marked by a future of null; a read failure by a failed
+     * future.
+     */
+    private static Thread startReader(RecordReader records, ChunkParser parser, ExecutorService parsers,
+                                      BlockingQueue<Future<ChunkParser.Parsed>> pending) {
+        Thread reader = new Thread(() -> {
+            try {
+                try {
+                    RecordReader.Chunk chunk;
+                    while ((chunk = records.next()) != null) {
+                        RecordReader.Chunk next = chunk;
+                        pending.put(parsers.submit(() -> parser.parse(next)));
+                    }
+                    pending.put(CompletableFuture.completedFuture(null));
+                } catch (IOException | RuntimeException e) {
+                    CompletableFuture<ChunkParser.Parsed> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(e);
+                    pending.put(failed);
+                }
+            } catch (InterruptedException e) {
+                // The import was abandoned.
+            }
+        }, "import-reader");
+        reader.setDaemon(true);
+        reader.start();
+        return reader;
+    }
+
+    private static ChunkParser.Parsed await(Future<ChunkParser.Parsed> future)
+            throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void insert(PreparedStatement insert, ChunkParser.Parsed parsed) throws SQLException {
+        for (int i = 0; i < parsed.rows; i++) {
+            insert.setInt(1, parsed.postedBy[i]);
+            insert.setString(2, parsed.text[i]);
+            insert.setLong(3, parsed.timePosted[i]);
+            insert.addBatch();
+            if ((i + 1) % batchSize == 0) {
+                insert.executeBatch();
+            }
+        }
+        if (parsed.rows % batchSize != 0) {
+            insert.executeBatch();
+        }
+    }
+
+    private static void writeRejects(JsonGenerator gen, ChunkParser.Parsed parsed) throws IOException {
+        for (ChunkParser.Rejection rejection : parsed.rejected) {
+            gen.writeStartObject();
+            gen.writeNumberField("record", rejection.record);
+            gen.writeStringField("reason", rejection.reason);
+            gen.writeStringField("raw", rejection.raw);
+            gen.writeEndObject();
+        }
+        // Rejects reach the disk before the chunk commits, so a crash can repeat them but not lose them.
+        gen.flush();
+    }
+
+    private void report(long elapsedNanos, long loadedThisRun, long bytesThisRun, long loaded, long rejected) {
+        double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+        progress.printf("loaded %d (%d rejected), %.0f rows/s, %.1f MB/s%n",
+                loaded, rejected, loadedThisRun / seconds, bytesThisRun / seconds / 1e6);
+    }
+
+    private long[] readCheckpoint(String source) throws SQLException {
+        PreparedStatement select = connection.prepareStatement(SELECT_CHECKPOINT);
+        try {
+            select.setString(1, source);
+            ResultSet rs = select.executeQuery();
+            try {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)};
+            } finally {
+                rs.close();
+            }
+        } finally {
+            select.close();
+        }
+    }
+
+    private BitSet readAccountIds() throws SQLException {
+        BitSet ids = new BitSet();
+        Statement select = connection.createStatement();
+        try {
+            ResultSet rs = select.executeQuery(SELECT_ACCOUNT_IDS);
+            while (rs.next()) {
+                ids.set(rs.getInt(1));
+            }
+            rs.close();
+        } finally {
+            select.close();
+        }
+        return ids;
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().endsWith(".gz")) {
+            return new GZIPInputStream(in, 1 << 16);
+        }
+        return new BufferedInputStream(in, 1 << 16);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,158 @@
+package Import;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Cuts an NDJSON or CSV stream into chunks of whole records without parsing
+ * them, so that the parsing itself can run on several threads. A CSV record
+ * ends at a line break outside quotes; since '"' and '\n' never occur inside
+ * a multi-byte UTF-8 sequence, the scan works on raw bytes.
+ */
+final class RecordReader {
+
+    /**
+     * A run of whole records and where it sits in the stream.
+     */
+    static final class Chunk {
+        final long sequence;
+        final byte[] data;
+        final long startOffset;
+        final long endOffset;
+        final long firstRecord;
+
+        Chunk(long sequence, byte[] data, long startOffset, long firstRecord) {
+            this.sequence = sequence;
+            this.data = data;
+            this.startOffset = startOffset;
+            this.endOffset = startOffset + data.length;
+            this.firstRecord = firstRecord;
+        }
+    }
+
+    private final InputStream in;
+    private final boolean csv;
+    private byte[] buffer;
+    private int buffered;
+    private boolean eof;
+    private long offset;
+    private long records;
+    private long sequence;
+
+    RecordReader(InputStream in, boolean csv, int chunkBytes) {
+        this.in = in;
+        this.csv = csv;
+        this.buffer = new byte[chunkBytes];
+    }
+
+    /**
+     * Reads the CSV header record. Must be called first on a CSV stream.
+     */
+    String header() throws IOException {
+        Chunk first = nextRecords(1);
+        if (first == null) {
+            throw new EOFException("Empty CSV file");
+        }
+        int length = first.data.length;
+        while (length > 0 && (first.data[length - 1] == '\n' || first.data[length - 1] == '\r')) {
+            length--;
+        }
+        return new String(first.data, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skips forward to a checkpointed offset, which must fall on a record
+     * boundary past anything already read.
+     *
+     * @param recordsBefore how many records precede the offset.
+     */
+    void skipTo(long target, long recordsBefore) throws IOException {
+        long remaining = target - offset;
+        if (remaining < 0) {
+            throw new IllegalStateException("Cannot skip backwards to " + target);
+        }
+        if (remaining <= buffered) {
+            System.arraycopy(buffer, (int) remaining, buffer, 0, buffered - (int) remaining);
+            buffered -= (int) remaining;
+            remaining = 0;
+        } else {
+            remaining -= buffered;
+            buffered = 0;
+        }
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Checkpoint offset " + target + " is past the end of the file");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+        offset = target;
+        records = recordsBefore;
+    }
+
+    /**
+     * @return the next chunk, roughly the configured size, or null at the
+     *         end of the stream.
+     */
+    Chunk next() throws IOException {
+        return nextRecords(Integer.MAX_VALUE);
+    }
+
+    private Chunk nextRecords(int maxRecords) throws IOException {
+        int scanned = 0;
+        boolean quoted = false;
+        int end = -1;
+        int count = 0;
+        while (true) {
+            // Scans what is buffered for the last record boundary.
+            for (int i = scanned; i < buffered && count < maxRecords; i++) {
+                byte b = buffer[i];
+                if (csv && b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    end = i + 1;
+                    count++;
+                }
+            }
+            scanned = buffered;
+            boolean full = buffered == buffer.length;
+            if (count >= maxRecords || (end > 0 && full) || eof) {
+                break;
+            }
+            if (full) {
+                // A single record longer than the buffer.
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            fill();
+        }
+        if (end < 0 && eof && buffered > 0) {
+            // The last record has no trailing newline.
+            end = buffered;
+            count++;
+        }
+        if (end < 0) {
+            return null;
+        }
+        Chunk chunk = new Chunk(sequence++, Arrays.copyOf(buffer, end), offset, records);
+        System.arraycopy(buffer, end, buffer, 0, buffered - end);
+        buffered -= end;
+        offset += end;
+        records += count;
+        return chunk;
+    }
+
+    private void fill() throws IOException {
+        int n = in.read(buffer, buffered, buffer.length - buffered);
+        if (n < 0) {
+            eof = true;
+        } else {
+            buffered += n;
+        }
+    }
+}
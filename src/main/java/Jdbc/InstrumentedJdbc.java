@@ -0,0 +1,201 @@
+package Jdbc;
+
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumented JDBC layer. {@link #wrap(Connection)} returns a connection
+ * whose statements record execution time, rows returned and errors per SQL
+ * template, and feed a sampled {@link SlowQueryLog}.
+ *
+ * <p>Statements that differ only in a numbered table, such as the monthly
+ * message partitions, share one template, with the number written as
+ * {@code N}. DDL is not recorded, and past {@link #MAX_TEMPLATES} new
+ * templates are only counted, so the statistics stay bounded however many
+ * tables come and go.
+ *
+ * <p>The DAOs obtain their connection from {@code ConnectionUtil} rather
+ * than from a DataSource, so the connection itself is the wrapping point.
+ */
+public class InstrumentedJdbc implements MetricsRegistry.Collector {
+
+    static final int MAX_TEMPLATES = 1000;
+    // Shorter digit runs are kept, so that names such as utf8 stay as they are.
+    private static final int MIN_TABLE_NUMBER_DIGITS = 4;
+    private static final String[] DDL = {"CREATE", "ALTER", "DROP", "TRUNCATE", "COMMENT", "GRANT", "REVOKE"};
+
+    private final ConcurrentHashMap<String, SqlTemplateStats> templates = new ConcurrentHashMap<>();
+    private final LongAdder untracked = new LongAdder();
+    private final SlowQueryLog slowQueryLog;
+
+    public InstrumentedJdbc(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * @return a connection that instruments every statement it creates.
+     *         Closing it closes the underlying connection.
+     */
+    public Connection wrap(Connection connection) {
+        return new InstrumentedConnection(connection, this);
+    }
+
+    /**
+     * @return the statistics to record an execution of sql in, or null if
+     *         it is DDL or a new template past the limit.
+     */
+    SqlTemplateStats stats(String sql) {
+        String template = template(sql);
+        SqlTemplateStats stats = templates.get(template);
+        if (stats == null) {
+            if (isDdl(sql) || templates.size() >= MAX_TEMPLATES) {
+                untracked.increment();
+                return null;
+            }
+            stats = templates.computeIfAbsent(template, SqlTemplateStats::new);
+        }
+        if (template != sql) {
+            stats.rememberSql(sql);
+        }
+        return stats;
+    }
+
+    /**
+     * @return sql with every number that ends a table or other identifier
+     *         replaced by {@code N}, or sql itself if there is none.
+     */
+    static String template(String sql) {
+        StringBuilder template = null;
+        int copied = 0;
+        int length = sql.length();
+        for (int i = 1; i < length; i++) {
+            if (!isDigit(sql.charAt(i)) || !isIdentifierStart(sql.charAt(i - 1))) {
+                continue;
+            }
+            int end = i;
+            while (end < length && isDigit(sql.charAt(end))) {
+                end++;
+            }
+            if (end - i >= MIN_TABLE_NUMBER_DIGITS && (end == length || !isIdentifierPart(sql.charAt(end)))) {
+                if (template == null) {
+                    template = new StringBuilder(length);
+                }
+                template.append(sql, copied, i).append('N');
+                copied = end;
+            }
+            i = end;
+        }
+        return template == null ? sql : template.append(sql, copied, length).toString();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+
+    static boolean isDdl(String sql) {
+        int start = 0;
+        while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+            start++;
+        }
+        for (String keyword : DDL) {
+            if (sql.regionMatches(true, start, keyword, 0, keyword.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void finish(SqlTemplateStats stats, long nanos, long rows, Object[] parameters, int parameterCount,
+                Throwable error) {
+        if (stats == null) {
+            return;
+        }
+        stats.record(nanos, rows, error != null);
+        if (slowQueryLog.isSlow(nanos)) {
+            // Copied because the statement reuses its array for the next execution.
+            Object[] bound = parameters == null ? new Object[0] : Arrays.copyOf(parameters, parameterCount);
+            stats.rememberSlowParameters(bound);
+            slowQueryLog.maybeLog(stats, nanos, rows, bound, error);
+        }
+    }
+
+    /**
+     * @return statistics for every SQL template seen so far.
+     */
+    public Collection<SqlTemplateStats> templates() {
+        return templates.values();
+    }
+
+    /**
+     * Runs EXPLAIN for a template that has already been executed, binding
+     * the parameters of its last slow execution if there was one, or NULLs.
+     *
+     * @param connection an uninstrumented connection to explain on.
+     * @param sql        a template as {@link #templates()} lists it, or SQL
+     *                   the DAO issued. A template whose table is numbered
+     *                   is explained against the table it last ran on.
+     * @return the plan, or null if the template has never been executed.
+     */
+    public String explain(Connection connection, String sql) throws SQLException {
+        SqlTemplateStats stats = templates.get(template(sql));
+        if (stats == null) {
+            // Only known templates can be explained, so arbitrary SQL cannot be run.
+            return null;
+        }
+        PreparedStatement explain = connection.prepareStatement("EXPLAIN " + stats.getLastSql());
+        try {
+            Object[] parameters = stats.getLastSlowParameters();
+            int count = explain.getParameterMetaData().getParameterCount();
+            for (int i = 0; i < count; i++) {
+                explain.setObject(i + 1, parameters != null && i < parameters.length ? parameters[i] : null);
+            }
+            ResultSet rs = explain.executeQuery();
+            List<String> plan = new ArrayList<>();
+            while (rs.next()) {
+                plan.add(rs.getString(1));
+            }
+            rs.close();
+            return String.join("\n", plan);
+        } finally {
+            explain.close();
+        }
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("db_statement_seconds", "summary", "JDBC statement execution time by SQL template.");
+        for (SqlTemplateStats stats : templates.values()) {
+            out.summary("db_statement_seconds", stats.getLatency(), "sql", stats.getSql());
+        }
+        out.family("db_statement_rows_total", "counter", "Rows returned or affected by SQL template.");
+        for (SqlTemplateStats stats : templates.values()) {
+            out.sample("db_statement_rows_total", stats.getRows(), "sql", stats.getSql());
+        }
+        out.family("db_statement_errors_total", "counter", "Failed JDBC executions by SQL template.");
+        for (SqlTemplateStats stats : templates.values()) {
+            out.sample("db_statement_errors_total", stats.getErrors(), "sql", stats.getSql());
+        }
+        out.family("db_statements_untracked_total", "counter",
+                "JDBC executions not recorded by template: DDL, or new templates past the limit.");
+        out.sample("db_statements_untracked_total", untracked.sum());
+    }
+}
@@ -0,0 +1,485 @@
+package Jdbc;
+
+import Tracing.Tracer;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Times statement executions. Bind parameters are captured as they are set
+ * so the slow-query log can report their shape. A query is finished when its
+ * result set is closed, so the recorded time includes fetching the rows.
+ */
+class InstrumentedStatement implements Statement {
+
+    /**
+     * One in-flight execution whose rows are still being read.
+     */
+    static final class Execution {
+        private final InstrumentedStatement owner;
+        private final SqlTemplateStats stats;
+        private final long start;
+        private long rows;
+        private boolean finished;
+
+        Execution(InstrumentedStatement owner, SqlTemplateStats stats, long start) {
+            this.owner = owner;
+            this.stats = stats;
+            this.start = start;
+        }
+
+        void row() {
+            rows++;
+        }
+
+        void finish(Throwable error) {
+            if (!finished) {
+                finished = true;
+                owner.jdbc.finish(stats, System.nanoTime() - start, rows, owner.parameters, owner.parameterCount,
+                        error);
+            }
+        }
+    }
+
+    private final Statement target;
+    // The SQL the statement was prepared with, or null for a plain statement.
+    final String template;
+    private final InstrumentedJdbc jdbc;
+    private Object[] parameters;
+    private int parameterCount;
+    private Execution pending;
+
+    InstrumentedStatement(Statement target, String template, InstrumentedJdbc jdbc) {
+        this.target = target;
+        this.template = template;
+        this.jdbc = jdbc;
+    }
+
+    private String templateOr(String sql) {
+        return template != null ? template : sql;
+    }
+
+    final Execution start(String sql) {
+        SqlTemplateStats stats = jdbc.stats(sql);
+        // Attaches the SQL to the enclosing DAO span when the request is traced.
+        Tracer.currentSpan().attribute("db.statement", sql);
+        finishPending();
+        return new Execution(this, stats, System.nanoTime());
+    }
+
+    final ResultSet query(Execution execution, ResultSet resultSet) {
+        pending = execution;
+        return new InstrumentedResultSet(resultSet, execution);
+    }
+
+    final int updated(Execution execution, int rows) {
+        execution.rows = rows;
+        execution.finish(null);
+        return rows;
+    }
+
+    final long updated(Execution execution, long rows) {
+        execution.rows = rows;
+        execution.finish(null);
+        return rows;
+    }
+
+    final boolean executed(Execution execution, boolean hasResultSet) {
+        execution.finish(null);
+        return hasResultSet;
+    }
+
+    private int[] batched(Execution execution, int[] counts) {
+        for (int count : counts) {
+            execution.rows += Math.max(count, 0);
+        }
+        execution.finish(null);
+        clearBound();
+        return counts;
+    }
+
+    private long[] batched(Execution execution, long[] counts) {
+        for (long count : counts) {
+            execution.rows += Math.max(count, 0);
+        }
+        execution.finish(null);
+        clearBound();
+        return counts;
+    }
+
+    final void bind(int index, Object value) {
+        if (parameters == null) {
+            parameters = new Object[Math.max(index, 4)];
+        } else if (parameters.length < index) {
+            parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+        }
+        parameters[index - 1] = value;
+        parameterCount = Math.max(parameterCount, index);
+    }
+
+    final void clearBound() {
+        parameters = null;
+        parameterCount = 0;
+    }
+
+    private void finishPending() {
+        if (pending != null) {
+            pending.finish(null);
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return target.isWrapperFor(iface);
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return query(execution, target.executeQuery(sql));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return updated(execution, target.executeUpdate(sql));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        finishPending();
+        target.close();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return target.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        target.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return target.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        target.setMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        target.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return target.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        target.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        target.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return target.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        target.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        target.setCursorName(name);
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return executed(execution, target.execute(sql));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return target.getResultSet();
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return target.getUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return target.getMoreResults();
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        target.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return target.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        target.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return target.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return target.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return target.getResultSetType();
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        target.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        target.clearBatch();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        Execution execution = start(templateOr("?"));
+        try {
+            return batched(execution, target.executeBatch());
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return target.getConnection();
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return target.getMoreResults(current);
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return target.getGeneratedKeys();
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return updated(execution, target.executeUpdate(sql, autoGeneratedKeys));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return updated(execution, target.executeUpdate(sql, columnIndexes));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return updated(execution, target.executeUpdate(sql, columnNames));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return executed(execution, target.execute(sql, autoGeneratedKeys));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return executed(execution, target.execute(sql, columnIndexes));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return executed(execution, target.execute(sql, columnNames));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return target.getResultSetHoldability();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return target.isClosed();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        target.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return target.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        target.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return target.isCloseOnCompletion();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return target.getLargeUpdateCount();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        target.setLargeMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return target.getLargeMaxRows();
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        Execution execution = start(templateOr("?"));
+        try {
+            return batched(execution, target.executeLargeBatch());
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return updated(execution, target.executeLargeUpdate(sql));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return updated(execution, target.executeLargeUpdate(sql, autoGeneratedKeys));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return updated(execution, target.executeLargeUpdate(sql, columnIndexes));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        Execution execution = start(templateOr(sql));
+        try {
+            return updated(execution, target.executeLargeUpdate(sql, columnNames));
+        } catch (SQLException | RuntimeException e) {
+            execution.finish(e);
+            throw e;
+        }
+    }
+}
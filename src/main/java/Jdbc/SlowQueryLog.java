@@ -0,0 +1,69 @@
+package Jdbc;
+
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs a sample of statements slower than a threshold together with the
+ * shape of their bind parameters (types and lengths, never values).
+ */
+public class SlowQueryLog {
+
+    private static final AsyncLogger log = AsyncLog.getLogger(SlowQueryLog.class);
+
+    private final long thresholdNanos;
+    private final double sampleRate;
+
+    /**
+     * @param thresholdMillis statements at least this slow are candidates.
+     * @param sampleRate      fraction of candidates that are logged, 0..1.
+     */
+    public SlowQueryLog(long thresholdMillis, double sampleRate) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleRate = sampleRate;
+    }
+
+    boolean isSlow(long nanos) {
+        return nanos >= thresholdNanos;
+    }
+
+    void maybeLog(SqlTemplateStats stats, long nanos, long rows, Object[] parameters, Throwable error) {
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        log.warn("Slow query", "duration_ms", TimeUnit.NANOSECONDS.toMillis(nanos), "rows", rows,
+                "params", shapeOf(parameters), "error", error == null ? "none" : error.getClass().getSimpleName(),
+                "sql", stats.getSql());
+    }
+
+    /**
+     * @return e.g. {@code [INTEGER, VARCHAR(14), BIGINT]}.
+     */
+    static String shapeOf(Object[] parameters) {
+        if (parameters == null) {
+            return "[]";
+        }
+        StringBuilder shape = new StringBuilder("[");
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                shape.append(", ");
+            }
+            Object value = parameters[i];
+            if (value == null) {
+                shape.append("NULL");
+            } else if (value instanceof Integer) {
+                shape.append("INTEGER");
+            } else if (value instanceof Long) {
+                shape.append("BIGINT");
+            } else if (value instanceof String) {
+                shape.append("VARCHAR(").append(((String) value).length()).append(')');
+            } else {
+                shape.append(value.getClass().getSimpleName());
+            }
+        }
+        return shape.append(']').toString();
+    }
+}
@@ -0,0 +1,69 @@
+package Jdbc;
+
+import Metrics.LatencyTimer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated statistics for one SQL template (the SQL text with its
+ * {@code ?} placeholders, and {@code N} for the number of a numbered table).
+ */
+public final class SqlTemplateStats {
+
+    private final String sql;
+    private final LatencyTimer latency = new LatencyTimer();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    // Bind values of the most recent slow execution, kept in memory only so
+    // that EXPLAIN can be run with realistic parameters. Never logged.
+    private volatile Object[] lastSlowParameters;
+    // The last SQL run under a template with a numbered table, which EXPLAIN needs in its place.
+    private volatile String lastSql;
+
+    SqlTemplateStats(String sql) {
+        this.sql = sql;
+        this.lastSql = sql;
+    }
+
+    void record(long nanos, long rowCount, boolean failed) {
+        latency.record(nanos);
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    void rememberSlowParameters(Object[] parameters) {
+        this.lastSlowParameters = parameters;
+    }
+
+    void rememberSql(String executed) {
+        lastSql = executed;
+    }
+
+    String getLastSql() {
+        return lastSql;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public LatencyTimer getLatency() {
+        return latency;
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    Object[] getLastSlowParameters() {
+        return lastSlowParameters;
+    }
+}
@@ -0,0 +1,42 @@
+package Jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call through a DAO interface.
+ */
+@Name(DaoCallEvent.NAME)
+@Label("DAO Call")
+@Category({"Social Media", "Database"})
+@Description("A MessageDAO or AccountDAO method call")
+@StackTrace(false)
+public class DaoCallEvent extends Event {
+
+    public static final String NAME = "socialmedia.DaoCall";
+
+    @Label("DAO")
+    String dao;
+
+    @Label("Method")
+    String method;
+
+    @Label("Rows")
+    @Description("Rows returned, or 1/0 for single-row lookups and updates")
+    long rows;
+
+    @Label("Message Id")
+    @Description("The message the call was about, or 0")
+    int messageId;
+
+    @Label("Account Id")
+    @Description("The account the call was about, or 0")
+    int accountId;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,50 @@
+package Jfr;
+
+import DAO.AccountDAO;
+import DAO.MessageDAO;
+
+/**
+ * Emits a {@link DaoCallEvent} around every DAO call. The decorators ask
+ * {@link #begin()} first and call straight through when JFR is not
+ * recording the event, so a disabled event costs one check; fields are
+ * only filled in once JFR has decided to keep the event.
+ */
+public final class DaoEvents {
+
+    private DaoEvents() {
+    }
+
+    public static MessageDAO instrument(MessageDAO target) {
+        return new RecordedMessageDAO(target);
+    }
+
+    public static AccountDAO instrument(AccountDAO target) {
+        return new RecordedAccountDAO(target);
+    }
+
+    /**
+     * @return a started event, or null when the event is disabled.
+     */
+    static DaoCallEvent begin() {
+        DaoCallEvent event = new DaoCallEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    static void end(DaoCallEvent event, String dao, String method, boolean failed, long rows, int messageId,
+                    int accountId) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.dao = dao;
+            event.method = method;
+            event.failed = failed;
+            event.rows = rows;
+            event.messageId = messageId;
+            event.accountId = accountId;
+            event.commit();
+        }
+    }
+}
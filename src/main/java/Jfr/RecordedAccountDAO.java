@@ -0,0 +1,212 @@
+package Jfr;
+
+import DAO.AccountDAO;
+import DAO.AccountField;
+import DAO.RowCallback;
+import Model.Account;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Emits a {@link DaoCallEvent} around every {@link AccountDAO} call.
+ */
+final class RecordedAccountDAO implements AccountDAO {
+
+    private static final String DAO = "AccountDAO";
+
+    private final AccountDAO target;
+
+    RecordedAccountDAO(AccountDAO target) {
+        this.target = target;
+    }
+
+    @Override
+    public List<Account> getAllAccounts() {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getAllAccounts();
+        }
+        List<Account> result = null;
+        boolean failed = true;
+        try {
+            result = target.getAllAccounts();
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getAllAccounts", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public Account getAccountById(int id) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getAccountById(id);
+        }
+        Account result = null;
+        boolean failed = true;
+        try {
+            result = target.getAccountById(id);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getAccountById", failed, result == null ? 0 : 1, 0, id);
+        }
+    }
+
+    @Override
+    public List<Account> getAccountsByIds(int[] ids) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getAccountsByIds(ids);
+        }
+        List<Account> result = null;
+        boolean failed = true;
+        try {
+            result = target.getAccountsByIds(ids);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getAccountsByIds", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public List<Account> getAllAccounts(Set<AccountField> fields) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getAllAccounts(fields);
+        }
+        List<Account> result = null;
+        boolean failed = true;
+        try {
+            result = target.getAllAccounts(fields);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getAllAccounts", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public List<Account> getAccountsByIds(int[] ids, Set<AccountField> fields) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getAccountsByIds(ids, fields);
+        }
+        List<Account> result = null;
+        boolean failed = true;
+        try {
+            result = target.getAccountsByIds(ids, fields);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getAccountsByIds", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public Account getAccountByUsername(String username) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getAccountByUsername(username);
+        }
+        Account result = null;
+        boolean failed = true;
+        try {
+            result = target.getAccountByUsername(username);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getAccountByUsername", failed, result == null ? 0 : 1, 0, 0);
+        }
+    }
+
+    @Override
+    public boolean insertAccount(Account account) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.insertAccount(account);
+        }
+        boolean result = false;
+        boolean failed = true;
+        try {
+            result = target.insertAccount(account);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "insertAccount", failed, result ? 1 : 0, 0, account.getAccount_id());
+        }
+    }
+
+    @Override
+    public boolean updateAccount(Account account) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.updateAccount(account);
+        }
+        boolean result = false;
+        boolean failed = true;
+        try {
+            result = target.updateAccount(account);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "updateAccount", failed, result ? 1 : 0, 0, account.getAccount_id());
+        }
+    }
+
+    @Override
+    public boolean deleteAccount(int id) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.deleteAccount(id);
+        }
+        boolean result = false;
+        boolean failed = true;
+        try {
+            result = target.deleteAccount(id);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "deleteAccount", failed, result ? 1 : 0, 0, id);
+        }
+    }
+
+    @Override
+    public Account saveAccount(Account account) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.saveAccount(account);
+        }
+        Account result = null;
+        boolean failed = true;
+        try {
+            result = target.saveAccount(account);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "saveAccount", failed, result == null ? 0 : 1, 0, account.getAccount_id());
+        }
+    }
+
+    @Override
+    public long exportAccounts(RowCallback<Account> callback) throws SQLException, IOException {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.exportAccounts(callback);
+        }
+        long result = 0;
+        boolean failed = true;
+        try {
+            result = target.exportAccounts(callback);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "exportAccounts", failed, result, 0, 0);
+        }
+    }
+}
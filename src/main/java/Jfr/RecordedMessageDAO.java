@@ -0,0 +1,425 @@
+package Jfr;
+
+import DAO.MessageDAO;
+import DAO.MessageField;
+import DAO.RowCallback;
+import Model.Message;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Emits a {@link DaoCallEvent} around every {@link MessageDAO} call. An int
+ * first argument is a message id, except in the by-user lookups.
+ */
+final class RecordedMessageDAO implements MessageDAO {
+
+    private static final String DAO = "MessageDAO";
+
+    private final MessageDAO target;
+
+    RecordedMessageDAO(MessageDAO target) {
+        this.target = target;
+    }
+
+    @Override
+    public List<Message> getAllMessages() {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getAllMessages();
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.getAllMessages();
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getAllMessages", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public List<Message> loadAllMessages() throws SQLException {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.loadAllMessages();
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.loadAllMessages();
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "loadAllMessages", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public Message getMessageById(int id) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getMessageById(id);
+        }
+        Message result = null;
+        boolean failed = true;
+        try {
+            result = target.getMessageById(id);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getMessageById", failed, result == null ? 0 : 1, id, 0);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] ids) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getMessagesByIds(ids);
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.getMessagesByIds(ids);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getMessagesByIds", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUser(int userId) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getMessagesByUser(userId);
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.getMessagesByUser(userId);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getMessagesByUser", failed, result == null ? 0 : result.size(), 0, userId);
+        }
+    }
+
+    @Override
+    public List<Message> getAllMessages(Set<MessageField> fields) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getAllMessages(fields);
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.getAllMessages(fields);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getAllMessages", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public Message getMessageById(int id, Set<MessageField> fields) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getMessageById(id, fields);
+        }
+        Message result = null;
+        boolean failed = true;
+        try {
+            result = target.getMessageById(id, fields);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getMessageById", failed, result == null ? 0 : 1, id, 0);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] ids, Set<MessageField> fields) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getMessagesByIds(ids, fields);
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.getMessagesByIds(ids, fields);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getMessagesByIds", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUser(int userId, Set<MessageField> fields) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getMessagesByUser(userId, fields);
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.getMessagesByUser(userId, fields);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getMessagesByUser", failed, result == null ? 0 : result.size(), 0, userId);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit,
+                                           Set<MessageField> fields) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit, fields);
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit, fields);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getMessagesByTime", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                                  int limit, Set<MessageField> fields) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit, fields);
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit, fields);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getMessagesByUserAndTime", failed, result == null ? 0 : result.size(), 0,
+                    userId);
+        }
+    }
+
+    @Override
+    public boolean insertMessage(Message message) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.insertMessage(message);
+        }
+        boolean result = false;
+        boolean failed = true;
+        try {
+            result = target.insertMessage(message);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "insertMessage", failed, result ? 1 : 0, message.getMessage_id(),
+                    message.getPosted_by());
+        }
+    }
+
+    @Override
+    public boolean updateMessageText(int messageId, String newText) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.updateMessageText(messageId, newText);
+        }
+        boolean result = false;
+        boolean failed = true;
+        try {
+            result = target.updateMessageText(messageId, newText);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "updateMessageText", failed, result ? 1 : 0, messageId, 0);
+        }
+    }
+
+    @Override
+    public boolean deleteMessageById(int messageId) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.deleteMessageById(messageId);
+        }
+        boolean result = false;
+        boolean failed = true;
+        try {
+            result = target.deleteMessageById(messageId);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "deleteMessageById", failed, result ? 1 : 0, messageId, 0);
+        }
+    }
+
+    @Override
+    public boolean doesUserExist(int userId) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.doesUserExist(userId);
+        }
+        boolean result = false;
+        boolean failed = true;
+        try {
+            result = target.doesUserExist(userId);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "doesUserExist", failed, result ? 1 : 0, 0, userId);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit);
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getMessagesByTime", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                                  int limit) {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit);
+        }
+        List<Message> result = null;
+        boolean failed = true;
+        try {
+            result = target.getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "getMessagesByUserAndTime", failed, result == null ? 0 : result.size(), 0,
+                    userId);
+        }
+    }
+
+    @Override
+    public Map<Integer, Long> countMessagesByUser() throws SQLException {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.countMessagesByUser();
+        }
+        Map<Integer, Long> result = null;
+        boolean failed = true;
+        try {
+            result = target.countMessagesByUser();
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "countMessagesByUser", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public Map<Long, Long> countMessagesByHour(long sinceEpoch) throws SQLException {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.countMessagesByHour(sinceEpoch);
+        }
+        Map<Long, Long> result = null;
+        boolean failed = true;
+        try {
+            result = target.countMessagesByHour(sinceEpoch);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "countMessagesByHour", failed, result == null ? 0 : result.size(), 0, 0);
+        }
+    }
+
+    @Override
+    public long exportMessages(long sinceEpoch, long untilEpoch, RowCallback<Message> callback)
+            throws SQLException, IOException {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.exportMessages(sinceEpoch, untilEpoch, callback);
+        }
+        long result = 0;
+        boolean failed = true;
+        try {
+            result = target.exportMessages(sinceEpoch, untilEpoch, callback);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "exportMessages", failed, result, 0, 0);
+        }
+    }
+
+    @Override
+    public long dropMessagesBefore(long epochSecond) throws SQLException {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.dropMessagesBefore(epochSecond);
+        }
+        long result = 0;
+        boolean failed = true;
+        try {
+            result = target.dropMessagesBefore(epochSecond);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "dropMessagesBefore", failed, result, 0, 0);
+        }
+    }
+
+    @Override
+    public int purgeDeleted(long deletedBeforeMillis, int limit) throws SQLException {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.purgeDeleted(deletedBeforeMillis, limit);
+        }
+        int result = 0;
+        boolean failed = true;
+        try {
+            result = target.purgeDeleted(deletedBeforeMillis, limit);
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "purgeDeleted", failed, result, 0, 0);
+        }
+    }
+
+    @Override
+    public long countDeleted() throws SQLException {
+        DaoCallEvent event = DaoEvents.begin();
+        if (event == null) {
+            return target.countDeleted();
+        }
+        long result = 0;
+        boolean failed = true;
+        try {
+            result = target.countDeleted();
+            failed = false;
+            return result;
+        } finally {
+            DaoEvents.end(event, DAO, "countDeleted", failed, result, 0, 0);
+        }
+    }
+}
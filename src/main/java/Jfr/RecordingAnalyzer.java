@@ -0,0 +1,236 @@
+package Jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarizes a JFR recording per endpoint and per DAO method.
+ *
+ * <p>Request latency comes from {@link RequestEvent}s. Allocation samples,
+ * CPU samples and stalls (thread park, monitor enter, socket read) carry no
+ * endpoint of their own, so each is charged to the request that was running
+ * on the same thread at the time.
+ *
+ * <pre>
+ * java -cp target/classes Jfr.RecordingAnalyzer recording.jfr
+ * </pre>
+ */
+public class RecordingAnalyzer {
+
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String[] STALLS = {"jdk.ThreadPark", "jdk.JavaMonitorEnter", "jdk.SocketRead"};
+
+    /**
+     * Totals for one endpoint.
+     */
+    static final class Endpoint {
+        final List<Long> durations = new ArrayList<>();
+        long errors;
+        long allocatedBytes;
+        long cpuSamples;
+        long stallNanos;
+    }
+
+    /**
+     * Totals for one DAO method.
+     */
+    static final class DaoMethod {
+        long calls;
+        long failures;
+        long rows;
+        long totalNanos;
+        long maxNanos;
+    }
+
+    /**
+     * A request's time span on one thread.
+     */
+    private static final class Interval {
+        final long start;
+        final long end;
+        final Endpoint endpoint;
+
+        Interval(long start, long end, Endpoint endpoint) {
+            this.start = start;
+            this.end = end;
+            this.endpoint = endpoint;
+        }
+    }
+
+    final Map<String, Endpoint> endpoints = new TreeMap<>();
+    final Map<String, DaoMethod> daoMethods = new TreeMap<>();
+    private final Map<Long, List<Interval>> requestsByThread = new HashMap<>();
+    private long unattributedAllocatedBytes;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: RecordingAnalyzer <recording.jfr>");
+            System.exit(2);
+        }
+        System.out.print(analyze(Paths.get(args[0])).report());
+    }
+
+    /**
+     * Reads a recording in two passes: requests first, so that samples in
+     * the second pass can be matched to them.
+     */
+    public static RecordingAnalyzer analyze(Path recording) throws IOException {
+        RecordingAnalyzer analyzer = new RecordingAnalyzer();
+        List<RecordedEvent> samples = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+            String name = event.getEventType().getName();
+            if (RequestEvent.NAME.equals(name)) {
+                analyzer.addRequest(event);
+            } else if (DaoCallEvent.NAME.equals(name)) {
+                analyzer.addDaoCall(event);
+            } else {
+                samples.add(event);
+            }
+        }
+        for (List<Interval> intervals : analyzer.requestsByThread.values()) {
+            intervals.sort((a, b) -> Long.compare(a.start, b.start));
+        }
+        for (RecordedEvent event : samples) {
+            analyzer.addSample(event);
+        }
+        return analyzer;
+    }
+
+    private void addRequest(RecordedEvent event) {
+        Endpoint endpoint = endpoints.computeIfAbsent(
+                event.getString("method") + " " + event.getString("route"), k -> new Endpoint());
+        long nanos = event.getDuration().toNanos();
+        endpoint.durations.add(nanos);
+        if (event.getInt("status") >= 500) {
+            endpoint.errors++;
+        }
+        RecordedThread thread = event.getThread();
+        if (thread != null) {
+            long start = epochNanos(event.getStartTime());
+            requestsByThread.computeIfAbsent(thread.getId(), k -> new ArrayList<>())
+                    .add(new Interval(start, start + nanos, endpoint));
+        }
+    }
+
+    private void addDaoCall(RecordedEvent event) {
+        DaoMethod dao = daoMethods.computeIfAbsent(
+                event.getString("dao") + "." + event.getString("method"), k -> new DaoMethod());
+        long nanos = event.getDuration().toNanos();
+        dao.calls++;
+        dao.totalNanos += nanos;
+        dao.maxNanos = Math.max(dao.maxNanos, nanos);
+        dao.rows += event.getLong("rows");
+        if (event.getBoolean("failed")) {
+            dao.failures++;
+        }
+    }
+
+    private void addSample(RecordedEvent event) {
+        String name = event.getEventType().getName();
+        if (ALLOCATION_SAMPLE.equals(name)) {
+            Endpoint endpoint = endpointAt(event.getThread(), event.getStartTime());
+            long weight = event.getLong("weight");
+            if (endpoint != null) {
+                endpoint.allocatedBytes += weight;
+            } else {
+                unattributedAllocatedBytes += weight;
+            }
+        } else if (EXECUTION_SAMPLE.equals(name)) {
+            Endpoint endpoint = endpointAt(event.getThread("sampledThread"), event.getStartTime());
+            if (endpoint != null) {
+                endpoint.cpuSamples++;
+            }
+        } else {
+            for (String stall : STALLS) {
+                if (stall.equals(name)) {
+                    Endpoint endpoint = endpointAt(event.getThread(), event.getStartTime());
+                    if (endpoint != null) {
+                        endpoint.stallNanos += event.getDuration().toNanos();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the endpoint of the request running on {@code thread} at
+     *         {@code time}, or null if none was.
+     */
+    private Endpoint endpointAt(RecordedThread thread, Instant time) {
+        if (thread == null) {
+            return null;
+        }
+        List<Interval> intervals = requestsByThread.get(thread.getId());
+        if (intervals == null) {
+            return null;
+        }
+        long at = epochNanos(time);
+        // Last request that started at or before the sample.
+        int low = 0;
+        int high = intervals.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (intervals.get(mid).start <= at) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0 || intervals.get(found).end < at) {
+            return null;
+        }
+        return intervals.get(found).endpoint;
+    }
+
+    private static long epochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * @return a plain-text table per endpoint and per DAO method.
+     */
+    public String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-32s %8s %9s %9s %9s %6s %10s %7s %9s%n",
+                "endpoint", "count", "p50 ms", "p99 ms", "max ms", "5xx", "alloc MB", "cpu", "stall ms"));
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Endpoint e = entry.getValue();
+            List<Long> sorted = new ArrayList<>(e.durations);
+            Collections.sort(sorted);
+            out.append(String.format("%-32s %8d %9.3f %9.3f %9.3f %6d %10.2f %7d %9.3f%n",
+                    entry.getKey(), sorted.size(), percentile(sorted, 0.50) / 1e6,
+                    percentile(sorted, 0.99) / 1e6, sorted.get(sorted.size() - 1) / 1e6,
+                    e.errors, e.allocatedBytes / 1048576.0, e.cpuSamples, e.stallNanos / 1e6));
+        }
+        out.append(String.format("%-32s %8s %9s %9s %9s %6s %10.2f%n",
+                "(outside requests)", "", "", "", "", "", unattributedAllocatedBytes / 1048576.0));
+        out.append(String.format("%n%-40s %8s %9s %9s %10s %8s%n",
+                "dao method", "calls", "avg ms", "max ms", "rows", "failed"));
+        for (Map.Entry<String, DaoMethod> entry : daoMethods.entrySet()) {
+            DaoMethod d = entry.getValue();
+            out.append(String.format("%-40s %8d %9.3f %9.3f %10d %8d%n",
+                    entry.getKey(), d.calls, d.totalNanos / 1e6 / d.calls, d.maxNanos / 1e6, d.rows, d.failures));
+        }
+        return out.toString();
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+}
@@ -0,0 +1,36 @@
+package Jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One HTTP request, from the first before-handler to the last
+ * after-handler. Allocation samples and stalls recorded on the same thread
+ * inside this interval belong to the request's endpoint.
+ */
+@Name(RequestEvent.NAME)
+@Label("HTTP Request")
+@Category({"Social Media", "HTTP"})
+@Description("An API request with its route template and response status")
+@StackTrace(false)
+public class RequestEvent extends Event {
+
+    public static final String NAME = "socialmedia.Request";
+
+    @Label("Method")
+    String method;
+
+    @Label("Route")
+    @Description("Route template, e.g. /messages/{id}")
+    String route;
+
+    @Label("Status")
+    int status;
+
+    @Label("Request Id")
+    String requestId;
+}
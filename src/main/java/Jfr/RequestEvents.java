@@ -0,0 +1,42 @@
+package Jfr;
+
+import Tracing.Tracer;
+import io.javalin.http.Context;
+
+/**
+ * Emits a {@link RequestEvent} per request from the controller's before
+ * and after handlers. When JFR is not recording the event is never stored
+ * on the request, so the allocation is removed by escape analysis. The
+ * request id is read in {@link #begin}, which runs after tracing's
+ * before-handler; tracing's after-handler clears it before {@link #end}.
+ */
+public final class RequestEvents {
+
+    private static final String ATTRIBUTE = RequestEvents.class.getName();
+
+    private RequestEvents() {
+    }
+
+    public static void begin(Context ctx) {
+        RequestEvent event = new RequestEvent();
+        if (event.isEnabled()) {
+            event.requestId = Tracer.currentRequestId();
+            event.begin();
+            ctx.attribute(ATTRIBUTE, event);
+        }
+    }
+
+    public static void end(Context ctx, String method, String route, int status) {
+        RequestEvent event = ctx.attribute(ATTRIBUTE);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = method;
+            event.route = route;
+            event.status = status;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package Json;
+
+import DAO.AccountField;
+import Model.Account;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hand-written streaming codec for {@link Account}.
+ */
+public final class AccountCodec {
+
+    static final String ACCOUNT_ID = "account_id";
+    static final String USERNAME = "username";
+    static final String PASSWORD = "password";
+
+    private static final SerializableString F_ACCOUNT_ID = new SerializedString(ACCOUNT_ID);
+    private static final SerializableString F_USERNAME = new SerializedString(USERNAME);
+    private static final SerializableString F_PASSWORD = new SerializedString(PASSWORD);
+
+    public void write(JsonGenerator gen, Account account) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(F_ACCOUNT_ID);
+        gen.writeNumber(account.getAccount_id());
+        gen.writeFieldName(F_USERNAME);
+        gen.writeString(account.getUsername());
+        gen.writeFieldName(F_PASSWORD);
+        gen.writeString(account.getPassword());
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes only the given fields, which never include the password.
+     */
+    public void write(JsonGenerator gen, Account account, Set<AccountField> fields) throws IOException {
+        gen.writeStartObject();
+        if (fields.contains(AccountField.ACCOUNT_ID)) {
+            gen.writeFieldName(F_ACCOUNT_ID);
+            gen.writeNumber(account.getAccount_id());
+        }
+        if (fields.contains(AccountField.USERNAME)) {
+            gen.writeFieldName(F_USERNAME);
+            gen.writeString(account.getUsername());
+        }
+        gen.writeEndObject();
+    }
+
+    public void writeList(JsonGenerator gen, List<?> accounts) throws IOException {
+        gen.writeStartArray();
+        for (int i = 0, n = accounts.size(); i < n; i++) {
+            write(gen, (Account) accounts.get(i));
+        }
+        gen.writeEndArray();
+    }
+
+    /**
+     * Reads one account object. Unknown fields are skipped, matching the
+     * {@code @JsonIgnoreProperties(ignoreUnknown = true)} on the model.
+     */
+    public Account read(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken() == null ? p.nextToken() : p.currentToken();
+        if (t == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (t != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object for Account but found " + t);
+        }
+        Account account = new Account();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            p.nextToken();
+            switch (name) {
+                case ACCOUNT_ID:
+                    account.setAccount_id(p.getValueAsInt());
+                    break;
+                case USERNAME:
+                    account.setUsername(p.getValueAsString());
+                    break;
+                case PASSWORD:
+                    account.setPassword(p.getValueAsString());
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return account;
+    }
+}
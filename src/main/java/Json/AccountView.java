@@ -0,0 +1,26 @@
+package Json;
+
+import DAO.AccountField;
+import Model.Account;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A list of accounts to be written with only some of their fields. The
+ * password is never among them.
+ */
+public final class AccountView {
+
+    final List<Account> accounts;
+    final Set<AccountField> fields;
+
+    private AccountView(List<Account> accounts, Set<AccountField> fields) {
+        this.accounts = accounts;
+        this.fields = fields;
+    }
+
+    public static AccountView of(List<Account> accounts, Set<AccountField> fields) {
+        return new AccountView(accounts, fields);
+    }
+}
@@ -0,0 +1,97 @@
+package Json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.javalin.http.Context;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+
+/**
+ * Picks the wire format for a request body and a response body. JSON is the
+ * default; clients that send {@code Content-Type: application/x-jackson-smile}
+ * or {@code Accept: application/x-jackson-smile} get the binary Smile
+ * encoding instead. Both formats go through the same streaming codecs in
+ * {@link ModelJsonMapper}.
+ */
+public class ContentNegotiation {
+
+    public static final String SMILE = "application/x-jackson-smile";
+
+    private final ModelJsonMapper mapper;
+    private final SmileFactory smileFactory;
+
+    public ContentNegotiation(ModelJsonMapper mapper) {
+        this.mapper = mapper;
+        this.smileFactory = new SmileFactory();
+    }
+
+    /**
+     * @return true if the client asked for a Smile response.
+     */
+    public boolean acceptsSmile(Context ctx) {
+        String accept = ctx.header("Accept");
+        return accept != null && accept.contains(SMILE);
+    }
+
+    /**
+     * @return true if the request body is Smile encoded.
+     */
+    public boolean isSmileBody(Context ctx) {
+        String contentType = ctx.header("Content-Type");
+        return contentType != null && contentType.startsWith(SMILE);
+    }
+
+    /**
+     * Reads the request body as the given type in whichever format the
+     * client sent.
+     */
+    public <T> T readBody(Context ctx, Type type) {
+        if (!isSmileBody(ctx)) {
+            return ctx.bodyAsClass(type);
+        }
+        try (JsonParser p = smileFactory.createParser(ctx.bodyAsBytes())) {
+            return mapper.read(p, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the response body in the format the client accepts. Strings are
+     * passed through untouched, as {@link Context#json(Object)} does. The
+     * response carries {@code Vary: Accept} so that a cache does not hand a
+     * Smile body to a JSON client or the other way round.
+     */
+    public void write(Context ctx, Object obj) {
+        ctx.header("Vary", "Accept");
+        if (obj instanceof String || !acceptsSmile(ctx)) {
+            ctx.json(obj);
+            return;
+        }
+        ctx.contentType(SMILE).result(toSmile(obj));
+    }
+
+    public byte[] toSmile(Object obj) {
+        ByteArrayBuilder out = new ByteArrayBuilder(smileFactory._getBufferRecycler());
+        try (JsonGenerator gen = smileFactory.createGenerator(out)) {
+            mapper.write(gen, obj);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] bytes = out.toByteArray();
+        out.release();
+        return bytes;
+    }
+
+    public <T> T fromSmile(byte[] bytes, Type type) {
+        try (JsonParser p = smileFactory.createParser(bytes)) {
+            return mapper.read(p, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
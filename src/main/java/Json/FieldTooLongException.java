@@ -0,0 +1,26 @@
+package Json;
+
+/**
+ * Thrown while parsing a request body when a length-limited field is longer
+ * than its limit. The check is made against the raw token length, so the
+ * oversized value is never materialized as a String.
+ */
+public class FieldTooLongException extends IllegalArgumentException {
+
+    private final String field;
+    private final int limit;
+
+    public FieldTooLongException(String field, int limit) {
+        super(field + " exceeds " + limit + " characters");
+        this.field = field;
+        this.limit = limit;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
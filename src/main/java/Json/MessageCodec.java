@@ -0,0 +1,155 @@
+package Json;
+
+import DAO.MessageField;
+import Model.Message;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hand-written streaming codec for {@link Message}. Field names are
+ * pre-encoded once and the parser never goes through reflection or
+ * databinding.
+ */
+public final class MessageCodec {
+
+    static final String MESSAGE_ID = "message_id";
+    static final String POSTED_BY = "posted_by";
+    static final String MESSAGE_TEXT = "message_text";
+    static final String TIME_POSTED_EPOCH = "time_posted_epoch";
+
+    private static final SerializableString F_MESSAGE_ID = new SerializedString(MESSAGE_ID);
+    private static final SerializableString F_POSTED_BY = new SerializedString(POSTED_BY);
+    private static final SerializableString F_MESSAGE_TEXT = new SerializedString(MESSAGE_TEXT);
+    private static final SerializableString F_TIME_POSTED_EPOCH = new SerializedString(TIME_POSTED_EPOCH);
+
+    private final int maxTextLength;
+
+    /**
+     * @param maxTextLength the longest message_text accepted while parsing.
+     */
+    public MessageCodec(int maxTextLength) {
+        this.maxTextLength = maxTextLength;
+    }
+
+    public void write(JsonGenerator gen, Message message) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(F_MESSAGE_ID);
+        gen.writeNumber(message.getMessage_id());
+        gen.writeFieldName(F_POSTED_BY);
+        gen.writeNumber(message.getPosted_by());
+        gen.writeFieldName(F_MESSAGE_TEXT);
+        gen.writeString(message.getMessage_text());
+        gen.writeFieldName(F_TIME_POSTED_EPOCH);
+        gen.writeNumber(message.getTime_posted_epoch());
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes only the given fields of a message.
+     */
+    public void write(JsonGenerator gen, Message message, Set<MessageField> fields) throws IOException {
+        gen.writeStartObject();
+        writeFields(gen, message, fields);
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes the given fields into an object the caller has started, so that
+     * more fields can follow.
+     */
+    void writeFields(JsonGenerator gen, Message message, Set<MessageField> fields) throws IOException {
+        if (fields.contains(MessageField.MESSAGE_ID)) {
+            gen.writeFieldName(F_MESSAGE_ID);
+            gen.writeNumber(message.getMessage_id());
+        }
+        if (fields.contains(MessageField.POSTED_BY)) {
+            gen.writeFieldName(F_POSTED_BY);
+            gen.writeNumber(message.getPosted_by());
+        }
+        if (fields.contains(MessageField.MESSAGE_TEXT)) {
+            gen.writeFieldName(F_MESSAGE_TEXT);
+            gen.writeString(message.getMessage_text());
+        }
+        if (fields.contains(MessageField.TIME_POSTED_EPOCH)) {
+            gen.writeFieldName(F_TIME_POSTED_EPOCH);
+            gen.writeNumber(message.getTime_posted_epoch());
+        }
+    }
+
+    public void writeList(JsonGenerator gen, List<?> messages) throws IOException {
+        gen.writeStartArray();
+        for (int i = 0, n = messages.size(); i < n; i++) {
+            write(gen, (Message) messages.get(i));
+        }
+        gen.writeEndArray();
+    }
+
+    /**
+     * Reads one message object. The parser must be positioned on (or just
+     * before) the START_OBJECT token. Unknown fields are skipped.
+     *
+     * @throws FieldTooLongException if message_text is longer than the limit.
+     */
+    public Message read(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken() == null ? p.nextToken() : p.currentToken();
+        if (t == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (t != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object for Message but found " + t);
+        }
+        Message message = new Message();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            t = p.nextToken();
+            switch (name) {
+                case MESSAGE_ID:
+                    message.setMessage_id(p.getValueAsInt());
+                    break;
+                case POSTED_BY:
+                    message.setPosted_by(p.getValueAsInt());
+                    break;
+                case MESSAGE_TEXT:
+                    message.setMessage_text(readText(p, t));
+                    break;
+                case TIME_POSTED_EPOCH:
+                    message.setTime_posted_epoch(p.getValueAsLong());
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return message;
+    }
+
+    public List<Message> readList(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken() == null ? p.nextToken() : p.currentToken();
+        if (t != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array of Message but found " + t);
+        }
+        List<Message> messages = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            messages.add(read(p));
+        }
+        return messages;
+    }
+
+    private String readText(JsonParser p, JsonToken t) throws IOException {
+        if (t == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        // getTextLength() only sizes the token buffer; no String is created.
+        if (t == JsonToken.VALUE_STRING && p.getTextLength() > maxTextLength) {
+            throw new FieldTooLongException(MESSAGE_TEXT, maxTextLength);
+        }
+        return p.getValueAsString();
+    }
+}
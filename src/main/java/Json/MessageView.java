@@ -0,0 +1,49 @@
+package Json;
+
+import DAO.MessageField;
+import Model.Account;
+import Model.Message;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One message, or a list of them, to be written with only some of their
+ * fields and optionally with the public fields of each author embedded
+ * under {@code author}. Authors are looked up before writing starts, so
+ * serialization stays streaming and does no I/O; an author missing from
+ * the map is written as null.
+ */
+public final class MessageView {
+
+    static final String AUTHOR = "author";
+
+    final Message single;
+    final List<Message> messages;
+    final Set<MessageField> fields;
+    // Null unless authors are embedded.
+    final Map<Integer, Account> authors;
+
+    private MessageView(Message single, List<Message> messages, Set<MessageField> fields,
+                        Map<Integer, Account> authors) {
+        this.single = single;
+        this.messages = messages;
+        this.fields = fields;
+        this.authors = authors;
+    }
+
+    /**
+     * @param authors by account_id, or null to leave authors out.
+     */
+    public static MessageView of(Message message, Set<MessageField> fields, Map<Integer, Account> authors) {
+        return new MessageView(message, null, fields, authors);
+    }
+
+    /**
+     * @param authors by account_id, or null to leave authors out.
+     */
+    public static MessageView of(List<Message> messages, Set<MessageField> fields, Map<Integer, Account> authors) {
+        return new MessageView(null, messages, fields, authors);
+    }
+}
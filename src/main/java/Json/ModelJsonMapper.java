@@ -0,0 +1,183 @@
+package Json;
+
+import DAO.AccountField;
+import Model.Account;
+import Model.Message;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Javalin JSON mapper that handles {@link Message} and {@link Account} (and
+ * lists of them) with hand-written streaming codecs instead of reflective
+ * databinding. {@link MessageView} and {@link AccountView} are written the
+ * same way. Any other type falls back to a plain {@link ObjectMapper}.
+ */
+public class ModelJsonMapper implements JsonMapper {
+
+    private static final SerializableString F_AUTHOR = new SerializedString(MessageView.AUTHOR);
+
+    private final JsonFactory factory;
+    private final ObjectMapper fallback;
+    private final MessageCodec messageCodec;
+    private final AccountCodec accountCodec;
+
+    /**
+     * @param maxMessageTextLength longest message_text accepted when parsing;
+     *                             longer values fail with
+     *                             {@link FieldTooLongException}.
+     */
+    public ModelJsonMapper(int maxMessageTextLength) {
+        this.fallback = new ObjectMapper();
+        this.factory = fallback.getFactory();
+        this.messageCodec = new MessageCodec(maxMessageTextLength);
+        this.accountCodec = new AccountCodec();
+    }
+
+    @Override
+    public String toJsonString(Object obj, Type type) {
+        if (obj instanceof String) {
+            // Same contract as JavalinJackson: strings are written as-is.
+            return (String) obj;
+        }
+        // Same recycled-buffer writer ObjectMapper.writeValueAsString uses.
+        SegmentedStringWriter out = new SegmentedStringWriter(factory._getBufferRecycler());
+        try (JsonGenerator gen = factory.createGenerator(out)) {
+            write(gen, obj);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.getAndClear();
+    }
+
+    @Override
+    public <T> T fromJsonString(String json, Type targetType) {
+        try (JsonParser p = factory.createParser(json)) {
+            return read(p, targetType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public <T> T fromJsonStream(InputStream json, Type targetType) {
+        try (JsonParser p = factory.createParser(json)) {
+            return read(p, targetType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes any supported value to an already open generator.
+     */
+    public void write(JsonGenerator gen, Object obj) throws IOException {
+        if (obj instanceof Message) {
+            messageCodec.write(gen, (Message) obj);
+        } else if (obj instanceof Account) {
+            accountCodec.write(gen, (Account) obj);
+        } else if (obj instanceof MessageView) {
+            writeView(gen, (MessageView) obj);
+        } else if (obj instanceof AccountView) {
+            writeView(gen, (AccountView) obj);
+        } else if (obj instanceof List && isListOf((List<?>) obj, Message.class)) {
+            messageCodec.writeList(gen, (List<?>) obj);
+        } else if (obj instanceof List && isListOf((List<?>) obj, Account.class)) {
+            accountCodec.writeList(gen, (List<?>) obj);
+        } else {
+            fallback.writeValue(gen, obj);
+        }
+    }
+
+    private void writeView(JsonGenerator gen, MessageView view) throws IOException {
+        if (view.single != null) {
+            writeView(gen, view.single, view);
+            return;
+        }
+        List<Message> messages = view.messages;
+        gen.writeStartArray();
+        for (int i = 0, n = messages.size(); i < n; i++) {
+            writeView(gen, messages.get(i), view);
+        }
+        gen.writeEndArray();
+    }
+
+    private void writeView(JsonGenerator gen, Message message, MessageView view) throws IOException {
+        gen.writeStartObject();
+        messageCodec.writeFields(gen, message, view.fields);
+        if (view.authors != null) {
+            gen.writeFieldName(F_AUTHOR);
+            Account author = view.authors.get(message.getPosted_by());
+            if (author == null) {
+                gen.writeNull();
+            } else {
+                accountCodec.write(gen, author, AccountField.ALL);
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    private void writeView(JsonGenerator gen, AccountView view) throws IOException {
+        List<Account> accounts = view.accounts;
+        gen.writeStartArray();
+        for (int i = 0, n = accounts.size(); i < n; i++) {
+            accountCodec.write(gen, accounts.get(i), view.fields);
+        }
+        gen.writeEndArray();
+    }
+
+    /**
+     * Reads a value of the given type from a parser that has not yet been
+     * advanced, or is positioned on the first token of the value.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(JsonParser p, Type targetType) throws IOException {
+        if (targetType == Message.class) {
+            return (T) messageCodec.read(p);
+        }
+        if (targetType == Account.class) {
+            return (T) accountCodec.read(p);
+        }
+        if (isListType(targetType, Message.class)) {
+            return (T) messageCodec.readList(p);
+        }
+        return fallback.readValue(p, fallback.constructType(targetType));
+    }
+
+    public MessageCodec messages() {
+        return messageCodec;
+    }
+
+    public AccountCodec accounts() {
+        return accountCodec;
+    }
+
+    public JsonFactory factory() {
+        return factory;
+    }
+
+    private static boolean isListOf(List<?> list, Class<?> elementType) {
+        // An empty list is written identically whatever its element type.
+        return list.isEmpty() ? elementType == Message.class : elementType.isInstance(list.get(0));
+    }
+
+    private static boolean isListType(Type type, Class<?> elementType) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType pt = (ParameterizedType) type;
+        return pt.getRawType() == List.class && pt.getActualTypeArguments()[0] == elementType;
+    }
+}
@@ -0,0 +1,281 @@
+package Logging;
+
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous structured log. Callers put events on a bounded ring buffer
+ * and return; one background thread formats them as JSON lines. When the
+ * buffer is full the event is dropped and counted, so a flood of errors
+ * (e.g. during a database outage) cannot stall request threads.
+ *
+ * <p>The writer prints a full stack trace only for the first occurrence of
+ * a given stack within {@code stackIntervalMillis}. Repeats in that window
+ * are written as one line with {@code "stack_suppressed":true}, and the
+ * next full trace reports how many were suppressed.
+ *
+ * <p>Configured with {@code socialmedia.log.file} (default stderr),
+ * {@code socialmedia.log.bufferSize} (default 8192) and
+ * {@code socialmedia.log.stackIntervalMillis} (default 10000).
+ */
+public class AsyncLog implements MetricsRegistry.Collector {
+
+    private static final int STACK_FINGERPRINT_FRAMES = 8;
+    private static final int MAX_FINGERPRINTS = 10_000;
+
+    private static volatile AsyncLog global;
+
+    private final RingBuffer<LogEvent> buffer;
+    private final Writer out;
+    private final long stackIntervalMillis;
+    private final JsonFactory factory = new JsonFactory();
+    private final Map<LogLevel, LongAdder> published = new EnumMap<>(LogLevel.class);
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closed;
+    // Set by the writer before it parks on an empty buffer; producers unpark it only then.
+    private volatile boolean idle;
+
+    // Writer thread only: fingerprint -> {time of last full stack, repeats since}.
+    private final Map<Long, long[]> stacks = new HashMap<>();
+
+    public AsyncLog(Writer out, int bufferSize, long stackIntervalMillis) {
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.out = out;
+        this.stackIntervalMillis = stackIntervalMillis;
+        for (LogLevel level : LogLevel.values()) {
+            published.put(level, new LongAdder());
+        }
+        this.writer = new Thread(this::run, "async-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return the process-wide log, created from system properties on first use.
+     */
+    public static AsyncLog global() {
+        AsyncLog log = global;
+        if (log == null) {
+            synchronized (AsyncLog.class) {
+                log = global;
+                if (log == null) {
+                    log = fromSystemProperties();
+                    AsyncLog created = log;
+                    Runtime.getRuntime().addShutdownHook(new Thread(created::close, "async-log-shutdown"));
+                    global = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    public static AsyncLogger getLogger(Class<?> type) {
+        return global().logger(type.getName());
+    }
+
+    public AsyncLogger logger(String name) {
+        return new AsyncLogger(this, name);
+    }
+
+    private static AsyncLog fromSystemProperties() {
+        String file = System.getProperty("socialmedia.log.file");
+        Writer out;
+        try {
+            out = file == null
+                    ? new BufferedWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8))
+                    : Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open log file " + file, e);
+        }
+        return new AsyncLog(out, Integer.getInteger("socialmedia.log.bufferSize", 8192),
+                Long.getLong("socialmedia.log.stackIntervalMillis", 10_000));
+    }
+
+    void publish(LogEvent event) {
+        if (closed || !buffer.offer(event)) {
+            dropped.increment();
+            return;
+        }
+        published.get(event.level).increment();
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long suppressed() {
+        return suppressed.sum();
+    }
+
+    /**
+     * Stops accepting events, writes everything already queued and waits
+     * for the writer to finish.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            boolean stopping = closed;
+            LogEvent event = buffer.poll();
+            if (event == null) {
+                flush();
+                if (stopping) {
+                    return;
+                }
+                idle = true;
+                // An event offered before the flag was set is seen here; one
+                // offered after it finds the flag and unparks this thread.
+                if (buffer.isEmpty() && !closed) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                continue;
+            }
+            try {
+                write(event);
+            } catch (IOException | RuntimeException e) {
+                // Nowhere left to report it; count it as lost.
+                dropped.increment();
+            }
+        }
+    }
+
+    private void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // Retried on the next flush.
+        }
+    }
+
+    private void write(LogEvent event) throws IOException {
+        JsonGenerator gen = factory.createGenerator(out);
+        gen.writeStartObject();
+        gen.writeStringField("ts", Instant.ofEpochMilli(event.timestampMillis).toString());
+        gen.writeStringField("level", event.level.name());
+        gen.writeStringField("logger", event.logger);
+        gen.writeStringField("thread", event.thread);
+        if (event.requestId != null) {
+            gen.writeStringField("request_id", event.requestId);
+        }
+        gen.writeStringField("msg", event.message);
+        if (event.fields != null) {
+            for (int i = 0; i + 1 < event.fields.length; i += 2) {
+                writeField(gen, String.valueOf(event.fields[i]), event.fields[i + 1]);
+            }
+        }
+        if (event.throwable != null) {
+            writeThrowable(gen, event);
+        }
+        gen.writeEndObject();
+        gen.flush();
+        out.write('\n');
+    }
+
+    private static void writeField(JsonGenerator gen, String key, Object value) throws IOException {
+        if (value instanceof Integer || value instanceof Long) {
+            gen.writeNumberField(key, ((Number) value).longValue());
+        } else if (value instanceof Number) {
+            gen.writeNumberField(key, ((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            gen.writeBooleanField(key, (Boolean) value);
+        } else {
+            gen.writeStringField(key, String.valueOf(value));
+        }
+    }
+
+    private void writeThrowable(JsonGenerator gen, LogEvent event) throws IOException {
+        Throwable t = event.throwable;
+        gen.writeStringField("error_type", t.getClass().getName());
+        gen.writeStringField("error_message", String.valueOf(t.getMessage()));
+        long fingerprint = fingerprint(t);
+        gen.writeStringField("stack_id", Long.toHexString(fingerprint));
+        long[] seen = stacks.get(fingerprint);
+        if (seen != null && event.timestampMillis - seen[0] < stackIntervalMillis) {
+            seen[1]++;
+            suppressed.increment();
+            gen.writeBooleanField("stack_suppressed", true);
+            return;
+        }
+        if (seen == null) {
+            if (stacks.size() >= MAX_FINGERPRINTS) {
+                stacks.clear();
+            }
+            seen = new long[2];
+            stacks.put(fingerprint, seen);
+        }
+        if (seen[1] > 0) {
+            gen.writeNumberField("suppressed_since_last", seen[1]);
+        }
+        seen[0] = event.timestampMillis;
+        seen[1] = 0;
+        StringWriter stack = new StringWriter();
+        t.printStackTrace(new PrintWriter(stack));
+        gen.writeStringField("stack", stack.toString());
+    }
+
+    /**
+     * Identifies a stack by exception types along the cause chain and the
+     * top frames of each, so the same failure from the same call site maps
+     * to the same id regardless of message text.
+     */
+    private static long fingerprint(Throwable t) {
+        long hash = 1125899906842597L;
+        for (int depth = 0; t != null && depth < 4; depth++, t = t.getCause()) {
+            hash = 31 * hash + t.getClass().getName().hashCode();
+            StackTraceElement[] frames = t.getStackTrace();
+            for (int i = 0; i < Math.min(STACK_FINGERPRINT_FRAMES, frames.length); i++) {
+                hash = 31 * hash + frames[i].getClassName().hashCode();
+                hash = 31 * hash + frames[i].getMethodName().hashCode();
+                hash = 31 * hash + frames[i].getLineNumber();
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("log_events_total", "counter", "Log events accepted by level.");
+        for (Map.Entry<LogLevel, LongAdder> entry : published.entrySet()) {
+            out.sample("log_events_total", entry.getValue().sum(), "level", entry.getKey().name().toLowerCase());
+        }
+        out.family("log_events_dropped_total", "counter", "Log events dropped because the buffer was full.");
+        out.sample("log_events_dropped_total", dropped.sum());
+        out.family("log_stacks_suppressed_total", "counter", "Repeated stack traces written without the stack.");
+        out.sample("log_stacks_suppressed_total", suppressed.sum());
+    }
+}
@@ -0,0 +1,41 @@
+package Logging;
+
+import Tracing.Tracer;
+
+/**
+ * A named handle onto an {@link AsyncLog}, used like an slf4j logger.
+ * Extra context is passed as alternating key/value pairs and becomes
+ * fields of the JSON line, e.g.
+ * {@code log.error("Failed to delete message", e, "message_id", id)}.
+ */
+public final class AsyncLogger {
+
+    private final AsyncLog sink;
+    private final String name;
+
+    AsyncLogger(AsyncLog sink, String name) {
+        this.sink = sink;
+        this.name = name;
+    }
+
+    public void error(String message, Throwable t, Object... fields) {
+        log(LogLevel.ERROR, message, t, fields);
+    }
+
+    public void warn(String message, Object... fields) {
+        log(LogLevel.WARN, message, null, fields);
+    }
+
+    public void warn(String message, Throwable t, Object... fields) {
+        log(LogLevel.WARN, message, t, fields);
+    }
+
+    public void info(String message, Object... fields) {
+        log(LogLevel.INFO, message, null, fields);
+    }
+
+    private void log(LogLevel level, String message, Throwable t, Object[] fields) {
+        sink.publish(new LogEvent(System.currentTimeMillis(), level, name, Thread.currentThread().getName(),
+                Tracer.currentRequestId(), message, t, fields));
+    }
+}
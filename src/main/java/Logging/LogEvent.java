@@ -0,0 +1,29 @@
+package Logging;
+
+/**
+ * One log call, captured on the calling thread. Only references are taken
+ * here; formatting happens on the writer thread.
+ */
+final class LogEvent {
+
+    final long timestampMillis;
+    final LogLevel level;
+    final String logger;
+    final String thread;
+    final String requestId;
+    final String message;
+    final Throwable throwable;
+    final Object[] fields;
+
+    LogEvent(long timestampMillis, LogLevel level, String logger, String thread, String requestId,
+             String message, Throwable throwable, Object[] fields) {
+        this.timestampMillis = timestampMillis;
+        this.level = level;
+        this.logger = logger;
+        this.thread = thread;
+        this.requestId = requestId;
+        this.message = message;
+        this.throwable = throwable;
+        this.fields = fields;
+    }
+}
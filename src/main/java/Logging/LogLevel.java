@@ -0,0 +1,5 @@
+package Logging;
+
+public enum LogLevel {
+    ERROR, WARN, INFO
+}
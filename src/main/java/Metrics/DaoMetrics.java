@@ -0,0 +1,65 @@
+package Metrics;
+
+import DAO.AccountDAO;
+import DAO.MessageDAO;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-method latency timers of one DAO. The timers are created while the
+ * DAO is wrapped and held in fields of the decorator, so a call costs two
+ * clock reads and a histogram update on top of the DAO itself, with no
+ * lookup or allocation.
+ */
+public final class DaoMetrics {
+
+    private final String daoName;
+    // Only written while the decorator is built, before the registry publishes it.
+    private final Map<String, LatencyTimer> timers = new LinkedHashMap<>();
+
+    private DaoMetrics(String daoName) {
+        this.daoName = daoName;
+    }
+
+    /**
+     * Wraps a MessageDAO so that each method is timed into the registry.
+     */
+    public static MessageDAO instrument(MessageDAO target, MetricsRegistry registry) {
+        DaoMetrics metrics = new DaoMetrics("MessageDAO");
+        MessageDAO timed = new TimedMessageDAO(target, metrics);
+        registry.addDao(metrics);
+        return timed;
+    }
+
+    /**
+     * Wraps an AccountDAO so that each method is timed into the registry.
+     */
+    public static AccountDAO instrument(AccountDAO target, MetricsRegistry registry) {
+        DaoMetrics metrics = new DaoMetrics("AccountDAO");
+        AccountDAO timed = new TimedAccountDAO(target, metrics);
+        registry.addDao(metrics);
+        return timed;
+    }
+
+    LatencyTimer timer(String method) {
+        return timers.computeIfAbsent(method, m -> new LatencyTimer());
+    }
+
+    void collectLatency(PrometheusWriter out) {
+        for (Map.Entry<String, LatencyTimer> entry : timers.entrySet()) {
+            if (entry.getValue().count() > 0) {
+                out.summary("db_call_seconds", entry.getValue(), "dao", daoName, "method", entry.getKey());
+            }
+        }
+    }
+
+    void collectErrors(PrometheusWriter out) {
+        for (Map.Entry<String, LatencyTimer> entry : timers.entrySet()) {
+            if (entry.getValue().errors() > 0) {
+                out.sample("db_call_errors_total", entry.getValue().errors(),
+                        "dao", daoName, "method", entry.getKey());
+            }
+        }
+    }
+}
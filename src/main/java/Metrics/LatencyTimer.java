@@ -0,0 +1,51 @@
+package Metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram plus running count and sum. Recording is wait-free and
+ * does not allocate: the histogram is sized up front (1us to 60s at two
+ * significant digits) and never resizes.
+ */
+public final class LatencyTimer {
+
+    private static final long HIGHEST_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final Histogram histogram = new ConcurrentHistogram(1, HIGHEST_MICROS, 2);
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public void record(long nanos) {
+        long micros = Math.max(1, Math.min(nanos / 1000, HIGHEST_MICROS));
+        histogram.recordValue(micros);
+        sumNanos.add(nanos);
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public long count() {
+        return histogram.getTotalCount();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    public double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    /**
+     * @return a point-in-time copy that is safe to query while recording
+     *         continues.
+     */
+    public Histogram snapshot() {
+        return histogram.copy();
+    }
+}
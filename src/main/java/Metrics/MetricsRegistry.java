@@ -0,0 +1,106 @@
+package Metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the application's metrics and renders them for GET /metrics.
+ * Request, DAO and exception metrics are built in; other subsystems add
+ * their own series through {@link #register(Collector)}.
+ */
+public class MetricsRegistry {
+
+    /**
+     * Writes additional series when /metrics is scraped. Only called on the
+     * scrape path, never while serving a request.
+     */
+    public interface Collector {
+        void collect(PrometheusWriter out);
+    }
+
+    private final RequestMetrics requests = new RequestMetrics();
+    private final List<DaoMetrics> daos = new CopyOnWriteArrayList<>();
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+    private final Map<Class<?>, LongAdder> exceptions = new ConcurrentHashMap<>();
+
+    public RequestMetrics requests() {
+        return requests;
+    }
+
+    public void register(Collector collector) {
+        collectors.add(collector);
+    }
+
+    void addDao(DaoMetrics dao) {
+        daos.add(dao);
+    }
+
+    /**
+     * Counts an exception that reached the controller's exception handler.
+     */
+    public void recordException(Throwable e) {
+        LongAdder counter = exceptions.get(e.getClass());
+        if (counter == null) {
+            counter = exceptions.computeIfAbsent(e.getClass(), c -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * @return every metric in Prometheus text format.
+     */
+    public String scrape() {
+        PrometheusWriter out = new PrometheusWriter();
+        requests.collect(out);
+
+        out.family("db_call_seconds", "summary", "Latency of DAO calls by DAO and method.");
+        for (DaoMetrics dao : daos) {
+            dao.collectLatency(out);
+        }
+        out.family("db_call_errors_total", "counter", "Exceptions thrown by DAO calls by DAO and method.");
+        for (DaoMetrics dao : daos) {
+            dao.collectErrors(out);
+        }
+
+        out.family("http_server_exceptions_total", "counter", "Unhandled exceptions by type.");
+        for (Map.Entry<Class<?>, LongAdder> entry : exceptions.entrySet()) {
+            out.sample("http_server_exceptions_total", entry.getValue().sum(), "type", entry.getKey().getName());
+        }
+
+        collectJvm(out);
+        for (Collector collector : collectors) {
+            collector.collect(out);
+        }
+        return out.toString();
+    }
+
+    private static void collectJvm(PrometheusWriter out) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        MemoryUsage nonHeap = memory.getNonHeapMemoryUsage();
+        out.family("jvm_memory_used_bytes", "gauge", "Used JVM memory by area.")
+                .sample("jvm_memory_used_bytes", heap.getUsed(), "area", "heap")
+                .sample("jvm_memory_used_bytes", nonHeap.getUsed(), "area", "nonheap");
+        out.family("jvm_memory_committed_bytes", "gauge", "Committed JVM memory by area.")
+                .sample("jvm_memory_committed_bytes", heap.getCommitted(), "area", "heap")
+                .sample("jvm_memory_committed_bytes", nonHeap.getCommitted(), "area", "nonheap");
+        out.family("jvm_memory_max_bytes", "gauge", "Maximum JVM heap, or -1 if undefined.")
+                .sample("jvm_memory_max_bytes", heap.getMax(), "area", "heap");
+
+        out.family("jvm_gc_collection_seconds", "summary", "Time spent in each garbage collector.");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            out.sample("jvm_gc_collection_seconds_count", gc.getCollectionCount(), "gc", gc.getName());
+            out.sample("jvm_gc_collection_seconds_sum", gc.getCollectionTime() / 1000.0, "gc", gc.getName());
+        }
+
+        out.family("jvm_threads_current", "gauge", "Current live thread count.")
+                .sample("jvm_threads_current", ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+}
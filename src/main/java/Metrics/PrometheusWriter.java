@@ -0,0 +1,102 @@
+package Metrics;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Builds a response in the Prometheus text exposition format (version 0.0.4).
+ */
+public final class PrometheusWriter {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    /**
+     * Writes the HELP and TYPE lines for a metric family.
+     */
+    public PrometheusWriter family(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * Writes one sample. Labels are given as alternating name/value pairs.
+     */
+    public PrometheusWriter sample(String name, double value, String... labels) {
+        out.append(name);
+        appendLabels(labels, null, null);
+        out.append(' ').append(format(value)).append('\n');
+        return this;
+    }
+
+    /**
+     * Writes a latency timer as a summary: quantiles in seconds plus _sum and
+     * _count.
+     */
+    public PrometheusWriter summary(String name, LatencyTimer timer, String... labels) {
+        Histogram h = timer.snapshot();
+        for (double q : QUANTILES) {
+            out.append(name);
+            appendLabels(labels, "quantile", format(q));
+            double seconds = h.getTotalCount() == 0 ? 0 : h.getValueAtPercentile(q * 100) / 1e6;
+            out.append(' ').append(format(seconds)).append('\n');
+        }
+        out.append(name).append("_sum");
+        appendLabels(labels, null, null);
+        out.append(' ').append(format(timer.sumSeconds())).append('\n');
+        out.append(name).append("_count");
+        appendLabels(labels, null, null);
+        out.append(' ').append(h.getTotalCount()).append('\n');
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void appendLabels(String[] labels, String extraName, String extraValue) {
+        if (labels.length == 0 && extraName == null) {
+            return;
+        }
+        out.append('{');
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            escape(labels[i + 1]);
+            out.append('"');
+        }
+        if (extraName != null) {
+            if (labels.length > 0) {
+                out.append(',');
+            }
+            out.append(extraName).append("=\"").append(extraValue).append('"');
+        }
+        out.append('}');
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
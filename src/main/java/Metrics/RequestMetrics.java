@@ -0,0 +1,94 @@
+package Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-route, per-method, per-status request latency. The hot path is a
+ * ConcurrentHashMap read on the route template, two array lookups and a
+ * histogram update, none of which allocate once the series exists.
+ */
+public final class RequestMetrics {
+
+    static final String[] METHODS = {"GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS", "OTHER"};
+    private static final int MIN_STATUS = 100;
+    private static final int STATUS_SLOTS = 500;
+
+    private final ConcurrentHashMap<String, AtomicReferenceArray<LatencyTimer>> routes = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> startNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Marks the start of a request on the current thread.
+     */
+    public void begin() {
+        startNanos.get()[0] = System.nanoTime();
+    }
+
+    /**
+     * Records the request started by {@link #begin()} on this thread.
+     *
+     * @param route  the route template, e.g. /messages/{id}.
+     * @param method the HTTP method.
+     * @param status the response status code.
+     */
+    public void end(String route, String method, int status) {
+        long elapsed = System.nanoTime() - startNanos.get()[0];
+        AtomicReferenceArray<LatencyTimer> timers = routes.get(route);
+        if (timers == null) {
+            timers = routes.computeIfAbsent(route, r -> new AtomicReferenceArray<>(METHODS.length * STATUS_SLOTS));
+        }
+        int slot = methodIndex(method) * STATUS_SLOTS + statusIndex(status);
+        LatencyTimer timer = timers.get(slot);
+        if (timer == null) {
+            timers.compareAndSet(slot, null, new LatencyTimer());
+            timer = timers.get(slot);
+        }
+        timer.record(elapsed);
+    }
+
+    void collect(PrometheusWriter out) {
+        out.family("http_server_requests_seconds", "summary",
+                "HTTP request latency by route template, method and status.");
+        for (Map.Entry<String, AtomicReferenceArray<LatencyTimer>> route : routes.entrySet()) {
+            AtomicReferenceArray<LatencyTimer> timers = route.getValue();
+            for (int slot = 0; slot < timers.length(); slot++) {
+                LatencyTimer timer = timers.get(slot);
+                if (timer != null) {
+                    out.summary("http_server_requests_seconds", timer,
+                            "route", route.getKey(),
+                            "method", METHODS[slot / STATUS_SLOTS],
+                            "status", Integer.toString(slot % STATUS_SLOTS + MIN_STATUS));
+                }
+            }
+        }
+    }
+
+    private static int methodIndex(String method) {
+        switch (method) {
+            case "GET":
+                return 0;
+            case "POST":
+                return 1;
+            case "PUT":
+                return 2;
+            case "PATCH":
+                return 3;
+            case "DELETE":
+                return 4;
+            case "HEAD":
+                return 5;
+            case "OPTIONS":
+                return 6;
+            default:
+                return 7;
+        }
+    }
+
+    private static int statusIndex(int status) {
+        if (status < MIN_STATUS || status >= MIN_STATUS + STATUS_SLOTS) {
+            return 0;
+        }
+        return status - MIN_STATUS;
+    }
+}
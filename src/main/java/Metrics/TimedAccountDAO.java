@@ -0,0 +1,185 @@
+package Metrics;
+
+import DAO.AccountDAO;
+import DAO.AccountField;
+import DAO.RowCallback;
+import Model.Account;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Times every {@link AccountDAO} call. Overloads share one timer, since
+ * they are exported under the same method label.
+ */
+final class TimedAccountDAO implements AccountDAO {
+
+    private final AccountDAO target;
+    private final LatencyTimer getAllAccountsTimer;
+    private final LatencyTimer getAccountByIdTimer;
+    private final LatencyTimer getAccountsByIdsTimer;
+    private final LatencyTimer getAccountByUsernameTimer;
+    private final LatencyTimer insertAccountTimer;
+    private final LatencyTimer updateAccountTimer;
+    private final LatencyTimer deleteAccountTimer;
+    private final LatencyTimer saveAccountTimer;
+    private final LatencyTimer exportAccountsTimer;
+
+    TimedAccountDAO(AccountDAO target, DaoMetrics metrics) {
+        this.target = target;
+        getAllAccountsTimer = metrics.timer("getAllAccounts");
+        getAccountByIdTimer = metrics.timer("getAccountById");
+        getAccountsByIdsTimer = metrics.timer("getAccountsByIds");
+        getAccountByUsernameTimer = metrics.timer("getAccountByUsername");
+        insertAccountTimer = metrics.timer("insertAccount");
+        updateAccountTimer = metrics.timer("updateAccount");
+        deleteAccountTimer = metrics.timer("deleteAccount");
+        saveAccountTimer = metrics.timer("saveAccount");
+        exportAccountsTimer = metrics.timer("exportAccounts");
+    }
+
+    @Override
+    public List<Account> getAllAccounts() {
+        long start = System.nanoTime();
+        try {
+            return target.getAllAccounts();
+        } catch (Throwable t) {
+            getAllAccountsTimer.recordError();
+            throw t;
+        } finally {
+            getAllAccountsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Account getAccountById(int id) {
+        long start = System.nanoTime();
+        try {
+            return target.getAccountById(id);
+        } catch (Throwable t) {
+            getAccountByIdTimer.recordError();
+            throw t;
+        } finally {
+            getAccountByIdTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Account> getAccountsByIds(int[] ids) {
+        long start = System.nanoTime();
+        try {
+            return target.getAccountsByIds(ids);
+        } catch (Throwable t) {
+            getAccountsByIdsTimer.recordError();
+            throw t;
+        } finally {
+            getAccountsByIdsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Account> getAllAccounts(Set<AccountField> fields) {
+        long start = System.nanoTime();
+        try {
+            return target.getAllAccounts(fields);
+        } catch (Throwable t) {
+            getAllAccountsTimer.recordError();
+            throw t;
+        } finally {
+            getAllAccountsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Account> getAccountsByIds(int[] ids, Set<AccountField> fields) {
+        long start = System.nanoTime();
+        try {
+            return target.getAccountsByIds(ids, fields);
+        } catch (Throwable t) {
+            getAccountsByIdsTimer.recordError();
+            throw t;
+        } finally {
+            getAccountsByIdsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Account getAccountByUsername(String username) {
+        long start = System.nanoTime();
+        try {
+            return target.getAccountByUsername(username);
+        } catch (Throwable t) {
+            getAccountByUsernameTimer.recordError();
+            throw t;
+        } finally {
+            getAccountByUsernameTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean insertAccount(Account account) {
+        long start = System.nanoTime();
+        try {
+            return target.insertAccount(account);
+        } catch (Throwable t) {
+            insertAccountTimer.recordError();
+            throw t;
+        } finally {
+            insertAccountTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean updateAccount(Account account) {
+        long start = System.nanoTime();
+        try {
+            return target.updateAccount(account);
+        } catch (Throwable t) {
+            updateAccountTimer.recordError();
+            throw t;
+        } finally {
+            updateAccountTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean deleteAccount(int id) {
+        long start = System.nanoTime();
+        try {
+            return target.deleteAccount(id);
+        } catch (Throwable t) {
+            deleteAccountTimer.recordError();
+            throw t;
+        } finally {
+            deleteAccountTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Account saveAccount(Account account) {
+        long start = System.nanoTime();
+        try {
+            return target.saveAccount(account);
+        } catch (Throwable t) {
+            saveAccountTimer.recordError();
+            throw t;
+        } finally {
+            saveAccountTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long exportAccounts(RowCallback<Account> callback) throws SQLException, IOException {
+        long start = System.nanoTime();
+        try {
+            return target.exportAccounts(callback);
+        } catch (Throwable t) {
+            exportAccountsTimer.recordError();
+            throw t;
+        } finally {
+            exportAccountsTimer.record(System.nanoTime() - start);
+        }
+    }
+}
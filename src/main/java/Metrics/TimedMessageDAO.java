@@ -0,0 +1,362 @@
+package Metrics;
+
+import DAO.MessageDAO;
+import DAO.MessageField;
+import DAO.RowCallback;
+import Model.Message;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Times every {@link MessageDAO} call. Overloads share one timer, since
+ * they are exported under the same method label.
+ */
+final class TimedMessageDAO implements MessageDAO {
+
+    private final MessageDAO target;
+    private final LatencyTimer getAllMessagesTimer;
+    private final LatencyTimer loadAllMessagesTimer;
+    private final LatencyTimer getMessageByIdTimer;
+    private final LatencyTimer getMessagesByIdsTimer;
+    private final LatencyTimer getMessagesByUserTimer;
+    private final LatencyTimer getMessagesByTimeTimer;
+    private final LatencyTimer getMessagesByUserAndTimeTimer;
+    private final LatencyTimer insertMessageTimer;
+    private final LatencyTimer updateMessageTextTimer;
+    private final LatencyTimer deleteMessageByIdTimer;
+    private final LatencyTimer doesUserExistTimer;
+    private final LatencyTimer countMessagesByUserTimer;
+    private final LatencyTimer countMessagesByHourTimer;
+    private final LatencyTimer exportMessagesTimer;
+    private final LatencyTimer dropMessagesBeforeTimer;
+    private final LatencyTimer purgeDeletedTimer;
+    private final LatencyTimer countDeletedTimer;
+
+    TimedMessageDAO(MessageDAO target, DaoMetrics metrics) {
+        this.target = target;
+        getAllMessagesTimer = metrics.timer("getAllMessages");
+        loadAllMessagesTimer = metrics.timer("loadAllMessages");
+        getMessageByIdTimer = metrics.timer("getMessageById");
+        getMessagesByIdsTimer = metrics.timer("getMessagesByIds");
+        getMessagesByUserTimer = metrics.timer("getMessagesByUser");
+        getMessagesByTimeTimer = metrics.timer("getMessagesByTime");
+        getMessagesByUserAndTimeTimer = metrics.timer("getMessagesByUserAndTime");
+        insertMessageTimer = metrics.timer("insertMessage");
+        updateMessageTextTimer = metrics.timer("updateMessageText");
+        deleteMessageByIdTimer = metrics.timer("deleteMessageById");
+        doesUserExistTimer = metrics.timer("doesUserExist");
+        countMessagesByUserTimer = metrics.timer("countMessagesByUser");
+        countMessagesByHourTimer = metrics.timer("countMessagesByHour");
+        exportMessagesTimer = metrics.timer("exportMessages");
+        dropMessagesBeforeTimer = metrics.timer("dropMessagesBefore");
+        purgeDeletedTimer = metrics.timer("purgeDeleted");
+        countDeletedTimer = metrics.timer("countDeleted");
+    }
+
+    @Override
+    public List<Message> getAllMessages() {
+        long start = System.nanoTime();
+        try {
+            return target.getAllMessages();
+        } catch (Throwable t) {
+            getAllMessagesTimer.recordError();
+            throw t;
+        } finally {
+            getAllMessagesTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Message> loadAllMessages() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.loadAllMessages();
+        } catch (Throwable t) {
+            loadAllMessagesTimer.recordError();
+            throw t;
+        } finally {
+            loadAllMessagesTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Message getMessageById(int id) {
+        long start = System.nanoTime();
+        try {
+            return target.getMessageById(id);
+        } catch (Throwable t) {
+            getMessageByIdTimer.recordError();
+            throw t;
+        } finally {
+            getMessageByIdTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] ids) {
+        long start = System.nanoTime();
+        try {
+            return target.getMessagesByIds(ids);
+        } catch (Throwable t) {
+            getMessagesByIdsTimer.recordError();
+            throw t;
+        } finally {
+            getMessagesByIdsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUser(int userId) {
+        long start = System.nanoTime();
+        try {
+            return target.getMessagesByUser(userId);
+        } catch (Throwable t) {
+            getMessagesByUserTimer.recordError();
+            throw t;
+        } finally {
+            getMessagesByUserTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Message> getAllMessages(Set<MessageField> fields) {
+        long start = System.nanoTime();
+        try {
+            return target.getAllMessages(fields);
+        } catch (Throwable t) {
+            getAllMessagesTimer.recordError();
+            throw t;
+        } finally {
+            getAllMessagesTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Message getMessageById(int id, Set<MessageField> fields) {
+        long start = System.nanoTime();
+        try {
+            return target.getMessageById(id, fields);
+        } catch (Throwable t) {
+            getMessageByIdTimer.recordError();
+            throw t;
+        } finally {
+            getMessageByIdTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] ids, Set<MessageField> fields) {
+        long start = System.nanoTime();
+        try {
+            return target.getMessagesByIds(ids, fields);
+        } catch (Throwable t) {
+            getMessagesByIdsTimer.recordError();
+            throw t;
+        } finally {
+            getMessagesByIdsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUser(int userId, Set<MessageField> fields) {
+        long start = System.nanoTime();
+        try {
+            return target.getMessagesByUser(userId, fields);
+        } catch (Throwable t) {
+            getMessagesByUserTimer.recordError();
+            throw t;
+        } finally {
+            getMessagesByUserTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit,
+                                           Set<MessageField> fields) {
+        long start = System.nanoTime();
+        try {
+            return target.getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit, fields);
+        } catch (Throwable t) {
+            getMessagesByTimeTimer.recordError();
+            throw t;
+        } finally {
+            getMessagesByTimeTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                                  int limit, Set<MessageField> fields) {
+        long start = System.nanoTime();
+        try {
+            return target.getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit, fields);
+        } catch (Throwable t) {
+            getMessagesByUserAndTimeTimer.recordError();
+            throw t;
+        } finally {
+            getMessagesByUserAndTimeTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean insertMessage(Message message) {
+        long start = System.nanoTime();
+        try {
+            return target.insertMessage(message);
+        } catch (Throwable t) {
+            insertMessageTimer.recordError();
+            throw t;
+        } finally {
+            insertMessageTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean updateMessageText(int messageId, String newText) {
+        long start = System.nanoTime();
+        try {
+            return target.updateMessageText(messageId, newText);
+        } catch (Throwable t) {
+            updateMessageTextTimer.recordError();
+            throw t;
+        } finally {
+            updateMessageTextTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean deleteMessageById(int messageId) {
+        long start = System.nanoTime();
+        try {
+            return target.deleteMessageById(messageId);
+        } catch (Throwable t) {
+            deleteMessageByIdTimer.recordError();
+            throw t;
+        } finally {
+            deleteMessageByIdTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean doesUserExist(int userId) {
+        long start = System.nanoTime();
+        try {
+            return target.doesUserExist(userId);
+        } catch (Throwable t) {
+            doesUserExistTimer.recordError();
+            throw t;
+        } finally {
+            doesUserExistTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return target.getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit);
+        } catch (Throwable t) {
+            getMessagesByTimeTimer.recordError();
+            throw t;
+        } finally {
+            getMessagesByTimeTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                                  int limit) {
+        long start = System.nanoTime();
+        try {
+            return target.getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit);
+        } catch (Throwable t) {
+            getMessagesByUserAndTimeTimer.recordError();
+            throw t;
+        } finally {
+            getMessagesByUserAndTimeTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<Integer, Long> countMessagesByUser() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.countMessagesByUser();
+        } catch (Throwable t) {
+            countMessagesByUserTimer.recordError();
+            throw t;
+        } finally {
+            countMessagesByUserTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<Long, Long> countMessagesByHour(long sinceEpoch) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.countMessagesByHour(sinceEpoch);
+        } catch (Throwable t) {
+            countMessagesByHourTimer.recordError();
+            throw t;
+        } finally {
+            countMessagesByHourTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long exportMessages(long sinceEpoch, long untilEpoch, RowCallback<Message> callback)
+            throws SQLException, IOException {
+        long start = System.nanoTime();
+        try {
+            return target.exportMessages(sinceEpoch, untilEpoch, callback);
+        } catch (Throwable t) {
+            exportMessagesTimer.recordError();
+            throw t;
+        } finally {
+            exportMessagesTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long dropMessagesBefore(long epochSecond) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.dropMessagesBefore(epochSecond);
+        } catch (Throwable t) {
+            dropMessagesBeforeTimer.recordError();
+            throw t;
+        } finally {
+            dropMessagesBeforeTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int purgeDeleted(long deletedBeforeMillis, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.purgeDeleted(deletedBeforeMillis, limit);
+        } catch (Throwable t) {
+            purgeDeletedTimer.recordError();
+            throw t;
+        } finally {
+            purgeDeletedTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long countDeleted() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return target.countDeleted();
+        } catch (Throwable t) {
+            countDeletedTimer.recordError();
+            throw t;
+        } finally {
+            countDeletedTimer.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -1,16 +1,39 @@
 package Service;
 
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import Auth.Passwords;
 import DAO.AccountDAO;
+import DAO.AccountField;
+import DAO.RowCallback;
 import Model.Account;
 
 public class AccountService {
 
+    /**
+     * Most authors kept by {@link #getAuthors}; past this, misses are
+     * fetched each time rather than cached.
+     */
+    private static final int MAX_CACHED_AUTHORS = Integer.getInteger("socialmedia.authors.cacheSize", 100000);
+
     private AccountDAO accountDAO;
+    private Passwords passwords;
+    // Public fields only. Usernames never change, so entries are never stale.
+    private final Map<Integer, Account> authors = new ConcurrentHashMap<>();
 
-    public AccountService(AccountDAO accountDAO) {
+    public AccountService(AccountDAO accountDAO, Passwords passwords) {
         this.accountDAO = accountDAO;
+        this.passwords = passwords;
     }
 
     /**
@@ -22,6 +45,26 @@ public class AccountService {
         return accountDAO.getAllAccounts();
     }
 
+    /**
+     * Fetches all accounts with only the given fields, and never their passwords.
+     * 
+     * @param fields The fields to read.
+     * @return List of all accounts.
+     */
+    public List<Account> getAllAccounts(Set<AccountField> fields) {
+        return accountDAO.getAllAccounts(fields);
+    }
+
+    /**
+     * Streams every account to the callback without its password. The
+     * Account passed to the callback is reused between rows.
+     * 
+     * @return The number of accounts exported.
+     */
+    public long exportAccounts(RowCallback<Account> callback) throws SQLException, IOException {
+        return accountDAO.exportAccounts(callback);
+    }
+
     /**
      * Checks if a user with the given username already exists.
      * 
@@ -34,17 +77,48 @@ public class AccountService {
 
     /**
      * Creates an account. If the username already exists, it returns null.
+     * Only a hash of the password is stored.
      * 
      * @param account The account object to create.
-     * @return The created account or null if it couldn't be created.
+     * @return The created account, still holding the submitted password, or null if it couldn't be created.
      */
     public Account createAccount(Account account) {
         if (!checkIfUserExists(account.getUsername())) {
-            return accountDAO.saveAccount(account);
+            Account saved = accountDAO.saveAccount(
+                    new Account(account.getUsername(), passwords.hash(account.getPassword())));
+            if (saved == null) {
+                return null;
+            }
+            account.setAccount_id(saved.getAccount_id());
+            return account;
         }
         return null; // User with the same username already exists
     }
 
+    /**
+     * Checks a username and password. A row still holding a plaintext or
+     * outdated hash is rehashed once the password has been verified.
+     * 
+     * @param username The username to log in as.
+     * @param password The submitted password.
+     * @return The stored account if the password matches, null otherwise.
+     */
+    public Account authenticate(String username, String password) {
+        Account account = accountDAO.getAccountByUsername(username);
+        if (account == null) {
+            passwords.matchNothing(password);
+            return null;
+        }
+        if (!passwords.matches(password, account.getPassword())) {
+            return null;
+        }
+        if (passwords.needsRehash(account.getPassword())) {
+            account.setPassword(passwords.hash(password));
+            accountDAO.updateAccount(account);
+        }
+        return account;
+    }
+
     /**
      * Fetches an account based on the username.
      * 
@@ -65,5 +139,52 @@ public class AccountService {
         return accountDAO.getAccountById(id);
     }
 
+    /**
+     * Fetches many accounts, without their passwords, through the same
+     * cache as {@link #getAuthors}. Every public field is read, so the
+     * caller narrows the accounts to the fields it was asked for.
+     * 
+     * @param ids The IDs of the accounts, in any order.
+     * @return The accounts that exist, in ID order.
+     */
+    public List<Account> getAccountsByIds(int[] ids) {
+        List<Account> accounts = new ArrayList<>(getAuthors(ids).values());
+        accounts.sort(Comparator.comparingInt(Account::getAccount_id));
+        return accounts;
+    }
+
+    /**
+     * Looks up the authors of messages, without their passwords. Authors
+     * seen before are answered from memory; the rest are fetched together
+     * in one query.
+     * 
+     * @param ids The account IDs; duplicates are allowed.
+     * @return The accounts found, by ID.
+     */
+    public Map<Integer, Account> getAuthors(int[] ids) {
+        Map<Integer, Account> found = new HashMap<>();
+        int[] misses = new int[ids.length];
+        int missCount = 0;
+        for (int id : ids) {
+            Account author = authors.get(id);
+            if (author != null) {
+                found.put(id, author);
+            } else if (!found.containsKey(id)) {
+                found.put(id, null);
+                misses[missCount++] = id;
+            }
+        }
+        if (missCount > 0) {
+            for (Account author : accountDAO.getAccountsByIds(Arrays.copyOf(misses, missCount))) {
+                found.put(author.getAccount_id(), author);
+                if (authors.size() < MAX_CACHED_AUTHORS) {
+                    authors.put(author.getAccount_id(), author);
+                }
+            }
+        }
+        found.values().removeIf(Objects::isNull);
+        return found;
+    }
+
     // ... other methods that might include business logic, validation, etc.
 }
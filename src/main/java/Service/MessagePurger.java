@@ -0,0 +1,175 @@
+package Service;
+
+import DAO.MessageDAO;
+import Events.MessageEventType;
+import Events.MessagePublisher;
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+import Model.Message;
+
+import java.sql.SQLException;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Physically removes deleted messages in the background. Deleting a message
+ * only sets its tombstone; this thread later deletes the rows in batches,
+ * pausing between them so it never holds the database for long, and only
+ * inside the configured off-peak window.
+ *
+ * <p>It is told about deletions as a {@link MessagePublisher}, so the
+ * backlog gauge stays current between passes. Each pass recounts it.
+ */
+public class MessagePurger implements MessagePublisher, MetricsRegistry.Collector {
+
+    private static final AsyncLogger log = AsyncLog.getLogger(MessagePurger.class);
+
+    private final MessageDAO messageDAO;
+    private final int batchSize;
+    private final long pauseNanos;
+    private final long graceMillis;
+    private final long intervalNanos;
+    // Both null when purging may run at any time.
+    private final LocalTime windowStart;
+    private final LocalTime windowEnd;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private final AtomicLong backlog = new AtomicLong();
+    private final LongAdder purged = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param batchSize      rows removed per statement.
+     * @param pauseMillis    pause between batches within a pass.
+     * @param graceMillis    how long a tombstone is kept before it may be purged.
+     * @param intervalMillis time between passes.
+     * @param window         {@code HH:mm-HH:mm} in UTC, which may wrap past
+     *                       midnight, or null or empty for any time.
+     */
+    public MessagePurger(MessageDAO messageDAO, int batchSize, long pauseMillis, long graceMillis,
+                         long intervalMillis, String window) {
+        this.messageDAO = messageDAO;
+        this.batchSize = batchSize;
+        this.pauseNanos = TimeUnit.MILLISECONDS.toNanos(pauseMillis);
+        this.graceMillis = graceMillis;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        if (window == null || window.isEmpty()) {
+            this.windowStart = null;
+            this.windowEnd = null;
+        } else {
+            int dash = window.indexOf('-');
+            if (dash < 0) {
+                throw new IllegalArgumentException("Purge window must be HH:mm-HH:mm: " + window);
+            }
+            this.windowStart = LocalTime.parse(window.substring(0, dash).trim());
+            this.windowEnd = LocalTime.parse(window.substring(dash + 1).trim());
+        }
+        this.worker = new Thread(this::runLoop, "message-purger");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Reads {@code socialmedia.purge.batchSize} (default 500),
+     * {@code socialmedia.purge.pauseMillis} (default 50),
+     * {@code socialmedia.purge.graceMillis} (default 60000),
+     * {@code socialmedia.purge.intervalMillis} (default 60000) and
+     * {@code socialmedia.purge.window} (default empty, any time).
+     */
+    public static MessagePurger fromSystemProperties(MessageDAO messageDAO) {
+        return new MessagePurger(messageDAO,
+                Integer.getInteger("socialmedia.purge.batchSize", 500),
+                Long.getLong("socialmedia.purge.pauseMillis", 50),
+                Long.getLong("socialmedia.purge.graceMillis", 60000),
+                Long.getLong("socialmedia.purge.intervalMillis", 60000),
+                System.getProperty("socialmedia.purge.window", ""));
+    }
+
+    @Override
+    public void publish(MessageEventType type, Message message) {
+        if (type == MessageEventType.DELETED) {
+            backlog.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return whether now falls in [start, end), wrapping past midnight
+     *         when end is before start.
+     */
+    static boolean inWindow(LocalTime now, LocalTime start, LocalTime end) {
+        if (start == null) {
+            return true;
+        }
+        return start.isBefore(end) ? !now.isBefore(start) && now.isBefore(end)
+                : !now.isBefore(start) || now.isBefore(end);
+    }
+
+    private boolean inWindow() {
+        return inWindow(LocalTime.now(ZoneOffset.UTC), windowStart, windowEnd);
+    }
+
+    /**
+     * Purges batches until the eligible tombstones are gone, the window
+     * closes or the purger is closed.
+     *
+     * @return the number of messages removed.
+     */
+    long purge() throws SQLException {
+        long total = 0;
+        while (running && inWindow()) {
+            int removed = messageDAO.purgeDeleted(System.currentTimeMillis() - graceMillis, batchSize);
+            total += removed;
+            purged.add(removed);
+            batches.increment();
+            backlog.addAndGet(-removed);
+            if (removed < batchSize) {
+                break;
+            }
+            LockSupport.parkNanos(this, pauseNanos);
+        }
+        backlog.set(messageDAO.countDeleted());
+        return total;
+    }
+
+    private void runLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, intervalNanos);
+            if (!running) {
+                break;
+            }
+            try {
+                long removed = purge();
+                if (removed > 0) {
+                    log.info("Purged deleted messages", "messages", removed, "backlog", backlog.get());
+                }
+            } catch (Exception e) {
+                failures.increment();
+                log.warn("Purge failed", e);
+            }
+        }
+    }
+
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("purge_messages_total", "counter", "Deleted messages physically removed by the purger.");
+        out.sample("purge_messages_total", purged.sum());
+        out.family("purge_batches_total", "counter", "Purge statements run.");
+        out.sample("purge_batches_total", batches.sum());
+        out.family("purge_backlog", "gauge", "Deleted messages waiting to be purged.");
+        out.sample("purge_backlog", Math.max(backlog.get(), 0));
+        out.family("purge_failures_total", "counter", "Purge passes that failed.");
+        out.sample("purge_failures_total", failures.sum());
+    }
+}
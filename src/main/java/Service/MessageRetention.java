@@ -0,0 +1,113 @@
+package Service;
+
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Removes messages older than a number of whole months. With monthly
+ * partitions each run drops the expired tables; without them it is one
+ * range DELETE.
+ */
+public class MessageRetention implements MetricsRegistry.Collector {
+
+    private static final AsyncLogger log = AsyncLog.getLogger(MessageRetention.class);
+
+    private final MessageService messageService;
+    private final int months;
+    private final long checkNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param months      how many months to keep, counting the current one;
+     *                    0 keeps everything and starts no thread.
+     * @param checkMillis time between runs. The first run is at startup.
+     */
+    public MessageRetention(MessageService messageService, int months, long checkMillis) {
+        this.messageService = messageService;
+        this.months = months;
+        this.checkNanos = TimeUnit.MILLISECONDS.toNanos(checkMillis);
+        if (months > 0) {
+            this.worker = new Thread(this::runLoop, "message-retention");
+            this.worker.setDaemon(true);
+            this.worker.start();
+        } else {
+            this.worker = null;
+        }
+    }
+
+    /**
+     * Reads {@code socialmedia.retention.months} (default 0, keep
+     * everything) and {@code socialmedia.retention.checkMillis} (default
+     * 3600000).
+     */
+    public static MessageRetention fromSystemProperties(MessageService messageService) {
+        return new MessageRetention(messageService,
+                Integer.getInteger("socialmedia.retention.months", 0),
+                Long.getLong("socialmedia.retention.checkMillis", 3600000));
+    }
+
+    /**
+     * @return the first second kept when keeping the given number of months
+     *         up to and including the current one.
+     */
+    static long cutoff(YearMonth current, int months) {
+        return current.minusMonths(months - 1).atDay(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+    }
+
+    /**
+     * Removes the expired messages now.
+     *
+     * @return the number of messages removed.
+     */
+    public long runOnce() throws Exception {
+        long cutoff = cutoff(YearMonth.now(ZoneOffset.UTC), months);
+        long removed = messageService.dropMessagesBefore(cutoff);
+        runs.increment();
+        dropped.add(removed);
+        if (removed > 0) {
+            log.info("Retention removed messages", "before", cutoff, "messages", removed);
+        }
+        return removed;
+    }
+
+    private void runLoop() {
+        while (running) {
+            try {
+                runOnce();
+            } catch (Exception e) {
+                failures.increment();
+                log.warn("Retention run failed", e);
+            }
+            LockSupport.parkNanos(this, checkNanos);
+        }
+    }
+
+    public void close() {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("retention_runs_total", "counter", "Completed retention runs.");
+        out.sample("retention_runs_total", runs.sum());
+        out.family("retention_messages_dropped_total", "counter", "Messages removed by retention.");
+        out.sample("retention_messages_dropped_total", dropped.sum());
+        out.family("retention_failures_total", "counter", "Retention runs that failed.");
+        out.sample("retention_failures_total", failures.sum());
+    }
+}
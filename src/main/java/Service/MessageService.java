@@ -2,23 +2,68 @@ package Service;
 
 import Model.Message;
 import DAO.MessageDAO;
-
+import DAO.MessageField;
+import DAO.RowCallback;
+import Events.MessageEventType;
+import Events.MessagePublisher;
+import Tracing.Span;
+import Tracing.Tracer;
+
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Set;
 
 public class MessageService {
 
+    /**
+     * Longest message_text accepted on create and update.
+     */
+    public static final int MAX_MESSAGE_TEXT_LENGTH = 254;
+
+    /**
+     * Latest time_posted_epoch accepted, the last second of 9999 (UTC). With
+     * the earliest being 0, this also turns away epochs sent in milliseconds,
+     * and keeps every month's partition name six digits long.
+     */
+    public static final long MAX_TIME_POSTED_EPOCH = 253402300799L;
+
     private final MessageDAO messageDAO;
+    private final MessagePublisher publisher;
 
     public MessageService(MessageDAO messageDAO) {
+        this(messageDAO, MessagePublisher.NONE);
+    }
+
+    /**
+     * @param publisher told about every message created, updated or deleted here.
+     */
+    public MessageService(MessageDAO messageDAO, MessagePublisher publisher) {
         this.messageDAO = messageDAO;
+        this.publisher = publisher;
     }
 
     public List<Message> getAllMessages() {
         return messageDAO.getAllMessages();
     }
 
-    public List<Message> getAllMessagesForUser(int accountId) {
-        return messageDAO.getMessagesByUser(accountId);
+    /**
+     * As {@link #getAllMessages()}, but a failed read is thrown rather than
+     * answered with an empty list.
+     */
+    public List<Message> loadAllMessages() throws SQLException {
+        return messageDAO.loadAllMessages();
+    }
+
+    /**
+     * As {@link #getAllMessages()}, reading only the given fields.
+     */
+    public List<Message> getAllMessages(Set<MessageField> fields) {
+        return messageDAO.getAllMessages(fields);
+    }
+
+    public List<Message> getAllMessagesForUser(int accountId, Set<MessageField> fields) {
+        return messageDAO.getMessagesByUser(accountId, fields);
     }
 
     /**
@@ -31,6 +76,24 @@ public class MessageService {
         return messageDAO.getMessageById(messageId);
     }
 
+    /**
+     * As {@link #getMessageById(int)}, reading only the given fields.
+     */
+    public Message getMessageById(int messageId, Set<MessageField> fields) {
+        return messageDAO.getMessageById(messageId, fields);
+    }
+
+    /**
+     * Retrieve many messages by their IDs in one lookup.
+     *
+     * @param messageIds - The IDs, in any order.
+     * @param fields - The fields to read; message_id is always read.
+     * @return - The messages that exist, in ID order.
+     */
+    public List<Message> getMessagesByIds(int[] messageIds, Set<MessageField> fields) {
+        return messageDAO.getMessagesByIds(messageIds, fields);
+    }
+
     /**
      * Retrieve all messages by a specific user.
      * 
@@ -41,14 +104,62 @@ public class MessageService {
         return messageDAO.getMessagesByUser(postedBy);
     }
 
+    /**
+     * Retrieve one page of messages posted in [sinceEpoch, untilEpoch),
+     * oldest first.
+     *
+     * @param afterMessageId - Skips messages posted at sinceEpoch with an id up to this one.
+     * @param limit - The page size.
+     * @param fields - The fields to read; message_id is always read.
+     * @return - List of Message objects.
+     */
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit,
+                                           Set<MessageField> fields) {
+        return messageDAO.getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit, fields);
+    }
+
+    /**
+     * As {@link #getMessagesByTime}, for the messages of one account.
+     */
+    public List<Message> getMessagesForUserByTime(int accountId, long sinceEpoch, long untilEpoch,
+                                                  int afterMessageId, int limit, Set<MessageField> fields) {
+        return messageDAO.getMessagesByUserAndTime(accountId, sinceEpoch, untilEpoch, afterMessageId, limit, fields);
+    }
+
+    /**
+     * Removes every message posted before the start of the given month.
+     * Subscribers are not told about each message removed.
+     *
+     * @param epochSecond - The first second of a month, UTC.
+     * @return - The number of messages removed.
+     */
+    public long dropMessagesBefore(long epochSecond) throws SQLException {
+        return messageDAO.dropMessagesBefore(epochSecond);
+    }
+
+    /**
+     * Streams messages posted in [sinceEpoch, untilEpoch) to the callback.
+     * The Message passed to the callback is reused between rows.
+     * 
+     * @return - The number of messages exported.
+     */
+    public long exportMessages(long sinceEpoch, long untilEpoch, RowCallback<Message> callback)
+            throws SQLException, IOException {
+        return messageDAO.exportMessages(sinceEpoch, untilEpoch, callback);
+    }
+
     public ValidationResult addMessage(Message message) {
-        ValidationResult validationResult = validateMessage(message);
+        ValidationResult validationResult;
+        try (Span span = Tracer.span("MessageService.validate")) {
+            validationResult = validateMessage(message);
+        }
         if (!validationResult.isValid()) {
             return validationResult;
         }
 
         boolean added = messageDAO.insertMessage(message);
         if (added) {
+            publisher.publish(MessageEventType.CREATED, message);
             return ValidationResult.valid();
         } else {
             return ValidationResult.error("Failed to post message");
@@ -59,8 +170,10 @@ public class MessageService {
         String text = message.getMessage_text();
         if (isNullOrBlank(text)) {
             return ValidationResult.error("Message text cannot be blank");
-        } else if (text.length() > 254) {
+        } else if (text.length() > MAX_MESSAGE_TEXT_LENGTH) {
             return ValidationResult.error("Message text exceeds 254 characters");
+        } else if (message.getTime_posted_epoch() < 0 || message.getTime_posted_epoch() > MAX_TIME_POSTED_EPOCH) {
+            return ValidationResult.error("Message time is out of range");
         } else if (!messageDAO.doesUserExist(message.getPosted_by())) {
             return ValidationResult.error("User not found in the database");
         }
@@ -70,29 +183,58 @@ public class MessageService {
 
     public ValidationResult updateMessageText(int messageId, String newText) {
         // Validate the new text
-        if (isNullOrBlank(newText)) {
-            return ValidationResult.error("Message text cannot be blank");
-        } else if (newText.length() > 254) {
-            return ValidationResult.error("Message text exceeds 254 characters");
-        } else if (messageDAO.getMessageById(messageId) == null) {
-            return ValidationResult.error("Message not found");
+        ValidationResult validationResult;
+        Message existing;
+        try (Span span = Tracer.span("MessageService.validate")) {
+            existing = messageDAO.getMessageById(messageId);
+            validationResult = validateUpdate(existing, newText);
+        }
+        if (!validationResult.isValid()) {
+            return validationResult;
         }
 
         // Update the message text
         boolean wasUpdated = messageDAO.updateMessageText(messageId, newText);
         if (wasUpdated) {
+            publisher.publish(MessageEventType.UPDATED, new Message(existing.getMessage_id(),
+                    existing.getPosted_by(), newText, existing.getTime_posted_epoch()));
             return ValidationResult.success("Message updated successfully");
         } else {
             return ValidationResult.error("Failed to update the message");
         }
     }
 
+    private ValidationResult validateUpdate(Message existing, String newText) {
+        if (isNullOrBlank(newText)) {
+            return ValidationResult.error("Message text cannot be blank");
+        } else if (newText.length() > MAX_MESSAGE_TEXT_LENGTH) {
+            return ValidationResult.error("Message text exceeds 254 characters");
+        } else if (existing == null) {
+            return ValidationResult.error("Message not found");
+        }
+
+        return ValidationResult.valid();
+    }
+
     private boolean isNullOrBlank(String value) {
         return value == null || value.trim().isEmpty();
     }
 
     public boolean deleteMessageById(int messageId) {
-        return messageDAO.deleteMessageById(messageId);
+        // Read first so that subscribers filtering by author can be told.
+        Message message = messageDAO.getMessageById(messageId);
+        return message != null && deleteMessage(message);
+    }
+
+    /**
+     * Deletes a message the caller has already read, saving a second lookup.
+     */
+    public boolean deleteMessage(Message message) {
+        boolean deleted = messageDAO.deleteMessageById(message.getMessage_id());
+        if (deleted) {
+            publisher.publish(MessageEventType.DELETED, message);
+        }
+        return deleted;
     }
 
 }
@@ -0,0 +1,234 @@
+package Snapshot;
+
+import DAO.MessageDAO;
+import Events.MessageEventType;
+import Events.MessagePublisher;
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+import Model.Message;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps every message in a {@link MessageSnapshot} so that GET /messages is
+ * served without a query. Readers take {@link #current()} and never lock;
+ * changes made through {@code MessageService} build a new snapshot which
+ * replaces the old one with a single reference swap.
+ *
+ * <p>With a staleness bound of zero each change is applied on the request
+ * thread before it returns. Otherwise changes are queued and applied in
+ * batches by a background thread at least that often, so a burst of posts
+ * costs one swap rather than one each. Changes made outside the service,
+ * such as imports and retention, are picked up by reloading from the
+ * database every {@code reloadMillis}.
+ */
+public class GlobalTimeline implements MessagePublisher, MetricsRegistry.Collector {
+
+    private static final AsyncLogger log = AsyncLog.getLogger(GlobalTimeline.class);
+
+    private static final class Change {
+        final MessageEventType type;
+        final Message message;
+
+        Change(MessageEventType type, Message message) {
+            this.type = type;
+            this.message = message;
+        }
+    }
+
+    private final MessageDAO messageDAO;
+    private final AtomicReference<MessageSnapshot> current = new AtomicReference<>();
+    private final long stalenessNanos;
+    private final boolean offHeap;
+    private final long reloadNanos;
+    private final ConcurrentLinkedQueue<Change> pending = new ConcurrentLinkedQueue<>();
+    // Writers serialise on this so each builds on the snapshot before it.
+    private final Object writeLock = new Object();
+    // Changes seen while a reload is reading, replayed onto its result.
+    private List<Change> replay;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile long publishedNanos = System.nanoTime();
+    private final LongAdder swaps = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Loads every message before returning.
+     *
+     * @param maxStalenessMillis longest a change may go unseen by readers;
+     *                           0 applies each change before publish returns.
+     * @param reloadMillis       time between reloads from the database; 0 disables them.
+     * @param offHeap            keep message texts in direct buffers.
+     */
+    public GlobalTimeline(MessageDAO messageDAO, long maxStalenessMillis, long reloadMillis, boolean offHeap) {
+        this.messageDAO = messageDAO;
+        this.offHeap = offHeap;
+        this.current.set(MessageSnapshot.empty());
+        this.stalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+        this.reloadNanos = TimeUnit.MILLISECONDS.toNanos(reloadMillis);
+        reload();
+        if (stalenessNanos > 0 || reloadNanos > 0) {
+            this.writer = new Thread(this::writeLoop, "message-snapshot");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    /**
+     * Reads {@code socialmedia.snapshot.maxStalenessMillis} (default 0),
+     * {@code socialmedia.snapshot.reloadMillis} (default 60000) and
+     * {@code socialmedia.snapshot.offHeap}.
+     */
+    public static GlobalTimeline fromSystemProperties(MessageDAO messageDAO) {
+        return new GlobalTimeline(messageDAO,
+                Long.getLong("socialmedia.snapshot.maxStalenessMillis", 0),
+                Long.getLong("socialmedia.snapshot.reloadMillis", 60000),
+                Boolean.getBoolean("socialmedia.snapshot.offHeap"));
+    }
+
+    /**
+     * @return the latest published snapshot. It never changes, so a caller
+     *         can read it as often as it likes and see one consistent view.
+     */
+    public MessageSnapshot current() {
+        return current.get();
+    }
+
+    @Override
+    public void publish(MessageEventType type, Message message) {
+        Change change = new Change(type, message);
+        if (stalenessNanos > 0) {
+            pending.add(change);
+            return;
+        }
+        synchronized (writeLock) {
+            swap(apply(current.get(), change));
+        }
+    }
+
+    private MessageSnapshot apply(MessageSnapshot snapshot, Change change) {
+        if (replay != null) {
+            replay.add(change);
+        }
+        switch (change.type) {
+            case CREATED:
+                return snapshot.upsert(change.message);
+            case UPDATED:
+                return snapshot.replace(change.message);
+            case DELETED:
+                return snapshot.remove(change.message.getMessage_id());
+            default:
+                return snapshot;
+        }
+    }
+
+    private void swap(MessageSnapshot next) {
+        if (next != current.get()) {
+            current.set(next);
+            swaps.increment();
+        }
+        publishedNanos = System.nanoTime();
+    }
+
+    /**
+     * Applies every queued change and publishes the result as one snapshot.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            MessageSnapshot snapshot = current.get();
+            Change change;
+            while ((change = pending.poll()) != null) {
+                snapshot = apply(snapshot, change);
+            }
+            swap(snapshot);
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the contents of the database. Changes
+     * published while the query runs are applied again on top of its
+     * result; applying a change twice has the same effect as once. If the
+     * query fails, the current snapshot is kept.
+     */
+    public void reload() {
+        synchronized (writeLock) {
+            replay = new ArrayList<>();
+        }
+        List<Message> messages;
+        try {
+            messages = messageDAO.loadAllMessages();
+        } catch (SQLException | RuntimeException e) {
+            synchronized (writeLock) {
+                replay = null;
+            }
+            failures.increment();
+            log.warn("Could not reload the message snapshot", e);
+            return;
+        }
+        MessageSnapshot loaded = MessageSnapshot.of(messages, offHeap);
+        synchronized (writeLock) {
+            List<Change> seen = replay;
+            replay = null;
+            for (Change change : seen) {
+                loaded = apply(loaded, change);
+            }
+            swap(loaded);
+        }
+        reloads.increment();
+    }
+
+    private void writeLoop() {
+        long nextReload = System.nanoTime() + reloadNanos;
+        while (running) {
+            long untilReload = reloadNanos > 0 ? nextReload - System.nanoTime() : Long.MAX_VALUE;
+            LockSupport.parkNanos(this, stalenessNanos > 0 ? Math.min(stalenessNanos, untilReload) : untilReload);
+            if (!running) {
+                return;
+            }
+            flush();
+            if (reloadNanos > 0 && System.nanoTime() - nextReload >= 0) {
+                reload();
+                nextReload = System.nanoTime() + reloadNanos;
+            }
+        }
+    }
+
+    public void close() {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("snapshot_messages", "gauge", "Messages in the published timeline snapshot.");
+        out.sample("snapshot_messages", current.get().size());
+        out.family("snapshot_text_bytes", "gauge", "UTF-8 message text held by the timeline snapshot.");
+        out.sample("snapshot_text_bytes", current.get().textBytes());
+        out.family("snapshot_offheap_text_bytes", "gauge", "Snapshot message text held in direct buffers.");
+        out.sample("snapshot_offheap_text_bytes", current.get().directTextBytes());
+        out.family("snapshot_pending_changes", "gauge", "Changes queued but not yet in the published snapshot.");
+        out.sample("snapshot_pending_changes", pending.size());
+        out.family("snapshot_age_seconds", "gauge", "Time since the timeline snapshot was last published.");
+        out.sample("snapshot_age_seconds", (System.nanoTime() - publishedNanos) / 1e9);
+        out.family("snapshot_swaps_total", "counter", "Timeline snapshots published.");
+        out.sample("snapshot_swaps_total", swaps.sum());
+        out.family("snapshot_reloads_total", "counter", "Times the timeline snapshot was rebuilt from the database.");
+        out.sample("snapshot_reloads_total", reloads.sum());
+        out.family("snapshot_reload_failures_total", "counter", "Reloads abandoned because the database query failed.");
+        out.sample("snapshot_reload_failures_total", failures.sum());
+    }
+}
@@ -0,0 +1,280 @@
+package Snapshot;
+
+import Model.Message;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An immutable run of messages in ascending id order, stored as one
+ * primitive array per column. The texts are UTF-8 in a single arena, with
+ * message i at bytes [offsets[i], offsets[i + 1]). Every change returns a
+ * new chunk; a published chunk is never written again.
+ */
+final class MessageChunk {
+
+    final int[] ids;
+    final int[] postedBy;
+    final long[] times;
+    private final int[] offsets;
+    private final ByteBuffer text;
+    // The arena's backing array, or null when it is off the heap.
+    private final byte[] heap;
+
+    private MessageChunk(int[] ids, int[] postedBy, long[] times, int[] offsets, ByteBuffer text) {
+        this.ids = ids;
+        this.postedBy = postedBy;
+        this.times = times;
+        this.offsets = offsets;
+        this.text = text;
+        this.heap = text.hasArray() ? text.array() : null;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    int firstId() {
+        return ids[0];
+    }
+
+    boolean isDirect() {
+        return text.isDirect();
+    }
+
+    /**
+     * @return the bytes held by the text arena.
+     */
+    int textBytes() {
+        return text.capacity();
+    }
+
+    /**
+     * @return as {@link Arrays#binarySearch(int[], int)}.
+     */
+    int indexOf(int messageId) {
+        return Arrays.binarySearch(ids, messageId);
+    }
+
+    /**
+     * @return a new Message for the element; the chunk keeps no reference to it.
+     */
+    Message get(int index) {
+        return new Message(ids[index], postedBy[index], text(index), times[index]);
+    }
+
+    String text(int index) {
+        int from = offsets[index];
+        int length = offsets[index + 1] - from;
+        if (heap != null) {
+            return new String(heap, from, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        text.duplicate().position(from).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Searches the UTF-8 bytes of one text without decoding it. ASCII
+     * letters match either case; other characters must match exactly.
+     *
+     * @param needle UTF-8 with ASCII letters in lower case.
+     */
+    boolean textContains(int index, byte[] needle) {
+        if (needle.length == 0) {
+            return true;
+        }
+        int from = offsets[index];
+        int last = offsets[index + 1] - needle.length;
+        if (heap != null) {
+            return contains(heap, from, last, needle);
+        }
+        for (int start = from; start <= last; start++) {
+            int i = 0;
+            while (i < needle.length && lower(text.get(start + i)) == needle[i]) {
+                i++;
+            }
+            if (i == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(byte[] bytes, int from, int last, byte[] needle) {
+        byte first = needle[0];
+        // The byte that lower() maps to the first needle byte, when there is one.
+        byte firstUpper = first >= 'a' && first <= 'z' ? (byte) (first - ('a' - 'A')) : first;
+        for (int start = from; start <= last; start++) {
+            byte b = bytes[start];
+            if (b != first && b != firstUpper) {
+                continue;
+            }
+            int i = 1;
+            while (i < needle.length && lower(bytes[start + i]) == needle[i]) {
+                i++;
+            }
+            if (i == needle.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the length of one text in UTF-8 bytes, which is never less
+     *         than its length in UTF-16 units.
+     */
+    int textByteLength(int index) {
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * @return the length of one text in UTF-16 units, as String.length()
+     *         would report it, counted from the UTF-8 bytes.
+     */
+    int textLength(int index) {
+        int length = 0;
+        for (int pos = offsets[index], end = offsets[index + 1]; pos < end; pos++) {
+            int b = byteAt(pos) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                // Four-byte sequences are outside the BMP and need a surrogate pair.
+                length += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return length;
+    }
+
+    private byte byteAt(int pos) {
+        return heap != null ? heap[pos] : text.get(pos);
+    }
+
+    static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    // Copies made by a change stay on the heap whatever the source chunk was:
+    // allocateDirect is slow and its memory is freed only after a GC notices
+    // the buffer, so the direct arenas are built in bulk, on reload.
+
+    MessageChunk inserted(int index, Message message) {
+        Builder builder = new Builder(size() + 1, false);
+        builder.addAll(this, 0, index);
+        builder.add(message);
+        builder.addAll(this, index, size());
+        return builder.build();
+    }
+
+    MessageChunk replaced(int index, Message message) {
+        Builder builder = new Builder(size(), false);
+        builder.addAll(this, 0, index);
+        builder.add(message);
+        builder.addAll(this, index + 1, size());
+        return builder.build();
+    }
+
+    MessageChunk removed(int index) {
+        Builder builder = new Builder(size() - 1, false);
+        builder.addAll(this, 0, index);
+        builder.addAll(this, index + 1, size());
+        return builder.build();
+    }
+
+    /**
+     * @return this chunk's elements [from, to) as a new chunk.
+     */
+    MessageChunk slice(int from, int to) {
+        Builder builder = new Builder(to - from, false);
+        builder.addAll(this, from, to);
+        return builder.build();
+    }
+
+    /**
+     * Collects elements in id order into growable arrays, then copies them
+     * into an exactly sized chunk.
+     */
+    static final class Builder {
+        private final boolean direct;
+        private int[] ids;
+        private int[] postedBy;
+        private long[] times;
+        private int[] offsets;
+        private byte[] text;
+        private int size;
+
+        Builder(int capacity, boolean direct) {
+            this.direct = direct;
+            this.ids = new int[capacity];
+            this.postedBy = new int[capacity];
+            this.times = new long[capacity];
+            this.offsets = new int[capacity + 1];
+            this.text = new byte[capacity * 32];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(Message message) {
+            add(message.getMessage_id(), message.getPosted_by(), message.getMessage_text(),
+                    message.getTime_posted_epoch());
+        }
+
+        void add(int id, int author, String messageText, long time) {
+            byte[] bytes = messageText == null ? new byte[0] : messageText.getBytes(StandardCharsets.UTF_8);
+            int start = reserve(bytes.length);
+            System.arraycopy(bytes, 0, text, start, bytes.length);
+            append(id, author, time, start + bytes.length);
+        }
+
+        void addAll(MessageChunk chunk, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int length = chunk.offsets[i + 1] - chunk.offsets[i];
+                int start = reserve(length);
+                if (chunk.heap != null) {
+                    System.arraycopy(chunk.heap, chunk.offsets[i], text, start, length);
+                } else {
+                    chunk.text.duplicate().position(chunk.offsets[i]).get(text, start, length);
+                }
+                append(chunk.ids[i], chunk.postedBy[i], chunk.times[i], start + length);
+            }
+        }
+
+        private int reserve(int length) {
+            if (size == ids.length) {
+                int capacity = Math.max(8, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                postedBy = Arrays.copyOf(postedBy, capacity);
+                times = Arrays.copyOf(times, capacity);
+                offsets = Arrays.copyOf(offsets, capacity + 1);
+            }
+            int start = offsets[size];
+            if (start + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(start + length, text.length * 2));
+            }
+            return start;
+        }
+
+        private void append(int id, int author, long time, int end) {
+            ids[size] = id;
+            postedBy[size] = author;
+            times[size] = time;
+            offsets[size + 1] = end;
+            size++;
+        }
+
+        MessageChunk build() {
+            int bytes = offsets[size];
+            ByteBuffer arena;
+            if (direct) {
+                arena = ByteBuffer.allocateDirect(bytes);
+                arena.put(text, 0, bytes).flip();
+            } else {
+                arena = ByteBuffer.wrap(Arrays.copyOf(text, bytes));
+            }
+            return new MessageChunk(Arrays.copyOf(ids, size), Arrays.copyOf(postedBy, size),
+                    Arrays.copyOf(times, size), Arrays.copyOf(offsets, size + 1), arena);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package Snapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongPredicate;
+
+/**
+ * A filter over messages, compiled from a small expression language into a
+ * predicate that reads a {@link MessageSnapshot}'s columns directly:
+ *
+ * <pre>
+ * text contains "spam" and (author in (3, 7) or length &gt; 200) and not time &lt; 1669947792
+ * </pre>
+ *
+ * <ul>
+ *   <li>{@code text contains "..."} matches ASCII letters in either case.
+ *       Quotes and backslashes inside the string are escaped with a backslash.</li>
+ *   <li>{@code author in (a, b, ...)} or {@code author = a}.</li>
+ *   <li>{@code time} (time_posted_epoch) and {@code length} (characters of
+ *       message_text) compare with {@code = != < <= > >=}.</li>
+ *   <li>{@code not} binds tighter than {@code and}, which binds tighter than {@code or}.</li>
+ * </ul>
+ */
+public final class MessageFilter {
+
+    /**
+     * Longest expression accepted, so a request cannot build a huge predicate.
+     */
+    public static final int MAX_LENGTH = 2000;
+
+    /**
+     * The compiled form: tests message {@code index} of a chunk.
+     */
+    interface Condition {
+        boolean test(MessageChunk chunk, int index);
+    }
+
+    /**
+     * A compiled comparison with a number. For an ordered one (&lt;, &gt;
+     * and so on) the result can only change once as the operand grows.
+     */
+    private static final class Comparison {
+        final LongPredicate test;
+        final long value;
+        final boolean ordered;
+
+        Comparison(LongPredicate test, long value, boolean ordered) {
+            this.test = test;
+            this.value = value;
+            this.ordered = ordered;
+        }
+    }
+
+    private final String expression;
+    private final Condition condition;
+
+    private MessageFilter(String expression, Condition condition) {
+        this.expression = expression;
+        this.condition = condition;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the expression is not valid; the
+     *                                  message says where and why.
+     */
+    public static MessageFilter parse(String expression) {
+        if (expression.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Filter is longer than " + MAX_LENGTH + " characters");
+        }
+        Parser parser = new Parser(expression);
+        Condition condition = parser.or();
+        if (parser.peek() != null) {
+            throw parser.error("Unexpected '" + parser.peek() + "'");
+        }
+        return new MessageFilter(expression, condition);
+    }
+
+    boolean test(MessageChunk chunk, int index) {
+        return condition.test(chunk, index);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * Recursive descent over the tokens, building conditions as it goes.
+     */
+    private static final class Parser {
+        private final String source;
+        private final List<String> tokens = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+        private int next;
+
+        Parser(String source) {
+            this.source = source;
+            tokenize();
+        }
+
+        private void tokenize() {
+            int i = 0;
+            while (i < source.length()) {
+                char c = source.charAt(i);
+                int start = i;
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                if (c == '"') {
+                    StringBuilder literal = new StringBuilder("\"");
+                    i++;
+                    while (i < source.length() && source.charAt(i) != '"') {
+                        if (source.charAt(i) == '\\' && i + 1 < source.length()) {
+                            i++;
+                        }
+                        literal.append(source.charAt(i++));
+                    }
+                    if (i == source.length()) {
+                        throw new IllegalArgumentException("Unterminated string at " + start);
+                    }
+                    i++;
+                    add(literal.toString(), start);
+                } else if (Character.isLetterOrDigit(c) || c == '_' || c == '-') {
+                    while (i < source.length() && (Character.isLetterOrDigit(source.charAt(i))
+                            || source.charAt(i) == '_' || source.charAt(i) == '-')) {
+                        i++;
+                    }
+                    add(source.substring(start, i).toLowerCase(Locale.ROOT), start);
+                } else if ((c == '<' || c == '>' || c == '!') && i + 1 < source.length() && source.charAt(i + 1) == '=') {
+                    i += 2;
+                    add(source.substring(start, i), start);
+                } else if ("()=<>,".indexOf(c) >= 0) {
+                    i++;
+                    add(String.valueOf(c), start);
+                } else {
+                    throw new IllegalArgumentException("Unexpected '" + c + "' at " + start);
+                }
+            }
+        }
+
+        private void add(String token, int position) {
+            tokens.add(token);
+            positions.add(position);
+        }
+
+        String peek() {
+            return next < tokens.size() ? tokens.get(next) : null;
+        }
+
+        private String take(String what) {
+            String token = peek();
+            if (token == null) {
+                throw error("Expected " + what + " but the filter ended");
+            }
+            next++;
+            return token;
+        }
+
+        private void expect(String token) {
+            String actual = take("'" + token + "'");
+            if (!actual.equals(token)) {
+                next--;
+                throw error("Expected '" + token + "' but found '" + actual + "'");
+            }
+        }
+
+        private boolean accept(String token) {
+            if (token.equals(peek())) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        IllegalArgumentException error(String message) {
+            int position = next < positions.size() ? positions.get(next) : source.length();
+            return new IllegalArgumentException(message + " at " + position);
+        }
+
+        Condition or() {
+            Condition left = and();
+            while (accept("or")) {
+                Condition a = left;
+                Condition b = and();
+                left = (chunk, i) -> a.test(chunk, i) || b.test(chunk, i);
+            }
+            return left;
+        }
+
+        private Condition and() {
+            Condition left = not();
+            while (accept("and")) {
+                Condition a = left;
+                Condition b = not();
+                left = (chunk, i) -> a.test(chunk, i) && b.test(chunk, i);
+            }
+            return left;
+        }
+
+        private Condition not() {
+            if (accept("not")) {
+                Condition inner = not();
+                return (chunk, i) -> !inner.test(chunk, i);
+            }
+            if (accept("(")) {
+                Condition inner = or();
+                expect(")");
+                return inner;
+            }
+            return comparison();
+        }
+
+        private Condition comparison() {
+            String field = take("a field");
+            switch (field) {
+                case "text":
+                    expect("contains");
+                    byte[] needle = string().getBytes(StandardCharsets.UTF_8);
+                    for (int i = 0; i < needle.length; i++) {
+                        needle[i] = MessageChunk.lower(needle[i]);
+                    }
+                    return (chunk, i) -> chunk.textContains(i, needle);
+                case "author":
+                    if (accept("=")) {
+                        int author = (int) number(Integer.MIN_VALUE, Integer.MAX_VALUE);
+                        return (chunk, i) -> chunk.postedBy[i] == author;
+                    }
+                    expect("in");
+                    int[] authors = authors();
+                    return (chunk, i) -> Arrays.binarySearch(authors, chunk.postedBy[i]) >= 0;
+                case "time": {
+                    LongPredicate test = operation().test;
+                    return (chunk, i) -> test.test(chunk.times[i]);
+                }
+                case "length":
+                    return length();
+                default:
+                    next--;
+                    throw error("Unknown field '" + field + "'; expected text, author, time or length");
+            }
+        }
+
+        private int[] authors() {
+            expect("(");
+            List<Integer> ids = new ArrayList<>();
+            do {
+                ids.add((int) number(Integer.MIN_VALUE, Integer.MAX_VALUE));
+            } while (accept(","));
+            expect(")");
+            int[] sorted = ids.stream().mapToInt(Integer::intValue).toArray();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        /**
+         * Reads an operator and a number, and compiles the comparison so the
+         * operator is not looked at again for each message.
+         */
+        private Comparison operation() {
+            String op = take("a comparison");
+            if (!Arrays.asList("=", "!=", "<", "<=", ">", ">=").contains(op)) {
+                next--;
+                throw error("Expected a comparison but found '" + op + "'");
+            }
+            long value = number(Long.MIN_VALUE, Long.MAX_VALUE);
+            switch (op) {
+                case "=":
+                    return new Comparison(v -> v == value, value, false);
+                case "!=":
+                    return new Comparison(v -> v != value, value, false);
+                case "<":
+                    return new Comparison(v -> v < value, value, true);
+                case "<=":
+                    return new Comparison(v -> v <= value, value, true);
+                case ">":
+                    return new Comparison(v -> v > value, value, true);
+                default:
+                    return new Comparison(v -> v >= value, value, true);
+            }
+        }
+
+        /**
+         * A text of n UTF-8 bytes is between ceil(n / 3) and n characters
+         * long, so the characters are only counted when the bounds alone do
+         * not decide the comparison.
+         */
+        private Condition length() {
+            Comparison comparison = operation();
+            LongPredicate test = comparison.test;
+            long value = comparison.value;
+            boolean ordered = comparison.ordered;
+            return (chunk, i) -> {
+                int most = chunk.textByteLength(i);
+                int fewest = (most + 2) / 3;
+                boolean atMost = test.test(most);
+                if (ordered ? atMost == test.test(fewest) : value < fewest || value > most) {
+                    return atMost;
+                }
+                return test.test(chunk.textLength(i));
+            };
+        }
+
+        private String string() {
+            String token = take("a quoted string");
+            if (!token.startsWith("\"")) {
+                next--;
+                throw error("Expected a quoted string but found '" + token + "'");
+            }
+            return token.substring(1);
+        }
+
+        private long number(long min, long max) {
+            String token = take("a number");
+            try {
+                long value = Long.parseLong(token);
+                if (value >= min && value <= max) {
+                    return value;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below.
+            }
+            next--;
+            throw error("Expected a number but found '" + token + "'");
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package Snapshot;
+
+import DAO.RowCallback;
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+import Model.Message;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a {@link MessageFilter} over a {@link MessageSnapshot} on a
+ * fork/join pool. Chunks are independent, so each is scanned by its own
+ * task and the work spreads across every worker.
+ *
+ * <p>The snapshot is scanned in waves of chunks, in id order. A wave's
+ * matches are passed to the caller as soon as it finishes, while the next
+ * wave is already being scanned, and no further wave is started once
+ * {@code limit} matches have been found. Waves start at one chunk per
+ * worker and double up to {@link #MAX_WAVE_PER_WORKER} per worker, so a
+ * query with a small limit stops after little work and a broad one soon
+ * runs in large batches.
+ */
+public class MessageQuery implements MetricsRegistry.Collector {
+
+    static final int MAX_WAVE_PER_WORKER = 16;
+
+    private final ForkJoinPool pool;
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder scanned = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+
+    /**
+     * @param parallelism the number of worker threads.
+     */
+    public MessageQuery(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Reads {@code socialmedia.query.parallelism}, by default the number of processors.
+     */
+    public static MessageQuery fromSystemProperties() {
+        return new MessageQuery(Integer.getInteger("socialmedia.query.parallelism",
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Passes the matching messages to the callback in id order, on the
+     * calling thread.
+     *
+     * @return the number of messages passed, at most {@code limit}.
+     */
+    public long run(MessageSnapshot snapshot, MessageFilter filter, int limit, RowCallback<Message> callback)
+            throws IOException {
+        scans.increment();
+        int chunks = snapshot.chunkCount();
+        int wave = pool.getParallelism();
+        int maxWave = wave * MAX_WAVE_PER_WORKER;
+        int from = 0;
+        int to = Math.min(chunks, wave);
+        ForkJoinTask<int[][]> running = from < to ? submit(snapshot, filter, from, to) : null;
+        long emitted = 0;
+        while (running != null) {
+            int[][] found = running.join();
+            int waveStart = from;
+            long count = 0;
+            for (int[] indexes : found) {
+                count += indexes.length;
+            }
+            scanned.add(snapshot.messagesIn(from, to));
+            // Scan ahead only if this wave cannot satisfy the limit.
+            from = to;
+            wave = Math.min(wave * 2, maxWave);
+            to = Math.min(chunks, from + wave);
+            running = emitted + count < limit && from < to ? submit(snapshot, filter, from, to) : null;
+            for (int c = 0; c < found.length && emitted < limit; c++) {
+                MessageChunk chunk = snapshot.chunk(waveStart + c);
+                for (int i = 0; i < found[c].length && emitted < limit; i++) {
+                    callback.row(chunk.get(found[c][i]));
+                    emitted++;
+                }
+            }
+        }
+        matches.add(emitted);
+        return emitted;
+    }
+
+    /**
+     * Starts scanning chunks [from, to), splitting down to one chunk per task.
+     */
+    private ForkJoinTask<int[][]> submit(MessageSnapshot snapshot, MessageFilter filter, int from, int to) {
+        int[][] found = new int[to - from][];
+        return pool.submit(() -> {
+            new ScanRange(snapshot, filter, from, from, to, found).invoke();
+            return found;
+        });
+    }
+
+    private static final class ScanRange extends RecursiveAction {
+        private final MessageSnapshot snapshot;
+        private final MessageFilter filter;
+        private final int base;
+        private final int from;
+        private final int to;
+        private final int[][] found;
+
+        ScanRange(MessageSnapshot snapshot, MessageFilter filter, int base, int from, int to, int[][] found) {
+            this.snapshot = snapshot;
+            this.filter = filter;
+            this.base = base;
+            this.from = from;
+            this.to = to;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                found[from - base] = scan(snapshot.chunk(from));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScanRange(snapshot, filter, base, from, mid, found),
+                    new ScanRange(snapshot, filter, base, mid, to, found));
+        }
+
+        private int[] scan(MessageChunk chunk) {
+            int[] hits = new int[chunk.size()];
+            int count = 0;
+            for (int i = 0; i < chunk.size(); i++) {
+                if (filter.test(chunk, i)) {
+                    hits[count++] = i;
+                }
+            }
+            return Arrays.copyOf(hits, count);
+        }
+    }
+
+    public void close() {
+        pool.shutdown();
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("query_scans_total", "counter", "Filter queries run over the message snapshot.");
+        out.sample("query_scans_total", scans.sum());
+        out.family("query_messages_scanned_total", "counter", "Messages tested against query filters.");
+        out.sample("query_messages_scanned_total", scanned.sum());
+        out.family("query_matches_total", "counter", "Messages returned by filter queries.");
+        out.sample("query_matches_total", matches.sum());
+    }
+}
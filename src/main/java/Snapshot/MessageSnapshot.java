@@ -0,0 +1,276 @@
+package Snapshot;
+
+import Model.Message;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable view of every message, in ascending id order. Messages are
+ * held column-wise in chunks of a few hundred: primitive arrays for the ids,
+ * authors and times and one UTF-8 arena for the texts, which may be off the
+ * heap. A change copies one chunk and the array of chunk references rather
+ * than the whole timeline; unchanged chunks are shared between snapshots.
+ *
+ * <p>No {@link Message} objects are kept. {@link #messages()} creates them
+ * one at a time as the caller reads, normally while serializing.
+ */
+public final class MessageSnapshot {
+
+    /**
+     * Chunks are split in two when they grow past twice this size.
+     */
+    static final int CHUNK_SIZE = 512;
+
+    private final MessageChunk[] chunks;
+    // starts[c] is the position of chunks[c]'s first message in the timeline.
+    private final int[] starts;
+    private final int size;
+
+    private MessageSnapshot(MessageChunk[] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+        this.starts = new int[chunks.length];
+        for (int c = 1; c < chunks.length; c++) {
+            starts[c] = starts[c - 1] + chunks[c - 1].size();
+        }
+    }
+
+    static MessageSnapshot empty() {
+        return new MessageSnapshot(new MessageChunk[0], 0);
+    }
+
+    /**
+     * @param messages sorted by id, as {@code getAllMessages} returns them.
+     * @param offHeap  keep the texts in direct buffers. Chunks copied by
+     *                 later changes are kept on the heap.
+     */
+    public static MessageSnapshot of(List<Message> messages, boolean offHeap) {
+        Builder builder = new Builder(offHeap);
+        for (Message message : messages) {
+            builder.add(message.getMessage_id(), message.getPosted_by(), message.getMessage_text(),
+                    message.getTime_posted_epoch());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builds a snapshot from messages supplied one at a time in ascending id
+     * order, without holding them as objects.
+     */
+    public static final class Builder {
+        private final boolean offHeap;
+        private final List<MessageChunk> chunks = new ArrayList<>();
+        private MessageChunk.Builder current;
+        private int size;
+
+        public Builder(boolean offHeap) {
+            this.offHeap = offHeap;
+        }
+
+        public Builder add(int messageId, int postedBy, String messageText, long timePostedEpoch) {
+            if (current == null) {
+                current = new MessageChunk.Builder(CHUNK_SIZE, offHeap);
+            }
+            current.add(messageId, postedBy, messageText, timePostedEpoch);
+            size++;
+            if (current.size() == CHUNK_SIZE) {
+                chunks.add(current.build());
+                current = null;
+            }
+            return this;
+        }
+
+        public MessageSnapshot build() {
+            if (current != null) {
+                chunks.add(current.build());
+                current = null;
+            }
+            return new MessageSnapshot(chunks.toArray(new MessageChunk[0]), size);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    int chunkCount() {
+        return chunks.length;
+    }
+
+    MessageChunk chunk(int c) {
+        return chunks[c];
+    }
+
+    /**
+     * @return the number of messages in chunks [from, to).
+     */
+    int messagesIn(int from, int to) {
+        return (to < chunks.length ? starts[to] : size) - starts[from];
+    }
+
+    /**
+     * @return the bytes of message text held, on or off the heap.
+     */
+    public long textBytes() {
+        long bytes = 0;
+        for (MessageChunk chunk : chunks) {
+            bytes += chunk.textBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the part of {@link #textBytes()} held in direct buffers.
+     */
+    public long directTextBytes() {
+        long bytes = 0;
+        for (MessageChunk chunk : chunks) {
+            if (chunk.isDirect()) {
+                bytes += chunk.textBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the message, or null if it is not in this snapshot.
+     */
+    public Message get(int messageId) {
+        if (chunks.length == 0) {
+            return null;
+        }
+        MessageChunk chunk = chunks[chunkFor(messageId)];
+        int index = chunk.indexOf(messageId);
+        return index >= 0 ? chunk.get(index) : null;
+    }
+
+    /**
+     * @return the distinct authors, ascending, read from the posted_by
+     *         columns without creating any Message.
+     */
+    public int[] authorIds() {
+        BitSet authors = new BitSet();
+        for (MessageChunk chunk : chunks) {
+            for (int i = 0; i < chunk.size(); i++) {
+                authors.set(chunk.postedBy[i]);
+            }
+        }
+        return authors.stream().toArray();
+    }
+
+    /**
+     * @return every message in id order. Each {@code get} creates a new
+     *         Message, so callers should read each element once.
+     */
+    public List<Message> messages() {
+        return new View();
+    }
+
+    private final class View extends AbstractList<Message> implements RandomAccess {
+        @Override
+        public Message get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            int c = Arrays.binarySearch(starts, index);
+            if (c < 0) {
+                c = -c - 2;
+            }
+            return chunks[c].get(index - starts[c]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * @return a snapshot with the message added, or replaced if its id is present.
+     */
+    MessageSnapshot upsert(Message message) {
+        if (chunks.length == 0) {
+            return new Builder(false).add(message.getMessage_id(), message.getPosted_by(),
+                    message.getMessage_text(), message.getTime_posted_epoch()).build();
+        }
+        int c = chunkFor(message.getMessage_id());
+        MessageChunk chunk = chunks[c];
+        int index = chunk.indexOf(message.getMessage_id());
+        if (index >= 0) {
+            return withChunk(c, chunk.replaced(index, message), size);
+        }
+        MessageChunk grown = chunk.inserted(-index - 1, message);
+        if (grown.size() <= 2 * CHUNK_SIZE) {
+            return withChunk(c, grown, size + 1);
+        }
+        MessageChunk[] next = new MessageChunk[chunks.length + 1];
+        System.arraycopy(chunks, 0, next, 0, c);
+        next[c] = grown.slice(0, CHUNK_SIZE);
+        next[c + 1] = grown.slice(CHUNK_SIZE, grown.size());
+        System.arraycopy(chunks, c + 1, next, c + 2, chunks.length - c - 1);
+        return new MessageSnapshot(next, size + 1);
+    }
+
+    /**
+     * @return a snapshot with the message replaced, or this one if its id
+     *         is not present; an update never brings back a deleted message.
+     */
+    MessageSnapshot replace(Message message) {
+        if (chunks.length == 0) {
+            return this;
+        }
+        int c = chunkFor(message.getMessage_id());
+        int index = chunks[c].indexOf(message.getMessage_id());
+        return index >= 0 ? withChunk(c, chunks[c].replaced(index, message), size) : this;
+    }
+
+    /**
+     * @return a snapshot without the message, or this one if it is not present.
+     */
+    MessageSnapshot remove(int messageId) {
+        if (chunks.length == 0) {
+            return this;
+        }
+        int c = chunkFor(messageId);
+        MessageChunk chunk = chunks[c];
+        int index = chunk.indexOf(messageId);
+        if (index < 0) {
+            return this;
+        }
+        if (chunk.size() > 1) {
+            return withChunk(c, chunk.removed(index), size - 1);
+        }
+        MessageChunk[] next = new MessageChunk[chunks.length - 1];
+        System.arraycopy(chunks, 0, next, 0, c);
+        System.arraycopy(chunks, c + 1, next, c, chunks.length - c - 1);
+        return new MessageSnapshot(next, size - 1);
+    }
+
+    private MessageSnapshot withChunk(int c, MessageChunk chunk, int newSize) {
+        MessageChunk[] next = Arrays.copyOf(chunks, chunks.length);
+        next[c] = chunk;
+        return new MessageSnapshot(next, newSize);
+    }
+
+    /**
+     * @return the last chunk whose first id is at most the given one, or 0.
+     */
+    private int chunkFor(int messageId) {
+        int low = 0;
+        int high = chunks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (chunks[mid].firstId() <= messageId) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,86 @@
+package Snapshot;
+
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+import Model.Message;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * The snapshot searched when the {@link GlobalTimeline} is off. It is built
+ * from the database by the first search and rebuilt by the first search
+ * after it is older than the refresh interval, so searches share one copy
+ * rather than each reading every message. While one search rebuilds it the
+ * others keep using the old one, so changes reach search within about one
+ * interval. A rebuild that fails keeps the old snapshot, and the next
+ * search tries again.
+ */
+public final class SearchSnapshot implements Supplier<MessageSnapshot> {
+
+    private static final AsyncLogger log = AsyncLog.getLogger(SearchSnapshot.class);
+
+    private final Callable<List<Message>> source;
+    private final long refreshNanos;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile MessageSnapshot current;
+    private volatile long builtNanos;
+
+    /**
+     * @param source        every message in id order, as {@code loadAllMessages} returns
+     *                      them; it throws rather than answer with a partial list.
+     * @param refreshMillis how old the snapshot may get before a search rebuilds it.
+     */
+    public SearchSnapshot(Callable<List<Message>> source, long refreshMillis) {
+        this.source = source;
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+    }
+
+    /**
+     * Reads {@code socialmedia.search.refreshMillis} (default 10000).
+     */
+    public static SearchSnapshot fromSystemProperties(Callable<List<Message>> source) {
+        return new SearchSnapshot(source, Long.getLong("socialmedia.search.refreshMillis", 10000));
+    }
+
+    /**
+     * @throws IllegalStateException if there is no snapshot yet and the
+     *         first build fails.
+     */
+    @Override
+    public MessageSnapshot get() {
+        MessageSnapshot snapshot = current;
+        if (snapshot == null) {
+            synchronized (this) {
+                if (current == null) {
+                    try {
+                        refresh();
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Could not load the messages to search", e);
+                    }
+                }
+                return current;
+            }
+        }
+        if (System.nanoTime() - builtNanos >= refreshNanos && refreshing.compareAndSet(false, true)) {
+            try {
+                refresh();
+            } catch (Exception e) {
+                log.warn("Could not refresh the search snapshot", e);
+            } finally {
+                refreshing.set(false);
+            }
+            return current;
+        }
+        return snapshot;
+    }
+
+    private void refresh() throws Exception {
+        MessageSnapshot loaded = MessageSnapshot.of(source.call(), false);
+        builtNanos = System.nanoTime();
+        current = loaded;
+    }
+}
@@ -0,0 +1,83 @@
+package Stats;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Message counts for the most recent hours, one slot per hour. A slot is
+ * reused when a later hour maps onto it, so counts older than the ring are
+ * forgotten without any sweeping.
+ *
+ * <p>Each slot holds its hour and a {@link LongAdder}, swapped in together
+ * with a CAS when the slot rolls over. An increment that races the roll-over
+ * can land in the retired bucket and be lost; reconciliation puts it back.
+ *
+ * <p>Only hours inside the window ending at the current hour are counted,
+ * plus {@link #MAX_SKEW_HOURS} ahead for client clocks running fast. A
+ * later hour would take over the slot of a live one, and reconciliation,
+ * which only walks the window, could not repair it.
+ */
+final class HourlyRing {
+
+    private static final class Bucket {
+        final long hour;
+        final LongAdder count = new LongAdder();
+
+        Bucket(long hour) {
+            this.hour = hour;
+        }
+    }
+
+    static final long MAX_SKEW_HOURS = 1;
+
+    private final AtomicReferenceArray<Bucket> slots;
+
+    HourlyRing(int hours) {
+        this.slots = new AtomicReferenceArray<>(hours);
+    }
+
+    int hours() {
+        return slots.length();
+    }
+
+    /**
+     * Adds delta to the hour's count. Hours outside the window, and hours
+     * older than whatever now occupies their slot, are ignored.
+     *
+     * @param nowHour the current hour.
+     */
+    void add(long hour, long delta, long nowHour) {
+        if (hour > nowHour + MAX_SKEW_HOURS || hour <= nowHour - slots.length()) {
+            return;
+        }
+        Bucket bucket = bucket(hour, true);
+        if (bucket != null) {
+            bucket.count.add(delta);
+        }
+    }
+
+    /**
+     * @return the count for the hour, or 0 if it has left the ring.
+     */
+    long get(long hour) {
+        Bucket bucket = bucket(hour, false);
+        return bucket == null ? 0 : bucket.count.sum();
+    }
+
+    private Bucket bucket(long hour, boolean create) {
+        int slot = (int) Math.floorMod(hour, (long) slots.length());
+        while (true) {
+            Bucket bucket = slots.get(slot);
+            if (bucket != null && bucket.hour == hour) {
+                return bucket;
+            }
+            if (!create || bucket != null && bucket.hour > hour) {
+                return null;
+            }
+            Bucket fresh = new Bucket(hour);
+            if (slots.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+}
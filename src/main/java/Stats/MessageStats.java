@@ -0,0 +1,271 @@
+package Stats;
+
+import DAO.MessageDAO;
+import Events.MessageEventType;
+import Events.MessagePublisher;
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+import Model.Message;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Message counts per account and per hour, kept up to date as messages are
+ * created and deleted instead of being computed with GROUP BY on each read.
+ *
+ * <p>Counters are {@link LongAdder}s, so concurrent posts by the same
+ * account do not contend on one cache line. Changes made outside
+ * {@code MessageService}, such as bulk imports, are picked up by a
+ * background thread that periodically compares the counters with the
+ * database and adds the difference. A write that races a reconciliation
+ * can leave a count off by one until the next pass.
+ */
+public class MessageStats implements MessagePublisher, MetricsRegistry.Collector {
+
+    private static final AsyncLogger log = AsyncLog.getLogger(MessageStats.class);
+
+    private static final long SECONDS_PER_HOUR = 3600;
+
+    /**
+     * An account and its message count.
+     */
+    public static final class AccountCount {
+        private final int accountId;
+        private final long messages;
+
+        AccountCount(int accountId, long messages) {
+            this.accountId = accountId;
+            this.messages = messages;
+        }
+
+        public int getAccountId() {
+            return accountId;
+        }
+
+        public long getMessages() {
+            return messages;
+        }
+    }
+
+    private final MessageDAO messageDAO;
+    private final ConcurrentHashMap<Integer, LongAdder> byAccount = new ConcurrentHashMap<>();
+    private final LongAdder total = new LongAdder();
+    private final HourlyRing hourly;
+    private final long reconcileNanos;
+    private final Thread reconciler;
+    private volatile boolean running = true;
+    private final LongAdder reconciliations = new LongAdder();
+    private final LongAdder corrections = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Loads the counts from the database before returning.
+     *
+     * @param hours           how many hours of history the histogram keeps.
+     * @param reconcileMillis time between reconciliations; 0 disables them.
+     */
+    public MessageStats(MessageDAO messageDAO, int hours, long reconcileMillis) {
+        this.messageDAO = messageDAO;
+        this.hourly = new HourlyRing(hours);
+        this.reconcileNanos = TimeUnit.MILLISECONDS.toNanos(reconcileMillis);
+        reconcile(false);
+        if (reconcileMillis > 0) {
+            this.reconciler = new Thread(this::reconcileLoop, "message-stats");
+            this.reconciler.setDaemon(true);
+            this.reconciler.start();
+        } else {
+            this.reconciler = null;
+        }
+    }
+
+    /**
+     * Reads {@code socialmedia.stats.hours} (default 168, one week) and
+     * {@code socialmedia.stats.reconcileMillis} (default 60000).
+     */
+    public static MessageStats fromSystemProperties(MessageDAO messageDAO) {
+        return new MessageStats(messageDAO,
+                Integer.getInteger("socialmedia.stats.hours", 168),
+                Long.getLong("socialmedia.stats.reconcileMillis", 60000));
+    }
+
+    @Override
+    public void publish(MessageEventType type, Message message) {
+        if (type == MessageEventType.CREATED) {
+            add(message, 1);
+        } else if (type == MessageEventType.DELETED) {
+            add(message, -1);
+        }
+    }
+
+    private void add(Message message, long delta) {
+        counter(message.getPosted_by()).add(delta);
+        total.add(delta);
+        hourly.add(Math.floorDiv(message.getTime_posted_epoch(), SECONDS_PER_HOUR), delta, currentHour());
+    }
+
+    private static long currentHour() {
+        return Math.floorDiv(System.currentTimeMillis() / 1000, SECONDS_PER_HOUR);
+    }
+
+    private LongAdder counter(int accountId) {
+        LongAdder counter = byAccount.get(accountId);
+        return counter != null ? counter : byAccount.computeIfAbsent(accountId, id -> new LongAdder());
+    }
+
+    public long totalMessages() {
+        return total.sum();
+    }
+
+    public long messagesBy(int accountId) {
+        LongAdder counter = byAccount.get(accountId);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @return the accounts with the most messages, most first, ties broken
+     *         by lower account id. Accounts without messages are left out.
+     */
+    public List<AccountCount> topPosters(int limit) {
+        Comparator<AccountCount> order = Comparator.comparingLong(AccountCount::getMessages)
+                .thenComparing(Comparator.comparingInt(AccountCount::getAccountId).reversed());
+        // A min-heap of the best `limit` so far, rather than sorting every account.
+        PriorityQueue<AccountCount> best = new PriorityQueue<>(limit + 1, order);
+        for (Map.Entry<Integer, LongAdder> entry : byAccount.entrySet()) {
+            long messages = entry.getValue().sum();
+            if (messages > 0) {
+                best.add(new AccountCount(entry.getKey(), messages));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        List<AccountCount> top = new ArrayList<>(best);
+        top.sort(order.reversed());
+        return top;
+    }
+
+    /**
+     * @return message counts for the given number of hours up to and
+     *         including the current one, oldest first, indexed from the hour
+     *         starting at {@link #firstHourStart}.
+     */
+    public long[] hourlyCounts(int hours, long nowEpoch) {
+        long last = Math.floorDiv(nowEpoch, SECONDS_PER_HOUR);
+        long[] counts = new long[hours];
+        for (int i = 0; i < hours; i++) {
+            counts[i] = hourly.get(last - hours + 1 + i);
+        }
+        return counts;
+    }
+
+    /**
+     * @return the epoch second at which the first of {@link #hourlyCounts} starts.
+     */
+    public static long firstHourStart(int hours, long nowEpoch) {
+        return (Math.floorDiv(nowEpoch, SECONDS_PER_HOUR) - hours + 1) * SECONDS_PER_HOUR;
+    }
+
+    /**
+     * @return how many hours of history are kept.
+     */
+    public int hours() {
+        return hourly.hours();
+    }
+
+    /**
+     * Brings the counters in line with the database by adding the difference
+     * to each, so updates made meanwhile are not overwritten.
+     */
+    public void reconcile() {
+        reconcile(true);
+    }
+
+    /**
+     * @param record false for the initial load, which is not drift.
+     */
+    private void reconcile(boolean record) {
+        long nowHour = currentHour();
+        long firstHour = nowHour - hourly.hours() + 1;
+        Map<Integer, Long> accounts;
+        Map<Long, Long> hours;
+        try {
+            accounts = messageDAO.countMessagesByUser();
+            hours = messageDAO.countMessagesByHour(firstHour * SECONDS_PER_HOUR);
+        } catch (SQLException e) {
+            failures.increment();
+            log.warn("Could not reconcile message stats", e);
+            return;
+        }
+        long drift = 0;
+        long sum = 0;
+        for (Map.Entry<Integer, Long> entry : accounts.entrySet()) {
+            drift += correct(counter(entry.getKey()), entry.getValue());
+            sum += entry.getValue();
+        }
+        for (Map.Entry<Integer, LongAdder> entry : byAccount.entrySet()) {
+            if (!accounts.containsKey(entry.getKey())) {
+                drift += correct(entry.getValue(), 0);
+            }
+        }
+        correct(total, sum);
+        for (long hour = firstHour; hour <= nowHour; hour++) {
+            long expected = hours.getOrDefault(hour, 0L);
+            long delta = expected - hourly.get(hour);
+            if (delta != 0) {
+                hourly.add(hour, delta, nowHour);
+                drift += Math.abs(delta);
+            }
+        }
+        if (!record) {
+            return;
+        }
+        reconciliations.increment();
+        corrections.add(drift);
+        if (drift > 0) {
+            log.info("Reconciled message stats", "corrections", drift);
+        }
+    }
+
+    private static long correct(LongAdder counter, long expected) {
+        long delta = expected - counter.sum();
+        counter.add(delta);
+        return Math.abs(delta);
+    }
+
+    private void reconcileLoop() {
+        while (running) {
+            LockSupport.parkNanos(this, reconcileNanos);
+            if (running) {
+                reconcile();
+            }
+        }
+    }
+
+    public void close() {
+        running = false;
+        if (reconciler != null) {
+            LockSupport.unpark(reconciler);
+        }
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("stats_reconciliations_total", "counter", "Times the message stats were compared with the database.");
+        out.sample("stats_reconciliations_total", reconciliations.sum());
+        out.family("stats_corrections_total", "counter", "Total amount by which reconciliation changed the message stats.");
+        out.sample("stats_corrections_total", corrections.sum());
+        out.family("stats_reconcile_failures_total", "counter", "Reconciliations abandoned because the database query failed.");
+        out.sample("stats_reconcile_failures_total", failures.sum());
+    }
+}
@@ -0,0 +1,23 @@
+package Tracing;
+
+import DAO.AccountDAO;
+import DAO.MessageDAO;
+
+/**
+ * Opens a span named {@code Dao.method} around every DAO call. The span
+ * names are constants in the decorators, so an unsampled call costs a
+ * thread-local read and allocates nothing.
+ */
+public final class DaoTracing {
+
+    private DaoTracing() {
+    }
+
+    public static MessageDAO instrument(MessageDAO target) {
+        return new TracedMessageDAO(target);
+    }
+
+    public static AccountDAO instrument(AccountDAO target) {
+        return new TracedAccountDAO(target);
+    }
+}
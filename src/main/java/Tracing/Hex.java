@@ -0,0 +1,44 @@
+package Tracing;
+
+/**
+ * Fixed width lowercase hex, as used by W3C trace context and OTLP JSON.
+ */
+final class Hex {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private Hex() {
+    }
+
+    static String of(long value) {
+        char[] out = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            out[i] = DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+        return new String(out);
+    }
+
+    static boolean isHex(String s, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the value of {@code length} hex digits at {@code offset};
+     *         check them with {@link #isHex} first.
+     */
+    static long parse(String s, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = s.charAt(i);
+            value = (value << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+        return value;
+    }
+}
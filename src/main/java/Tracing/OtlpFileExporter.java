@@ -0,0 +1,88 @@
+package Tracing;
+
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Appends finished traces to a file, one OTLP/JSON document per line, from
+ * a single background thread. Request threads only enqueue; when the queue
+ * is full the trace is dropped and counted rather than blocking a request.
+ */
+public class OtlpFileExporter {
+
+    private static final AsyncLogger log = AsyncLog.getLogger(OtlpFileExporter.class);
+
+    private static final int MAX_BATCH = 64;
+
+    private final Path file;
+    private final BlockingQueue<Trace> queue;
+    private final JsonFactory factory = new JsonFactory();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+
+    public OtlpFileExporter(Path file, int queueCapacity) {
+        this.file = file;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = new Thread(this::run, "otlp-file-exporter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void export(Trace trace) {
+        if (!queue.offer(trace)) {
+            dropped.increment();
+        }
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    private void run() {
+        List<Trace> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            try {
+                write(batch);
+            } catch (IOException e) {
+                dropped.add(batch.size());
+                log.warn("Failed to export traces", e, "traces", batch.size(), "file", file);
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Trace> batch) throws IOException {
+        Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        try {
+            // One line per batch keeps each line a complete request document.
+            JsonGenerator gen = factory.createGenerator(out);
+            OtlpJson.write(gen, batch);
+            gen.flush();
+            out.write('\n');
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package Tracing;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Encodes traces in the OTLP/JSON trace format (an
+ * ExportTraceServiceRequest), so exported files can be loaded by any
+ * OpenTelemetry collector or viewer.
+ */
+public final class OtlpJson {
+
+    public static final String SERVICE_NAME = "social-media-api";
+
+    private static final int KIND_INTERNAL = 1;
+    private static final int KIND_SERVER = 2;
+    private static final int STATUS_UNSET = 0;
+    private static final int STATUS_ERROR = 2;
+
+    private OtlpJson() {
+    }
+
+    public static void write(JsonGenerator gen, List<Trace> traces) throws IOException {
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("resourceSpans");
+        gen.writeStartObject();
+        gen.writeObjectFieldStart("resource");
+        gen.writeArrayFieldStart("attributes");
+        writeAttribute(gen, "service.name", SERVICE_NAME);
+        gen.writeEndArray();
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("scopeSpans");
+        gen.writeStartObject();
+        gen.writeObjectFieldStart("scope");
+        gen.writeStringField("name", Tracer.class.getName());
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("spans");
+        for (Trace trace : traces) {
+            String traceId = trace.getTraceId();
+            for (Span span : trace.getSpans()) {
+                writeSpan(gen, trace, traceId, span);
+            }
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+        gen.writeEndArray();
+        gen.writeEndObject();
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeSpan(JsonGenerator gen, Trace trace, String traceId, Span span) throws IOException {
+        boolean root = span == trace.getRoot();
+        long parentId = root ? trace.getRemoteParentId() : span.getParent().getSpanId();
+        gen.writeStartObject();
+        gen.writeStringField("traceId", traceId);
+        gen.writeStringField("spanId", Hex.of(span.getSpanId()));
+        if (parentId != 0) {
+            gen.writeStringField("parentSpanId", Hex.of(parentId));
+        }
+        gen.writeStringField("name", span.getName());
+        gen.writeNumberField("kind", root ? KIND_SERVER : KIND_INTERNAL);
+        // 64-bit integers are strings in the protobuf JSON mapping.
+        gen.writeStringField("startTimeUnixNano", Long.toString(trace.toEpochNanos(span.getStartNanos())));
+        gen.writeStringField("endTimeUnixNano", Long.toString(trace.toEpochNanos(span.getEndNanos())));
+        gen.writeArrayFieldStart("attributes");
+        for (int i = 0; i < span.getAttributeCount(); i++) {
+            writeAttribute(gen, span.getAttributeKey(i), span.getAttributeValue(i));
+        }
+        gen.writeEndArray();
+        gen.writeObjectFieldStart("status");
+        gen.writeNumberField("code", span.isError() ? STATUS_ERROR : STATUS_UNSET);
+        gen.writeEndObject();
+        gen.writeEndObject();
+    }
+
+    private static void writeAttribute(JsonGenerator gen, String key, Object value) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("key", key);
+        gen.writeObjectFieldStart("value");
+        if (value instanceof Integer || value instanceof Long) {
+            gen.writeStringField("intValue", value.toString());
+        } else if (value instanceof Boolean) {
+            gen.writeBooleanField("boolValue", (Boolean) value);
+        } else {
+            gen.writeStringField("stringValue", String.valueOf(value));
+        }
+        gen.writeEndObject();
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,119 @@
+package Tracing;
+
+import java.util.Arrays;
+
+/**
+ * One timed operation within a {@link Trace}. Spans are opened with
+ * {@link Tracer#span(String)} and closed with try-with-resources, which
+ * also restores the enclosing span as the parent of the next one.
+ *
+ * <p>When the request is not sampled every call returns {@link #NOOP},
+ * whose methods do nothing, so unsampled requests allocate no spans.
+ */
+public final class Span implements AutoCloseable {
+
+    static final Span NOOP = new Span(null, null, 0, "noop", 0);
+
+    private final Trace trace;
+    private final Span parent;
+    private final long spanId;
+    private String name;
+    private final long startNanos;
+    private long endNanos;
+    private Object[] attributes;
+    private int attributeCount;
+    private boolean error;
+
+    Span(Trace trace, Span parent, long spanId, String name, long startNanos) {
+        this.trace = trace;
+        this.parent = parent;
+        this.spanId = spanId;
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Adds an attribute. Values are exported as strings, except integral
+     * numbers and booleans which keep their type.
+     */
+    public Span attribute(String key, Object value) {
+        if (trace == null) {
+            return this;
+        }
+        if (attributes == null) {
+            attributes = new Object[8];
+        } else if (attributeCount * 2 == attributes.length) {
+            attributes = Arrays.copyOf(attributes, attributes.length * 2);
+        }
+        attributes[attributeCount * 2] = key;
+        attributes[attributeCount * 2 + 1] = value;
+        attributeCount++;
+        return this;
+    }
+
+    /**
+     * Marks the span as failed and records the exception type.
+     */
+    public void error(Throwable t) {
+        if (trace != null && !error) {
+            error = true;
+            attribute("exception.type", t.getClass().getName());
+        }
+    }
+
+    void markError() {
+        error = trace != null;
+    }
+
+    @Override
+    public void close() {
+        if (trace != null && endNanos == 0) {
+            endNanos = System.nanoTime();
+            trace.closed(this);
+        }
+    }
+
+    void rename(String name) {
+        this.name = name;
+    }
+
+    Span getParent() {
+        return parent;
+    }
+
+    public long getSpanId() {
+        return spanId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long getDurationNanos() {
+        return endNanos - startNanos;
+    }
+
+    public boolean isError() {
+        return error;
+    }
+
+    public int getAttributeCount() {
+        return attributeCount;
+    }
+
+    public String getAttributeKey(int i) {
+        return (String) attributes[i * 2];
+    }
+
+    public Object getAttributeValue(int i) {
+        return attributes[i * 2 + 1];
+    }
+}
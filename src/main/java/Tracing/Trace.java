@@ -0,0 +1,106 @@
+package Tracing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The spans of one request. A trace is only touched by the thread serving
+ * the request until {@link Tracer#end} hands it to the buffer, after which
+ * it is read-only.
+ */
+public final class Trace {
+
+    private final String requestId;
+    private final boolean sampled;
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final long remoteParentId;
+    private final long epochOffsetNanos;
+    private final List<Span> spans;
+    private Span root;
+    private Span current;
+
+    Trace(String requestId, boolean sampled, long traceIdHigh, long traceIdLow, long remoteParentId,
+          long epochOffsetNanos) {
+        this.requestId = requestId;
+        this.sampled = sampled;
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.remoteParentId = remoteParentId;
+        this.epochOffsetNanos = epochOffsetNanos;
+        this.spans = sampled ? new ArrayList<>(8) : Collections.emptyList();
+    }
+
+    Span start(String name) {
+        if (!sampled) {
+            return Span.NOOP;
+        }
+        Span span = new Span(this, current, nextSpanId(), name, System.nanoTime());
+        if (root == null) {
+            root = span;
+        }
+        spans.add(span);
+        current = span;
+        return span;
+    }
+
+    void closed(Span span) {
+        // Spans are closed innermost first, so the parent becomes current again.
+        current = span.getParent();
+    }
+
+    private static long nextSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * @return the 32 character hex trace id.
+     */
+    public String getTraceId() {
+        return Hex.of(traceIdHigh) + Hex.of(traceIdLow);
+    }
+
+    /**
+     * @return the span id of the caller that sent a traceparent header, or 0.
+     */
+    public long getRemoteParentId() {
+        return remoteParentId;
+    }
+
+    public Span getRoot() {
+        return root;
+    }
+
+    Span getCurrent() {
+        return current;
+    }
+
+    /**
+     * @return every span in start order, the root first.
+     */
+    public List<Span> getSpans() {
+        return Collections.unmodifiableList(spans);
+    }
+
+    /**
+     * Converts a {@link System#nanoTime()} reading from this trace into
+     * nanoseconds since the Unix epoch.
+     */
+    public long toEpochNanos(long nanoTime) {
+        return epochOffsetNanos + nanoTime;
+    }
+}
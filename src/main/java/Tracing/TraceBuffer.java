@@ -0,0 +1,53 @@
+package Tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of the most recent sampled traces. Adding never blocks
+ * and overwrites the oldest trace once the ring is full.
+ */
+public class TraceBuffer {
+
+    private final AtomicReferenceArray<Trace> slots;
+    private final AtomicLong next = new AtomicLong();
+
+    public TraceBuffer(int capacity) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(Trace trace) {
+        long index = next.getAndIncrement();
+        slots.set((int) (index % slots.length()), trace);
+    }
+
+    /**
+     * @return up to {@code limit} traces, newest first.
+     */
+    public List<Trace> recent(int limit) {
+        long end = next.get();
+        long start = Math.max(0, end - Math.min(limit, slots.length()));
+        List<Trace> traces = new ArrayList<>();
+        for (long i = end - 1; i >= start; i--) {
+            Trace trace = slots.get((int) (i % slots.length()));
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        return traces;
+    }
+
+    /**
+     * @return the newest buffered trace with this request id, or null.
+     */
+    public Trace find(String requestId) {
+        for (Trace trace : recent(slots.length())) {
+            if (trace.getRequestId().equals(requestId)) {
+                return trace;
+            }
+        }
+        return null;
+    }
+}
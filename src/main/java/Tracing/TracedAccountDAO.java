@@ -0,0 +1,156 @@
+package Tracing;
+
+import DAO.AccountDAO;
+import DAO.AccountField;
+import DAO.RowCallback;
+import Model.Account;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Opens a span named {@code AccountDAO.method} around every {@link AccountDAO}
+ * call. An unsampled call costs a thread-local read.
+ */
+final class TracedAccountDAO implements AccountDAO {
+
+    private final AccountDAO target;
+
+    TracedAccountDAO(AccountDAO target) {
+        this.target = target;
+    }
+
+    @Override
+    public List<Account> getAllAccounts() {
+        try (Span span = Tracer.span("AccountDAO.getAllAccounts")) {
+            try {
+                return target.getAllAccounts();
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public Account getAccountById(int id) {
+        try (Span span = Tracer.span("AccountDAO.getAccountById")) {
+            try {
+                return target.getAccountById(id);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Account> getAccountsByIds(int[] ids) {
+        try (Span span = Tracer.span("AccountDAO.getAccountsByIds")) {
+            try {
+                return target.getAccountsByIds(ids);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Account> getAllAccounts(Set<AccountField> fields) {
+        try (Span span = Tracer.span("AccountDAO.getAllAccounts")) {
+            try {
+                return target.getAllAccounts(fields);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Account> getAccountsByIds(int[] ids, Set<AccountField> fields) {
+        try (Span span = Tracer.span("AccountDAO.getAccountsByIds")) {
+            try {
+                return target.getAccountsByIds(ids, fields);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public Account getAccountByUsername(String username) {
+        try (Span span = Tracer.span("AccountDAO.getAccountByUsername")) {
+            try {
+                return target.getAccountByUsername(username);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public boolean insertAccount(Account account) {
+        try (Span span = Tracer.span("AccountDAO.insertAccount")) {
+            try {
+                return target.insertAccount(account);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public boolean updateAccount(Account account) {
+        try (Span span = Tracer.span("AccountDAO.updateAccount")) {
+            try {
+                return target.updateAccount(account);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public boolean deleteAccount(int id) {
+        try (Span span = Tracer.span("AccountDAO.deleteAccount")) {
+            try {
+                return target.deleteAccount(id);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public Account saveAccount(Account account) {
+        try (Span span = Tracer.span("AccountDAO.saveAccount")) {
+            try {
+                return target.saveAccount(account);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public long exportAccounts(RowCallback<Account> callback) throws SQLException, IOException {
+        try (Span span = Tracer.span("AccountDAO.exportAccounts")) {
+            try {
+                return target.exportAccounts(callback);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+}
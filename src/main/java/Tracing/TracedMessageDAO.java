@@ -0,0 +1,305 @@
+package Tracing;
+
+import DAO.MessageDAO;
+import DAO.MessageField;
+import DAO.RowCallback;
+import Model.Message;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Opens a span named {@code MessageDAO.method} around every {@link MessageDAO}
+ * call. An unsampled call costs a thread-local read.
+ */
+final class TracedMessageDAO implements MessageDAO {
+
+    private final MessageDAO target;
+
+    TracedMessageDAO(MessageDAO target) {
+        this.target = target;
+    }
+
+    @Override
+    public List<Message> getAllMessages() {
+        try (Span span = Tracer.span("MessageDAO.getAllMessages")) {
+            try {
+                return target.getAllMessages();
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> loadAllMessages() throws SQLException {
+        try (Span span = Tracer.span("MessageDAO.loadAllMessages")) {
+            try {
+                return target.loadAllMessages();
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public Message getMessageById(int id) {
+        try (Span span = Tracer.span("MessageDAO.getMessageById")) {
+            try {
+                return target.getMessageById(id);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] ids) {
+        try (Span span = Tracer.span("MessageDAO.getMessagesByIds")) {
+            try {
+                return target.getMessagesByIds(ids);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUser(int userId) {
+        try (Span span = Tracer.span("MessageDAO.getMessagesByUser")) {
+            try {
+                return target.getMessagesByUser(userId);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> getAllMessages(Set<MessageField> fields) {
+        try (Span span = Tracer.span("MessageDAO.getAllMessages")) {
+            try {
+                return target.getAllMessages(fields);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public Message getMessageById(int id, Set<MessageField> fields) {
+        try (Span span = Tracer.span("MessageDAO.getMessageById")) {
+            try {
+                return target.getMessageById(id, fields);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByIds(int[] ids, Set<MessageField> fields) {
+        try (Span span = Tracer.span("MessageDAO.getMessagesByIds")) {
+            try {
+                return target.getMessagesByIds(ids, fields);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUser(int userId, Set<MessageField> fields) {
+        try (Span span = Tracer.span("MessageDAO.getMessagesByUser")) {
+            try {
+                return target.getMessagesByUser(userId, fields);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit,
+                                           Set<MessageField> fields) {
+        try (Span span = Tracer.span("MessageDAO.getMessagesByTime")) {
+            try {
+                return target.getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit, fields);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                                  int limit, Set<MessageField> fields) {
+        try (Span span = Tracer.span("MessageDAO.getMessagesByUserAndTime")) {
+            try {
+                return target.getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit, fields);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public boolean insertMessage(Message message) {
+        try (Span span = Tracer.span("MessageDAO.insertMessage")) {
+            try {
+                return target.insertMessage(message);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public boolean updateMessageText(int messageId, String newText) {
+        try (Span span = Tracer.span("MessageDAO.updateMessageText")) {
+            try {
+                return target.updateMessageText(messageId, newText);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public boolean deleteMessageById(int messageId) {
+        try (Span span = Tracer.span("MessageDAO.deleteMessageById")) {
+            try {
+                return target.deleteMessageById(messageId);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public boolean doesUserExist(int userId) {
+        try (Span span = Tracer.span("MessageDAO.doesUserExist")) {
+            try {
+                return target.doesUserExist(userId);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByTime(long sinceEpoch, long untilEpoch, int afterMessageId, int limit) {
+        try (Span span = Tracer.span("MessageDAO.getMessagesByTime")) {
+            try {
+                return target.getMessagesByTime(sinceEpoch, untilEpoch, afterMessageId, limit);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public List<Message> getMessagesByUserAndTime(int userId, long sinceEpoch, long untilEpoch, int afterMessageId,
+                                                  int limit) {
+        try (Span span = Tracer.span("MessageDAO.getMessagesByUserAndTime")) {
+            try {
+                return target.getMessagesByUserAndTime(userId, sinceEpoch, untilEpoch, afterMessageId, limit);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public Map<Integer, Long> countMessagesByUser() throws SQLException {
+        try (Span span = Tracer.span("MessageDAO.countMessagesByUser")) {
+            try {
+                return target.countMessagesByUser();
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public Map<Long, Long> countMessagesByHour(long sinceEpoch) throws SQLException {
+        try (Span span = Tracer.span("MessageDAO.countMessagesByHour")) {
+            try {
+                return target.countMessagesByHour(sinceEpoch);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public long exportMessages(long sinceEpoch, long untilEpoch, RowCallback<Message> callback)
+            throws SQLException, IOException {
+        try (Span span = Tracer.span("MessageDAO.exportMessages")) {
+            try {
+                return target.exportMessages(sinceEpoch, untilEpoch, callback);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public long dropMessagesBefore(long epochSecond) throws SQLException {
+        try (Span span = Tracer.span("MessageDAO.dropMessagesBefore")) {
+            try {
+                return target.dropMessagesBefore(epochSecond);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public int purgeDeleted(long deletedBeforeMillis, int limit) throws SQLException {
+        try (Span span = Tracer.span("MessageDAO.purgeDeleted")) {
+            try {
+                return target.purgeDeleted(deletedBeforeMillis, limit);
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+
+    @Override
+    public long countDeleted() throws SQLException {
+        try (Span span = Tracer.span("MessageDAO.countDeleted")) {
+            try {
+                return target.countDeleted();
+            } catch (Throwable t) {
+                span.error(t);
+                throw t;
+            }
+        }
+    }
+}
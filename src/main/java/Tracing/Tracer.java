@@ -0,0 +1,187 @@
+package Tracing;
+
+import Metrics.MetricsRegistry;
+import Metrics.PrometheusWriter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request-scoped tracing. The controller calls {@link #begin} and
+ * {@link #end} around each request; in between, any layer can open a span
+ * with the static {@link #span(String)} without being handed a tracer,
+ * because the active trace lives in a thread local of the Jetty thread
+ * serving the request.
+ *
+ * <p>Sampling is decided once per request (head-based). An incoming W3C
+ * {@code traceparent} header decides it for us; otherwise a request is
+ * sampled with probability {@code sampleRate}. Unsampled requests still
+ * get a request id but record no spans.
+ */
+public class Tracer implements MetricsRegistry.Collector {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
+    private static final ThreadLocal<Trace> ACTIVE = new ThreadLocal<>();
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+    private final double sampleRate;
+    private final TraceBuffer buffer;
+    private final OtlpFileExporter exporter;
+    private final long epochOffsetNanos;
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder unsampled = new LongAdder();
+
+    /**
+     * @param sampleRate fraction of requests without a traceparent to trace, 0..1.
+     * @param buffer     where finished traces are kept for the admin endpoint.
+     * @param exporter   file exporter, or null to keep traces in memory only.
+     */
+    public Tracer(double sampleRate, TraceBuffer buffer, OtlpFileExporter exporter) {
+        this.sampleRate = sampleRate;
+        this.buffer = buffer;
+        this.exporter = exporter;
+        this.epochOffsetNanos = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+    }
+
+    /**
+     * Opens a span in the current request's trace.
+     *
+     * @return the span, or a no-op span when the request is not sampled or
+     *         there is no request on this thread.
+     */
+    public static Span span(String name) {
+        Trace trace = ACTIVE.get();
+        return trace == null ? Span.NOOP : trace.start(name);
+    }
+
+    /**
+     * @return the innermost open span of the current request, or a no-op span.
+     */
+    public static Span currentSpan() {
+        Trace trace = ACTIVE.get();
+        Span current = trace == null ? null : trace.getCurrent();
+        return current == null ? Span.NOOP : current;
+    }
+
+    /**
+     * @return the id of the request being served on this thread, or null.
+     */
+    public static String currentRequestId() {
+        Trace trace = ACTIVE.get();
+        return trace == null ? null : trace.getRequestId();
+    }
+
+    /**
+     * Starts tracing the request on the calling thread.
+     *
+     * @param requestId   the client's X-Request-Id, or null to generate one.
+     * @param traceparent the client's traceparent header, or null.
+     * @return the request id to echo back to the client.
+     */
+    public String begin(String requestId, String traceparent) {
+        if (!isValidRequestId(requestId)) {
+            requestId = Hex.of(ThreadLocalRandom.current().nextLong());
+        }
+        Trace trace = fromTraceparent(requestId, traceparent);
+        if (trace == null) {
+            boolean sample = sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            trace = new Trace(requestId, sample, random.nextLong(), random.nextLong(), 0, epochOffsetNanos);
+        }
+        ACTIVE.set(trace);
+        // Named once the route is known, in end().
+        trace.start("request");
+        return requestId;
+    }
+
+    /**
+     * Finishes the request on the calling thread and publishes its trace.
+     */
+    public void end(String method, String route, int status) {
+        Trace trace = ACTIVE.get();
+        if (trace == null) {
+            return;
+        }
+        ACTIVE.remove();
+        if (!trace.isSampled()) {
+            unsampled.increment();
+            return;
+        }
+        Span root = trace.getRoot();
+        root.rename(method + " " + route);
+        root.attribute("http.method", method)
+                .attribute("http.route", route)
+                .attribute("http.status_code", status)
+                .attribute("request.id", trace.getRequestId());
+        if (status >= 500) {
+            root.markError();
+        }
+        // Close anything a handler left open before the root.
+        while (trace.getCurrent() != null) {
+            trace.getCurrent().close();
+        }
+        sampled.increment();
+        buffer.add(trace);
+        if (exporter != null) {
+            exporter.export(trace);
+        }
+    }
+
+    /**
+     * Marks the current request as failed with an exception.
+     */
+    public static void recordException(Throwable t) {
+        Trace trace = ACTIVE.get();
+        if (trace != null && trace.getRoot() != null) {
+            trace.getRoot().error(t);
+        }
+    }
+
+    public TraceBuffer buffer() {
+        return buffer;
+    }
+
+    private Trace fromTraceparent(String requestId, String header) {
+        // version "00": 00-<32 hex trace id>-<16 hex parent id>-<2 hex flags>
+        if (header == null || header.length() != 55 || !header.startsWith("00-")
+                || header.charAt(35) != '-' || header.charAt(52) != '-'
+                || !Hex.isHex(header, 3, 32) || !Hex.isHex(header, 36, 16) || !Hex.isHex(header, 53, 2)) {
+            return null;
+        }
+        long high = Hex.parse(header, 3, 16);
+        long low = Hex.parse(header, 19, 16);
+        long parent = Hex.parse(header, 36, 16);
+        if ((high == 0 && low == 0) || parent == 0) {
+            return null;
+        }
+        boolean sample = (Hex.parse(header, 53, 2) & 1) == 1;
+        return new Trace(requestId, sample, high, low, parent, epochOffsetNanos);
+    }
+
+    private static boolean isValidRequestId(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_REQUEST_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || c == '-' || c == '_' || c == '.')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void collect(PrometheusWriter out) {
+        out.family("tracing_requests_total", "counter", "Requests seen by the tracer by sampling decision.");
+        out.sample("tracing_requests_total", sampled.sum(), "sampled", "true");
+        out.sample("tracing_requests_total", unsampled.sum(), "sampled", "false");
+        if (exporter != null) {
+            out.family("tracing_export_dropped_total", "counter", "Traces dropped because the export queue was full.");
+            out.sample("tracing_export_dropped_total", exporter.dropped());
+        }
+    }
+}
@@ -49,6 +49,13 @@ public class ConnectionUtil {
 
         return connection;
     }
+    /**
+     * @return a new connection to the same database that leaves the tables as they are, for tools that run
+     * outside the API and the tests. The caller closes it.
+     */
+    public static Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(url, username, password);
+    }
     /**
      * For the purpose of testing, we will need to drop and recreate our database tables to keep it consistent across
      * all tests. The method will read the sql file in resources. This will be performed before every test.
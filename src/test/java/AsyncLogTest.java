@@ -0,0 +1,103 @@
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import Logging.AsyncLog;
+import Logging.AsyncLogger;
+
+public class AsyncLogTest {
+
+    /**
+     * Logging the same failure three times within the stack interval
+     *
+     * Expected Output:
+     *  three JSON lines, only the first with a stack trace, the others marked stack_suppressed
+     */
+    @Test
+    public void duplicateStacksAreSuppressed() {
+        StringWriter out = new StringWriter();
+        AsyncLog asyncLog = new AsyncLog(out, 64, 60_000);
+        AsyncLogger log = asyncLog.logger("test");
+        for (int i = 0; i < 3; i++) {
+            log.error("Lookup failed", failure(), "message_id", i);
+        }
+        asyncLog.close();
+
+        String[] lines = out.toString().split("\n");
+        Assert.assertEquals(3, lines.length);
+        Assert.assertTrue(lines[0].startsWith("{\"ts\":"));
+        Assert.assertTrue(lines[0].contains("\"level\":\"ERROR\""));
+        Assert.assertTrue(lines[0].contains("\"msg\":\"Lookup failed\",\"message_id\":0"));
+        Assert.assertTrue(lines[0].contains("\"stack\":\"java.sql.SQLException: connection lost"));
+        Assert.assertEquals(1, Arrays.stream(lines).filter(l -> l.contains("\"stack\":")).count());
+        Assert.assertTrue(lines[2].contains("\"stack_suppressed\":true"));
+        Assert.assertEquals(2, asyncLog.suppressed());
+    }
+
+    /**
+     * Logging more events than the buffer holds while the writer cannot drain it
+     *
+     * Expected Output:
+     *  the caller never blocks, and every event that did not fit is counted as dropped
+     */
+    @Test
+    public void overflowIsDroppedAndCounted() {
+        StringWriter out = new StringWriter();
+        AsyncLog asyncLog = new AsyncLog(out, 8, 60_000);
+        AsyncLogger log = asyncLog.logger("test");
+        synchronized (out.getBuffer()) {
+            // StringWriter writes lock its buffer, so the writer thread stalls on the first event.
+            for (int i = 0; i < 100; i++) {
+                log.warn("flood", "i", i);
+            }
+        }
+        asyncLog.close();
+
+        long written = out.toString().lines().count();
+        Assert.assertTrue(asyncLog.dropped() > 0);
+        Assert.assertEquals(100, written + asyncLog.dropped());
+    }
+
+    /**
+     * Logging one event, leaving the log idle, then logging another
+     *
+     * Expected Output:
+     *  while idle the writer thread is parked without a timeout, and the second event is still
+     *  written promptly
+     */
+    @Test
+    public void idleWriterWaitsForProducers() throws InterruptedException {
+        Set<Thread> before = Thread.getAllStackTraces().keySet();
+        StringWriter out = new StringWriter();
+        AsyncLog asyncLog = new AsyncLog(out, 64, 60_000);
+        Thread writer = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> !before.contains(t) && t.getName().equals("async-log-writer"))
+                .findFirst().orElseThrow();
+        AsyncLogger log = asyncLog.logger("test");
+
+        log.info("first");
+        awaitLines(out, 1);
+        Thread.sleep(200);
+        Assert.assertEquals(Thread.State.WAITING, writer.getState());
+
+        log.info("second");
+        awaitLines(out, 2);
+        asyncLog.close();
+        Assert.assertFalse(writer.isAlive());
+    }
+
+    private static void awaitLines(StringWriter out, int lines) throws InterruptedException {
+        long start = System.nanoTime();
+        while (out.toString().lines().count() < lines) {
+            Assert.assertTrue("not written after 1s", System.nanoTime() - start < 1_000_000_000L);
+            Thread.sleep(5);
+        }
+    }
+
+    private static Exception failure() {
+        return new java.sql.SQLException("connection lost");
+    }
+}
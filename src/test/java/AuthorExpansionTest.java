@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class AuthorExpansionTest {
+    static final String AUTHORS_QUERY = "db_statement_seconds_count{sql=\"SELECT account_id, username FROM account"
+            + " WHERE account_id = ANY(?) ORDER BY account_id\"}";
+
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add accounts 2 and 3 and messages 2 to 4, restart
+     * the Javalin app and create a new webClient and ObjectMapper.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        stmt.executeUpdate("insert into account (username, password) values ('second', 'password'), ('third', 'password')");
+        stmt.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch) values"
+                + " (2, 'two', 1669947793), (3, 'three', 1669947794), (2, 'four', 1669947795)");
+        stmt.close();
+        startApp();
+    }
+
+    private void startApp() throws InterruptedException {
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("socialmedia.snapshot");
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode read(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = get(path);
+        Assert.assertEquals(response.body(), 200, response.statusCode());
+        return objectMapper.readTree(response.body());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?expand=author
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message with an author object holding account_id and username,
+     *  but no password; the three authors are fetched in one query
+     */
+    @Test
+    public void expandAllMessages() throws Exception {
+        JsonNode messages = read("/messages?expand=author");
+        Assert.assertEquals(4, messages.size());
+        String[] usernames = {"testuser1", "second", "third", "second"};
+        for (int i = 0; i < usernames.length; i++) {
+            JsonNode author = messages.get(i).get("author");
+            Assert.assertEquals(messages.get(i).get("posted_by").asInt(), author.get("account_id").asInt());
+            Assert.assertEquals(usernames[i], author.get("username").asText());
+            Assert.assertFalse(author.has("password"));
+        }
+        Assert.assertEquals("two", messages.get(1).get("message_text").asText());
+        String metrics = get("/metrics").body();
+        Assert.assertTrue(metrics, metrics.contains(AUTHORS_QUERY + " 1"));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages/3?expand=author, then
+     * GET localhost:8080/accounts/2/messages?expand=author
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the messages with their authors embedded; the authors seen by the first
+     *  request are not fetched again
+     */
+    @Test
+    public void expandSingleMessageAndUserMessages() throws Exception {
+        JsonNode message = read("/messages/3?expand=author");
+        Assert.assertEquals("third", message.get("author").get("username").asText());
+        JsonNode messages = read("/accounts/2/messages?expand=author");
+        Assert.assertEquals(2, messages.size());
+        Assert.assertEquals("second", messages.get(1).get("author").get("username").asText());
+        read("/messages?ids=2,3&expand=author");
+        read("/messages?since=0&expand=author");
+        String metrics = get("/metrics").body();
+        Assert.assertTrue(metrics, metrics.contains(AUTHORS_QUERY + " 3"));
+    }
+
+    /**
+     * With socialmedia.snapshot=true, sending an http request to GET localhost:8080/messages?expand=author
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message from the snapshot with its author embedded; the three authors are
+     *  fetched in one query
+     */
+    @Test
+    public void expandFromSnapshot() throws Exception {
+        app.stop();
+        System.setProperty("socialmedia.snapshot", "true");
+        startApp();
+        JsonNode messages = read("/messages?expand=author");
+        Assert.assertEquals(4, messages.size());
+        String[] usernames = {"testuser1", "second", "third", "second"};
+        for (int i = 0; i < usernames.length; i++) {
+            Assert.assertEquals(usernames[i], messages.get(i).get("author").get("username").asText());
+        }
+        String metrics = get("/metrics").body();
+        Assert.assertTrue(metrics, metrics.contains(AUTHORS_QUERY + " 1"));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages without expand, and with an unknown expansion
+     *
+     * Expected Response:
+     *  Status Code: 200 with no author field, then 400
+     */
+    @Test
+    public void expandIsOptIn() throws Exception {
+        Assert.assertFalse(read("/messages").get(0).has("author"));
+        Assert.assertFalse(read("/messages/1").has("author"));
+        Assert.assertEquals(400, get("/messages?expand=password").statusCode());
+        Assert.assertEquals(400, get("/messages/1?expand=replies").statusCode());
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class BatchReadTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add accounts 2 and 3 and messages 2 to 5, restart
+     * the Javalin app and create a new webClient and ObjectMapper.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        stmt.executeUpdate("insert into account (username, password) values ('second', 'password'), ('third', 'password')");
+        stmt.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch) values"
+                + " (2, 'two', 1669947793), (3, 'three', 1669947794), (1, 'four', 1669947795), (2, 'five', 1669947796)");
+        stmt.close();
+        startApp();
+    }
+
+    private void startApp() throws InterruptedException {
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("socialmedia.cache");
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Integer> ids(String path, String field) throws IOException, InterruptedException {
+        HttpResponse<String> response = get(path);
+        Assert.assertEquals(response.body(), 200, response.statusCode());
+        List<Integer> ids = new ArrayList<>();
+        for (JsonNode node : objectMapper.readTree(response.body())) {
+            ids.add(node.get(field).asInt());
+        }
+        return ids;
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?ids=5,2,99,2
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: messages 2 and 5 once each, in message_id order, with the unknown id left out
+     */
+    @Test
+    public void getMessagesByIds() throws Exception {
+        Assert.assertEquals(List.of(2, 5), ids("/messages?ids=5,2,99,2", "message_id"));
+        Assert.assertEquals(List.of(), ids("/messages?ids=99", "message_id"));
+        String sql = get("/admin/sql").body();
+        Assert.assertTrue(sql, sql.contains("SELECT * FROM message WHERE message_id = ANY(?)"));
+    }
+
+    /**
+     * With socialmedia.cache=true, sending an http request to GET localhost:8080/messages?ids=4,1
+     * after a message is deleted
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the remaining message, answered from the cache
+     */
+    @Test
+    public void getMessagesByIdsFromCache() throws Exception {
+        app.stop();
+        System.setProperty("socialmedia.cache", "true");
+        startApp();
+        Assert.assertEquals(List.of(1, 4), ids("/messages?ids=4,1", "message_id"));
+        HttpRequest delete = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/messages/4")).DELETE().build();
+        Assert.assertEquals(200, webClient.send(delete, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Assert.assertEquals(List.of(1), ids("/messages?ids=4,1", "message_id"));
+        String sql = get("/admin/sql").body();
+        Assert.assertFalse(sql, sql.contains("message_id = ANY(?)"));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts?ids=3,1
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: accounts 1 and 3 in account_id order, without their passwords
+     */
+    @Test
+    public void getAccountsByIds() throws Exception {
+        HttpResponse<String> response = get("/accounts?ids=3,1");
+        Assert.assertEquals(200, response.statusCode());
+        JsonNode accounts = objectMapper.readTree(response.body());
+        Assert.assertEquals(2, accounts.size());
+        Assert.assertEquals(1, accounts.get(0).get("account_id").asInt());
+        Assert.assertEquals("testuser1", accounts.get(0).get("username").asText());
+        Assert.assertEquals("third", accounts.get(1).get("username").asText());
+        Assert.assertFalse(accounts.get(1).has("password"));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts?ids=3,1, then GET
+     * localhost:8080/accounts?ids=1,3&fields=username
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the second answer has only usernames and is served from the author cache,
+     *  so the accounts are read from the database once
+     */
+    @Test
+    public void getAccountsByIdsUsesAuthorCache() throws Exception {
+        Assert.assertEquals(List.of(1, 3), ids("/accounts?ids=3,1", "account_id"));
+        HttpResponse<String> response = get("/accounts?ids=1,3&fields=username");
+        Assert.assertEquals(200, response.statusCode());
+        JsonNode accounts = objectMapper.readTree(response.body());
+        Assert.assertEquals(2, accounts.size());
+        Assert.assertEquals("testuser1", accounts.get(0).get("username").asText());
+        Assert.assertFalse(accounts.get(0).has("account_id"));
+        Assert.assertEquals("third", accounts.get(1).get("username").asText());
+
+        String sql = get("/admin/sql").body();
+        int lookups = 0;
+        for (JsonNode template : objectMapper.readTree(sql)) {
+            if (template.get("sql").asText().contains("FROM account WHERE account_id = ANY(?)")) {
+                lookups += template.get("count").asInt();
+            }
+        }
+        Assert.assertEquals(sql, 1, lookups);
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages and /accounts with malformed or too many ids
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void invalidIdsRejected() throws Exception {
+        StringBuilder tooMany = new StringBuilder("1");
+        for (int i = 2; i <= 101; i++) {
+            tooMany.append(',').append(i);
+        }
+        Assert.assertEquals(400, get("/messages?ids=1,x").statusCode());
+        Assert.assertEquals(400, get("/messages?ids=").statusCode());
+        Assert.assertEquals(400, get("/messages?ids=" + tooMany).statusCode());
+        Assert.assertEquals(400, get("/accounts?ids=1,,2").statusCode());
+    }
+}
@@ -0,0 +1,163 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class ExportEndpointTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add a second message with a later timestamp and
+     * awkward text, restart the Javalin app and create a new webClient and ObjectMapper.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        Connection connection = ConnectionUtil.getConnection();
+        PreparedStatement ps = connection.prepareStatement(
+                "insert into message (posted_by, message_text, time_posted_epoch) values (1, ?, 1669947800)");
+        ps.setString(1, "hello, \"world\"\nbye");
+        ps.executeUpdate();
+        ps.close();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> get(String path, String... headers) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/export/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one JSON object per line, one line per message
+     */
+    @Test
+    public void exportMessagesAsNdjson() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/export/messages");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals("application/x-ndjson", response.headers().firstValue("Content-Type").orElse(""));
+        String[] lines = response.body().split("\n");
+        Assert.assertEquals(2, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        Assert.assertEquals(1, first.get("message_id").asInt());
+        Assert.assertEquals(1, first.get("posted_by").asInt());
+        Assert.assertEquals("test message 1", first.get("message_text").asText());
+        Assert.assertEquals(1669947792L, first.get("time_posted_epoch").asLong());
+        Assert.assertEquals("hello, \"world\"\nbye", objectMapper.readTree(lines[1]).get("message_text").asText());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/export/messages?format=csv
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a header row, then one row per message with awkward text quoted
+     */
+    @Test
+    public void exportMessagesAsCsv() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/export/messages?format=csv");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/csv"));
+        Assert.assertEquals("message_id,posted_by,message_text,time_posted_epoch\r\n"
+                + "1,1,test message 1,1669947792\r\n"
+                + "2,1,\"hello, \"\"world\"\"\nbye\",1669947800\r\n", response.body());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/export/messages?since=1669947793&until=1669947801
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the message posted inside the range
+     */
+    @Test
+    public void exportMessagesInTimeRange() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/export/messages?since=1669947793&until=1669947801");
+        Assert.assertEquals(200, response.statusCode());
+        String[] lines = response.body().split("\n");
+        Assert.assertEquals(1, lines.length);
+        Assert.assertEquals(2, objectMapper.readTree(lines[0]).get("message_id").asInt());
+
+        HttpResponse<String> empty = get("/export/messages?until=1669947792");
+        Assert.assertEquals(200, empty.statusCode());
+        Assert.assertEquals("", empty.body().trim());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/export/messages?since=abc
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: empty
+     */
+    @Test
+    public void exportMessagesInvalidRange() throws IOException, InterruptedException {
+        Assert.assertEquals(400, get("/export/messages?since=abc").statusCode());
+        Assert.assertEquals(400, get("/export/messages?since=10&until=5").statusCode());
+        Assert.assertEquals(400, get("/export/messages?format=xml").statusCode());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/export/accounts with Accept-Encoding: gzip
+     *
+     * Expected Response:
+     *  Status Code: 200, Content-Encoding: gzip, Vary: Accept, Accept-Encoding
+     *  Response Body: the accounts as NDJSON, without passwords
+     */
+    @Test
+    public void exportAccountsGzipped() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/export/accounts"))
+                .header("Accept-Encoding", "gzip")
+                .build();
+        HttpResponse<byte[]> response = webClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(""));
+        Assert.assertEquals("Accept, Accept-Encoding", response.headers().firstValue("Vary").orElse(""));
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Assert.assertEquals("{\"account_id\":1,\"username\":\"testuser1\"}\n", body);
+        Assert.assertEquals(400, get("/export/accounts?since=1").statusCode());
+    }
+}
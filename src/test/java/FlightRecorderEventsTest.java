@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Jfr.DaoCallEvent;
+import Jfr.RecordingAnalyzer;
+import Jfr.RequestEvent;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class FlightRecorderEventsTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+    Path recordingFile;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, IOException {
+        ConnectionUtil.resetTestDatabase();
+        recordingFile = Files.createTempFile("api", ".jfr");
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        app.stop();
+        Files.deleteIfExists(recordingFile);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/1 while a recording is running
+     *
+     * Expected Recording:
+     *  a request event for the route template with status 200 and the echoed request id, a DAO event for message 1,
+     *  and an analyzer summary that lists both
+     */
+    @Test
+    public void eventsForGetMessageById() throws Exception {
+        Recording recording = new Recording();
+        recording.enable(RequestEvent.NAME);
+        recording.enable(DaoCallEvent.NAME);
+        recording.start();
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        recording.stop();
+        recording.dump(recordingFile);
+        recording.close();
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        RecordedEvent requestEvent = events.stream()
+                .filter(e -> e.getEventType().getName().equals(RequestEvent.NAME)).findFirst().orElseThrow();
+        Assert.assertEquals("/messages/{id}", requestEvent.getString("route"));
+        Assert.assertEquals(200, requestEvent.getInt("status"));
+        Assert.assertNotNull(requestEvent.getString("requestId"));
+        Assert.assertEquals(response.headers().firstValue("X-Request-Id").orElseThrow(),
+                requestEvent.getString("requestId"));
+        RecordedEvent daoEvent = events.stream()
+                .filter(e -> e.getEventType().getName().equals(DaoCallEvent.NAME)).findFirst().orElseThrow();
+        Assert.assertEquals("getMessageById", daoEvent.getString("method"));
+        Assert.assertEquals(1, daoEvent.getInt("messageId"));
+        Assert.assertEquals(1, daoEvent.getLong("rows"));
+
+        String report = RecordingAnalyzer.analyze(recordingFile).report();
+        Assert.assertTrue(report.contains("GET /messages/{id}"));
+        Assert.assertTrue(report.contains("MessageDAO.getMessageById"));
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Export.ExportFormat;
+import Import.ImportTool;
+import Import.Importer;
+import Service.MessageService;
+import Util.ConnectionUtil;
+
+public class ImportToolTest {
+    Connection connection;
+    Path dir;
+
+    /**
+     * Before every test, reset the database and create a directory for the input files.
+     */
+    @Before
+    public void setUp() throws IOException {
+        ConnectionUtil.resetTestDatabase();
+        connection = ConnectionUtil.getConnection();
+        dir = Files.createTempDirectory("import");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path file : Files.list(dir).toArray(Path[]::new)) {
+            Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    private Importer importer(int chunkBytes) {
+        return new Importer(connection, 2, chunkBytes, 2, MessageService.MAX_MESSAGE_TEXT_LENGTH, null);
+    }
+
+    private List<String> texts() throws SQLException {
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("SELECT message_text FROM message ORDER BY message_id");
+        List<String> texts = new java.util.ArrayList<>();
+        while (rs.next()) {
+            texts.add(rs.getString(1));
+        }
+        statement.close();
+        return texts;
+    }
+
+    /**
+     * Importing an NDJSON file with valid rows, an unknown author, an overlong text, a malformed line and a
+     * blank line.
+     *
+     * Expected Result:
+     *  The valid rows are loaded, the others written to the .rejected file with their reason
+     */
+    @Test
+    public void importNdjson() throws Exception {
+        Path file = dir.resolve("messages.ndjson");
+        Files.write(file, ("{\"message_id\":9,\"posted_by\":1,\"message_text\":\"first\",\"time_posted_epoch\":1}\n"
+                + "{\"posted_by\":2,\"message_text\":\"nobody\",\"time_posted_epoch\":2}\n"
+                + "{\"posted_by\":1,\"message_text\":\"" + "x".repeat(255) + "\",\"time_posted_epoch\":3}\n"
+                + "{\"posted_by\":1,\n"
+                + "\n"
+                + "{\"posted_by\":1,\"message_text\":\"second\",\"time_posted_epoch\":4}\n"
+                + "{\"posted_by\":1,\"message_text\":\"third\",\"time_posted_epoch\":5}").getBytes(StandardCharsets.UTF_8));
+
+        Importer.Result result = importer(64).importFile(file, ExportFormat.NDJSON, false);
+
+        Assert.assertEquals(3, result.getLoaded());
+        Assert.assertEquals(3, result.getRejected());
+        Assert.assertEquals(List.of("test message 1", "first", "second", "third"), texts());
+        List<String> rejects = Files.readAllLines(dir.resolve("messages.ndjson.rejected"));
+        Assert.assertEquals(3, rejects.size());
+        Assert.assertTrue(rejects.get(0), rejects.get(0).startsWith("{\"record\":2,\"reason\":\"unknown posted_by\""));
+        Assert.assertTrue(rejects.get(1), rejects.get(1).contains("\"message_text too long\""));
+        Assert.assertTrue(rejects.get(2), rejects.get(2).contains("\"malformed\""));
+    }
+
+    /**
+     * Importing a gzipped CSV file whose columns are in another order and whose text holds a quoted comma,
+     * quote and line break.
+     *
+     * Expected Result:
+     *  Every row is loaded with its text intact
+     */
+    @Test
+    public void importGzippedCsv() throws Exception {
+        Path file = dir.resolve("messages.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(("time_posted_epoch,message_text,posted_by\r\n"
+                    + "1,plain,1\r\n"
+                    + "2,\"hello, \"\"world\"\"\nbye\",1\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        Importer.Result result = importer(8).importFile(file, ExportFormat.CSV, false);
+
+        Assert.assertEquals(2, result.getLoaded());
+        Assert.assertEquals(0, result.getRejected());
+        Assert.assertEquals(List.of("test message 1", "plain", "hello, \"world\"\nbye"), texts());
+    }
+
+    /**
+     * Importing a file whose checkpoint says the first two records were committed before an interruption,
+     * then importing it again.
+     *
+     * Expected Result:
+     *  Only the remaining records are loaded, and the second run loads nothing
+     */
+    @Test
+    public void resumeFromCheckpoint() throws Exception {
+        Path file = dir.resolve("messages.csv");
+        String header = "posted_by,message_text,time_posted_epoch\n";
+        String committed = "1,one,1\n1,two,2\n";
+        Files.write(file, (header + committed + "1,three,3\n1,four,4\n").getBytes(StandardCharsets.UTF_8));
+        importer(1 << 16).importFile(file, ExportFormat.CSV, true);
+        ConnectionUtil.resetTestDatabase();
+        PreparedStatement checkpoint = connection.prepareStatement(
+                "UPDATE import_checkpoint SET byte_offset = ?, records = 3, loaded = 2, rejected = 0 WHERE source = ?");
+        checkpoint.setLong(1, header.length() + committed.length());
+        checkpoint.setString(2, file.toAbsolutePath().normalize().toString());
+        Assert.assertEquals(1, checkpoint.executeUpdate());
+        checkpoint.close();
+
+        Importer.Result resumed = importer(1 << 16).importFile(file, ExportFormat.CSV, false);
+        Importer.Result again = importer(1 << 16).importFile(file, ExportFormat.CSV, false);
+
+        Assert.assertTrue(resumed.isResumed());
+        Assert.assertEquals(4, resumed.getLoaded());
+        Assert.assertEquals(5, resumed.getRecords());
+        Assert.assertEquals(4, again.getLoaded());
+        Assert.assertEquals(List.of("test message 1", "three", "four"), texts());
+    }
+
+    /**
+     * Running ImportTool.main on an NDJSON file posted by an account added beforehand, then running it
+     * again without --restart.
+     *
+     * Expected Result:
+     *  The existing rows survive and the new account's messages load; the second run resumes from the
+     *  checkpoint and loads nothing more
+     */
+    @Test
+    public void commandLineKeepsDatabaseAndResumes() throws Exception {
+        Statement statement = connection.createStatement();
+        statement.executeUpdate("insert into account (username, password) values ('importer', 'password')");
+        statement.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch)"
+                + " values (2, 'before', 1669947793)");
+        statement.close();
+        Path file = dir.resolve("messages.ndjson");
+        Files.write(file, ("{\"posted_by\":2,\"message_text\":\"one\",\"time_posted_epoch\":1}\n"
+                + "{\"posted_by\":2,\"message_text\":\"two\",\"time_posted_epoch\":2}\n")
+                .getBytes(StandardCharsets.UTF_8));
+        String[] args = {"--threads", "1", file.toString()};
+
+        ImportTool.main(args);
+        ImportTool.main(args);
+
+        Assert.assertFalse(connection.isClosed());
+        Assert.assertEquals(List.of("test message 1", "before", "one", "two"), texts());
+    }
+}
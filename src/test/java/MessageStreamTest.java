@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class MessageStreamTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * One server-sent event: its id, name and parsed data.
+     */
+    static class Event {
+        String id;
+        String name;
+        JsonNode data;
+    }
+
+    private Iterator<String> subscribe(String query, String lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/stream" + query));
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        HttpResponse<Stream<String>> response = webClient
+                .sendAsync(request.build(), HttpResponse.BodyHandlers.ofLines())
+                .get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals("text/event-stream;charset=utf-8",
+                response.headers().firstValue("Content-Type").orElse("").toLowerCase().replace(" ", ""));
+        return response.body().iterator();
+    }
+
+    /**
+     * Reads lines until the next event with a name, skipping comments and the retry hint.
+     */
+    private Event next(Iterator<String> lines) throws IOException {
+        Event event = new Event();
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.startsWith("id: ")) {
+                event.id = line.substring(4);
+            } else if (line.startsWith("event: ")) {
+                event.name = line.substring(7);
+            } else if (line.startsWith("data: ")) {
+                event.data = objectMapper.readTree(line.substring(6));
+            } else if (line.isEmpty() && event.name != null) {
+                return event;
+            }
+        }
+        throw new AssertionError("stream ended");
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Subscribing to GET localhost:8080/messages/stream?posted_by=1, then creating, updating and deleting a
+     * message by account 1 and creating one by account 2.
+     *
+     * Expected Response:
+     *  Status Code: 200, Content-Type: text/event-stream
+     *  Events: created, updated and deleted for account 1's message, nothing for account 2's
+     */
+    @Test
+    public void streamChangesForAuthor() throws Exception {
+        Iterator<String> lines = subscribe("?posted_by=1", null);
+        send("POST", "/register", "{\"username\":\"second\",\"password\":\"password\"}");
+        send("POST", "/messages", "{\"posted_by\":2,\"message_text\":\"other\",\"time_posted_epoch\":1669947793}");
+        send("POST", "/messages", "{\"posted_by\":1,\"message_text\":\"hello\",\"time_posted_epoch\":1669947794}");
+        send("PATCH", "/messages/3", "{\"message_text\":\"edited\"}");
+        send("DELETE", "/messages/3", null);
+
+        Event created = next(lines);
+        Assert.assertEquals("created", created.name);
+        Assert.assertEquals(3, created.data.get("message_id").asInt());
+        Assert.assertEquals("hello", created.data.get("message_text").asText());
+        Event updated = next(lines);
+        Assert.assertEquals("updated", updated.name);
+        Assert.assertEquals("edited", updated.data.get("message_text").asText());
+        Assert.assertEquals(1669947794L, updated.data.get("time_posted_epoch").asLong());
+        Event deleted = next(lines);
+        Assert.assertEquals("deleted", deleted.name);
+        Assert.assertEquals(3, deleted.data.get("message_id").asInt());
+        Assert.assertEquals(Long.parseLong(created.id) + 2, Long.parseLong(deleted.id));
+    }
+
+    /**
+     * Reconnecting to GET localhost:8080/messages/stream with the Last-Event-ID of the first of two messages
+     * posted, and then with an id that is no longer buffered.
+     *
+     * Expected Response:
+     *  The second message is replayed; the unknown id gets a reset event
+     */
+    @Test
+    public void resumeWithLastEventId() throws Exception {
+        Iterator<String> lines = subscribe("", null);
+        send("POST", "/messages", "{\"posted_by\":1,\"message_text\":\"first\",\"time_posted_epoch\":1669947793}");
+        String firstId = next(lines).id;
+        send("POST", "/messages", "{\"posted_by\":1,\"message_text\":\"second\",\"time_posted_epoch\":1669947794}");
+
+        Event replayed = next(subscribe("", firstId));
+        Assert.assertEquals("created", replayed.name);
+        Assert.assertEquals("second", replayed.data.get("message_text").asText());
+
+        Event reset = next(subscribe("", "1"));
+        Assert.assertEquals("reset", reset.name);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/stream?posted_by=abc
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void invalidFilter() throws Exception {
+        HttpResponse<String> response = webClient.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/stream?posted_by=abc")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(400, response.statusCode());
+    }
+}
@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAOImpl;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class PartitionedStorageTest {
+    // 2023-01-01, 2023-02-01 and 2023-03-01 00:00:00 UTC.
+    static final long JAN_2023 = 1672531200L;
+    static final long FEB_2023 = 1675209600L;
+    static final long MAR_2023 = 1677628800L;
+
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add messages in January and March 2023 next to
+     * the December 2022 one, turn on monthly partitioning, restart the Javalin app and
+     * create a new webClient and ObjectMapper.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        dropPartitions();
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        stmt.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch) values"
+                + " (1, 'january', " + (JAN_2023 + 86400) + "), (1, 'march', " + (MAR_2023 + 86400) + ")");
+        stmt.close();
+        System.setProperty("socialmedia.partitioning", "monthly");
+        startApp();
+    }
+
+    private void startApp() throws InterruptedException {
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        app.stop();
+        System.clearProperty("socialmedia.partitioning");
+        System.clearProperty("socialmedia.retention.months");
+        dropPartitions();
+    }
+
+    private static void dropPartitions() throws SQLException {
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        for (String table : partitions()) {
+            stmt.execute("DROP TABLE " + table);
+        }
+        stmt.close();
+    }
+
+    private static List<String> partitions() throws SQLException {
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT table_name FROM information_schema.tables"
+                + " WHERE table_schema = SCHEMA() AND table_name LIKE 'MESSAGE\\_P%' ORDER BY table_name");
+        List<String> tables = new ArrayList<>();
+        while (rs.next()) {
+            tables.add(rs.getString(1));
+        }
+        stmt.close();
+        return tables;
+    }
+
+    private static long count(String sql) throws SQLException {
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        ResultSet rs = stmt.executeQuery(sql);
+        rs.next();
+        long count = rs.getLong(1);
+        stmt.close();
+        return count;
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Integer> ids(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", path, null);
+        Assert.assertEquals(200, response.statusCode());
+        List<Integer> ids = new ArrayList<>();
+        for (Message message : objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {})) {
+            ids.add(message.getMessage_id());
+        }
+        return ids;
+    }
+
+    /**
+     * Starting with partitioning on, then sending an http request to GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message with its original id, now stored one table per month
+     */
+    @Test
+    public void existingMessagesMovedIntoPartitions() throws Exception {
+        Assert.assertEquals(Arrays.asList("MESSAGE_P202212", "MESSAGE_P202301", "MESSAGE_P202303"), partitions());
+        Assert.assertEquals(0, count("SELECT COUNT(*) FROM message"));
+        Assert.assertEquals(Arrays.asList(1, 2, 3), ids("/messages"));
+        Message message = objectMapper.readValue(send("GET", "/messages/2", null).body(), Message.class);
+        Assert.assertEquals("january", message.getMessage_text());
+        Assert.assertEquals(Arrays.asList(1, 2, 3), ids("/accounts/1/messages"));
+    }
+
+    /**
+     * Sending http requests to POST, PATCH and DELETE localhost:8080/messages with partitioning on
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: a new id after the existing ones, and the changes visible to reads
+     */
+    @Test
+    public void writesAreRoutedByMonth() throws Exception {
+        HttpResponse<String> created = send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"february\",\"time_posted_epoch\":" + (FEB_2023 + 60) + "}");
+        Assert.assertEquals(200, created.statusCode());
+        Assert.assertEquals(4, objectMapper.readValue(created.body(), Message.class).getMessage_id());
+        Assert.assertEquals(1, count("SELECT COUNT(*) FROM message_p202302"));
+
+        Assert.assertEquals(200, send("PATCH", "/messages/2", "{\"message_text\":\"changed\"}").statusCode());
+        Assert.assertEquals("changed",
+                objectMapper.readValue(send("GET", "/messages/2", null).body(), Message.class).getMessage_text());
+        Assert.assertEquals(200, send("DELETE", "/messages/1", null).statusCode());
+        Assert.assertEquals("", send("GET", "/messages/1", null).body());
+        Assert.assertEquals(Arrays.asList(2, 4, 3), ids("/messages?since=0"));
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages with partitioning on and a time_posted_epoch
+     * in milliseconds, and with a negative one
+     *
+     * Expected Response:
+     *  Status Code: 400
+     *  Response Body: the validation message, with no partition table created and no id used for either
+     */
+    @Test
+    public void outOfRangeTimesCreateNoPartition() throws Exception {
+        List<String> before = partitions();
+        for (long epoch : new long[]{1675209600000L, -1}) {
+            HttpResponse<String> response = send("POST", "/messages",
+                    "{\"posted_by\":1,\"message_text\":\"when\",\"time_posted_epoch\":" + epoch + "}");
+            Assert.assertEquals(400, response.statusCode());
+            Assert.assertEquals("{\"message\":\"Message time is out of range\"}", response.body());
+        }
+        Assert.assertEquals(before, partitions());
+        Assert.assertEquals(4, count("SELECT NEXT VALUE FOR message_id_seq"));
+    }
+
+    /**
+     * Writing to the base table while partitioned, as the importer does, then restarting and
+     * sending an http request to GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the new row moved into its partition under an id that does not collide
+     */
+    @Test
+    public void baseTableRowsMovedOnRestart() throws Exception {
+        Assert.assertEquals(200, send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"api\",\"time_posted_epoch\":" + (FEB_2023 + 60) + "}").statusCode());
+        app.stop();
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        // The base table's identity knows nothing of id 4, so this row gets it too.
+        stmt.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch) values (1, 'imported', "
+                + (FEB_2023 + 120) + ")");
+        stmt.close();
+        startApp();
+        Assert.assertEquals(0, count("SELECT COUNT(*) FROM message"));
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), ids("/messages"));
+        Assert.assertEquals("imported",
+                objectMapper.readValue(send("GET", "/messages/5", null).body(), Message.class).getMessage_text());
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?since=...&until=... covering January 2023
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the January message, read from the January partition alone
+     */
+    @Test
+    public void rangeQueriesPrunePartitions() throws Exception {
+        Assert.assertEquals(Arrays.asList(2), ids("/messages?since=" + JAN_2023 + "&until=" + FEB_2023));
+        // Partition tables share one template, so one execution means one partition was read.
+        String sql = send("GET", "/admin/sql", null).body();
+        int executions = 0;
+        for (JsonNode template : objectMapper.readTree(sql)) {
+            if (template.get("sql").asText().startsWith("SELECT * FROM message_pN WHERE time_posted_epoch >= ?")) {
+                executions += template.get("count").asInt();
+            }
+        }
+        Assert.assertEquals(sql, 1, executions);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?ids=3,42,1 with partitioning on
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the March and December messages, found in their partitions, in message_id order
+     */
+    @Test
+    public void batchReadSpansPartitions() throws Exception {
+        Assert.assertEquals(Arrays.asList(1, 3), ids("/messages?ids=3,42,1"));
+    }
+
+    /**
+     * Dropping messages before March 2023 removes the two older partitions whole.
+     */
+    @Test
+    public void dropMessagesBeforeDropsPartitions() throws Exception {
+        MessageDAOImpl dao = MessageDAOImpl.partitioned(ConnectionUtil.getConnection());
+        Assert.assertEquals(2, dao.dropMessagesBefore(MAR_2023));
+        Assert.assertEquals(Arrays.asList("MESSAGE_P202303"), partitions());
+        Assert.assertEquals(1, dao.getAllMessages().size());
+        try {
+            dao.dropMessagesBefore(MAR_2023 + 1);
+            Assert.fail("Only month boundaries can be dropped");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * Without partitioning, dropMessagesBefore is a range delete on message.
+     */
+    @Test
+    public void dropMessagesBeforeWithoutPartitions() throws Exception {
+        app.stop();
+        System.clearProperty("socialmedia.partitioning");
+        ConnectionUtil.resetTestDatabase();
+        dropPartitions();
+        Connection connection = ConnectionUtil.getConnection();
+        MessageDAOImpl dao = new MessageDAOImpl(connection);
+        dao.ensureSchema();
+        Assert.assertEquals(1, dao.dropMessagesBefore(JAN_2023));
+        Assert.assertEquals(0, dao.getAllMessages().size());
+        startApp();
+    }
+
+    /**
+     * With socialmedia.retention.months=1, sending an http request to GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: empty, as every message is older than the current month
+     */
+    @Test
+    public void retentionDropsExpiredMonths() throws Exception {
+        app.stop();
+        System.setProperty("socialmedia.retention.months", "1");
+        startApp();
+        Assert.assertEquals(new ArrayList<Integer>(), ids("/messages"));
+        Assert.assertEquals(new ArrayList<String>(), partitions());
+        String metrics = send("GET", "/metrics", null).body();
+        Assert.assertTrue(metrics, metrics.contains("retention_messages_dropped_total 3"));
+    }
+}
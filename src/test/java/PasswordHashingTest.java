@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Account;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class PasswordHashingTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app with a single hashing thread and a
+     * one-slot queue, and create a new webClient and ObjectMapper for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        System.setProperty("socialmedia.auth.hashThreads", "1");
+        System.setProperty("socialmedia.auth.hashQueue", "1");
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("socialmedia.auth.hashThreads");
+        System.clearProperty("socialmedia.auth.hashQueue");
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/register, then POST localhost:8080/login
+     *
+     * Expected Response:
+     *  Status Code: 200 for both, echoing the submitted password, while the database holds an scrypt hash
+     */
+    @Test
+    public void registerStoresHash() throws IOException, InterruptedException, SQLException {
+        HttpResponse<String> register = post("/register", "{\"username\": \"user\", \"password\": \"password\"}");
+        Assert.assertEquals(200, register.statusCode());
+        Assert.assertEquals(new Account(2, "user", "password"),
+                objectMapper.readValue(register.body(), Account.class));
+        Assert.assertTrue(storedPassword("user").startsWith("$scrypt$"));
+
+        HttpResponse<String> login = post("/login", "{\"username\": \"user\", \"password\": \"password\"}");
+        Assert.assertEquals(200, login.statusCode());
+        Assert.assertEquals(new Account(2, "user", "password"), objectMapper.readValue(login.body(), Account.class));
+        Assert.assertEquals(401, post("/login", "{\"username\": \"user\", \"password\": \"wrong\"}").statusCode());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/login for the seeded account, whose password is stored in
+     * plaintext
+     *
+     * Expected Response:
+     *  Status Code: 200, after which the row holds an scrypt hash that still accepts the password
+     */
+    @Test
+    public void legacyPlaintextIsUpgradedOnLogin() throws IOException, InterruptedException, SQLException {
+        Assert.assertEquals("password", storedPassword("testuser1"));
+
+        String body = "{\"username\": \"testuser1\", \"password\": \"password\"}";
+        Assert.assertEquals(200, post("/login", body).statusCode());
+        Assert.assertTrue(storedPassword("testuser1").startsWith("$scrypt$"));
+        Assert.assertEquals(200, post("/login", body).statusCode());
+    }
+
+    /**
+     * Sending many concurrent logins while only one hash can run and one can wait
+     *
+     * Expected Response:
+     *  The excess is refused with 503 and an empty body instead of queueing
+     */
+    @Test
+    public void loginBurstIsShed() throws InterruptedException {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            responses.add(webClient.sendAsync(request("/login",
+                    "{\"username\": \"testuser1\", \"password\": \"password\"}"), HttpResponse.BodyHandlers.ofString()));
+        }
+        int ok = 0;
+        int shed = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            HttpResponse<String> r = response.join();
+            if (r.statusCode() == 200) {
+                ok++;
+            } else if (r.statusCode() == 503) {
+                Assert.assertEquals("", r.body());
+                shed++;
+            }
+        }
+        Assert.assertTrue(ok > 0);
+        Assert.assertTrue(shed > 0);
+        Assert.assertEquals(12, ok + shed);
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return webClient.send(request(path, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String path, String body) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    private String storedPassword(String username) throws SQLException {
+        Connection connection = ConnectionUtil.getConnection();
+        PreparedStatement ps = connection.prepareStatement("SELECT password FROM account WHERE username = ?");
+        ps.setString(1, username);
+        ResultSet rs = ps.executeQuery();
+        rs.next();
+        String password = rs.getString(1);
+        ps.close();
+        return password;
+    }
+}
@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAOImpl;
+import Snapshot.MessageSnapshot;
+import Snapshot.SearchSnapshot;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SearchEndpointTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add 3000 messages from accounts 1 to 3, restart the
+     * Javalin app and create a new webClient and ObjectMapper. Message n (n from 2) is posted by
+     * account n % 3 + 1, says "spam n" when n is a multiple of 7 and "note n" otherwise, and was
+     * posted at 1669947792 + n.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        PreparedStatement accounts = ConnectionUtil.getConnection().prepareStatement(
+                "insert into account (username, password) values (?, 'password')");
+        for (String username : new String[]{"second", "third"}) {
+            accounts.setString(1, username);
+            accounts.executeUpdate();
+        }
+        accounts.close();
+        PreparedStatement insert = ConnectionUtil.getConnection().prepareStatement(
+                "insert into message (posted_by, message_text, time_posted_epoch) values (?, ?, ?)");
+        for (int n = 2; n <= 3001; n++) {
+            insert.setInt(1, n % 3 + 1);
+            insert.setString(2, (n % 7 == 0 ? "spam " : "note ") + n);
+            insert.setLong(3, 1669947792L + n);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        insert.close();
+        startApp();
+    }
+
+    private void startApp() throws InterruptedException {
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("socialmedia.query.parallelism");
+        System.clearProperty("socialmedia.snapshot");
+        System.clearProperty("socialmedia.search.refreshMillis");
+    }
+
+    private HttpResponse<String> search(String filter, String limit) throws IOException, InterruptedException {
+        String uri = "http://localhost:8080/search/messages?q=" + URLEncoder.encode(filter, StandardCharsets.UTF_8)
+                + (limit == null ? "" : "&limit=" + limit);
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(uri)).build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Integer> ids(HttpResponse<String> response) throws IOException {
+        Assert.assertEquals(response.body(), 200, response.statusCode());
+        List<Integer> ids = new ArrayList<>();
+        for (JsonNode message : objectMapper.readTree(response.body())) {
+            ids.add(message.get("message_id").asInt());
+        }
+        return ids;
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/search/messages with
+     * q=text contains "SPAM" and author in (2, 3) and time < 1669947892
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the matching messages in message_id order
+     */
+    @Test
+    public void filterCombinesConditions() throws Exception {
+        List<Integer> expected = new ArrayList<>();
+        for (int n = 2; n < 100; n++) {
+            if (n % 7 == 0 && n % 3 + 1 != 1) {
+                expected.add(n);
+            }
+        }
+        Assert.assertEquals(expected,
+                ids(search("text contains \"SPAM\" and author in (2, 3) and time < 1669947892", null)));
+        Assert.assertEquals(List.of(1, 2, 3),
+                ids(search("not (text contains \"note\" or text contains \"spam\") or time <= 1669947795", null)));
+    }
+
+    /**
+     * With socialmedia.query.parallelism=4, sending http requests to GET
+     * localhost:8080/search/messages?q=text contains "spam" with limits of 3 and 10000
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the first 3 matches, then all 428 of them, in message_id order
+     */
+    @Test
+    public void limitStopsEarly() throws Exception {
+        app.stop();
+        System.setProperty("socialmedia.query.parallelism", "4");
+        startApp();
+        Assert.assertEquals(List.of(7, 14, 21), ids(search("text contains \"spam\"", "3")));
+        List<Integer> all = ids(search("text contains \"spam\"", "10000"));
+        Assert.assertEquals(428, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            Assert.assertEquals(7 * (i + 1), (int) all.get(i));
+        }
+        String metrics = webClient.send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Assert.assertTrue(metrics, metrics.contains("query_scans_total 2"));
+        Assert.assertTrue(metrics, metrics.contains("query_matches_total 431"));
+    }
+
+    /**
+     * With socialmedia.search.refreshMillis=2000, sending an http request to GET
+     * localhost:8080/search/messages?q=text contains "late", inserting a matching message straight into
+     * the database, and searching again at once and after the refresh interval
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: no match from the shared snapshot until it is rebuilt, then the new message
+     */
+    @Test
+    public void searchSnapshotIsSharedAndRefreshed() throws Exception {
+        app.stop();
+        System.setProperty("socialmedia.search.refreshMillis", "2000");
+        startApp();
+        Assert.assertEquals(List.of(), ids(search("text contains \"late\"", null)));
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        stmt.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch) values (1, 'late', 1)");
+        stmt.close();
+        Assert.assertEquals(List.of(), ids(search("text contains \"late\"", null)));
+        Thread.sleep(2100);
+        Assert.assertEquals(List.of(3002), ids(search("text contains \"late\"", null)));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/search/messages with invalid filters and limits
+     *
+     * Expected Response:
+     *  Status Code: 400, with the reason for a filter that does not parse
+     */
+    @Test
+    public void invalidFilterRejected() throws Exception {
+        HttpResponse<String> response = search("text contains spam", null);
+        Assert.assertEquals(400, response.statusCode());
+        Assert.assertEquals("Expected a quoted string but found 'spam' at 14", response.body());
+        Assert.assertEquals(400, search("colour = 3", null).statusCode());
+        Assert.assertEquals(400, search("author in (1, 2", null).statusCode());
+        Assert.assertEquals(400, search("length > 3 and", null).statusCode());
+        Assert.assertEquals(400, search("length > 3", "0").statusCode());
+        Assert.assertEquals(400, search("length > 3", "10001").statusCode());
+    }
+
+    /**
+     * With socialmedia.snapshot=true, sending an http request to POST localhost:8080/messages and
+     * then GET localhost:8080/search/messages?q=text contains "fresh"
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the new message, found in the timeline snapshot
+     */
+    @Test
+    public void searchesTimelineSnapshot() throws Exception {
+        app.stop();
+        System.setProperty("socialmedia.snapshot", "true");
+        startApp();
+        HttpRequest post = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"posted_by\":2,\"message_text\":\"fresh \\u00e9 post\",\"time_posted_epoch\":1669950000}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(200, webClient.send(post, HttpResponse.BodyHandlers.ofString()).statusCode());
+        HttpResponse<String> response = search("text contains \"FRESH \u00e9\" and length = 12", null);
+        Assert.assertEquals(List.of(3002), ids(response));
+        Assert.assertEquals("fresh \u00e9 post", objectMapper.readTree(response.body()).get(0).get("message_text").asText());
+    }
+
+    /**
+     * Building a SearchSnapshot that refreshes on every search from a source that fails after its
+     * first read, then one whose first read fails
+     *
+     * Expected Response:
+     *  The failed refresh keeps the snapshot already built; without one, the failure is thrown
+     *  rather than searched as an empty timeline
+     */
+    @Test
+    public void failedSearchRefreshKeepsSnapshot() {
+        MessageDAOImpl database = new MessageDAOImpl(ConnectionUtil.getConnection());
+        AtomicInteger reads = new AtomicInteger();
+        SearchSnapshot snapshots = new SearchSnapshot(() -> {
+            if (reads.incrementAndGet() > 1) {
+                throw new SQLException("connection lost");
+            }
+            return database.loadAllMessages();
+        }, 0);
+        MessageSnapshot built = snapshots.get();
+        Assert.assertEquals(database.getAllMessages().size(), built.size());
+        Assert.assertSame(built, snapshots.get());
+        Assert.assertEquals(2, reads.get());
+
+        SearchSnapshot failing = new SearchSnapshot(() -> {
+            throw new SQLException("connection lost");
+        }, 0);
+        Assert.assertThrows(IllegalStateException.class, failing::get);
+    }
+}
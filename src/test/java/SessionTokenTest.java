@@ -0,0 +1,207 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SessionTokenTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+    // The build runs the tests with the requirement off; it is restored after each test.
+    String authRequired = System.getProperty("socialmedia.auth.required");
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        startApp();
+    }
+
+    private void startApp() throws InterruptedException {
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        if (authRequired == null) {
+            System.clearProperty("socialmedia.auth.required");
+        } else {
+            System.setProperty("socialmedia.auth.required", authRequired);
+        }
+    }
+
+    private void restartWithTokensRequired() throws InterruptedException {
+        app.stop();
+        System.clearProperty("socialmedia.auth.required");
+        startApp();
+    }
+
+    /**
+     * Logging in as testuser1, then sending POST localhost:8080/messages with the token and no posted_by
+     *
+     * Expected Response:
+     *  Status Code: 200, with posted_by bound to the token's account
+     */
+    @Test
+    public void postMessageBindsPostedByToToken() throws IOException, InterruptedException {
+        String token = login();
+        Assert.assertEquals(35, token.length());
+
+        HttpResponse<String> response = postMessage(token, "{\"message_text\": \"with token\", " +
+                "\"time_posted_epoch\": 1669947792}");
+        Assert.assertEquals(200, response.statusCode());
+        Message actual = objectMapper.readValue(response.body(), Message.class);
+        Assert.assertEquals(new Message(2, 1, "with token", 1669947792), actual);
+    }
+
+    /**
+     * Sending POST localhost:8080/messages with a token for account 1 but posted_by 2
+     *
+     * Expected Response:
+     *  Status Code: 403
+     *  Response Body:
+     */
+    @Test
+    public void postMessageForAnotherAccountIsForbidden() throws IOException, InterruptedException {
+        HttpResponse<String> response = postMessage(login(), "{\"posted_by\": 2, " +
+                "\"message_text\": \"not mine\", \"time_posted_epoch\": 1669947792}");
+        Assert.assertEquals(403, response.statusCode());
+        Assert.assertEquals("", response.body());
+    }
+
+    /**
+     * Sending DELETE localhost:8080/messages/1 with a token whose signature has been altered
+     *
+     * Expected Response:
+     *  Status Code: 401, and the message is not deleted
+     */
+    @Test
+    public void tamperedTokenIsRejected() throws IOException, InterruptedException {
+        String token = login();
+        char last = token.charAt(token.length() - 1);
+        String tampered = token.substring(0, token.length() - 1) + (last == 'A' ? 'Q' : 'A');
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .header("Authorization", "Bearer " + tampered)
+                .DELETE()
+                .build();
+        HttpResponse<String> response = webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(401, response.statusCode());
+        Assert.assertEquals("", response.body());
+
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .build();
+        Assert.assertNotEquals("", webClient.send(getRequest, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    /**
+     * With socialmedia.auth.required left at its default, sending POST localhost:8080/messages,
+     * PATCH localhost:8080/messages/1 and DELETE localhost:8080/messages/1 without a token
+     *
+     * Expected Response:
+     *  Status Code: 401 for each, and message 1 is unchanged with no message added
+     */
+    @Test
+    public void writesWithoutTokenAreRejectedByDefault() throws IOException, InterruptedException {
+        restartWithTokensRequired();
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"posted_by\": 1, " +
+                        "\"message_text\": \"no token\", \"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(401, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest patchRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"message_text\": \"no token\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assert.assertEquals(401, webClient.send(patchRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/1"))
+                .DELETE()
+                .build();
+        Assert.assertEquals(401, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest getRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        Message[] messages = objectMapper.readValue(
+                webClient.send(getRequest, HttpResponse.BodyHandlers.ofString()).body(), Message[].class);
+        Assert.assertEquals(1, messages.length);
+        Assert.assertEquals(new Message(1, 1, "test message 1", 1669947792), messages[0]);
+
+        HttpResponse<String> response = postMessage(login(), "{\"message_text\": \"with token\", " +
+                "\"time_posted_epoch\": 1669947792}");
+        Assert.assertEquals(200, response.statusCode());
+    }
+
+    /**
+     * With tokens required, sending POST localhost:8080/messagesX and POST localhost:8080/messages/1
+     * without a token, neither of which is a registered route
+     *
+     * Expected Response:
+     *  Status Code: 404 for each; only the write routes themselves ask for a token
+     */
+    @Test
+    public void onlyWriteRoutesRequireToken() throws IOException, InterruptedException {
+        restartWithTokensRequired();
+        for (String path : new String[] {"/messagesX", "/messages/1"}) {
+            HttpRequest postRequest = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080" + path))
+                    .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                    .header("Content-Type", "application/json")
+                    .build();
+            Assert.assertEquals(path, 404, webClient.send(postRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+    }
+
+    private String login() throws IOException, InterruptedException {
+        HttpRequest loginRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\": \"testuser1\", \"password\": \"password\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(loginRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return response.headers().firstValue("X-Auth-Token").orElseThrow();
+    }
+
+    private HttpResponse<String> postMessage(String token, String body) throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .build();
+        return webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+    }
+}
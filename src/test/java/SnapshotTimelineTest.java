@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.MessageDAOImpl;
+import Events.MessageEventType;
+import Model.Message;
+import Snapshot.GlobalTimeline;
+import Snapshot.MessageSnapshot;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SnapshotTimelineTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app with the snapshot enabled
+     * and create a new webClient and ObjectMapper.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        System.setProperty("socialmedia.snapshot", "true");
+        startApp();
+    }
+
+    private void startApp() throws InterruptedException {
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("socialmedia.snapshot");
+        System.clearProperty("socialmedia.snapshot.maxStalenessMillis");
+        System.clearProperty("socialmedia.snapshot.reloadMillis");
+    }
+
+    private void restartWithSnapshot(long maxStalenessMillis, long reloadMillis) throws InterruptedException {
+        app.stop();
+        System.setProperty("socialmedia.snapshot.maxStalenessMillis", String.valueOf(maxStalenessMillis));
+        System.setProperty("socialmedia.snapshot.reloadMillis", String.valueOf(reloadMillis));
+        startApp();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode allMessages() throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", "/messages", null);
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readTree(response.body());
+    }
+
+    /**
+     * Sending http requests to POST, PATCH and DELETE messages, each followed by GET
+     * localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200; every change is visible to the next read, in message_id order
+     */
+    @Test
+    public void changesAreVisibleImmediately() throws Exception {
+        Assert.assertEquals(200, send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"second\",\"time_posted_epoch\":1669947800}").statusCode());
+        JsonNode messages = allMessages();
+        Assert.assertEquals(2, messages.size());
+        Assert.assertEquals(1, messages.get(0).get("message_id").asInt());
+        Assert.assertEquals("second", messages.get(1).get("message_text").asText());
+
+        Assert.assertEquals(200, send("PATCH", "/messages/1", "{\"message_text\":\"edited\"}").statusCode());
+        Assert.assertEquals("edited", allMessages().get(0).get("message_text").asText());
+
+        Assert.assertEquals(200, send("DELETE", "/messages/1", null).statusCode());
+        messages = allMessages();
+        Assert.assertEquals(1, messages.size());
+        Assert.assertEquals("second", messages.get(0).get("message_text").asText());
+        Assert.assertTrue(send("GET", "/metrics", null).body().contains("snapshot_messages 1"));
+    }
+
+    /**
+     * With a one second staleness bound, sending an http request to POST localhost:8080/messages
+     * followed by GET localhost:8080/messages until the new message appears
+     *
+     * Expected Response:
+     *  Status Code: 200; the message appears within the bound
+     */
+    @Test
+    public void batchedChangesAppearWithinBound() throws Exception {
+        restartWithSnapshot(1000, 0);
+        long start = System.nanoTime();
+        Assert.assertEquals(200, send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"second\",\"time_posted_epoch\":1669947800}").statusCode());
+        while (allMessages().size() < 2) {
+            Assert.assertTrue("not visible after 3s", System.nanoTime() - start < 3_000_000_000L);
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * With the snapshot reloaded every 200ms, inserting a message directly into the database and
+     * then sending an http request to GET localhost:8080/messages
+     *
+     * Expected Response:
+     *  Status Code: 200; the message appears once the snapshot has been reloaded
+     */
+    @Test
+    public void reloadPicksUpChangesMadeOutsideTheService() throws Exception {
+        restartWithSnapshot(0, 200);
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        stmt.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch) values"
+                + " (1, 'imported', 1669947800)");
+        stmt.close();
+        Thread.sleep(1000);
+        JsonNode messages = allMessages();
+        Assert.assertEquals(2, messages.size());
+        Assert.assertEquals("imported", messages.get(1).get("message_text").asText());
+    }
+
+    /**
+     * Publishing creates for 3000 messages in random order, then deletes for every third one,
+     * straight to a GlobalTimeline, with the texts kept on and off the heap
+     *
+     * Expected Response:
+     *  The snapshot holds message 1 and the remaining 2000 in message_id order with their texts
+     *  intact, and earlier snapshots are unchanged
+     */
+    @Test
+    public void snapshotStaysOrderedAcrossChunks() {
+        checkChunks(false);
+        checkChunks(true);
+    }
+
+    private void checkChunks(boolean offHeap) {
+        MessageDAOImpl dao = new MessageDAOImpl(ConnectionUtil.getConnection());
+        GlobalTimeline timeline = new GlobalTimeline(dao, 0, 0, offHeap);
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 2; id <= 3001; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, new Random(42));
+        for (int id : ids) {
+            timeline.publish(MessageEventType.CREATED, new Message(id, 1, "m\u00e9" + id, 1669947792L + id));
+        }
+        MessageSnapshot full = timeline.current();
+        for (int id = 3; id <= 3001; id += 3) {
+            timeline.publish(MessageEventType.DELETED, new Message(id, 1, "m" + id, 1669947792L + id));
+        }
+        timeline.publish(MessageEventType.UPDATED, new Message(3, 1, "resurrected", 1669947795L));
+        timeline.publish(MessageEventType.UPDATED, new Message(2000, 1, "\u2713 edited", 1669949792L));
+
+        MessageSnapshot snapshot = timeline.current();
+        List<Message> messages = snapshot.messages();
+        Assert.assertEquals(3001 - 1000, messages.size());
+        Assert.assertEquals("test message 1", messages.get(0).getMessage_text());
+        for (int i = 1; i < messages.size(); i++) {
+            Assert.assertTrue(messages.get(i - 1).getMessage_id() < messages.get(i).getMessage_id());
+        }
+        Assert.assertEquals("m\u00e93001", messages.get(messages.size() - 1).getMessage_text());
+        Assert.assertNull(snapshot.get(3));
+        Assert.assertEquals("\u2713 edited", snapshot.get(2000).getMessage_text());
+        Assert.assertEquals(3001, full.size());
+        Assert.assertEquals("m\u00e93", full.get(3).getMessage_text());
+        Assert.assertEquals("m\u00e92000", full.get(2000).getMessage_text());
+        timeline.close();
+    }
+
+    /**
+     * Publishing creates for 3000 messages straight to a GlobalTimeline that keeps its texts off
+     * the heap, then inserting them into the database and reloading
+     *
+     * Expected Response:
+     *  The changes leave the direct text bytes where the load put them or lower while the total
+     *  grows; after the reload every text byte is direct again
+     */
+    @Test
+    public void changesKeepCopiesOnTheHeapUntilReload() throws Exception {
+        MessageDAOImpl dao = new MessageDAOImpl(ConnectionUtil.getConnection());
+        GlobalTimeline timeline = new GlobalTimeline(dao, 0, 0, true);
+        long loadedDirect = timeline.current().directTextBytes();
+        Assert.assertEquals(timeline.current().textBytes(), loadedDirect);
+        for (int id = 2; id <= 3001; id++) {
+            timeline.publish(MessageEventType.CREATED, new Message(id, 1, "message " + id, 1669947792L + id));
+        }
+        MessageSnapshot changed = timeline.current();
+        Assert.assertEquals(3001, changed.size());
+        Assert.assertTrue(changed.directTextBytes() <= loadedDirect);
+        Assert.assertTrue(changed.textBytes() > 3000 * "message ".length());
+
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        stmt.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch)"
+                + " select 1, 'message ' || x, 1669947792 + x from system_range(2, 3001)");
+        stmt.close();
+        timeline.reload();
+        MessageSnapshot reloaded = timeline.current();
+        Assert.assertEquals(3001, reloaded.size());
+        Assert.assertEquals(reloaded.textBytes(), reloaded.directTextBytes());
+        Assert.assertEquals("message 3001", reloaded.get(3001).getMessage_text());
+        timeline.close();
+    }
+
+    /**
+     * Loading a GlobalTimeline through its own connection, closing that connection and reloading
+     *
+     * Expected Response:
+     *  The failed reload keeps the loaded snapshot rather than publishing an empty one
+     */
+    @Test
+    public void failedReloadKeepsSnapshot() throws Exception {
+        Connection connection = ConnectionUtil.openConnection();
+        GlobalTimeline timeline = new GlobalTimeline(new MessageDAOImpl(connection), 0, 0, false);
+        MessageSnapshot loaded = timeline.current();
+        Assert.assertEquals(1, loaded.size());
+        connection.close();
+        timeline.reload();
+        Assert.assertSame(loaded, timeline.current());
+        Assert.assertEquals("test message 1", timeline.current().get(1).getMessage_text());
+        timeline.close();
+    }
+}
@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SoftDeleteTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add four more messages, restart the Javalin app
+     * and create a new webClient and ObjectMapper.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        stmt.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch) values"
+                + " (1, 'b', 1669947793), (1, 'c', 1669947794), (1, 'd', 1669947795), (1, 'e', 1669947796)");
+        stmt.close();
+        startApp();
+    }
+
+    private void startApp() throws InterruptedException {
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        for (String name : new String[]{"intervalMillis", "graceMillis", "batchSize", "pauseMillis", "window"}) {
+            System.clearProperty("socialmedia.purge." + name);
+        }
+    }
+
+    private void restartWithPurge(long intervalMillis, long graceMillis, String window) throws InterruptedException {
+        app.stop();
+        System.setProperty("socialmedia.purge.intervalMillis", String.valueOf(intervalMillis));
+        System.setProperty("socialmedia.purge.graceMillis", String.valueOf(graceMillis));
+        System.setProperty("socialmedia.purge.batchSize", "2");
+        System.setProperty("socialmedia.purge.pauseMillis", "0");
+        System.setProperty("socialmedia.purge.window", window);
+        startApp();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static long count(String sql) throws SQLException {
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        ResultSet rs = stmt.executeQuery(sql);
+        rs.next();
+        long count = rs.getLong(1);
+        stmt.close();
+        return count;
+    }
+
+    private String metrics() throws IOException, InterruptedException {
+        return send("GET", "/metrics", null).body();
+    }
+
+    /**
+     * Sending an http request to DELETE localhost:8080/messages/1, then reading, updating and
+     * deleting it again
+     *
+     * Expected Response:
+     *  Status Code: 200 for the delete, with the message; afterwards it is gone from every read,
+     *  cannot be updated, and the row is kept as a tombstone
+     */
+    @Test
+    public void deleteLeavesTombstone() throws Exception {
+        HttpResponse<String> deleted = send("DELETE", "/messages/1", null);
+        Assert.assertEquals(200, deleted.statusCode());
+        Assert.assertTrue(deleted.body(), deleted.body().contains("\"message_id\":1"));
+
+        Assert.assertEquals("", send("GET", "/messages/1", null).body());
+        Assert.assertFalse(send("GET", "/messages", null).body().contains("\"message_id\":1,"));
+        Assert.assertFalse(send("GET", "/accounts/1/messages", null).body().contains("\"message_id\":1,"));
+        Assert.assertFalse(send("GET", "/messages?since=0", null).body().contains("\"message_id\":1,"));
+        Assert.assertEquals(400, send("PATCH", "/messages/1", "{\"message_text\":\"back\"}").statusCode());
+        HttpResponse<String> again = send("DELETE", "/messages/1", null);
+        Assert.assertEquals(200, again.statusCode());
+        Assert.assertEquals("", again.body());
+
+        Assert.assertEquals(1, count("SELECT COUNT(*) FROM message WHERE message_id = 1 AND deleted_at IS NOT NULL"));
+        Assert.assertTrue(metrics().contains("purge_backlog 1"));
+        Assert.assertEquals(4, objectMapper.readTree(send("GET", "/stats", null).body()).get("messages").asLong());
+    }
+
+    /**
+     * With the purger running every 200ms, a one second grace period and batches of 2, sending
+     * http requests to DELETE five messages
+     *
+     * Expected Response:
+     *  Status Code: 200; the tombstones stay for the grace period, then are purged in batches
+     */
+    @Test
+    public void purgerRemovesTombstonesInBatches() throws Exception {
+        restartWithPurge(200, 1000, "");
+        for (int id = 1; id <= 5; id++) {
+            Assert.assertEquals(200, send("DELETE", "/messages/" + id, null).statusCode());
+        }
+        Assert.assertEquals(5, count("SELECT COUNT(*) FROM message"));
+        Thread.sleep(2000);
+        Assert.assertEquals(0, count("SELECT COUNT(*) FROM message"));
+        String metrics = metrics();
+        Assert.assertTrue(metrics, metrics.contains("purge_messages_total 5"));
+        Assert.assertTrue(metrics, metrics.contains("purge_backlog 0"));
+        Assert.assertFalse(metrics, metrics.contains("purge_batches_total 0"));
+    }
+
+    /**
+     * With a purge window that opens in two hours, sending an http request to DELETE
+     * localhost:8080/messages/1
+     *
+     * Expected Response:
+     *  Status Code: 200; the tombstone is not purged outside the window
+     */
+    @Test
+    public void purgerWaitsForWindow() throws Exception {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("HH:mm");
+        LocalTime now = LocalTime.now(ZoneOffset.UTC);
+        restartWithPurge(100, 0, now.plusHours(2).format(format) + "-" + now.plusHours(3).format(format));
+        Assert.assertEquals(200, send("DELETE", "/messages/1", null).statusCode());
+        Thread.sleep(500);
+        Assert.assertEquals(1, count("SELECT COUNT(*) FROM message WHERE deleted_at IS NOT NULL"));
+        Assert.assertTrue(metrics().contains("purge_messages_total 0"));
+    }
+}
@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SparseFieldsTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add accounts 2 and 3 and messages 2 to 4, restart
+     * the Javalin app and create a new webClient and ObjectMapper.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        stmt.executeUpdate("insert into account (username, password) values ('second', 'password'), ('third', 'password')");
+        stmt.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch) values"
+                + " (2, 'two', 1669947793), (3, 'three', 1669947794), (2, 'four', 1669947795)");
+        stmt.close();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode read(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = get(path);
+        Assert.assertEquals(response.body(), 200, response.statusCode());
+        return objectMapper.readTree(response.body());
+    }
+
+    private static List<String> names(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        for (Iterator<String> it = node.fieldNames(); it.hasNext(); ) {
+            names.add(it.next());
+        }
+        return names;
+    }
+
+    private String metrics() throws IOException, InterruptedException {
+        return get("/metrics").body();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?fields=message_id,time_posted_epoch
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message with only message_id and time_posted_epoch, read by a query
+     *  that does not select message_text
+     */
+    @Test
+    public void messageFieldsPushedDown() throws Exception {
+        JsonNode messages = read("/messages?fields=message_id,time_posted_epoch");
+        Assert.assertEquals(4, messages.size());
+        for (JsonNode message : messages) {
+            Assert.assertEquals(List.of("message_id", "time_posted_epoch"), names(message));
+        }
+        Assert.assertEquals(1669947793L, messages.get(1).get("time_posted_epoch").asLong());
+        Assert.assertTrue(metrics().contains("db_statement_seconds_count{sql=\"SELECT message_id, time_posted_epoch"
+                + " FROM message WHERE deleted_at IS NULL\"} 1"));
+
+        JsonNode message = read("/messages/3?fields=message_text");
+        Assert.assertEquals(List.of("message_text"), names(message));
+        Assert.assertEquals("three", message.get("message_text").asText());
+        Assert.assertEquals(List.of("posted_by"), names(read("/accounts/2/messages?fields=posted_by").get(1)));
+        Assert.assertEquals(List.of("message_id"), names(read("/messages?ids=4,2&fields=message_id").get(1)));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?since=0&limit=2&fields=message_text
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: two messages with only message_text, and an X-Next-Cursor built from the
+     *  time and id that were read for it but not written
+     */
+    @Test
+    public void pageKeepsCursorFields() throws Exception {
+        HttpResponse<String> response = get("/messages?since=0&limit=2&fields=message_text");
+        Assert.assertEquals(200, response.statusCode());
+        JsonNode messages = objectMapper.readTree(response.body());
+        Assert.assertEquals(List.of("message_text"), names(messages.get(0)));
+        Assert.assertEquals("1669947793:2", response.headers().firstValue("X-Next-Cursor").orElse(null));
+
+        JsonNode expanded = read("/messages/2?fields=message_id&expand=author");
+        Assert.assertEquals(List.of("message_id", "author"), names(expanded));
+        Assert.assertEquals("second", expanded.get("author").get("username").asText());
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts, with and without fields
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: accounts without passwords; only usernames when fields=username
+     */
+    @Test
+    public void accountsNeverShipPasswords() throws Exception {
+        JsonNode accounts = read("/accounts");
+        Assert.assertEquals(3, accounts.size());
+        Assert.assertEquals(List.of("account_id", "username"), names(accounts.get(0)));
+        JsonNode usernames = read("/accounts?fields=username");
+        Assert.assertEquals(List.of("username"), names(usernames.get(2)));
+        Assert.assertEquals("third", usernames.get(2).get("username").asText());
+        Assert.assertEquals(List.of("account_id"), names(read("/accounts?ids=2&fields=account_id").get(0)));
+        String metrics = metrics();
+        Assert.assertTrue(metrics, metrics.contains("db_statement_seconds_count{sql=\"SELECT username FROM account\"} 1"));
+        Assert.assertFalse(metrics, metrics.contains("SELECT * FROM account\""));
+    }
+
+    /**
+     * Sending http requests to the read endpoints with unknown fields
+     *
+     * Expected Response:
+     *  Status Code: 400, and no query is run
+     */
+    @Test
+    public void invalidFieldsRejectedBeforeQuerying() throws Exception {
+        Assert.assertEquals(400, get("/messages?fields=message_id,colour").statusCode());
+        Assert.assertEquals(400, get("/messages?fields=").statusCode());
+        Assert.assertEquals(400, get("/messages/1?fields=password").statusCode());
+        Assert.assertEquals(400, get("/accounts/1/messages?fields=author").statusCode());
+        Assert.assertEquals(400, get("/accounts?fields=password").statusCode());
+        HttpResponse<String> search = get("/search/messages?q=length%20%3E%200&fields=text");
+        Assert.assertEquals(400, search.statusCode());
+        Assert.assertEquals("Unknown message field 'text'", search.body());
+        String metrics = metrics();
+        Assert.assertFalse(metrics, metrics.contains("SELECT * FROM message"));
+        Assert.assertFalse(metrics, metrics.contains("FROM account"));
+
+        Assert.assertEquals(List.of("message_id"), names(read("/search/messages?q=length%20%3E%200&fields=message_id").get(0)));
+    }
+}
@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Jdbc.InstrumentedJdbc;
+import Jdbc.SlowQueryLog;
+import Jdbc.SqlTemplateStats;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class SqlStatsEndpointTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/1 and then GET localhost:8080/admin/sql
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the message lookup template with one execution and one row, also exported on /metrics
+     */
+    @Test
+    public void sqlStatsAfterRequest() throws IOException, InterruptedException {
+        send("/messages/1");
+
+        HttpResponse<String> response = send("/admin/sql");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.body().contains(
+                "{\"sql\":\"SELECT * FROM message WHERE message_id = ? AND deleted_at IS NULL\",\"count\":1,\"rows\":1,\"errors\":0"));
+
+        String metrics = send("/metrics").body();
+        Assert.assertTrue(metrics.contains(
+                "db_statement_seconds_count{sql=\"SELECT * FROM message WHERE message_id = ? AND deleted_at IS NULL\"} 1"));
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/admin/sql/explain for a template that was executed,
+     * and for one that never was
+     *
+     * Expected Response:
+     *  Status Code: 200 with the H2 plan, then 404
+     */
+    @Test
+    public void explainKnownTemplateOnly() throws IOException, InterruptedException {
+        send("/messages/1");
+
+        HttpResponse<String> known = send("/admin/sql/explain?sql="
+                + URLEncoder.encode("SELECT * FROM message WHERE message_id = ? AND deleted_at IS NULL", StandardCharsets.UTF_8));
+        Assert.assertEquals(200, known.statusCode());
+        Assert.assertTrue(known.body().contains("\"plan\":\"SELECT"));
+
+        HttpResponse<String> unknown = send("/admin/sql/explain?sql="
+                + URLEncoder.encode("DELETE FROM account", StandardCharsets.UTF_8));
+        Assert.assertEquals(404, unknown.statusCode());
+    }
+
+    private HttpResponse<String> send(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Through an instrumented connection, creating two numbered tables, counting the rows of each,
+     * then running more distinct statements than the template limit
+     *
+     * Expected Response:
+     *  Both counts share the template SELECT COUNT(*) FROM sqlstats_pN, which can still be explained;
+     *  the DDL is not recorded, and the templates stop growing at the limit
+     */
+    @Test
+    public void templatesStayBounded() throws SQLException {
+        InstrumentedJdbc jdbc = new InstrumentedJdbc(new SlowQueryLog(60_000, 0));
+        Connection connection = jdbc.wrap(ConnectionUtil.openConnection());
+        try {
+            Statement stmt = connection.createStatement();
+            for (String month : new String[] {"202401", "202402"}) {
+                stmt.execute("CREATE TABLE sqlstats_p" + month + " (id INT)");
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlstats_p" + month);
+                rs.next();
+                rs.close();
+            }
+            SqlTemplateStats count = find(jdbc, "SELECT COUNT(*) FROM sqlstats_pN");
+            Assert.assertNotNull(count);
+            Assert.assertEquals(2, count.getLatency().count());
+            Assert.assertNull(find(jdbc, "CREATE TABLE sqlstats_p202401 (id INT)"));
+            Assert.assertNull(find(jdbc, "CREATE TABLE sqlstats_pN (id INT)"));
+            Assert.assertNotNull(jdbc.explain(ConnectionUtil.getConnection(), "SELECT COUNT(*) FROM sqlstats_pN"));
+
+            for (int i = 0; i < 1100; i++) {
+                ResultSet rs = stmt.executeQuery("SELECT " + i + " FROM DUAL");
+                rs.close();
+            }
+            Assert.assertEquals(1000, jdbc.templates().size());
+            stmt.execute("DROP TABLE sqlstats_p202401");
+            stmt.execute("DROP TABLE sqlstats_p202402");
+            stmt.close();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static SqlTemplateStats find(InstrumentedJdbc jdbc, String sql) {
+        for (SqlTemplateStats stats : jdbc.templates()) {
+            if (stats.getSql().equals(sql)) {
+                return stats;
+            }
+        }
+        return null;
+    }
+}
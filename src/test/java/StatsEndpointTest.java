@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class StatsEndpointTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+    long now;
+
+    /**
+     * Before every test, reset the database, add a second account with two messages posted
+     * now, restart the Javalin app and create a new webClient and ObjectMapper.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        now = System.currentTimeMillis() / 1000;
+        Connection connection = ConnectionUtil.getConnection();
+        Statement stmt = connection.createStatement();
+        stmt.executeUpdate("insert into account (username, password) values ('testuser2', 'password')");
+        stmt.close();
+        insertDirectly(2, 2);
+        startApp();
+    }
+
+    private void startApp() throws InterruptedException {
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("socialmedia.stats.reconcileMillis");
+    }
+
+    private void insertDirectly(int postedBy, int count) throws SQLException {
+        PreparedStatement ps = ConnectionUtil.getConnection().prepareStatement(
+                "insert into message (posted_by, message_text, time_posted_epoch) values (?, 'direct', ?)");
+        for (int i = 0; i < count; i++) {
+            ps.setInt(1, postedBy);
+            ps.setLong(2, now);
+            ps.executeUpdate();
+        }
+        ps.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode getJson(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", path, null);
+        Assert.assertEquals(200, response.statusCode());
+        return objectMapper.readTree(response.body());
+    }
+
+    /**
+     * Messages in the last two hours, so the count holds if the test runs across an hour boundary.
+     */
+    private long lastHour() throws IOException, InterruptedException {
+        JsonNode hours = getJson("/stats/hourly?hours=2");
+        Assert.assertEquals(3600, hours.get(1).get("hour_start").asLong() - hours.get(0).get("hour_start").asLong());
+        return hours.get(0).get("messages").asLong() + hours.get(1).get("messages").asLong();
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/stats, /stats/top and /stats/hourly
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: counts loaded from the database at startup
+     */
+    @Test
+    public void statsLoadedAtStartup() throws IOException, InterruptedException {
+        Assert.assertEquals(3, getJson("/stats").get("messages").asLong());
+        JsonNode top = getJson("/stats/top");
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals(2, top.get(0).get("account_id").asInt());
+        Assert.assertEquals(2, top.get(0).get("messages").asLong());
+        Assert.assertEquals(1, top.get(1).get("account_id").asInt());
+        Assert.assertEquals(1, getJson("/stats/top?limit=1").size());
+        Assert.assertEquals(2, lastHour());
+        Assert.assertEquals(24, getJson("/stats/hourly").size());
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages and DELETE localhost:8080/messages/{id}
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: GET localhost:8080/stats/accounts/1 and /stats/hourly follow each change
+     */
+    @Test
+    public void statsFollowCreateAndDelete() throws IOException, InterruptedException {
+        HttpResponse<String> created = send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"hi\",\"time_posted_epoch\":" + now + "}");
+        Assert.assertEquals(200, created.statusCode());
+        Assert.assertEquals(2, getJson("/stats/accounts/1").get("messages").asLong());
+        Assert.assertEquals(4, getJson("/stats").get("messages").asLong());
+        Assert.assertEquals(3, lastHour());
+
+        int id = objectMapper.readTree(created.body()).get("message_id").asInt();
+        Assert.assertEquals(200, send("DELETE", "/messages/" + id, null).statusCode());
+        Assert.assertEquals(1, getJson("/stats/accounts/1").get("messages").asLong());
+        Assert.assertEquals(2, lastHour());
+        Assert.assertEquals(0, getJson("/stats/accounts/99").get("messages").asLong());
+    }
+
+    /**
+     * Inserting messages straight into the database with reconciliation every 200ms, then
+     * sending an http request to GET localhost:8080/stats/accounts/2
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the count including the rows the service never saw
+     */
+    @Test
+    public void reconcileCatchesOutsideWrites() throws Exception {
+        app.stop();
+        System.setProperty("socialmedia.stats.reconcileMillis", "200");
+        startApp();
+        insertDirectly(2, 3);
+        Thread.sleep(1000);
+        Assert.assertEquals(5, getJson("/stats/accounts/2").get("messages").asLong());
+        Assert.assertEquals(6, getJson("/stats").get("messages").asLong());
+        Assert.assertEquals(5, lastHour());
+        String metrics = send("GET", "/metrics", null).body();
+        Assert.assertTrue(metrics, metrics.contains("stats_corrections_total 6"));
+    }
+
+    /**
+     * Sending http requests to POST localhost:8080/messages dated a whole ring (168 hours) ahead, so it maps
+     * onto the current hour's slot, and then one dated now
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: /stats counts the future message, /stats/hourly ignores it and keeps counting the
+     *  current hour
+     */
+    @Test
+    public void futureMessageLeavesHourlyCountsAlone() throws IOException, InterruptedException {
+        Assert.assertEquals(200, send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"later\",\"time_posted_epoch\":" + (now + 168 * 3600) + "}")
+                .statusCode());
+        Assert.assertEquals(200, send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"now\",\"time_posted_epoch\":" + now + "}").statusCode());
+
+        Assert.assertEquals(5, getJson("/stats").get("messages").asLong());
+        Assert.assertEquals(3, lastHour());
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/stats with out-of-range parameters
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void rejectInvalidParameters() throws IOException, InterruptedException {
+        for (String path : new String[]{"/stats/top?limit=0", "/stats/top?limit=101", "/stats/hourly?hours=x",
+                "/stats/hourly?hours=169", "/stats/accounts/x"}) {
+            Assert.assertEquals(path, 400, send("GET", path, null).statusCode());
+        }
+    }
+}
@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import DAO.CachingMessageDAO;
+import DAO.MessageDAO;
+import DAO.MessageDAOImpl;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class TimeRangeQueryTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, add a second account and five messages at
+     * times 1000 (ids 2, 3, 4), 2000 (id 5) and 3000 (id 6), restart the Javalin app and
+     * create a new webClient and ObjectMapper.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, SQLException {
+        ConnectionUtil.resetTestDatabase();
+        Connection connection = ConnectionUtil.getConnection();
+        Statement stmt = connection.createStatement();
+        stmt.executeUpdate("insert into account (username, password) values ('testuser2', 'password')");
+        stmt.executeUpdate("insert into message (posted_by, message_text, time_posted_epoch) values"
+                + " (1, 'a', 1000), (2, 'b', 1000), (1, 'c', 1000), (1, 'd', 2000), (2, 'e', 3000)");
+        stmt.close();
+        startApp();
+    }
+
+    private void startApp() throws InterruptedException {
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        System.clearProperty("socialmedia.cache");
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Integer> ids(HttpResponse<String> response) throws IOException {
+        Assert.assertEquals(200, response.statusCode());
+        List<Integer> ids = new ArrayList<>();
+        for (Message message : objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {})) {
+            ids.add(message.getMessage_id());
+        }
+        return ids;
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages?since=1000&until=2000
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the messages posted at 1000, in id order, without X-Next-Cursor
+     */
+    @Test
+    public void getMessagesInTimeRange() throws IOException, InterruptedException {
+        HttpResponse<String> response = send("GET", "/messages?since=1000&until=2000", null);
+        Assert.assertEquals(Arrays.asList(2, 3, 4), ids(response));
+        Assert.assertFalse(response.headers().firstValue("X-Next-Cursor").isPresent());
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages?limit=2, following X-Next-Cursor
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: every message exactly once, oldest first, across pages that split
+     *  the three messages posted at 1000
+     */
+    @Test
+    public void paginateWithCursor() throws IOException, InterruptedException {
+        List<Integer> seen = new ArrayList<>();
+        String path = "/messages?limit=2";
+        int pages = 0;
+        while (path != null) {
+            HttpResponse<String> response = send("GET", path, null);
+            seen.addAll(ids(response));
+            pages++;
+            String cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+            path = cursor == null ? null : "/messages?limit=2&cursor=" + cursor;
+        }
+        Assert.assertEquals(Arrays.asList(2, 3, 4, 5, 6, 1), seen);
+        Assert.assertEquals(4, pages);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/accounts/1/messages?since=1000&until=3000
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only account 1's messages in the range
+     */
+    @Test
+    public void getMessagesForUserInTimeRange() throws IOException, InterruptedException {
+        Assert.assertEquals(Arrays.asList(2, 4, 5), ids(send("GET", "/accounts/1/messages?since=1000&until=3000", null)));
+        Assert.assertEquals(Arrays.asList(6), ids(send("GET", "/accounts/2/messages?since=2000", null)));
+    }
+
+    /**
+     * Sending http requests to GET localhost:8080/messages with malformed range parameters
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void rejectInvalidRange() throws IOException, InterruptedException {
+        for (String query : new String[]{"since=x", "since=5&until=1", "limit=0", "limit=1001", "cursor=abc",
+                "since=2000&cursor=1000:3"}) {
+            HttpResponse<String> response = send("GET", "/messages?" + query, null);
+            Assert.assertEquals(query, 400, response.statusCode());
+            Assert.assertEquals(query, "", response.body());
+        }
+    }
+
+    /**
+     * The range queries are planned on the time index rather than a table scan.
+     */
+    @Test
+    public void rangeQueryUsesTimeIndex() throws SQLException {
+        Statement stmt = ConnectionUtil.getConnection().createStatement();
+        ResultSet rs = stmt.executeQuery("EXPLAIN SELECT * FROM message WHERE time_posted_epoch >= 1000"
+                + " AND time_posted_epoch < 2000 AND (time_posted_epoch > 1000 OR message_id > 0)"
+                + " ORDER BY time_posted_epoch, message_id LIMIT 10");
+        rs.next();
+        String plan = rs.getString(1);
+        stmt.close();
+        Assert.assertTrue(plan, plan.contains("MESSAGE_TIME_IDX"));
+    }
+
+    /**
+     * With socialmedia.cache=true, sending POST, PATCH and DELETE requests and then
+     * GET localhost:8080/messages?since=1000&until=2000
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the range as the database now has it
+     */
+    @Test
+    public void cachedRangeFollowsWrites() throws IOException, InterruptedException {
+        app.stop();
+        System.setProperty("socialmedia.cache", "true");
+        startApp();
+
+        Assert.assertEquals(Arrays.asList(2, 3, 4), ids(send("GET", "/messages?since=1000&until=2000", null)));
+        Assert.assertEquals(200, send("POST", "/messages",
+                "{\"posted_by\":1,\"message_text\":\"f\",\"time_posted_epoch\":1500}").statusCode());
+        Assert.assertEquals(200, send("PATCH", "/messages/3", "{\"message_text\":\"changed\"}").statusCode());
+        Assert.assertEquals(200, send("DELETE", "/messages/2", null).statusCode());
+
+        HttpResponse<String> response = send("GET", "/messages?since=1000&until=2000", null);
+        List<Message> messages = objectMapper.readValue(response.body(), new TypeReference<List<Message>>() {});
+        Assert.assertEquals(Arrays.asList(3, 4, 7), ids(response));
+        Assert.assertEquals("changed", messages.get(0).getMessage_text());
+        Assert.assertEquals(Arrays.asList(4, 7), ids(send("GET", "/accounts/1/messages?since=1000&until=2000", null)));
+        Assert.assertEquals(Arrays.asList(1, 3, 4, 5, 6, 7), ids(send("GET", "/messages", null)));
+    }
+
+    /**
+     * Reading through a CachingMessageDAO whose first load fails, inserting a message past the cache,
+     * then reading again
+     *
+     * Expected Response:
+     *  The first read is answered by the database; the failure does not leave an empty cache, so the
+     *  second read loads it and includes the new message
+     */
+    @Test
+    public void failedCacheLoadIsRetried() throws SQLException {
+        MessageDAOImpl database = new MessageDAOImpl(ConnectionUtil.getConnection());
+        AtomicBoolean fail = new AtomicBoolean(true);
+        MessageDAO flaky = (MessageDAO) Proxy.newProxyInstance(MessageDAO.class.getClassLoader(),
+                new Class<?>[] {MessageDAO.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("loadAllMessages") && fail.getAndSet(false)) {
+                        throw new SQLException("connection lost");
+                    }
+                    try {
+                        return method.invoke(database, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        CachingMessageDAO cache = new CachingMessageDAO(flaky);
+
+        Assert.assertEquals(Arrays.asList(2, 3, 4), ids(cache.getMessagesByTime(1000, 2000, 0, 10)));
+        Assert.assertFalse(fail.get());
+        Assert.assertTrue(database.insertMessage(new Message(0, 1, "f", 1500)));
+        Assert.assertEquals(Arrays.asList(2, 3, 4, 7), ids(cache.getMessagesByTime(1000, 2000, 0, 10)));
+        Assert.assertEquals(7, cache.getAllMessages().size());
+    }
+
+    /**
+     * Editing message 3 from four threads at once through a CachingMessageDAO
+     *
+     * Expected Response:
+     *  The cached text is the one the database kept, the last edit to commit
+     */
+    @Test
+    public void concurrentEditsReachCacheInCommitOrder() throws Exception {
+        MessageDAOImpl database = new MessageDAOImpl(ConnectionUtil.getConnection());
+        // Pauses after each committed edit, so that a later edit can commit before this one is cached.
+        MessageDAO slow = (MessageDAO) Proxy.newProxyInstance(MessageDAO.class.getClassLoader(),
+                new Class<?>[] {MessageDAO.class}, (proxy, method, args) -> {
+                    try {
+                        return method.invoke(database, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (method.getName().equals("updateMessageText")) {
+                            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+                        }
+                    }
+                });
+        CachingMessageDAO cache = new CachingMessageDAO(slow);
+        Assert.assertEquals("c", cache.getMessageById(4).getMessage_text());
+        Thread[] writers = new Thread[4];
+        CyclicBarrier round = new CyclicBarrier(writers.length);
+        for (int t = 0; t < writers.length; t++) {
+            int writer = t;
+            writers[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20; i++) {
+                        round.await();
+                        cache.updateMessageText(3, "writer " + writer + " edit " + i);
+                    }
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        Assert.assertEquals(database.getMessageById(3).getMessage_text(), cache.getMessageById(3).getMessage_text());
+    }
+
+    private static List<Integer> ids(List<Message> messages) {
+        List<Integer> ids = new ArrayList<>();
+        for (Message message : messages) {
+            ids.add(message.getMessage_id());
+        }
+        return ids;
+    }
+}
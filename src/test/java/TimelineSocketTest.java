@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import Controller.SocialMediaController;
+import Events.MessageEventType;
+import Events.Outbound;
+import Events.TimelineHub;
+import Events.TimelineSession;
+import Model.Message;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class TimelineSocketTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Javalin app;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException {
+        ConnectionUtil.resetTestDatabase();
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return webClient.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Connecting to ws://localhost:8080/ws/accounts/1, posting a message as account 1, then subscribing to
+     * account 2 and posting as account 2.
+     *
+     * Expected Result:
+     *  A created event for each message, the second only after subscribing
+     */
+    @Test
+    public void pushCreatedMessages() throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        WebSocket socket = webClient.newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:8080/ws/accounts/1"), new WebSocket.Listener() {
+                    @Override
+                    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                        received.add(data.toString());
+                        webSocket.request(1);
+                        return null;
+                    }
+                }).get(5, TimeUnit.SECONDS);
+
+        post("/register", "{\"username\":\"second\",\"password\":\"password\"}");
+        post("/messages", "{\"posted_by\":2,\"message_text\":\"unseen\",\"time_posted_epoch\":1669947793}");
+        post("/messages", "{\"posted_by\":1,\"message_text\":\"hello\",\"time_posted_epoch\":1669947794}");
+        JsonNode first = objectMapper.readTree(received.poll(5, TimeUnit.SECONDS));
+        Assert.assertEquals("created", first.get("type").asText());
+        Assert.assertEquals("hello", first.get("message").get("message_text").asText());
+
+        socket.sendText("{\"subscribe\":[2]}", true).get(5, TimeUnit.SECONDS);
+        Thread.sleep(200);
+        post("/messages", "{\"posted_by\":2,\"message_text\":\"seen\",\"time_posted_epoch\":1669947795}");
+        JsonNode second = objectMapper.readTree(received.poll(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, second.get("message").get("posted_by").asInt());
+        Assert.assertEquals("seen", second.get("message").get("message_text").asText());
+        socket.sendClose(WebSocket.NORMAL_CLOSURE, "").get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * An Outbound that completes every send at once and counts what it was given.
+     */
+    static class CountingOutbound implements Outbound {
+        int frames;
+        byte[] last;
+
+        @Override
+        public void sendText(ByteBuffer utf8, SendCallback callback) {
+            frames++;
+            last = new byte[utf8.remaining()];
+            utf8.get(last);
+            callback.sent();
+        }
+
+        @Override
+        public void close(int status, String reason) {
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Opening 10,000 simulated sessions spread over 100 accounts and publishing one message per account.
+     *
+     * Expected Result:
+     *  Every session gets exactly the event for its account, and the hub holds well under 1 KB per session
+     */
+    @Test
+    public void tenThousandSessions() throws Exception {
+        TimelineHub hub = new TimelineHub(64, 100);
+        List<CountingOutbound> outbounds = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            outbounds.add(new CountingOutbound());
+        }
+        List<TimelineSession> sessions = new ArrayList<>(10_000);
+        long before = usedHeap();
+        for (int i = 0; i < 10_000; i++) {
+            sessions.add(hub.open(outbounds.get(i), i % 100 + 1));
+        }
+        long perSession = (usedHeap() - before) / 10_000;
+        Assert.assertTrue("bytes per session: " + perSession, perSession < 1024);
+        Assert.assertEquals(10_000, hub.sessionCount());
+        Assert.assertEquals(100, hub.subscriberCount(1));
+
+        for (int account = 1; account <= 100; account++) {
+            hub.publish(MessageEventType.CREATED, new Message(account, account, "text " + account, 1669947792L));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            CountingOutbound outbound = outbounds.get(i);
+            Assert.assertEquals(1, outbound.frames);
+            Assert.assertTrue(new String(outbound.last, StandardCharsets.UTF_8)
+                    .contains("\"posted_by\":" + (i % 100 + 1) + ","));
+        }
+        for (TimelineSession session : sessions) {
+            hub.close(session);
+        }
+        Assert.assertEquals(0, hub.sessionCount());
+        Assert.assertEquals(0, hub.subscriberCount(1));
+    }
+
+    /**
+     * Subscribing a closed session to another account, and racing subscribes against close on 1,000 sessions.
+     *
+     * Expected Result:
+     *  No closed session is left in the index
+     */
+    @Test
+    public void closedSessionsAreNeverIndexed() throws Exception {
+        TimelineHub hub = new TimelineHub(64, 100);
+        TimelineSession closed = hub.open(new CountingOutbound(), 1);
+        hub.close(closed);
+        hub.onMessage(closed, "{\"subscribe\":[2]}");
+        Assert.assertEquals(0, hub.subscriberCount(1));
+        Assert.assertEquals(0, hub.subscriberCount(2));
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                TimelineSession session = hub.open(new CountingOutbound(), 1);
+                CyclicBarrier start = new CyclicBarrier(2);
+                Future<?> subscribe = pool.submit(() -> {
+                    start.await();
+                    hub.onMessage(session, "{\"subscribe\":[3]}");
+                    return null;
+                });
+                Future<?> close = pool.submit(() -> {
+                    start.await();
+                    hub.close(session);
+                    return null;
+                });
+                subscribe.get(5, TimeUnit.SECONDS);
+                close.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Assert.assertEquals(0, hub.sessionCount());
+        Assert.assertEquals(0, hub.subscriberCount(1));
+        Assert.assertEquals(0, hub.subscriberCount(3));
+    }
+
+    /**
+     * Publishing to a session whose sends never complete, with a send queue of 4.
+     *
+     * Expected Result:
+     *  The sixth event finds one frame in flight and a full queue, and the session is closed with 1013
+     */
+    @Test
+    public void slowSessionIsClosed() {
+        TimelineHub hub = new TimelineHub(4, 100);
+        int[] closedWith = {0};
+        TimelineSession session = hub.open(new Outbound() {
+            @Override
+            public void sendText(ByteBuffer utf8, SendCallback callback) {
+            }
+
+            @Override
+            public void close(int status, String reason) {
+                closedWith[0] = status;
+            }
+        }, 1);
+        for (int i = 0; i < 5; i++) {
+            hub.publish(MessageEventType.CREATED, new Message(i, 1, "text", 1669947792L));
+        }
+        Assert.assertEquals(0, closedWith[0]);
+        hub.publish(MessageEventType.CREATED, new Message(5, 1, "text", 1669947792L));
+        Assert.assertEquals(1013, closedWith[0]);
+        Assert.assertEquals(0, hub.sessionCount());
+        Assert.assertEquals(0, hub.subscriberCount(1));
+    }
+}
@@ -0,0 +1,117 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import Controller.SocialMediaController;
+import Util.ConnectionUtil;
+import io.javalin.Javalin;
+
+public class TracingEndpointTest {
+    SocialMediaController socialMediaController;
+    HttpClient webClient;
+    Javalin app;
+    Path otlpFile;
+
+    /**
+     * Before every test, reset the database, restart the Javalin app with every request sampled and
+     * traces exported to a temporary file, and create a new webClient.
+     * @throws InterruptedException
+     */
+    @Before
+    public void setUp() throws InterruptedException, IOException {
+        ConnectionUtil.resetTestDatabase();
+        otlpFile = Files.createTempFile("traces", ".jsonl");
+        System.setProperty("socialmedia.tracing.sampleRate", "1");
+        System.setProperty("socialmedia.tracing.otlpFile", otlpFile.toString());
+        socialMediaController = new SocialMediaController();
+        app = socialMediaController.startAPI();
+        webClient = HttpClient.newHttpClient();
+        app.start(8080);
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        app.stop();
+        System.clearProperty("socialmedia.tracing.sampleRate");
+        System.clearProperty("socialmedia.tracing.otlpFile");
+        Files.deleteIfExists(otlpFile);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages with an X-Request-Id header, then
+     * GET localhost:8080/admin/traces/{requestId}
+     *
+     * Expected Response:
+     *  Status Code: 200, the request id echoed back
+     *  Response Body: an OTLP/JSON document with spans for parsing, validation, each DAO call and serialization,
+     *  also appended to the export file
+     */
+    @Test
+    public void tracePostMessage() throws IOException, InterruptedException {
+        HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{" +
+                        "\"posted_by\":1, " +
+                        "\"message_text\": \"hello message\", " +
+                        "\"time_posted_epoch\": 1669947792}"))
+                .header("Content-Type", "application/json")
+                .header("X-Request-Id", "trace-test-1")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals("trace-test-1", response.headers().firstValue("X-Request-Id").orElse(""));
+
+        HttpResponse<String> trace = send("/admin/traces/trace-test-1");
+        Assert.assertEquals(200, trace.statusCode());
+        String body = trace.body();
+        Assert.assertTrue(body.contains("\"resourceSpans\""));
+        for (String span : new String[]{"POST /messages", "parse", "MessageService.validate",
+                "MessageDAO.doesUserExist", "MessageDAO.insertMessage", "serialize"}) {
+            Assert.assertTrue(span, body.contains("\"name\":\"" + span + "\""));
+        }
+        Assert.assertTrue(body.contains("\"key\":\"db.statement\""));
+
+        String exported = "";
+        for (int i = 0; i < 50 && !exported.contains("trace-test-1"); i++) {
+            Thread.sleep(100);
+            exported = Files.readString(otlpFile);
+        }
+        Assert.assertTrue(exported.contains("\"name\":\"POST /messages\""));
+    }
+
+    /**
+     * Sending an http request with a traceparent header whose sampled flag is off
+     *
+     * Expected Response:
+     *  The request id is still echoed, but no trace is kept for it
+     */
+    @Test
+    public void traceparentNotSampled() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .header("X-Request-Id", "trace-test-2")
+                .header("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00")
+                .build();
+        HttpResponse<String> response = webClient.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals("trace-test-2", response.headers().firstValue("X-Request-Id").orElse(""));
+
+        Assert.assertEquals(404, send("/admin/traces/trace-test-2").statusCode());
+    }
+
+    private HttpResponse<String> send(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}